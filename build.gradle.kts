@@ -20,11 +20,106 @@ dependencies {
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:5.9.2")
 }
 
+// Sources contain non-ASCII test data, so do not depend on the platform encoding
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
 tasks.test {
     useJUnitPlatform()
+    // Rendering is tested against offscreen surfaces, so no display is needed
+    systemProperty("java.awt.headless", "true")
+    // Record new golden images and paths with ./gradlew test -PupdateGolden
+    if (providers.gradleProperty("updateGolden").isPresent) {
+        systemProperty("globalbanner.updateGolden", "true")
+    }
 }
 
 tasks.wrapper {
     gradleVersion = "8.14.1"
     distributionType = Wrapper.DistributionType.BIN
 }
+
+// JMH benchmarks of the hot paths, run headless with ./gradlew jmh
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+dependencies {
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
+val jmhResults = layout.buildDirectory.file("reports/jmh/results.json")
+val jmhBaseline = layout.projectDirectory.file("src/jmh/baseline.json")
+
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks headless. Select benchmarks with -PjmhInclude=<regex>."
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    systemProperty("java.awt.headless", "true")
+    val include = providers.gradleProperty("jmhInclude").orElse(".*")
+    val results = jmhResults.get().asFile
+    argumentProviders.add(CommandLineArgumentProvider {
+        listOf(include.get(), "-rf", "json", "-rff", results.absolutePath)
+    })
+    doFirst { results.parentFile.mkdirs() }
+}
+
+tasks.register<Copy>("jmhBaseline") {
+    group = "benchmark"
+    description = "Records the last JMH results as the checked-in baseline."
+    from(jmhResults)
+    into(jmhBaseline.asFile.parentFile)
+    rename { jmhBaseline.asFile.name }
+}
+
+tasks.register("jmhCompare") {
+    group = "benchmark"
+    description = "Compares the last JMH results with the checked-in baseline and fails on regressions " +
+            "beyond -PjmhTolerance=<percent> (default 10) and beyond the error of both measurements."
+    val results = jmhResults.get().asFile
+    val baseline = jmhBaseline.asFile
+    val tolerance = providers.gradleProperty("jmhTolerance").map { it.toDouble() }.orElse(10.0)
+    doLast {
+        // Score, its error and whether lower is better, by benchmark and parameters
+        fun scores(file: File): Map<String, Triple<Double, Double, Boolean>> {
+            @Suppress("UNCHECKED_CAST")
+            val runs = groovy.json.JsonSlurper().parse(file) as List<Map<String, Any?>>
+            return runs.associate { run ->
+                val params = (run["params"] as Map<*, *>?)?.entries?.joinToString(",", "[", "]") { "${it.key}=${it.value}" } ?: ""
+                val metric = run["primaryMetric"] as Map<*, *>
+                val error = (metric["scoreError"] as? Number)?.toDouble()?.takeUnless { it.isNaN() } ?: 0.0
+                "${run["benchmark"]}$params" to Triple((metric["score"] as Number).toDouble(), error, run["mode"] != "thrpt")
+            }
+        }
+        if (!baseline.exists()) {
+            logger.warn("No baseline at $baseline, skipping the comparison. Record one on a quiet machine with ./gradlew jmh jmhBaseline")
+            return@doLast
+        }
+        check(results.exists()) { "No results at $results, run ./gradlew jmh first" }
+        val before = scores(baseline)
+        val after = scores(results)
+        val regressions = mutableListOf<String>()
+        for ((name, result) in after) {
+            val (score, error, lowerIsBetter) = result
+            val (base, baseError) = before[name] ?: Triple(0.0, 0.0, lowerIsBetter)
+            if (base == 0.0) {
+                println("%-90s %14.3f %14s %8s".format(name, score, "-", "new"))
+                continue
+            }
+            val change = (score - base) / base * 100
+            println("%-90s %14.3f %14.3f %+7.1f%%".format(name, score, base, change))
+            // Noise within the confidence intervals of both runs is not a regression
+            val worse = if (lowerIsBetter) score - base else base - score
+            if (change.let { if (lowerIsBetter) it else -it } > tolerance.get() && worse > error + baseError) {
+                regressions += "$name: %+.1f%%".format(change)
+            }
+        }
+        check(regressions.isEmpty()) {
+            "Benchmarks regressed by more than ${tolerance.get()}%:\n" + regressions.joinToString("\n")
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package one.cafebabe.globalbanner;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures painting the banner panel into an offscreen surface, at the
+ * scale factors of common standard and HiDPI screens.
+ */
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BannerPaintBenchmark {
+    @Param({"1.0", "1.5", "2.0"})
+    private double scale;
+
+    private BufferedImage image;
+    private JPanel panel;
+    private Graphics2D g;
+
+    @Setup
+    public void setUp() throws IOException {
+        image = ImageLoader.loadResource("/image.png");
+        panel = Main.getJPanel(image);
+        panel.setSize(panel.getPreferredSize());
+
+        BufferedImage surface = new BufferedImage((int) Math.ceil(image.getWidth() * scale),
+                (int) Math.ceil(image.getHeight() * scale), BufferedImage.TYPE_INT_ARGB_PRE);
+        g = surface.createGraphics();
+        g.scale(scale, scale);
+    }
+
+    @TearDown
+    public void tearDown() {
+        g.dispose();
+    }
+
+    /**
+     * Paints the panel through its render cache.
+     */
+    @Benchmark
+    public void paintPanel() {
+        panel.paint(g);
+    }
+
+    /**
+     * Draws the decoded image directly, as the panel did before the render cache,
+     * leaving any scaling to the graphics pipeline.
+     */
+    @Benchmark
+    public void drawDecodedImage() {
+        g.drawImage(image, 0, 0, null);
+    }
+}
@@ -0,0 +1,78 @@
+package one.cafebabe.globalbanner;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.*;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one frame of many banners dodging at once, all driven by the registry's clock.
+ * Every iteration fails if a frame takes more than {@link BenchmarkSupport#FRAME_BUDGET}
+ * of CPU time on average.
+ */
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BannerRegistryBenchmark {
+    /**
+     * Length of one display frame at 60 Hz
+     */
+    private static final long FRAME = TimeUnit.SECONDS.toNanos(1) / 60;
+
+    @Param({"1", "120"})
+    public int bannerCount;
+
+    private final BenchmarkSupport.FrameBudget frameBudget = new BenchmarkSupport.FrameBudget();
+    private long now = 0;
+    private AnimationClock clock;
+    private List<WindowManager> windowManagers;
+
+    @Setup
+    public void setUp() {
+        ScreenManager screenManager = new ScreenManager();
+        screenManager.publishTopology(BenchmarkSupport.screens(4));
+        screenManager.setCurrentScreen(0);
+
+        clock = AnimationClock.createManual(() -> now);
+        BannerRegistry registry = new BannerRegistry(screenManager, clock);
+        for (int i = 0; i < bannerCount; i++) {
+            WindowManager windowManager = registry.createBanner("Display" + (i % 4));
+            // A lightweight component stands in for the frame
+            JPanel frame = new JPanel();
+            frame.setSize(200, 100);
+            windowManager.setFrame(frame);
+        }
+        registry.layout();
+        windowManagers = registry.getBanners();
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        frameBudget.start();
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkBudget() {
+        frameBudget.check("of " + bannerCount + " banners");
+    }
+
+    /**
+     * Advances all banners by one frame, sending them to the opposite corner whenever they have arrived.
+     */
+    @Benchmark
+    public long frame() {
+        if (!clock.isRunning()) {
+            for (WindowManager windowManager : windowManagers) {
+                windowManager.moveWindowToOppositeCorner();
+            }
+        }
+        now += FRAME;
+        clock.tick(now);
+        frameBudget.frame();
+        return clock.getTickCount();
+    }
+}
@@ -0,0 +1,77 @@
+package one.cafebabe.globalbanner;
+
+import java.awt.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Helpers shared by the benchmarks, which all run headless.
+ */
+final class BenchmarkSupport {
+    /**
+     * CPU time a frame may take at 60 Hz, leaving the rest of the frame to the system
+     */
+    static final long FRAME_BUDGET = TimeUnit.MILLISECONDS.toNanos(8);
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Checks that the frames of an iteration took at most {@link #FRAME_BUDGET} of CPU time each
+     * on average. CPU time rather than wall-clock time is checked, so a busy host does not fail
+     * the iteration. Like the rest of the benchmark state, it is used on the benchmark thread only.
+     */
+    static final class FrameBudget {
+        private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        private long startCpuTime;
+        private long frames;
+
+        /**
+         * Starts counting the frames of an iteration.
+         */
+        void start() {
+            frames = 0;
+            startCpuTime = threads.getCurrentThreadCpuTime();
+        }
+
+        /**
+         * Counts a frame.
+         */
+        void frame() {
+            frames++;
+        }
+
+        /**
+         * Fails the iteration if its frames took more than the budget on average.
+         *
+         * @param what what a frame does, for the message
+         */
+        void check(String what) {
+            double frameTime = (double) (threads.getCurrentThreadCpuTime() - startCpuTime) / Math.max(1, frames);
+            if (frameTime > FRAME_BUDGET) {
+                throw new IllegalStateException(String.format(
+                        "A frame %s took %.3f ms of CPU time, over the budget of %.3f ms",
+                        what, frameTime / 1e6, FRAME_BUDGET / 1e6));
+            }
+        }
+    }
+
+    /**
+     * Creates synthetic full HD screens placed side by side.
+     *
+     * @param count the number of screens
+     * @return the screens
+     */
+    static List<ScreenInfo> screens(int count) {
+        List<ScreenInfo> screens = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            screens.add(new ScreenInfo(i, "Display" + i, null,
+                    new Rectangle(i * 1920, 0, 1920, 1080), new Insets(0, 0, 0, 0),
+                    1.0, 1.0, new DisplayMode(1920, 1080, 32, 60)));
+        }
+        return screens;
+    }
+}
@@ -0,0 +1,81 @@
+package one.cafebabe.globalbanner;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one frame of a dodge as the golden rendering test drives it: a clock tick
+ * followed by a paint of the banner window into an offscreen surface.
+ * Every iteration fails if a frame takes more than {@link BenchmarkSupport#FRAME_BUDGET}
+ * of CPU time on average.
+ */
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DodgeFrameBenchmark {
+    /**
+     * Length of one display frame at 60 Hz
+     */
+    private static final long FRAME = TimeUnit.SECONDS.toNanos(1) / 60;
+
+    private final BenchmarkSupport.FrameBudget frameBudget = new BenchmarkSupport.FrameBudget();
+    private long now = 0;
+    private AnimationClock clock;
+    private WindowManager windowManager;
+    private JPanel frame;
+    private OffscreenSurface surface;
+
+    @Setup
+    public void setUp() throws IOException {
+        ScreenManager screenManager = new ScreenManager();
+        screenManager.publishTopology(BenchmarkSupport.screens(1));
+        screenManager.setCurrentScreen(0);
+
+        clock = AnimationClock.createManual(() -> now);
+        BannerPanel panel = Main.getJPanel(ImageLoader.loadResource("/image.png"));
+        // A lightweight component stands in for the frame
+        frame = new JPanel(new BorderLayout());
+        frame.add(panel);
+        frame.setSize(panel.getPreferredSize());
+        // Without a window, validate() would not lay the panel out
+        frame.doLayout();
+        windowManager = new WindowManager(screenManager, clock);
+        windowManager.setFrame(frame);
+        windowManager.positionWindowOnCurrentScreen();
+        surface = new OffscreenSurface(frame.getWidth(), frame.getHeight());
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        frameBudget.start();
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkBudget() {
+        frameBudget.check("of a dodge");
+    }
+
+    /**
+     * Ticks the clock and paints the window, sending it to the opposite corner whenever it has arrived.
+     * The sampled percentiles show how the slowest frames compare with the budget.
+     */
+    @Benchmark
+    public Object frame() {
+        if (!clock.isRunning()) {
+            windowManager.moveWindowToOppositeCorner();
+        }
+        now += FRAME;
+        clock.tick(now);
+        BufferedImage image = surface.render(frame);
+        frameBudget.frame();
+        return image;
+    }
+}
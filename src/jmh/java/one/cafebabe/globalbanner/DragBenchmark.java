@@ -0,0 +1,68 @@
+package one.cafebabe.globalbanner;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.*;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseEvent;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures handling drag events, coalesced into one window move per frame.
+ */
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DragBenchmark {
+    /**
+     * Drag events delivered per display frame
+     */
+    private static final int EVENTS_PER_FRAME = 16;
+
+    private long now = 0;
+    private AnimationClock clock;
+    private MouseDragListener listener;
+    private MouseEvent[] dragEvents;
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        ScreenManager screenManager = new ScreenManager();
+        screenManager.publishTopology(BenchmarkSupport.screens(2));
+        clock = AnimationClock.createManual(() -> now);
+        WindowManager windowManager = new WindowManager(screenManager, clock);
+
+        // A lightweight component stands in for the frame
+        JPanel frame = new JPanel();
+        frame.setBounds(100, 100, 400, 400);
+        listener = new MouseDragListener(frame, windowManager, 20, true);
+
+        // Events are created up front so only their handling is measured
+        JPanel source = new JPanel();
+        dragEvents = new MouseEvent[256];
+        for (int i = 0; i < dragEvents.length; i++) {
+            int x = 200 + (i % 128) * 10;
+            dragEvents[i] = new MouseEvent(source, MouseEvent.MOUSE_DRAGGED, 0, InputEvent.BUTTON1_DOWN_MASK,
+                    x - 100, 100, x, 200, 0, false, MouseEvent.NOBUTTON);
+        }
+        listener.mousePressed(new MouseEvent(source, MouseEvent.MOUSE_PRESSED, 0, InputEvent.BUTTON1_DOWN_MASK,
+                100, 100, 200, 200, 1, false, MouseEvent.BUTTON1));
+    }
+
+    /**
+     * Handles one frame's worth of drag events followed by the frame tick.
+     */
+    @Benchmark
+    @OperationsPerInvocation(EVENTS_PER_FRAME)
+    public void dragFrame() {
+        for (int i = 0; i < EVENTS_PER_FRAME; i++) {
+            listener.mouseDragged(dragEvents[next]);
+            next = (next + 1) & (dragEvents.length - 1);
+        }
+        now += TimeUnit.SECONDS.toNanos(1) / 60;
+        clock.tick(now);
+    }
+}
@@ -0,0 +1,75 @@
+package one.cafebabe.globalbanner;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading the banner image with ImageIO and through the pixel cache.
+ */
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ImageDecodeBenchmark {
+    private static final String NAME = "/image.png";
+
+    private byte[] data;
+    private byte[] hash;
+    private Path cacheDirectory;
+    private PixelCache pixelCache;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream in = ImageDecodeBenchmark.class.getResourceAsStream(NAME)) {
+            data = in.readAllBytes();
+        }
+        hash = PixelCache.hash(data);
+
+        cacheDirectory = Files.createTempDirectory("pixel-cache");
+        pixelCache = new PixelCache(cacheDirectory);
+        pixelCache.write(NAME, hash, ImageLoader.decode(new ByteArrayInputStream(data)));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (var files = Files.walk(cacheDirectory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Decodes the PNG with ImageIO.
+     */
+    @Benchmark
+    public BufferedImage decodeImageIO() throws IOException {
+        return ImageLoader.decode(new ByteArrayInputStream(data));
+    }
+
+    /**
+     * Reads the pre-decoded pixels from the memory-mapped cache file.
+     */
+    @Benchmark
+    public BufferedImage readPixelCache() {
+        return pixelCache.read(NAME, hash);
+    }
+
+    /**
+     * Hashes the PNG and reads the pre-decoded pixels, as a cached startup does.
+     */
+    @Benchmark
+    public BufferedImage loadThroughPixelCache() throws IOException {
+        return ImageLoader.loadCached(pixelCache, NAME, data);
+    }
+}
@@ -0,0 +1,84 @@
+package one.cafebabe.globalbanner;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures sampling the pointer around a banner, with the pointer sweeping back and
+ * forth across the desktop and through the banner. Time is simulated, advancing by
+ * the delay each sample asks for, and every iteration fails if the sampling CPU time
+ * exceeds {@link ProximitySampler#CPU_BUDGET} of the simulated time.
+ */
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProximityBenchmark {
+    /**
+     * Speed of the pointer in pixels per second
+     */
+    private static final double POINTER_SPEED = 1500;
+
+    /**
+     * Width of the sweep in pixels
+     */
+    private static final int SWEEP_WIDTH = 3840;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final Point location = new Point();
+    private long now = 0;
+    private ProximitySampler sampler;
+    private long iterationStartTime;
+    private long iterationStartCpuTime;
+
+    @Setup
+    public void setUp() {
+        sampler = new ProximitySampler(this::pointer, () -> { }, () -> now, WindowManager.ANIMATION_DURATION);
+        sampler.setTarget(new Rectangle(1700, 500, 400, 200));
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        iterationStartTime = now;
+        iterationStartCpuTime = threads.getCurrentThreadCpuTime();
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkBudget() {
+        double share = (double) (threads.getCurrentThreadCpuTime() - iterationStartCpuTime) / (now - iterationStartTime);
+        if (share > ProximitySampler.CPU_BUDGET) {
+            throw new IllegalStateException(String.format(
+                    "Sampling used %.3f%% of a core, over the budget of %.3f%%",
+                    share * 100, ProximitySampler.CPU_BUDGET * 100));
+        }
+    }
+
+    /**
+     * Takes one sample and advances the simulated time to the next one.
+     *
+     * @return the delay until the next sample
+     */
+    @Benchmark
+    public long sample() {
+        long delay = sampler.sample();
+        now += delay;
+        return delay;
+    }
+
+    /**
+     * Places the pointer on a horizontal sweep through the banner at the simulated time.
+     *
+     * @return the pointer location
+     */
+    private Point pointer() {
+        long position = (long) (now / 1e9 * POINTER_SPEED) % (2 * SWEEP_WIDTH);
+        location.setLocation(position < SWEEP_WIDTH ? position : 2 * SWEEP_WIDTH - position, 600);
+        return location;
+    }
+}
@@ -0,0 +1,62 @@
+package one.cafebabe.globalbanner;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the screen menus and updating them on a hot-plug, for N screens.
+ */
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScreenMenuBenchmark {
+    @Param({"1", "4", "16"})
+    public int screenCount;
+
+    private List<ScreenInfo> screens;
+    private List<ScreenInfo> screensWithHotPlug;
+    private WindowManager windowManager;
+    private ScreenManager boundScreenManager;
+    private boolean plugged = false;
+
+    @Setup
+    public void setUp() {
+        screens = BenchmarkSupport.screens(screenCount);
+        screensWithHotPlug = BenchmarkSupport.screens(screenCount + 1);
+        windowManager = new WindowManager(new ScreenManager(), AnimationClock.createManual(System::nanoTime));
+
+        // Menus bound once, for the incremental update benchmark
+        boundScreenManager = new ScreenManager();
+        boundScreenManager.publishTopology(screens);
+        UIFactory uiFactory = new UIFactory(boundScreenManager, windowManager);
+        uiFactory.createMenuBar(null);
+        uiFactory.createScreenSelectionMenu(null);
+    }
+
+    /**
+     * Builds the menu bar and the popup menu from scratch.
+     */
+    @Benchmark
+    public void buildMenus(Blackhole blackhole) {
+        ScreenManager screenManager = new ScreenManager();
+        screenManager.publishTopology(screens);
+        UIFactory uiFactory = new UIFactory(screenManager, windowManager);
+        blackhole.consume(uiFactory.createMenuBar(null));
+        blackhole.consume(uiFactory.createScreenSelectionMenu(null));
+    }
+
+    /**
+     * Plugs or unplugs one screen, updating both bound menus in place.
+     */
+    @Benchmark
+    public boolean hotPlug() {
+        plugged = !plugged;
+        return boundScreenManager.publishTopology(plugged ? screensWithHotPlug : screens);
+    }
+}
@@ -0,0 +1,81 @@
+package one.cafebabe.globalbanner;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one frame of a scrolling text ticker for messages of growing length.
+ * Scrolling shifts the backbuffer and draws only the exposed strip, so the frame
+ * cost should stay flat; drawing the whole message every frame is measured for comparison.
+ */
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TickerBenchmark {
+    /**
+     * Time between two frames at 60 Hz
+     */
+    private static final long FRAME_INTERVAL = TimeUnit.SECONDS.toNanos(1) / 60;
+
+    @Param({"100", "1000", "10000", "100000"})
+    private int messageLength;
+
+    private TextTicker ticker;
+    private String message;
+    private Graphics2D g;
+    private long now;
+    private double offset;
+
+    @Setup
+    public void setUp() {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < messageLength) {
+            text.append("Build #").append(text.length()).append(" passed, deploying to staging. ");
+        }
+        message = text.substring(0, messageLength);
+        ticker = new TextTicker(List.of(message), 600, AnimationClock.createManual(() -> 0));
+
+        BufferedImage surface = new BufferedImage(ticker.getWidth(), ticker.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+        g = surface.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setFont(TextTicker.DEFAULT_FONT);
+        ticker.draw(g, 0, 0);
+        now = 1;
+        ticker.tick(now);
+    }
+
+    @TearDown
+    public void tearDown() {
+        g.dispose();
+    }
+
+    /**
+     * Scrolls the ticker by one frame and draws it.
+     */
+    @Benchmark
+    public void scrollFrame() {
+        now += FRAME_INTERVAL;
+        ticker.tick(now);
+        ticker.draw(g, 0, 0);
+    }
+
+    /**
+     * Draws the whole message at the scrolled position every frame, as a naive ticker would.
+     */
+    @Benchmark
+    public void drawWholeMessage() {
+        offset -= TextTicker.DEFAULT_SPEED / 60;
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, ticker.getWidth(), ticker.getHeight());
+        g.setComposite(AlphaComposite.SrcOver);
+        g.setColor(Color.WHITE);
+        g.drawString(message, (float) offset, 30);
+    }
+}
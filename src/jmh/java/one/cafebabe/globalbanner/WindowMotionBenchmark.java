@@ -0,0 +1,95 @@
+package one.cafebabe.globalbanner;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the window position math and spring of a hover move, driven by a manual clock.
+ */
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WindowMotionBenchmark {
+    /**
+     * Length of one display frame at 60 Hz
+     */
+    private static final long FRAME = TimeUnit.SECONDS.toNanos(1) / 60;
+
+    private long now = 0;
+    private AnimationClock clock;
+    private WindowManager windowManager;
+    private SpringMotion spring;
+    private boolean left = false;
+
+    @Setup
+    public void setUp() {
+        ScreenManager screenManager = new ScreenManager();
+        screenManager.publishTopology(BenchmarkSupport.screens(1));
+        screenManager.setCurrentScreen(0);
+
+        clock = AnimationClock.createManual(() -> now);
+        windowManager = new WindowManager(screenManager, clock);
+
+        // A lightweight component stands in for the frame
+        JPanel frame = new JPanel();
+        frame.setSize(400, 400);
+        windowManager.setFrame(frame);
+        windowManager.positionWindowOnCurrentScreen();
+
+        spring = new SpringMotion(WindowManager.SPRING_FREQUENCY);
+    }
+
+    /**
+     * Runs one complete hover move to the opposite corner, frame by frame.
+     */
+    @Benchmark
+    public long dodge() {
+        windowManager.moveWindowToOppositeCorner();
+        long frames = 0;
+        while (clock.isRunning()) {
+            now += FRAME;
+            clock.tick(now);
+            frames++;
+        }
+        return frames;
+    }
+
+    /**
+     * Runs a hover move that is retargeted every few frames, as by rapid hovers.
+     */
+    @Benchmark
+    public long rapidHovers() {
+        long frames = 0;
+        for (int hover = 0; hover < 4; hover++) {
+            windowManager.moveWindowToOppositeCorner();
+            for (int frame = 0; frame < 3; frame++) {
+                now += FRAME;
+                clock.tick(now);
+                frames++;
+            }
+        }
+        while (clock.isRunning()) {
+            now += FRAME;
+            clock.tick(now);
+            frames++;
+        }
+        return frames;
+    }
+
+    /**
+     * Advances the spring by one frame, retargeting it whenever it settles.
+     */
+    @Benchmark
+    public int spring() {
+        if (!spring.advance(FRAME)) {
+            left = !left;
+            spring.setTarget(left ? 0 : 1500, 0);
+        }
+        return spring.getX();
+    }
+}
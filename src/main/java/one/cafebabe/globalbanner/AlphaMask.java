@@ -0,0 +1,218 @@
+package one.cafebabe.globalbanner;
+
+import java.awt.*;
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Bit-packed mask of the opaque pixels of an image.
+ * The mask is computed once, after which hit tests are single bit lookups.
+ */
+public class AlphaMask {
+    /**
+     * Default minimum alpha value for a pixel to count as opaque
+     */
+    public static final int DEFAULT_THRESHOLD = 64;
+
+    /**
+     * Width of the mask in pixels
+     */
+    private final int width;
+
+    /**
+     * Height of the mask in pixels
+     */
+    private final int height;
+
+    /**
+     * Number of 64-bit words per row
+     */
+    private final int stride;
+
+    /**
+     * One bit per pixel, set if the pixel is opaque, or null if all pixels are opaque
+     */
+    private final long[] bits;
+
+    /**
+     * Outline of the opaque pixels, built on first use
+     */
+    private Area shape = null;
+
+    /**
+     * Creates a new AlphaMask from the specified image.
+     *
+     * @param image the image to compute the mask from
+     * @param threshold the minimum alpha value (0-255) for a pixel to count as opaque
+     */
+    public AlphaMask(BufferedImage image, int threshold) {
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.stride = (width + 63) >>> 6;
+        this.bits = new long[stride * height];
+
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            int offset = y * stride;
+            for (int x = 0; x < width; x++) {
+                if ((row[x] >>> 24) >= threshold) {
+                    bits[offset + (x >>> 6)] |= 1L << x;
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a new AlphaMask in which all pixels are opaque, without storing a bit per pixel.
+     *
+     * @param width the width of the mask in pixels
+     * @param height the height of the mask in pixels
+     */
+    private AlphaMask(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.stride = 0;
+        this.bits = null;
+    }
+
+    /**
+     * Creates a mask in which all pixels are opaque, e.g. for content that changes shape
+     * from frame to frame and reacts to the mouse everywhere.
+     *
+     * @param width the width of the mask in pixels
+     * @param height the height of the mask in pixels
+     * @return the mask
+     */
+    public static AlphaMask opaque(int width, int height) {
+        return new AlphaMask(width, height);
+    }
+
+    /**
+     * Checks whether the pixel at the specified location is opaque.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @return true if the pixel is inside the mask and opaque
+     */
+    public boolean contains(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return false;
+        }
+        return bits == null || (bits[y * stride + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Gets the outline of the opaque pixels. Horizontal runs of opaque pixels
+     * are merged with identical runs on the following rows into rectangles
+     * before they are combined into a single area.
+     *
+     * @return the outline as an area, in mask coordinates
+     */
+    public Shape getShape() {
+        if (shape == null) {
+            shape = bits == null ? new Area(new Rectangle(0, 0, width, height)) : buildShape();
+        }
+        return shape;
+    }
+
+    /**
+     * Builds the outline of the opaque pixels from merged runs.
+     *
+     * @return the outline as an area
+     */
+    private Area buildShape() {
+        Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO);
+
+        // Runs of the previous row that are still growing downwards, as [start, end, top] triples
+        int[] open = new int[3 * (width / 2 + 1)];
+        int openCount = 0;
+        int[] next = new int[open.length];
+
+        for (int y = 0; y <= height; y++) {
+            int nextCount = 0;
+            int i = 0;
+            int x = 0;
+            while (y < height && x < width) {
+                // Find the next run of opaque pixels in this row
+                while (x < width && !contains(x, y)) {
+                    x++;
+                }
+                if (x >= width) {
+                    break;
+                }
+                int start = x;
+                while (x < width && contains(x, y)) {
+                    x++;
+                }
+
+                // Close open runs that end before this one
+                while (i < openCount && open[i] < start) {
+                    addRectangle(path, open, i, y);
+                    i += 3;
+                }
+
+                int top = y;
+                if (i < openCount && open[i] == start && open[i + 1] == x) {
+                    // Same run as on the previous row, so extend it
+                    top = open[i + 2];
+                    i += 3;
+                }
+                next[nextCount++] = start;
+                next[nextCount++] = x;
+                next[nextCount++] = top;
+            }
+
+            // Close the remaining runs of the previous row
+            while (i < openCount) {
+                addRectangle(path, open, i, y);
+                i += 3;
+            }
+
+            int[] swap = open;
+            open = next;
+            next = swap;
+            openCount = nextCount;
+        }
+
+        return new Area(path);
+    }
+
+    /**
+     * Adds the rectangle covered by a finished run to the path.
+     *
+     * @param path the path to add to
+     * @param runs the run array
+     * @param index the index of the run in the array
+     * @param bottom the row below the last row of the run
+     */
+    private static void addRectangle(Path2D.Float path, int[] runs, int index, int bottom) {
+        int left = runs[index];
+        int right = runs[index + 1];
+        int top = runs[index + 2];
+        path.moveTo(left, top);
+        path.lineTo(right, top);
+        path.lineTo(right, bottom);
+        path.lineTo(left, bottom);
+        path.closePath();
+    }
+
+    /**
+     * Gets the width of the mask.
+     *
+     * @return the width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the height of the mask.
+     *
+     * @return the height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,208 @@
+package one.cafebabe.globalbanner;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Plays the frames of a {@link FrameSource} on an animation clock.
+ * Frames are decoded lazily as playback reaches them and kept in a bounded
+ * {@link FrameRing}, so memory use is capped however long the animation is.
+ * Each frame change only repaints the region that differs from the previous frame.
+ * Must be used on the Event Dispatch Thread.
+ */
+public class AnimatedImage implements AnimationClock.Animation {
+    /**
+     * Default memory budget for decoded frames, in bytes
+     */
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    /**
+     * Source of the frames
+     */
+    private final FrameSource source;
+
+    /**
+     * Clock driving playback
+     */
+    private final AnimationClock animationClock;
+
+    /**
+     * Recently decoded frames
+     */
+    private final FrameRing frames;
+
+    /**
+     * Component repainted when the frame changes, or null
+     */
+    private Component repaintTarget = null;
+
+    /**
+     * Index of the frame currently shown
+     */
+    private int frameIndex = 0;
+
+    /**
+     * Time in nanoseconds at which the next frame is due
+     */
+    private long nextFrameTime;
+
+    /**
+     * Whether decoding has failed, which stops playback for good
+     */
+    private boolean failed = false;
+
+    /**
+     * Creates a new AnimatedImage with the memory budget set by the system property
+     * {@code globalbanner.frameCacheBytes}.
+     *
+     * @param source the source of the frames
+     * @param animationClock the clock driving playback
+     */
+    public AnimatedImage(FrameSource source, AnimationClock animationClock) {
+        this(source, animationClock, Long.getLong("globalbanner.frameCacheBytes", DEFAULT_MAX_BYTES));
+    }
+
+    /**
+     * Creates a new AnimatedImage.
+     *
+     * @param source the source of the frames
+     * @param animationClock the clock driving playback
+     * @param maxBytes the memory budget for decoded frames
+     */
+    public AnimatedImage(FrameSource source, AnimationClock animationClock, long maxBytes) {
+        this.source = source;
+        this.animationClock = animationClock;
+        this.frames = new FrameRing(source.getWidth(), source.getHeight(), source.getFrameCount(), maxBytes);
+    }
+
+    /**
+     * Sets the component to repaint when the frame changes.
+     * The image is expected to be drawn at the origin of the component.
+     *
+     * @param repaintTarget the component
+     */
+    public void setRepaintTarget(Component repaintTarget) {
+        this.repaintTarget = repaintTarget;
+    }
+
+    /**
+     * Starts playback from the current frame. Still images are not animated.
+     */
+    public void start() {
+        if (source.getFrameCount() > 1 && !failed && !animationClock.isAnimating(this)) {
+            nextFrameTime = animationClock.now() + source.getFrameDuration(frameIndex);
+            animationClock.start(this);
+        }
+    }
+
+    /**
+     * Pauses playback on the current frame.
+     */
+    public void stop() {
+        animationClock.stop(this);
+    }
+
+    /**
+     * Checks whether the animation is playing.
+     *
+     * @return true if playback is running
+     */
+    public boolean isPlaying() {
+        return animationClock.isAnimating(this);
+    }
+
+    @Override
+    public boolean tick(long now) {
+        if (now < nextFrameTime) {
+            return true;
+        }
+
+        // Skip the frames that were due while the EDT was busy, repainting everything they changed
+        Rectangle changed = null;
+        int frameCount = source.getFrameCount();
+        for (int skipped = 0; now >= nextFrameTime; skipped++) {
+            if (skipped == frameCount) {
+                // Far behind, e.g. after the machine slept: resynchronize instead of catching up
+                nextFrameTime = now + source.getFrameDuration(frameIndex);
+                break;
+            }
+            frameIndex = (frameIndex + 1) % frameCount;
+            nextFrameTime += source.getFrameDuration(frameIndex);
+            Rectangle region = source.getChangedRegion(frameIndex);
+            if (changed == null) {
+                changed = region;
+            } else {
+                changed.add(region);
+            }
+        }
+
+        if (repaintTarget != null && changed != null && !changed.isEmpty()) {
+            repaintTarget.repaint(changed.x, changed.y, changed.width, changed.height);
+        }
+        return !failed;
+    }
+
+    /**
+     * Draws the current frame, decoding it first if it is not cached.
+     *
+     * @param g the graphics context to draw to
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     */
+    public void draw(Graphics2D g, int x, int y) {
+        frames.setConfiguration(g.getDeviceConfiguration());
+        BufferedImage frame = getFrame(frameIndex);
+        if (frame != null) {
+            g.drawImage(frame, x, y, null);
+        }
+    }
+
+    /**
+     * Gets a frame from the ring, decoding it if necessary.
+     *
+     * @param index the index of the frame
+     * @return the frame, or null if it cannot be decoded
+     */
+    BufferedImage getFrame(int index) {
+        BufferedImage frame = frames.get(index);
+        if (frame != null || failed) {
+            return frame;
+        }
+        try {
+            return frames.put(index, source.decodeFrame(index));
+        } catch (IOException e) {
+            System.err.println("Error decoding frame " + index + ": " + e.getMessage());
+            failed = true;
+            stop();
+            return null;
+        }
+    }
+
+    /**
+     * Gets the index of the frame currently shown.
+     *
+     * @return the frame index
+     */
+    public int getFrameIndex() {
+        return frameIndex;
+    }
+
+    /**
+     * Gets the source of the frames.
+     *
+     * @return the frame source
+     */
+    public FrameSource getSource() {
+        return source;
+    }
+
+    /**
+     * Gets the ring of decoded frames.
+     *
+     * @return the frame ring
+     */
+    public FrameRing getFrames() {
+        return frames;
+    }
+}
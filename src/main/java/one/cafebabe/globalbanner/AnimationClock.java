@@ -0,0 +1,288 @@
+package one.cafebabe.globalbanner;
+
+import javax.swing.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Shared animation clock for the Global Banner application.
+ * A single Swing timer, paced to the display refresh rate, drives every running
+ * animation and is stopped as soon as no animation is left, so a banner at rest
+ * schedules nothing at all.
+ * All methods must be called on the Event Dispatch Thread.
+ */
+public class AnimationClock implements ActionListener {
+    /**
+     * Refresh rate in Hz used when the display does not report one
+     */
+    private static final int DEFAULT_REFRESH_RATE = 60;
+
+    /**
+     * Clock shared by all window managers that do not get one explicitly
+     */
+    private static AnimationClock sharedClock = null;
+
+    /**
+     * A single animation driven by the clock.
+     */
+    public interface Animation {
+        /**
+         * Advances the animation to the specified time.
+         *
+         * @param now the current time in nanoseconds, as returned by the clock's time source
+         * @return true if the animation is still running, false if it has finished
+         */
+        boolean tick(long now);
+    }
+
+    /**
+     * Animations currently running
+     */
+    private final List<Animation> animations = new ArrayList<>();
+
+    /**
+     * Timer firing once per display frame while animations are running
+     */
+    private final Timer timer;
+
+    /**
+     * Source of the current time in nanoseconds
+     */
+    private final LongSupplier timeSource;
+
+    /**
+     * Whether the clock only advances when {@link #tick(long)} is called
+     */
+    private final boolean manual;
+
+    /**
+     * Number of frames ticked since the clock was created
+     */
+    private long tickCount = 0;
+
+    /**
+     * Time between frames in nanoseconds
+     */
+    private long frameInterval;
+
+    /**
+     * Time of the previous frame in nanoseconds, or 0 if the clock was idle
+     */
+    private long lastTickTime = 0;
+
+    /**
+     * Number of frames missed because the Event Dispatch Thread was busy
+     */
+    private long droppedFrames = 0;
+
+    /**
+     * Creates a new AnimationClock ticking at the specified refresh rate.
+     *
+     * @param refreshRate the number of frames per second
+     */
+    public AnimationClock(int refreshRate) {
+        this(refreshRate, System::nanoTime);
+    }
+
+    /**
+     * Creates a new AnimationClock ticking at the specified refresh rate with a custom time source.
+     *
+     * @param refreshRate the number of frames per second
+     * @param timeSource the source of the current time in nanoseconds
+     */
+    public AnimationClock(int refreshRate, LongSupplier timeSource) {
+        this(refreshRate, timeSource, false);
+    }
+
+    /**
+     * Creates a new AnimationClock.
+     *
+     * @param refreshRate the number of frames per second
+     * @param timeSource the source of the current time in nanoseconds
+     * @param manual whether the clock only advances when {@link #tick(long)} is called
+     */
+    private AnimationClock(int refreshRate, LongSupplier timeSource, boolean manual) {
+        this.timeSource = timeSource;
+        this.manual = manual;
+        timer = new Timer(0, this);
+        setRefreshRate(refreshRate);
+        // Drop frames rather than queueing them up when the EDT is busy
+        timer.setCoalesce(true);
+    }
+
+    /**
+     * Gets the clock shared by the whole application.
+     * It ticks at a default rate until {@link #setRefreshRate(int)} paces it to the displays.
+     *
+     * @return the shared animation clock
+     */
+    public static AnimationClock getShared() {
+        if (sharedClock == null) {
+            sharedClock = new AnimationClock(DEFAULT_REFRESH_RATE);
+        }
+        return sharedClock;
+    }
+
+    /**
+     * Creates a clock that never ticks on its own. Animations only advance when
+     * {@link #tick(long)} is called, which makes them deterministic for offscreen
+     * rendering, tests and benchmarks.
+     *
+     * @param timeSource the source of the current time in nanoseconds
+     * @return the manual clock
+     */
+    public static AnimationClock createManual(LongSupplier timeSource) {
+        return new AnimationClock(DEFAULT_REFRESH_RATE, timeSource, true);
+    }
+
+    /**
+     * Paces the clock to the specified refresh rate.
+     *
+     * @param refreshRate the number of frames per second, or zero or less for the default rate
+     */
+    public void setRefreshRate(int refreshRate) {
+        int frameMillis = Math.max(1, Math.round(1000f / (refreshRate > 0 ? refreshRate : DEFAULT_REFRESH_RATE)));
+        timer.setDelay(frameMillis);
+        timer.setInitialDelay(frameMillis);
+        frameInterval = TimeUnit.MILLISECONDS.toNanos(frameMillis);
+    }
+
+    /**
+     * Gets the current time of this clock.
+     *
+     * @return the current time in nanoseconds
+     */
+    public long now() {
+        return timeSource.getAsLong();
+    }
+
+    /**
+     * Starts driving the specified animation. Starting an animation that is
+     * already running has no effect.
+     *
+     * @param animation the animation to start
+     */
+    public void start(Animation animation) {
+        if (!animations.contains(animation)) {
+            animations.add(animation);
+        }
+        if (!manual && !timer.isRunning()) {
+            timer.start();
+        }
+    }
+
+    /**
+     * Stops driving the specified animation.
+     *
+     * @param animation the animation to stop
+     */
+    public void stop(Animation animation) {
+        animations.remove(animation);
+        if (animations.isEmpty()) {
+            timer.stop();
+            lastTickTime = 0;
+        }
+    }
+
+    /**
+     * Checks whether the specified animation is running.
+     *
+     * @param animation the animation to check
+     * @return true if the animation is running
+     */
+    public boolean isAnimating(Animation animation) {
+        return animations.contains(animation);
+    }
+
+    /**
+     * Checks whether the clock is currently ticking.
+     *
+     * @return true if at least one animation is running
+     */
+    public boolean isRunning() {
+        return manual ? !animations.isEmpty() : timer.isRunning();
+    }
+
+    /**
+     * Gets the number of frames ticked since the clock was created.
+     *
+     * @return the tick count
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * Gets the number of frames missed since the clock was created, because
+     * the time between two ticks spanned more than one frame.
+     *
+     * @return the dropped frame count
+     */
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        tick(now());
+    }
+
+    /**
+     * Advances all running animations to the specified time and removes the
+     * ones that have finished.
+     *
+     * @param now the current time in nanoseconds
+     */
+    public void tick(long now) {
+        tickCount++;
+        if (lastTickTime != 0) {
+            recordFrame(now - lastTickTime);
+        }
+        BannerMetrics metrics = BannerMetrics.get();
+        if (metrics != null) {
+            metrics.recordWakeup();
+        }
+
+        // Iterate backwards so finished animations can be removed in place
+        for (int i = animations.size() - 1; i >= 0; i--) {
+            if (i >= animations.size()) {
+                // An animation stopped others while ticking
+                continue;
+            }
+            Animation animation = animations.get(i);
+            if (!animation.tick(now)) {
+                if (i < animations.size() && animations.get(i) == animation) {
+                    animations.remove(i);
+                } else {
+                    animations.remove(animation);
+                }
+            }
+        }
+
+        if (animations.isEmpty()) {
+            timer.stop();
+            lastTickTime = 0;
+        } else {
+            lastTickTime = now;
+        }
+    }
+
+    /**
+     * Counts the frames missed between two ticks and reports the frame time to the metrics.
+     *
+     * @param frameTime the time since the previous tick in nanoseconds
+     */
+    private void recordFrame(long frameTime) {
+        long dropped = Math.max(0, Math.round((double) frameTime / frameInterval) - 1);
+        droppedFrames += dropped;
+
+        BannerMetrics metrics = BannerMetrics.get();
+        if (metrics != null) {
+            metrics.recordFrame(frameTime, dropped);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package one.cafebabe.globalbanner;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineMetrics;
+
+/**
+ * A status badge on top of the banner: a short label on a colored pill, e.g. "LIVE" or
+ * "BUILD FAILED". The badge is anchored at its top right corner, so it grows to the left
+ * as the label gets longer, and only the badge is rendered again when the status changes.
+ */
+public class BadgeLayer extends BannerLayer {
+    /**
+     * Default font of the label
+     */
+    public static final Font DEFAULT_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 12);
+
+    /**
+     * Space between the label and the edge of the pill, horizontally
+     */
+    private static final int PADDING_X = 8;
+
+    /**
+     * Space between the label and the edge of the pill, vertically
+     */
+    private static final int PADDING_Y = 3;
+
+    /**
+     * Render context the label is measured with
+     */
+    private static final FontRenderContext FRC = new FontRenderContext(null, true, false);
+
+    /**
+     * Font of the label
+     */
+    private final Font font;
+
+    /**
+     * Right edge of the badge in the banner
+     */
+    private int right;
+
+    /**
+     * Distance of the badge from the right edge of the content, or -1 if the badge stays put
+     */
+    private int rightMargin = -1;
+
+    /**
+     * Baseline of the label from the top of the badge
+     */
+    private final int baseline;
+
+    /**
+     * Label shown on the badge
+     */
+    private String label = "";
+
+    /**
+     * Color of the pill
+     */
+    private Color color = Color.GRAY;
+
+    /**
+     * Creates a new BadgeLayer without a label, which is hidden until a status is set.
+     *
+     * @param font the font of the label
+     * @param right the X coordinate of the right edge of the badge in the banner
+     * @param top the Y coordinate of the top edge of the badge in the banner
+     */
+    public BadgeLayer(Font font, int right, int top) {
+        super(right, top, 0, 0);
+        this.font = font;
+        this.right = right;
+        LineMetrics metrics = font.getLineMetrics("Xg", FRC);
+        this.baseline = PADDING_Y + (int) Math.ceil(metrics.getAscent());
+        setVisible(false);
+    }
+
+    /**
+     * Changes the status shown, resizing the badge to fit the label.
+     *
+     * @param label the label, or an empty string to hide the badge
+     * @param color the color of the pill
+     */
+    public void setStatus(String label, Color color) {
+        if (this.label.equals(label) && this.color.equals(color)) {
+            return;
+        }
+        this.label = label;
+        this.color = color;
+
+        LineMetrics metrics = font.getLineMetrics("Xg", FRC);
+        int width = label.isEmpty() ? 0 : (int) Math.ceil(font.getStringBounds(label, FRC).getWidth()) + 2 * PADDING_X;
+        int height = label.isEmpty() ? 0
+                : (int) Math.ceil(metrics.getAscent()) + (int) Math.ceil(metrics.getDescent()) + 2 * PADDING_Y;
+        Rectangle bounds = getBounds();
+        if (bounds.width == width && bounds.height == height) {
+            invalidate();
+        } else {
+            setBounds(right - width, bounds.y, width, height);
+        }
+        setVisible(!label.isEmpty());
+    }
+
+    @Override
+    protected void paint(Graphics2D g) {
+        Rectangle bounds = getBounds();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setColor(color);
+        g.fillRoundRect(bounds.x, bounds.y, bounds.width, bounds.height, bounds.height, bounds.height);
+        g.setFont(font);
+        g.setColor(Color.WHITE);
+        g.drawString(label, bounds.x + PADDING_X, bounds.y + baseline);
+    }
+
+    /**
+     * Keeps the badge at a distance from the right edge of the banner content, following
+     * the content when its size changes, e.g. when the image is reloaded or a ticker is shown.
+     *
+     * @param rightMargin the distance in pixels, or -1 to leave the badge where it is
+     */
+    public void setRightMargin(int rightMargin) {
+        this.rightMargin = rightMargin;
+    }
+
+    @Override
+    protected void contentResized(int width, int height) {
+        if (rightMargin < 0 || right == width - rightMargin) {
+            return;
+        }
+        right = width - rightMargin;
+        Rectangle bounds = getBounds();
+        setBounds(right - bounds.width, bounds.y, bounds.width, bounds.height);
+    }
+
+    /**
+     * Gets the label shown on the badge.
+     *
+     * @return the label, empty if the badge is hidden
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Gets the color of the pill.
+     *
+     * @return the color
+     */
+    public Color getColor() {
+        return color;
+    }
+}
@@ -0,0 +1,156 @@
+package one.cafebabe.globalbanner;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder events of the Global Banner application.
+ * Events are only written while a recording has them enabled; otherwise
+ * beginning and committing them costs next to nothing.
+ */
+public final class BannerEvents {
+    private BannerEvents() {
+    }
+
+    /**
+     * The banner panel has been painted.
+     */
+    @Name("one.cafebabe.globalbanner.Paint")
+    @Label("Banner Paint")
+    @Category("Global Banner")
+    @StackTrace(false)
+    public static class PaintEvent extends Event {
+        @Label("Width")
+        int width;
+
+        @Label("Height")
+        int height;
+    }
+
+    /**
+     * The window has moved to the opposite corner.
+     */
+    @Name("one.cafebabe.globalbanner.Animation")
+    @Label("Window Animation")
+    @Category("Global Banner")
+    @StackTrace(false)
+    public static class AnimationEvent extends Event {
+        @Label("Frames")
+        @Description("Frames ticked while the animation was running")
+        int frames;
+
+        @Label("Dropped Frames")
+        @Description("Frames the animation clock missed while the animation was running")
+        long droppedFrames;
+
+        @Label("Completed")
+        @Description("Whether the animation reached its target instead of being stopped")
+        boolean completed;
+    }
+
+    /**
+     * The window has been dragged with the mouse.
+     */
+    @Name("one.cafebabe.globalbanner.Drag")
+    @Label("Window Drag")
+    @Category("Global Banner")
+    @StackTrace(false)
+    public static class DragEvent extends Event {
+        @Label("Drag Events")
+        @Description("Mouse drag events received")
+        int dragEvents;
+
+        @Label("Moves")
+        @Description("Window moves applied after coalescing")
+        int moves;
+
+        @Label("Move Rate")
+        @Description("Window moves per second")
+        double moveRate;
+    }
+
+    /**
+     * Another screen has been selected for the banner.
+     * The duration includes notifying the listeners that reposition the window.
+     */
+    @Name("one.cafebabe.globalbanner.ScreenSwitch")
+    @Label("Screen Switch")
+    @Category("Global Banner")
+    @StackTrace(false)
+    public static class ScreenSwitchEvent extends Event {
+        @Label("From Screen")
+        String fromScreen;
+
+        @Label("To Screen")
+        String toScreen;
+    }
+
+    /**
+     * A banner image has been loaded.
+     */
+    @Name("one.cafebabe.globalbanner.ImageLoad")
+    @Label("Image Load")
+    @Category("Global Banner")
+    public static class ImageLoadEvent extends Event {
+        @Label("Name")
+        String name;
+
+        @Label("Width")
+        int width;
+
+        @Label("Height")
+        int height;
+
+        @Label("Pixel Cache")
+        @Description("Whether the pixel cache was enabled")
+        boolean pixelCache;
+    }
+
+    /**
+     * The banner image has been reloaded from the content directory.
+     */
+    @Name("one.cafebabe.globalbanner.ContentReload")
+    @Label("Content Reload")
+    @Category("Global Banner")
+    @StackTrace(false)
+    public static class ContentReloadEvent extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Decode Time")
+        @Timespan
+        long decodeTime;
+
+        @Label("Reload Latency")
+        @Description("Time from the first change on disk to the new image being shown")
+        @Timespan
+        long latency;
+    }
+
+    /**
+     * The Event Dispatch Thread did not run a heartbeat within the stall threshold.
+     */
+    @Name("one.cafebabe.globalbanner.EdtStall")
+    @Label("EDT Stall")
+    @Category("Global Banner")
+    @StackTrace(false)
+    public static class EdtStallEvent extends Event {
+        @Label("Stall Time")
+        @Description("Time from posting the heartbeat until it ran")
+        @Timespan
+        long stallTime;
+
+        @Label("Samples")
+        @Description("Number of stack samples taken of the Event Dispatch Thread")
+        int samples;
+
+        @Label("Top Frame")
+        @Description("Most frequently sampled top frame of the Event Dispatch Thread")
+        String topFrame;
+    }
+}
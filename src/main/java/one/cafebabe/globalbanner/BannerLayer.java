@@ -0,0 +1,143 @@
+package one.cafebabe.globalbanner;
+
+import java.awt.*;
+
+/**
+ * A layer of a banner, e.g. the banner image, a live clock or a status badge, composited
+ * by a {@link LayerCompositor}. Each layer owns a rectangle of the banner and reports the
+ * parts of it that have changed, so only those are rendered again. A layer paints only
+ * inside its bounds. Must be used on the Event Dispatch Thread.
+ */
+public abstract class BannerLayer {
+    /**
+     * Part of the banner the layer paints into, in user space
+     */
+    private final Rectangle bounds = new Rectangle();
+
+    /**
+     * Whether the layer is painted
+     */
+    private boolean visible = true;
+
+    /**
+     * Compositor the layer belongs to, or null
+     */
+    private LayerCompositor compositor = null;
+
+    /**
+     * Creates a new BannerLayer.
+     *
+     * @param x the X coordinate of the layer in the banner
+     * @param y the Y coordinate of the layer in the banner
+     * @param width the width of the layer
+     * @param height the height of the layer
+     */
+    protected BannerLayer(int x, int y, int width, int height) {
+        bounds.setBounds(x, y, width, height);
+    }
+
+    /**
+     * Paints the layer. The graphics context is in banner coordinates and clipped
+     * to the part of the banner being rendered again.
+     *
+     * @param g the graphics context to paint to
+     */
+    protected abstract void paint(Graphics2D g);
+
+    /**
+     * Marks the whole layer as changed.
+     */
+    protected void invalidate() {
+        invalidate(bounds.x, bounds.y, bounds.width, bounds.height);
+    }
+
+    /**
+     * Marks a part of the banner as changed by the layer.
+     *
+     * @param x the X coordinate of the changed part in the banner
+     * @param y the Y coordinate of the changed part in the banner
+     * @param width the width of the changed part
+     * @param height the height of the changed part
+     */
+    protected void invalidate(int x, int y, int width, int height) {
+        if (compositor != null) {
+            compositor.invalidate(x, y, width, height);
+        }
+    }
+
+    /**
+     * Moves or resizes the layer, marking both the old and the new bounds as changed.
+     *
+     * @param x the X coordinate of the layer in the banner
+     * @param y the Y coordinate of the layer in the banner
+     * @param width the width of the layer
+     * @param height the height of the layer
+     */
+    public void setBounds(int x, int y, int width, int height) {
+        if (bounds.x == x && bounds.y == y && bounds.width == width && bounds.height == height) {
+            return;
+        }
+        invalidate();
+        bounds.setBounds(x, y, width, height);
+        invalidate();
+    }
+
+    /**
+     * Lays the layer out for a new size of the banner content, e.g. to stay anchored to
+     * its right edge when another image is shown. Does nothing by default.
+     *
+     * @param width the width of the content
+     * @param height the height of the content
+     */
+    protected void contentResized(int width, int height) {
+    }
+
+    /**
+     * Gets the part of the banner the layer paints into.
+     *
+     * @return a copy of the bounds in user space
+     */
+    public Rectangle getBounds() {
+        return new Rectangle(bounds);
+    }
+
+    /**
+     * Checks whether the layer covers part of a rectangle of the banner.
+     *
+     * @param area the rectangle in user space
+     * @return true if the layer intersects it
+     */
+    boolean intersects(Rectangle area) {
+        return bounds.intersects(area);
+    }
+
+    /**
+     * Shows or hides the layer.
+     *
+     * @param visible true to paint the layer
+     */
+    public void setVisible(boolean visible) {
+        if (this.visible != visible) {
+            this.visible = visible;
+            invalidate();
+        }
+    }
+
+    /**
+     * Checks whether the layer is painted.
+     *
+     * @return true if the layer is visible
+     */
+    public boolean isVisible() {
+        return visible;
+    }
+
+    /**
+     * Sets the compositor the layer belongs to.
+     *
+     * @param compositor the compositor, or null when the layer is removed
+     */
+    void setCompositor(LayerCompositor compositor) {
+        this.compositor = compositor;
+    }
+}
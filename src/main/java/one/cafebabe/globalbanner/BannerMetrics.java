@@ -0,0 +1,256 @@
+package one.cafebabe.globalbanner;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.awt.*;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runtime metrics of the Global Banner application, published as an MBean.
+ * Tracks the time between animation frames, how long events wait for the
+ * Event Dispatch Thread, and how often the application wakes up at all. Metrics are enabled by the system property
+ * {@code globalbanner.metrics}; when disabled, {@link #get()} returns null and
+ * the hot paths skip recording entirely.
+ */
+public class BannerMetrics implements BannerMetricsMBean {
+    /**
+     * Name under which the MBean is registered
+     */
+    public static final String OBJECT_NAME = "one.cafebabe.globalbanner:type=BannerMetrics";
+
+    /**
+     * Number of recent samples kept per histogram
+     */
+    private static final int WINDOW = 1024;
+
+    /**
+     * Number of seconds the wakeup rate is averaged over
+     */
+    private static final int WAKEUP_WINDOW_SECONDS = 10;
+
+    /**
+     * Metrics of the application, or null if disabled
+     */
+    private static final BannerMetrics INSTANCE = Boolean.getBoolean("globalbanner.metrics") ? install() : null;
+
+    /**
+     * Time between consecutive animation frames
+     */
+    private final RollingHistogram frameTime = new RollingHistogram(WINDOW);
+
+    /**
+     * Delay until an event posted to the Event Dispatch Thread ran
+     */
+    private final RollingHistogram edtLatency = new RollingHistogram(WINDOW);
+
+    /**
+     * Number of frames the animation clock missed
+     */
+    private final AtomicLong droppedFrames = new AtomicLong();
+
+    /**
+     * Number of wakeups since the metrics were created or reset
+     */
+    private long wakeupCount = 0;
+
+    /**
+     * Second of each slot of the wakeup ring, as counted by {@link System#nanoTime()}
+     */
+    private final long[] wakeupSeconds = new long[WAKEUP_WINDOW_SECONDS];
+
+    /**
+     * Number of wakeups in each second of the wakeup ring
+     */
+    private final long[] wakeupsPerSecond = new long[WAKEUP_WINDOW_SECONDS];
+
+    /**
+     * Whether a latency probe has been posted and has not run yet
+     */
+    private final AtomicBoolean probePending = new AtomicBoolean();
+
+    /**
+     * Gets the metrics of the application.
+     *
+     * @return the metrics, or null if they are disabled
+     */
+    public static BannerMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Creates the metrics, registers the MBean and starts probing the Event Dispatch Thread.
+     * The probe interval is set by {@code globalbanner.metricsProbeMillis}, 100 ms by default.
+     *
+     * @return the metrics
+     */
+    private static BannerMetrics install() {
+        BannerMetrics metrics = new BannerMetrics();
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("Error registering metrics MBean: " + e.getMessage());
+        }
+
+        long interval = Long.getLong("globalbanner.metricsProbeMillis", 100);
+        ScheduledExecutorService prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "edt-latency-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        prober.scheduleAtFixedRate(metrics::probeEdtLatency, interval, interval, TimeUnit.MILLISECONDS);
+        return metrics;
+    }
+
+    /**
+     * Posts an event to the Event Dispatch Thread and records how long it waits.
+     * No new probe is posted while the previous one is still queued, so a stalled
+     * EDT shows up as one long sample instead of a flood of them.
+     */
+    void probeEdtLatency() {
+        if (!probePending.compareAndSet(false, true)) {
+            return;
+        }
+        long posted = System.nanoTime();
+        EventQueue.invokeLater(() -> {
+            edtLatency.record(System.nanoTime() - posted);
+            probePending.set(false);
+        });
+    }
+
+    /**
+     * Records an animation frame.
+     *
+     * @param nanos the time since the previous frame in nanoseconds
+     * @param dropped the number of frames missed since the previous frame
+     */
+    public void recordFrame(long nanos, long dropped) {
+        frameTime.record(nanos);
+        if (dropped > 0) {
+            droppedFrames.addAndGet(dropped);
+        }
+    }
+
+    /**
+     * Records that the application woke up to tick an animation, paint or poll.
+     */
+    public void recordWakeup() {
+        long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        int slot = (int) Math.floorMod(second, (long) WAKEUP_WINDOW_SECONDS);
+        synchronized (wakeupSeconds) {
+            if (wakeupSeconds[slot] != second) {
+                wakeupSeconds[slot] = second;
+                wakeupsPerSecond[slot] = 0;
+            }
+            wakeupsPerSecond[slot]++;
+            wakeupCount++;
+        }
+    }
+
+    @Override
+    public long getWakeupCount() {
+        synchronized (wakeupSeconds) {
+            return wakeupCount;
+        }
+    }
+
+    @Override
+    public double getWakeupsPerSecond() {
+        long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        long wakeups = 0;
+        synchronized (wakeupSeconds) {
+            for (int i = 0; i < WAKEUP_WINDOW_SECONDS; i++) {
+                if (second - wakeupSeconds[i] < WAKEUP_WINDOW_SECONDS) {
+                    wakeups += wakeupsPerSecond[i];
+                }
+            }
+        }
+        return (double) wakeups / WAKEUP_WINDOW_SECONDS;
+    }
+
+    @Override
+    public long getFrameCount() {
+        return frameTime.getCount();
+    }
+
+    @Override
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    @Override
+    public double getFrameTimeMeanMillis() {
+        return frameTime.getMean() / 1e6;
+    }
+
+    @Override
+    public double getFrameTimeP50Millis() {
+        return frameTime.getPercentile(50) / 1e6;
+    }
+
+    @Override
+    public double getFrameTimeP95Millis() {
+        return frameTime.getPercentile(95) / 1e6;
+    }
+
+    @Override
+    public double getFrameTimeP99Millis() {
+        return frameTime.getPercentile(99) / 1e6;
+    }
+
+    @Override
+    public long[] getFrameTimeHistogram() {
+        return frameTime.getBucketCounts();
+    }
+
+    @Override
+    public long getEdtLatencyCount() {
+        return edtLatency.getCount();
+    }
+
+    @Override
+    public double getEdtLatencyP50Millis() {
+        return edtLatency.getPercentile(50) / 1e6;
+    }
+
+    @Override
+    public double getEdtLatencyP95Millis() {
+        return edtLatency.getPercentile(95) / 1e6;
+    }
+
+    @Override
+    public double getEdtLatencyP99Millis() {
+        return edtLatency.getPercentile(99) / 1e6;
+    }
+
+    @Override
+    public long[] getEdtLatencyHistogram() {
+        return edtLatency.getBucketCounts();
+    }
+
+    @Override
+    public double[] getHistogramBucketBoundsMillis() {
+        long[] bounds = RollingHistogram.getBucketBounds();
+        double[] millis = new double[bounds.length];
+        for (int i = 0; i < bounds.length; i++) {
+            millis[i] = bounds[i] / 1e6;
+        }
+        return millis;
+    }
+
+    @Override
+    public void reset() {
+        frameTime.reset();
+        edtLatency.reset();
+        droppedFrames.set(0);
+        synchronized (wakeupSeconds) {
+            wakeupCount = 0;
+            Arrays.fill(wakeupsPerSecond, 0);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package one.cafebabe.globalbanner;
+
+/**
+ * JMX view of the runtime metrics of the Global Banner application.
+ * All times are in milliseconds and describe a rolling window of recent samples.
+ */
+public interface BannerMetricsMBean {
+    /**
+     * @return the number of animation frames ticked
+     */
+    long getFrameCount();
+
+    /**
+     * @return the number of frames the animation clock missed
+     */
+    long getDroppedFrames();
+
+    /**
+     * @return the mean time between animation frames
+     */
+    double getFrameTimeMeanMillis();
+
+    /**
+     * @return the median time between animation frames
+     */
+    double getFrameTimeP50Millis();
+
+    /**
+     * @return the 95th percentile of the time between animation frames
+     */
+    double getFrameTimeP95Millis();
+
+    /**
+     * @return the 99th percentile of the time between animation frames
+     */
+    double getFrameTimeP99Millis();
+
+    /**
+     * @return the number of recent frames per bucket of {@link #getHistogramBucketBoundsMillis()}
+     */
+    long[] getFrameTimeHistogram();
+
+    /**
+     * @return the number of times the Event Dispatch Thread latency was probed
+     */
+    long getEdtLatencyCount();
+
+    /**
+     * @return the median delay until an event posted to the Event Dispatch Thread ran
+     */
+    double getEdtLatencyP50Millis();
+
+    /**
+     * @return the 95th percentile of the Event Dispatch Thread latency
+     */
+    double getEdtLatencyP95Millis();
+
+    /**
+     * @return the 99th percentile of the Event Dispatch Thread latency
+     */
+    double getEdtLatencyP99Millis();
+
+    /**
+     * @return the number of recent latency probes per bucket of {@link #getHistogramBucketBoundsMillis()}
+     */
+    long[] getEdtLatencyHistogram();
+
+    /**
+     * @return the number of times the application woke up to tick, paint or poll, excluding these probes
+     */
+    long getWakeupCount();
+
+    /**
+     * @return the average number of wakeups per second over the last ten seconds, zero while idle
+     */
+    double getWakeupsPerSecond();
+
+    /**
+     * @return the upper bounds of all histogram buckets but the last, which is unbounded
+     */
+    double[] getHistogramBucketBoundsMillis();
+
+    /**
+     * Discards all samples.
+     */
+    void reset();
+}
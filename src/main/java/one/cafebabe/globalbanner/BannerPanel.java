@@ -0,0 +1,549 @@
+package one.cafebabe.globalbanner;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.WindowStateListener;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Transparent panel displaying the banner image, either a still image, an animation or scrolling text.
+ * Layers such as a live clock or a status badge can be added on top of the image, in which case
+ * the panel paints through a {@link LayerCompositor} that renders only what has changed.
+ * While its window is hidden, minimized or on no screen, the panel is suspended:
+ * its animation is stopped and repaint requests are dropped, and a single repaint
+ * catches up once it can be seen again.
+ */
+public class BannerPanel extends JPanel {
+    /**
+     * Device-compatible copy of the banner image, or null if the banner is animated
+     */
+    private ImageRenderCache renderCache = null;
+
+    /**
+     * Animation shown instead of a still image, or null
+     */
+    private AnimatedImage animation = null;
+
+    /**
+     * Scrolling text shown instead of an image, or null
+     */
+    private TextTicker ticker = null;
+
+    /**
+     * Compositor of the image and the layers on top of it, or null while there are none
+     */
+    private LayerCompositor compositor = null;
+
+    /**
+     * Bottom layer of the compositor, showing the banner image
+     */
+    private final ContentLayer contentLayer = new ContentLayer();
+
+    /**
+     * Mask of the opaque pixels of the banner image, used for hit testing
+     */
+    private AlphaMask hitMask;
+
+    /**
+     * Callback run once when the panel is painted for the first time, or null
+     */
+    private Runnable firstPaintListener = null;
+
+    /**
+     * Callbacks told whether the panel got suspended or can be seen again
+     */
+    private final List<Consumer<Boolean>> suspendListeners = new ArrayList<>();
+
+    /**
+     * Whether the window of the panel is hidden or minimized
+     */
+    private boolean hidden = false;
+
+    /**
+     * Whether the window of the panel is on no screen
+     */
+    private boolean offScreen = false;
+
+    /**
+     * Whether a repaint was requested while the panel was suspended
+     */
+    private boolean repaintPending = false;
+
+    /**
+     * Number of times the panel has been painted
+     */
+    private long paintCount = 0;
+
+    /**
+     * Window the state listener is registered with, or null
+     */
+    private Window window = null;
+
+    /**
+     * Tracks whether the window is minimized
+     */
+    private final WindowStateListener windowStateListener = e -> updateHidden();
+
+    /**
+     * The banner image as the bottom layer of the compositor.
+     */
+    private final class ContentLayer extends BannerLayer {
+        /**
+         * Creates a new ContentLayer without size.
+         */
+        ContentLayer() {
+            super(0, 0, 0, 0);
+        }
+
+        @Override
+        protected void paint(Graphics2D g) {
+            paintContent(g);
+        }
+    }
+
+    /**
+     * Creates a new BannerPanel displaying the specified image.
+     * Pixels count as opaque for hit testing if their alpha is at least the value
+     * of the system property {@code globalbanner.alphaThreshold}.
+     *
+     * @param image the image to display
+     */
+    public BannerPanel(BufferedImage image) {
+        this(image, Integer.getInteger("globalbanner.alphaThreshold", AlphaMask.DEFAULT_THRESHOLD));
+    }
+
+    /**
+     * Creates a new BannerPanel displaying the specified image.
+     *
+     * @param image the image to display
+     * @param alphaThreshold the minimum alpha value (0-255) for a pixel to react to the mouse
+     */
+    public BannerPanel(BufferedImage image, int alphaThreshold) {
+        this(new ImageRenderCache(image), new AlphaMask(image, alphaThreshold));
+    }
+
+    /**
+     * Creates a new BannerPanel sharing the render cache and hit mask of other
+     * banners showing the same image.
+     *
+     * @param renderCache the render cache of the image
+     * @param hitMask the mask of the opaque pixels of the image
+     */
+    public BannerPanel(ImageRenderCache renderCache, AlphaMask hitMask) {
+        this();
+        setStillImage(renderCache, hitMask);
+    }
+
+    /**
+     * Creates a new BannerPanel playing the specified animation while it is displayed.
+     *
+     * @param animation the animation to play
+     */
+    public BannerPanel(AnimatedImage animation) {
+        this();
+        setAnimation(animation);
+    }
+
+    /**
+     * Creates a new BannerPanel scrolling the specified text while it is displayed.
+     *
+     * @param ticker the scrolling text
+     */
+    public BannerPanel(TextTicker ticker) {
+        this();
+        setTicker(ticker);
+    }
+
+    /**
+     * Creates a new transparent BannerPanel without content.
+     */
+    private BannerPanel() {
+        setOpaque(false);
+        setBackground(new Color(0, 0, 0, 0));
+        addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
+                updateHidden();
+            }
+        });
+    }
+
+    /**
+     * Replaces the content of the panel with a still image.
+     * Takes effect with the next paint; the caller revalidates the window if the size changed.
+     *
+     * @param renderCache the render cache of the image
+     * @param hitMask the mask of the opaque pixels of the image
+     */
+    public void setStillImage(ImageRenderCache renderCache, AlphaMask hitMask) {
+        replaceAnimation(null, null);
+        this.renderCache = renderCache;
+        this.hitMask = hitMask;
+        setContentSize(renderCache.getSource().getWidth(), renderCache.getSource().getHeight());
+        repaint();
+    }
+
+    /**
+     * Replaces the content of the panel with an animation, played while the panel is displayed.
+     * Frames can change shape, so the whole frame reacts to the mouse.
+     * Takes effect with the next paint; the caller revalidates the window if the size changed.
+     *
+     * @param animation the animation to play
+     */
+    public void setAnimation(AnimatedImage animation) {
+        int width = animation.getSource().getWidth();
+        int height = animation.getSource().getHeight();
+        replaceAnimation(animation, null);
+        this.renderCache = null;
+        this.hitMask = AlphaMask.opaque(width, height);
+        setContentSize(width, height);
+        repaint();
+    }
+
+    /**
+     * Replaces the content of the panel with scrolling text, scrolled while the panel is displayed.
+     * The background of the text is opaque enough to react to the mouse everywhere.
+     * Takes effect with the next paint; the caller revalidates the window if the size changed.
+     *
+     * @param ticker the scrolling text
+     */
+    public void setTicker(TextTicker ticker) {
+        replaceAnimation(null, ticker);
+        this.renderCache = null;
+        this.hitMask = AlphaMask.opaque(ticker.getWidth(), ticker.getHeight());
+        setContentSize(ticker.getWidth(), ticker.getHeight());
+        repaint();
+    }
+
+    /**
+     * Sizes the panel and its content layer to the content, and lets the other layers follow.
+     *
+     * @param width the width of the content
+     * @param height the height of the content
+     */
+    private void setContentSize(int width, int height) {
+        setPreferredSize(new Dimension(width, height));
+        contentLayer.setBounds(0, 0, width, height);
+        if (compositor != null) {
+            for (BannerLayer layer : compositor.getLayers()) {
+                layer.contentResized(width, height);
+            }
+        }
+    }
+
+    /**
+     * Adds a layer on top of the banner image and the layers added before, laid out
+     * for the current content.
+     *
+     * @param layer the layer
+     */
+    public void addLayer(BannerLayer layer) {
+        if (compositor == null) {
+            compositor = new LayerCompositor();
+            compositor.addLayer(contentLayer);
+            compositor.setRepaintTarget(this);
+        }
+        compositor.addLayer(layer);
+        Rectangle content = contentLayer.getBounds();
+        layer.contentResized(content.width, content.height);
+    }
+
+    /**
+     * Removes a layer from the top of the banner image.
+     *
+     * @param layer the layer
+     */
+    public void removeLayer(BannerLayer layer) {
+        if (compositor != null) {
+            compositor.removeLayer(layer);
+        }
+    }
+
+    /**
+     * Stops the current animation or ticker and starts the new one if the panel is displayed.
+     *
+     * @param newAnimation the new animation, or null
+     * @param newTicker the new ticker, or null
+     */
+    private void replaceAnimation(AnimatedImage newAnimation, TextTicker newTicker) {
+        stopAnimation();
+        if (animation != null) {
+            animation.setRepaintTarget(null);
+        }
+        if (ticker != null) {
+            ticker.setRepaintTarget(null);
+        }
+        animation = newAnimation;
+        ticker = newTicker;
+        if (animation != null) {
+            animation.setRepaintTarget(this);
+        }
+        if (ticker != null) {
+            ticker.setRepaintTarget(this);
+        }
+        if (isDisplayable() && !isSuspended()) {
+            startAnimation();
+        }
+    }
+
+    /**
+     * Starts the animation or ticker, if any.
+     */
+    private void startAnimation() {
+        if (animation != null) {
+            animation.start();
+        }
+        if (ticker != null) {
+            ticker.start();
+        }
+    }
+
+    /**
+     * Stops the animation or ticker, if any.
+     */
+    private void stopAnimation() {
+        if (animation != null) {
+            animation.stop();
+        }
+        if (ticker != null) {
+            ticker.stop();
+        }
+    }
+
+    /**
+     * Checks whether the panel is suspended because it cannot be seen.
+     *
+     * @return true if the window of the panel is hidden, minimized or on no screen
+     */
+    public boolean isSuspended() {
+        return hidden || offScreen;
+    }
+
+    /**
+     * Marks whether the window of the panel is on any screen, e.g. after a screen
+     * was switched off or disconnected.
+     *
+     * @param offScreen true if the window is on no screen
+     */
+    public void setOffScreen(boolean offScreen) {
+        boolean wasSuspended = isSuspended();
+        this.offScreen = offScreen;
+        suspendedChanged(wasSuspended);
+    }
+
+    /**
+     * Checks whether the window of the panel is still showing and not minimized.
+     */
+    private void updateHidden() {
+        boolean wasSuspended = isSuspended();
+        hidden = !isShowing() || (window instanceof Frame frame && (frame.getExtendedState() & Frame.ICONIFIED) != 0);
+        suspendedChanged(wasSuspended);
+    }
+
+    /**
+     * Stops the animation when the panel gets suspended, and resumes it and
+     * catches up on dropped repaints when it can be seen again.
+     *
+     * @param wasSuspended whether the panel was suspended before the change
+     */
+    private void suspendedChanged(boolean wasSuspended) {
+        if (isSuspended() == wasSuspended) {
+            return;
+        }
+        if (isSuspended()) {
+            stopAnimation();
+        } else {
+            if (isDisplayable()) {
+                startAnimation();
+            }
+            if (repaintPending) {
+                repaintPending = false;
+                repaint();
+            }
+        }
+        for (Consumer<Boolean> suspendListener : suspendListeners) {
+            suspendListener.accept(isSuspended());
+        }
+    }
+
+    /**
+     * Requests a repaint, unless the panel is suspended, in which case the
+     * request is remembered until the panel can be seen again.
+     */
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+        // The image changed there, or the layers asked for it
+        if (compositor != null) {
+            compositor.markDirty(x, y, width, height);
+        }
+        if (isSuspended()) {
+            repaintPending = true;
+            return;
+        }
+        super.repaint(tm, x, y, width, height);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        BannerEvents.PaintEvent event = new BannerEvents.PaintEvent();
+        event.begin();
+        paintCount++;
+        BannerMetrics metrics = BannerMetrics.get();
+        if (metrics != null) {
+            metrics.recordWakeup();
+        }
+
+        // Don't call super.paintComponent to avoid filling the background
+        Graphics2D g2d = (Graphics2D) g;
+        g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER));
+        if (compositor != null) {
+            compositor.draw(g2d, getWidth(), getHeight());
+        } else {
+            paintContent(g2d);
+        }
+
+        if (event.shouldCommit()) {
+            event.width = getWidth();
+            event.height = getHeight();
+            event.commit();
+        }
+
+        if (firstPaintListener != null) {
+            Runnable listener = firstPaintListener;
+            firstPaintListener = null;
+            listener.run();
+        }
+    }
+
+    /**
+     * Draws the banner image, animation or text at the origin.
+     *
+     * @param g the graphics context to draw to
+     */
+    private void paintContent(Graphics2D g) {
+        if (animation != null) {
+            animation.draw(g, 0, 0);
+        } else if (ticker != null) {
+            ticker.draw(g, 0, 0);
+        } else {
+            renderCache.draw(g, 0, 0);
+        }
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        window = SwingUtilities.getWindowAncestor(this);
+        if (window != null) {
+            window.addWindowStateListener(windowStateListener);
+        }
+        if (!isSuspended()) {
+            startAnimation();
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        stopAnimation();
+        if (window != null) {
+            window.removeWindowStateListener(windowStateListener);
+            window = null;
+        }
+        super.removeNotify();
+    }
+
+    @Override
+    public boolean isOpaque() {
+        return false;
+    }
+
+    /**
+     * Checks whether the specified point is over an opaque pixel of the banner.
+     * Swing uses this to pick the target of mouse events, so hover, drag and
+     * popup triggers are ignored over transparent pixels.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @return true if the pixel at the point is opaque
+     */
+    @Override
+    public boolean contains(int x, int y) {
+        return hitMask.contains(x, y);
+    }
+
+    /**
+     * Sets a callback to run once when the panel is painted for the first time.
+     *
+     * @param firstPaintListener the callback
+     */
+    public void setFirstPaintListener(Runnable firstPaintListener) {
+        this.firstPaintListener = firstPaintListener;
+    }
+
+    /**
+     * Adds a callback to run whenever the panel gets suspended or can be seen again,
+     * e.g. to stop work that only matters while the banner is visible.
+     *
+     * @param suspendListener the callback, told whether the panel is suspended now
+     */
+    public void addSuspendListener(Consumer<Boolean> suspendListener) {
+        suspendListeners.add(suspendListener);
+    }
+
+    /**
+     * Gets the number of times the panel has been painted.
+     *
+     * @return the paint count
+     */
+    public long getPaintCount() {
+        return paintCount;
+    }
+
+    /**
+     * Gets the mask of the opaque pixels of the banner image.
+     *
+     * @return the hit mask
+     */
+    public AlphaMask getHitMask() {
+        return hitMask;
+    }
+
+    /**
+     * Gets the render cache of the banner image.
+     *
+     * @return the render cache, or null if the banner is animated or shows text
+     */
+    public ImageRenderCache getRenderCache() {
+        return renderCache;
+    }
+
+    /**
+     * Gets the animation shown by the panel.
+     *
+     * @return the animation, or null if the banner is a still image
+     */
+    public AnimatedImage getAnimation() {
+        return animation;
+    }
+
+    /**
+     * Gets the compositor of the banner image and the layers on top of it.
+     *
+     * @return the compositor, or null if no layer has been added
+     */
+    public LayerCompositor getCompositor() {
+        return compositor;
+    }
+
+    /**
+     * Gets the scrolling text shown by the panel.
+     *
+     * @return the ticker, or null if the banner shows an image
+     */
+    public TextTicker getTicker() {
+        return ticker;
+    }
+}
@@ -0,0 +1,320 @@
+package one.cafebabe.globalbanner;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Rotates the banner through a list of images on a fixed schedule.
+ * The next few entries are decoded ahead of time on background threads into an
+ * {@link ImageCache} bounded by pixel bytes, so showing the next image only costs
+ * a repaint and a playlist of hundreds of large images fits in a fixed heap budget.
+ * Must be started and stopped on the Event Dispatch Thread.
+ */
+public class BannerPlaylist {
+    /**
+     * Name under which the cache statistics are registered
+     */
+    public static final String CACHE_OBJECT_NAME = "one.cafebabe.globalbanner:type=ImageCache";
+
+    /**
+     * Images of the playlist, in playing order
+     */
+    private final List<Path> entries;
+
+    /**
+     * How long each image is shown, in milliseconds
+     */
+    private final int intervalMillis;
+
+    /**
+     * Number of upcoming entries decoded ahead of time
+     */
+    private final int prefetchCount;
+
+    /**
+     * Decoded images
+     */
+    private final ImageCache<Path> cache;
+
+    /**
+     * Receives the images to show, on the Event Dispatch Thread; set when the playlist is started
+     */
+    private Consumer<ImageCache.Entry> display = null;
+
+    /**
+     * Prepares decoded images to be shown, on the threads decoding them; set when the playlist is started
+     */
+    private ImageCache.Preparer preparer = null;
+
+    /**
+     * Threads decoding upcoming entries
+     */
+    private final ExecutorService prefetcher = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Decodes in progress, by entry; only accessed on the Event Dispatch Thread
+     */
+    private final Map<Path, CompletableFuture<ImageCache.Entry>> pending = new HashMap<>();
+
+    /**
+     * Timer advancing the playlist
+     */
+    private final Timer timer;
+
+    /**
+     * Index of the entry shown last
+     */
+    private int index;
+
+    /**
+     * Number of the latest swap, so a late decode does not replace a newer image
+     */
+    private long generation = 0;
+
+    /**
+     * Creates a new BannerPlaylist.
+     *
+     * @param entries the images of the playlist, in playing order
+     * @param intervalMillis how long each image is shown, in milliseconds
+     * @param prefetchCount the number of upcoming entries decoded ahead of time
+     * @param maxCacheBytes the budget for decoded pixels in bytes
+     */
+    public BannerPlaylist(List<Path> entries, int intervalMillis, int prefetchCount, long maxCacheBytes) {
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("Playlist is empty");
+        }
+        this.entries = List.copyOf(entries);
+        this.intervalMillis = intervalMillis;
+        this.prefetchCount = prefetchCount;
+        this.cache = new ImageCache<>(maxCacheBytes);
+        this.timer = new Timer(intervalMillis, e -> advance());
+        this.index = 0;
+    }
+
+    /**
+     * Creates the playlist configured by system properties. The images are all image
+     * files in the directory {@code globalbanner.playlist}, sorted by name, each shown for
+     * {@code globalbanner.playlistSeconds} (10 by default). {@code globalbanner.playlistPrefetch}
+     * entries (2 by default) are decoded ahead, and {@code globalbanner.playlistCacheMegabytes}
+     * (128 by default) bounds the cache.
+     *
+     * @return the playlist, or null if none is configured or the directory holds no image
+     * @throws IOException if the directory cannot be listed
+     */
+    public static BannerPlaylist fromSystemProperties() throws IOException {
+        String directory = System.getProperty("globalbanner.playlist");
+        if (directory == null) {
+            return null;
+        }
+
+        List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(directory), ContentWatcher::isImageFile)) {
+            files.forEach(entries::add);
+        }
+        if (entries.isEmpty()) {
+            System.err.println("Playlist directory holds no image: " + directory);
+            return null;
+        }
+        entries.sort(null);
+
+        return new BannerPlaylist(entries,
+                (int) TimeUnit.SECONDS.toMillis(Integer.getInteger("globalbanner.playlistSeconds", 10)),
+                Integer.getInteger("globalbanner.playlistPrefetch", 2),
+                Long.getLong("globalbanner.playlistCacheMegabytes", 128) * 1024 * 1024);
+    }
+
+    /**
+     * Gets the images of the playlist.
+     *
+     * @return an unmodifiable list of image files, in playing order
+     */
+    public List<Path> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Makes the playlist continue from an entry, e.g. the one shown when the application
+     * last exited. Must be called before the playlist is started.
+     *
+     * @param entry the image file
+     * @return true if the entry is part of the playlist
+     */
+    public boolean resumeAt(Path entry) {
+        int resumed = entries.indexOf(entry);
+        if (resumed < 0) {
+            return false;
+        }
+        index = resumed;
+        return true;
+    }
+
+    /**
+     * Gets the entry shown last.
+     *
+     * @return the image file
+     */
+    public Path getCurrentEntry() {
+        return entries.get(index);
+    }
+
+    /**
+     * Starts rotating, assuming the current entry is already shown, and registers
+     * the cache statistics as an MBean.
+     *
+     * @param preparer prepares decoded images to be shown, called on the threads decoding them
+     * @param display receives the images to show, on the Event Dispatch Thread
+     */
+    public void start(ImageCache.Preparer preparer, Consumer<ImageCache.Entry> display) {
+        this.preparer = preparer;
+        this.display = display;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(cache, new ObjectName(CACHE_OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("Error registering image cache MBean: " + e.getMessage());
+        }
+        prefetch();
+        timer.start();
+    }
+
+    /**
+     * Stops rotating and decoding.
+     */
+    public void stop() {
+        timer.stop();
+        prefetcher.shutdownNow();
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(CACHE_OBJECT_NAME));
+        } catch (JMException e) {
+            // Was not registered
+        }
+    }
+
+    /**
+     * Shows the next entry, right away if it has been decoded ahead, or as soon as
+     * it has been decoded otherwise.
+     */
+    void advance() {
+        BannerMetrics metrics = BannerMetrics.get();
+        if (metrics != null) {
+            metrics.recordWakeup();
+        }
+        index = (index + 1) % entries.size();
+        long swap = ++generation;
+        Path entry = entries.get(index);
+
+        ImageCache.Entry image = cache.get(entry);
+        if (image != null) {
+            display.accept(image);
+        } else {
+            fetch(entry).thenAccept(decoded -> SwingUtilities.invokeLater(() -> {
+                if (swap == generation) {
+                    display.accept(decoded);
+                }
+            }));
+        }
+        prefetch();
+    }
+
+    /**
+     * Starts decoding the upcoming entries that are neither cached nor being decoded.
+     */
+    private void prefetch() {
+        for (int i = 1; i <= Math.min(prefetchCount, entries.size() - 1); i++) {
+            Path entry = entries.get((index + i) % entries.size());
+            if (!cache.contains(entry)) {
+                fetch(entry);
+            }
+        }
+    }
+
+    /**
+     * Decodes an entry and prepares it to be shown on a background thread, and adds it to the cache.
+     *
+     * @param entry the image file
+     * @return the decode, shared with earlier requests for the same entry
+     */
+    private CompletableFuture<ImageCache.Entry> fetch(Path entry) {
+        CompletableFuture<ImageCache.Entry> decode = pending.get(entry);
+        if (decode != null) {
+            return decode;
+        }
+
+        ImageCache.Preparer preparer = this.preparer;
+        decode = CompletableFuture.supplyAsync(() -> {
+            try {
+                ImageCache.Entry image = preparer.prepare(toCompatible(ImageLoader.loadFrames(entry)));
+                cache.put(entry, image);
+                return image;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, prefetcher);
+        pending.put(entry, decode);
+        decode.whenComplete((image, e) -> SwingUtilities.invokeLater(() -> pending.remove(entry)));
+        decode.exceptionally(e -> {
+            System.err.println("Error decoding playlist entry " + entry.getFileName() + ": " + e.getMessage());
+            return null;
+        });
+        return decode;
+    }
+
+    /**
+     * Converts a still image to the pixel layout of the default screen, so drawing it
+     * needs no conversion on the Event Dispatch Thread.
+     *
+     * @param frames the decoded frames
+     * @return the converted frames, or the frames as they are for animations or without a display
+     * @throws IOException if the still image cannot be decoded
+     */
+    private static FrameSource toCompatible(FrameSource frames) throws IOException {
+        if (frames.getFrameCount() > 1 || GraphicsEnvironment.isHeadless()) {
+            return frames;
+        }
+        BufferedImage image = frames.decodeFrame(0);
+        GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDefaultConfiguration();
+        BufferedImage compatible = gc.createCompatibleImage(image.getWidth(), image.getHeight(), Transparency.TRANSLUCENT);
+        Graphics2D g = compatible.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return FrameSource.of(compatible);
+    }
+
+    /**
+     * Gets the cache of decoded images.
+     *
+     * @return the image cache
+     */
+    public ImageCache<Path> getCache() {
+        return cache;
+    }
+
+    /**
+     * Gets how long each image is shown.
+     *
+     * @return the interval in milliseconds
+     */
+    public int getIntervalMillis() {
+        return intervalMillis;
+    }
+}
@@ -0,0 +1,336 @@
+package one.cafebabe.globalbanner;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of all banners of the application.
+ * Every banner is driven by the same animation clock, so any number of banners
+ * moving at once costs a single timer wakeup per frame, and all their position
+ * updates are applied in the same pass on the Event Dispatch Thread. Banners
+ * showing the same image share its render cache and hit mask. Banners on the
+ * same screen are stacked in its bottom corners instead of overlapping. Panels
+ * whose window is left on no screen, e.g. because its screen was switched off,
+ * are suspended until a screen shows them again.
+ * All methods but {@link #prepare(FrameSource)} must be called on the Event Dispatch Thread.
+ */
+public class BannerRegistry {
+    /**
+     * Gap in pixels between stacked banners
+     */
+    private static final int GAP = 10;
+
+    /**
+     * The screen manager shared by all banners
+     */
+    private final ScreenManager screenManager;
+
+    /**
+     * Clock driving the animations of all banners
+     */
+    private final AnimationClock animationClock;
+
+    /**
+     * Window managers of all banners, in the order they were created
+     */
+    private final List<WindowManager> banners = new ArrayList<>();
+
+    /**
+     * Panels created by this registry, whose content is replaced together
+     */
+    private final List<BannerPanel> panels = new ArrayList<>();
+
+    /**
+     * Render caches per source image, shared by the banners showing it
+     */
+    private final Map<BufferedImage, ImageRenderCache> renderCaches = new IdentityHashMap<>();
+
+    /**
+     * Hit masks per source image, shared by the banners showing it
+     */
+    private final Map<BufferedImage, AlphaMask> hitMasks = new IdentityHashMap<>();
+
+    /**
+     * Creates a new BannerRegistry driven by the shared animation clock.
+     *
+     * @param screenManager the screen manager to use
+     */
+    public BannerRegistry(ScreenManager screenManager) {
+        this(screenManager, AnimationClock.getShared());
+    }
+
+    /**
+     * Creates a new BannerRegistry.
+     *
+     * @param screenManager the screen manager to use
+     * @param animationClock the clock driving the animations of all banners
+     */
+    public BannerRegistry(ScreenManager screenManager, AnimationClock animationClock) {
+        this.screenManager = screenManager;
+        this.animationClock = animationClock;
+
+        // Registered before any banner, so stacks are laid out again before banners re-anchor
+        screenManager.addListener(new ScreenManager.Listener() {
+            @Override
+            public void topologyChanged(ScreenTopology topology) {
+                // Copies for disconnected screens would never be used again
+                for (ImageRenderCache renderCache : renderCaches.values()) {
+                    renderCache.invalidate();
+                }
+                layout();
+                suspendPanelsOffScreen(topology);
+            }
+
+            @Override
+            public void currentScreenChanged(ScreenInfo screen) {
+                layout();
+            }
+        });
+    }
+
+    /**
+     * Creates a banner on the specified screen. The banner is laid out once
+     * its frame has been set and {@link #layout()} is called.
+     *
+     * @param screenId the identifier of the screen, or null to follow the selected screen
+     * @return the window manager of the banner
+     */
+    public WindowManager createBanner(String screenId) {
+        WindowManager windowManager = new WindowManager(screenManager, animationClock);
+        windowManager.setPinnedScreen(screenId);
+        banners.add(windowManager);
+        return windowManager;
+    }
+
+    /**
+     * Creates a banner that stays wherever it has been placed and is not stacked
+     * with other banners.
+     *
+     * @return the window manager of the banner
+     */
+    public WindowManager createFloatingBanner() {
+        WindowManager windowManager = new WindowManager(screenManager, animationClock);
+        windowManager.setFloating(true);
+        banners.add(windowManager);
+        return windowManager;
+    }
+
+    /**
+     * Removes a banner and lays out the remaining ones.
+     *
+     * @param windowManager the window manager of the banner
+     */
+    public void remove(WindowManager windowManager) {
+        if (banners.remove(windowManager)) {
+            windowManager.dispose();
+            layout();
+        }
+    }
+
+    /**
+     * Creates a panel showing the specified image, sharing its render cache and
+     * hit mask with all other panels of this registry showing the same image.
+     * Variants for scaled screens are built the first time they are drawn.
+     *
+     * @param image the image to display
+     * @return the panel
+     */
+    public BannerPanel createPanel(BufferedImage image) {
+        BannerPanel panel = new BannerPanel(renderCacheOf(image, null), hitMaskOf(image, null));
+        panels.add(panel);
+        return panel;
+    }
+
+    /**
+     * Creates a panel showing an image prepared by {@link #prepare(FrameSource)}. A still
+     * image shares its caches with other panels; animations get their own player on the
+     * registry's clock.
+     *
+     * @param content the image to display
+     * @return the panel
+     * @throws IOException if the first frame of a still image cannot be decoded
+     */
+    public BannerPanel createPanel(ImageCache.Entry content) throws IOException {
+        FrameSource frames = content.getFrames();
+        BannerPanel panel;
+        if (frames.getFrameCount() == 1) {
+            BufferedImage still = frames.decodeFrame(0);
+            panel = new BannerPanel(renderCacheOf(still, content.getPyramid()), hitMaskOf(still, content.getHitMask()));
+        } else {
+            panel = new BannerPanel(new AnimatedImage(frames, animationClock));
+        }
+        panels.add(panel);
+        return panel;
+    }
+
+    /**
+     * Prepares decoded frames to be shown: computes the hit mask of a still image and
+     * scales it for the scale factors of all screens. May be called from any thread,
+     * and is meant to be called on the thread that decoded the image, so that showing
+     * it on the Event Dispatch Thread costs only a repaint.
+     * Pixels count as opaque if their alpha is at least {@code globalbanner.alphaThreshold}.
+     *
+     * @param frames the decoded frames
+     * @return the image ready to be shown
+     * @throws IOException if the first frame of a still image cannot be decoded
+     */
+    public ImageCache.Entry prepare(FrameSource frames) throws IOException {
+        return ImageCache.prepare(frames, Integer.getInteger("globalbanner.alphaThreshold", AlphaMask.DEFAULT_THRESHOLD),
+                screenManager.getTopology());
+    }
+
+    /**
+     * Replaces the content of all panels created by this registry, e.g. after the
+     * banner image has been changed on disk, with an image prepared by
+     * {@link #prepare(FrameSource)}. Caches of images no longer shown are released.
+     * The caller revalidates windows whose panel changed size.
+     *
+     * @param content the new image to display
+     * @throws IOException if the first frame of a still image cannot be decoded
+     */
+    public void setContent(ImageCache.Entry content) throws IOException {
+        FrameSource frames = content.getFrames();
+        BufferedImage still = frames.getFrameCount() == 1 ? frames.decodeFrame(0) : null;
+        for (BannerPanel panel : panels) {
+            if (still != null) {
+                panel.setStillImage(renderCacheOf(still, content.getPyramid()), hitMaskOf(still, content.getHitMask()));
+            } else {
+                panel.setAnimation(new AnimatedImage(frames, animationClock));
+            }
+        }
+
+        renderCaches.keySet().removeIf(image -> image != still);
+        hitMasks.keySet().removeIf(image -> image != still);
+    }
+
+    /**
+     * Replaces the content of all panels created by this registry with scrolling text.
+     * Each panel gets its own ticker on the registry's clock, and the caches of the
+     * images no longer shown are released. The caller revalidates windows whose panel changed size.
+     *
+     * @param messages the messages to show one after the other
+     * @param font the font of the messages
+     * @param width the width of the tickers
+     * @param speed the scroll speed in pixels per second
+     */
+    public void setTicker(List<String> messages, Font font, int width, double speed) {
+        for (BannerPanel panel : panels) {
+            panel.setTicker(new TextTicker(messages, font, width, speed, animationClock));
+        }
+        renderCaches.clear();
+        hitMasks.clear();
+    }
+
+    /**
+     * Gets the render cache shared by all panels showing an image.
+     *
+     * @param image the image
+     * @param pyramid the variants of the image built ahead, or null to build them when first drawn
+     * @return the render cache
+     */
+    private ImageRenderCache renderCacheOf(BufferedImage image, ImagePyramid pyramid) {
+        return renderCaches.computeIfAbsent(image,
+                key -> new ImageRenderCache(pyramid != null ? pyramid : new ImagePyramid(key)));
+    }
+
+    /**
+     * Gets the hit mask shared by all panels showing an image.
+     * Pixels count as opaque if their alpha is at least {@code globalbanner.alphaThreshold}.
+     *
+     * @param image the image
+     * @param hitMask the mask computed ahead, or null to compute it
+     * @return the hit mask
+     */
+    private AlphaMask hitMaskOf(BufferedImage image, AlphaMask hitMask) {
+        return hitMasks.computeIfAbsent(image, key -> hitMask != null ? hitMask : new AlphaMask(
+                key, Integer.getInteger("globalbanner.alphaThreshold", AlphaMask.DEFAULT_THRESHOLD)));
+    }
+
+    /**
+     * Gets all panels created by this registry.
+     *
+     * @return an unmodifiable list of panels
+     */
+    public List<BannerPanel> getPanels() {
+        return List.copyOf(panels);
+    }
+
+    /**
+     * Stacks the banners of every screen in its bottom corners and moves them there,
+     * keeping each banner in the corner it is currently in.
+     * Banners are stacked upwards in the order they were created, wrapping into a
+     * new column when a screen is full. Floating banners are left where they are.
+     */
+    public void layout() {
+        Map<String, List<WindowManager>> stacks = new LinkedHashMap<>();
+        for (WindowManager banner : banners) {
+            ScreenInfo screen = banner.getScreen();
+            if (!banner.isFloating() && banner.getFrame() != null && screen != null) {
+                stacks.computeIfAbsent(screen.getId(), id -> new ArrayList<>()).add(banner);
+            }
+        }
+
+        for (List<WindowManager> stack : stacks.values()) {
+            int screenHeight = stack.get(0).getScreen().getHeight() - 2 * WindowManager.MARGIN;
+            int offsetX = 0, offsetY = 0, columnWidth = 0;
+            for (WindowManager banner : stack) {
+                Component frame = banner.getFrame();
+                if (offsetY > 0 && offsetY + frame.getHeight() > screenHeight) {
+                    // Start a new column further away from the side edge
+                    offsetX += columnWidth + GAP;
+                    offsetY = 0;
+                    columnWidth = 0;
+                }
+                banner.setCornerOffset(offsetX, offsetY);
+                banner.anchorToCorner();
+                offsetY += frame.getHeight() + GAP;
+                columnWidth = Math.max(columnWidth, frame.getWidth());
+            }
+        }
+    }
+
+    /**
+     * Suspends the panels whose window is on none of the screens, and resumes the others.
+     *
+     * @param topology the current screens
+     */
+    private void suspendPanelsOffScreen(ScreenTopology topology) {
+        for (BannerPanel panel : panels) {
+            Window window = SwingUtilities.getWindowAncestor(panel);
+            if (window == null) {
+                continue;
+            }
+            Rectangle bounds = window.getBounds();
+            boolean onScreen = false;
+            for (ScreenInfo screen : topology.getScreens()) {
+                onScreen |= screen.getBounds().intersects(bounds);
+            }
+            panel.setOffScreen(!onScreen);
+        }
+    }
+
+    /**
+     * Gets the window managers of all banners.
+     *
+     * @return an unmodifiable list of window managers, in the order they were created
+     */
+    public List<WindowManager> getBanners() {
+        return List.copyOf(banners);
+    }
+
+    /**
+     * Gets the clock driving the animations of all banners.
+     *
+     * @return the animation clock
+     */
+    public AnimationClock getAnimationClock() {
+        return animationClock;
+    }
+}
@@ -0,0 +1,310 @@
+package one.cafebabe.globalbanner;
+
+import java.awt.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * Immutable snapshot of where a banner is and what it shows, persisted across restarts:
+ * its screen, the position and size of its window, the corner it is in and the content
+ * selected. The snapshot is encoded into a fixed layout of {@link #SIZE} bytes with a
+ * checksum, so a torn or damaged record is detected instead of misplacing the banner.
+ */
+public final class BannerState {
+    /**
+     * Size of an encoded state in bytes
+     */
+    public static final int SIZE = 512;
+
+    /**
+     * Marks the start of an encoded state, "GBST"
+     */
+    private static final int MAGIC = 0x47425354;
+
+    /**
+     * Version of the layout
+     */
+    private static final short VERSION = 1;
+
+    /**
+     * Offset of the checksum, which covers everything after it
+     */
+    private static final int CHECKSUM_OFFSET = 16;
+
+    /**
+     * Bytes reserved for the screen identifier, including its length
+     */
+    private static final int SCREEN_ID_CAPACITY = 64;
+
+    /**
+     * Bytes reserved for the content, including its length; whatever is left of the record
+     */
+    private static final int CONTENT_CAPACITY = SIZE - 108 - SCREEN_ID_CAPACITY;
+
+    /**
+     * Flag set if the window is in the bottom left corner rather than the bottom right
+     */
+    private static final int FLAG_BOTTOM_LEFT = 1;
+
+    /**
+     * Flag set if the window floats where it has been placed
+     */
+    private static final int FLAG_FLOATING = 2;
+
+    /**
+     * Flag set if the window rests exactly in its corner
+     */
+    private static final int FLAG_AT_CORNER = 4;
+
+    /**
+     * Screen the banner was on, without its device
+     */
+    private final ScreenInfo screen;
+
+    /**
+     * Bounds of the window in the virtual desktop
+     */
+    private final int windowX, windowY, windowWidth, windowHeight;
+
+    /**
+     * Whether the window is in the bottom left corner rather than the bottom right
+     */
+    private final boolean atBottomLeft;
+
+    /**
+     * Whether the window floats where it has been placed
+     */
+    private final boolean floating;
+
+    /**
+     * Whether the window rests exactly in its corner
+     */
+    private final boolean atCorner;
+
+    /**
+     * Content selected, e.g. the file of the playlist entry shown, or null
+     */
+    private final String content;
+
+    /**
+     * Creates a new BannerState.
+     *
+     * @param screen the screen the banner is on
+     * @param windowBounds the bounds of the window in the virtual desktop
+     * @param atBottomLeft whether the window is in the bottom left corner rather than the bottom right
+     * @param floating whether the window floats where it has been placed
+     * @param atCorner whether the window rests exactly in its corner
+     * @param content the content selected, or null
+     */
+    public BannerState(ScreenInfo screen, Rectangle windowBounds, boolean atBottomLeft, boolean floating,
+                       boolean atCorner, String content) {
+        this.screen = screen;
+        this.windowX = windowBounds.x;
+        this.windowY = windowBounds.y;
+        this.windowWidth = windowBounds.width;
+        this.windowHeight = windowBounds.height;
+        this.atBottomLeft = atBottomLeft;
+        this.floating = floating;
+        this.atCorner = atCorner;
+        this.content = content;
+    }
+
+    /**
+     * Takes a snapshot of a banner.
+     *
+     * @param windowManager the window manager of the banner
+     * @param content the content selected, or null
+     * @return the snapshot, or null if the banner has no window or no screen yet
+     */
+    public static BannerState capture(WindowManager windowManager, String content) {
+        ScreenInfo screen = windowManager.getScreen();
+        Component frame = windowManager.getFrame();
+        if (screen == null || frame == null) {
+            return null;
+        }
+        return new BannerState(screen, frame.getBounds(), windowManager.isAtBottomLeft(),
+                windowManager.isFloating(), windowManager.isAtCorner(), content);
+    }
+
+    /**
+     * Encodes the state into its fixed layout. A screen identifier or content too long
+     * for the space reserved for it is left out, so it is not restored.
+     *
+     * @param sequence the number of the write, increasing with every write
+     * @return the encoded state, {@link #SIZE} bytes
+     */
+    public byte[] encode(long sequence) {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+        buffer.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putLong(sequence);
+        buffer.putInt(0);
+
+        buffer.putInt(screen.getIndex());
+        buffer.putInt(screen.getX()).putInt(screen.getY()).putInt(screen.getWidth()).putInt(screen.getHeight());
+        Insets insets = screen.getInsets();
+        buffer.putInt(insets.top).putInt(insets.left).putInt(insets.bottom).putInt(insets.right);
+        buffer.putDouble(screen.getScaleX()).putDouble(screen.getScaleY());
+        DisplayMode mode = screen.getDisplayMode();
+        buffer.putInt(mode.getWidth()).putInt(mode.getHeight()).putInt(mode.getBitDepth()).putInt(mode.getRefreshRate());
+
+        buffer.putInt(windowX).putInt(windowY).putInt(windowWidth).putInt(windowHeight);
+        buffer.putInt((atBottomLeft ? FLAG_BOTTOM_LEFT : 0) | (floating ? FLAG_FLOATING : 0)
+                | (atCorner ? FLAG_AT_CORNER : 0));
+        putString(buffer, screen.getId(), SCREEN_ID_CAPACITY);
+        putString(buffer, content, CONTENT_CAPACITY);
+
+        byte[] bytes = buffer.array();
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes, CHECKSUM_OFFSET + 4, SIZE - CHECKSUM_OFFSET - 4);
+        ByteBuffer.wrap(bytes).putInt(CHECKSUM_OFFSET, (int) checksum.getValue());
+        return bytes;
+    }
+
+    /**
+     * Decodes a state encoded by {@link #encode(long)}.
+     *
+     * @param bytes the encoded state
+     * @return the state, or null if the bytes are not a complete, intact state of this version
+     */
+    public static BannerState decode(byte[] bytes) {
+        if (bytes.length != SIZE) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+            return null;
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes, CHECKSUM_OFFSET + 4, SIZE - CHECKSUM_OFFSET - 4);
+        if (buffer.getInt(CHECKSUM_OFFSET) != (int) checksum.getValue()) {
+            return null;
+        }
+        buffer.position(CHECKSUM_OFFSET + 4);
+
+        int index = buffer.getInt();
+        Rectangle screenBounds = new Rectangle(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+        Insets insets = new Insets(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+        double scaleX = buffer.getDouble();
+        double scaleY = buffer.getDouble();
+        DisplayMode mode = new DisplayMode(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+
+        Rectangle windowBounds = new Rectangle(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+        int flags = buffer.getInt();
+        String screenId = getString(buffer, SCREEN_ID_CAPACITY);
+        String content = getString(buffer, CONTENT_CAPACITY);
+        if (screenId == null || screenBounds.isEmpty()) {
+            return null;
+        }
+
+        ScreenInfo screen = new ScreenInfo(index, screenId, null, screenBounds, insets, scaleX, scaleY, mode);
+        return new BannerState(screen, windowBounds, (flags & FLAG_BOTTOM_LEFT) != 0,
+                (flags & FLAG_FLOATING) != 0, (flags & FLAG_AT_CORNER) != 0, content);
+    }
+
+    /**
+     * Writes a string into a field of fixed capacity: its length in bytes, then its UTF-8
+     * bytes, then zeros. A string that does not fit is written as absent.
+     *
+     * @param buffer the buffer positioned at the field
+     * @param value the string, or null
+     * @param capacity the size of the field in bytes
+     */
+    private static void putString(ByteBuffer buffer, String value, int capacity) {
+        int start = buffer.position();
+        byte[] bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+        if (bytes != null && bytes.length <= capacity - 2) {
+            buffer.putShort((short) bytes.length).put(bytes);
+        } else {
+            buffer.putShort((short) -1);
+        }
+        buffer.position(start + capacity);
+    }
+
+    /**
+     * Reads a string from a field of fixed capacity written by {@link #putString}.
+     *
+     * @param buffer the buffer positioned at the field
+     * @param capacity the size of the field in bytes
+     * @return the string, or null if it is absent
+     */
+    private static String getString(ByteBuffer buffer, int capacity) {
+        int start = buffer.position();
+        int length = buffer.getShort();
+        String value = length >= 0 && length <= capacity - 2
+                ? new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8)
+                : null;
+        buffer.position(start + capacity);
+        return value;
+    }
+
+    /**
+     * Gets the screen the banner was on.
+     *
+     * @return the screen, without its device
+     */
+    public ScreenInfo getScreen() {
+        return screen;
+    }
+
+    /**
+     * Gets the bounds of the window.
+     *
+     * @return the bounds in the virtual desktop
+     */
+    public Rectangle getWindowBounds() {
+        return new Rectangle(windowX, windowY, windowWidth, windowHeight);
+    }
+
+    /**
+     * Checks whether the window is in the bottom left corner rather than the bottom right.
+     *
+     * @return true for the bottom left corner
+     */
+    public boolean isAtBottomLeft() {
+        return atBottomLeft;
+    }
+
+    /**
+     * Checks whether the window floats where it has been placed.
+     *
+     * @return true if the window floats freely
+     */
+    public boolean isFloating() {
+        return floating;
+    }
+
+    /**
+     * Checks whether the window rests exactly in its corner, rather than where it was dragged.
+     *
+     * @return true if the window is in its corner
+     */
+    public boolean isAtCorner() {
+        return atCorner;
+    }
+
+    /**
+     * Gets the content selected.
+     *
+     * @return the content, e.g. the file of the playlist entry shown, or null
+     */
+    public String getContent() {
+        return content;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof BannerState other
+                && screen.hasSameLayout(other.screen)
+                && windowX == other.windowX && windowY == other.windowY
+                && windowWidth == other.windowWidth && windowHeight == other.windowHeight
+                && atBottomLeft == other.atBottomLeft && floating == other.floating && atCorner == other.atCorner
+                && Objects.equals(content, other.content);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(screen.getId(), windowX, windowY, windowWidth, windowHeight, atBottomLeft, floating,
+                atCorner, content);
+    }
+}
@@ -0,0 +1,319 @@
+package one.cafebabe.globalbanner;
+
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Persists the state of a banner to a small state file, so the banner is restored where it
+ * was left on the next start. State changes are snapshotted on the Event Dispatch Thread
+ * and written on a background thread once they have stopped for the write delay, so a burst
+ * of changes such as a drag is coalesced into a single write of the latest state. Every write
+ * goes to a temporary file that is synced and then atomically renamed over the state file,
+ * and the rename is synced with the directory, so a crash leaves either the old or the new
+ * state, never a torn one.
+ */
+public class BannerStateStore {
+    /**
+     * Default delay in milliseconds between a state change and its write
+     */
+    private static final long DEFAULT_WRITE_DELAY = 500;
+
+    /**
+     * State file
+     */
+    private final Path file;
+
+    /**
+     * Temporary file the state is written to before it replaces the state file
+     */
+    private final Path temporaryFile;
+
+    /**
+     * Delay in milliseconds between the last of a burst of state changes and its write
+     */
+    private final long writeDelayMillis;
+
+    /**
+     * Background thread writing the state file
+     */
+    private final ScheduledExecutorService writer;
+
+    /**
+     * Latest state not written yet, or null
+     */
+    private final AtomicReference<BannerState> pending = new AtomicReference<>();
+
+    /**
+     * Write scheduled for the latest state change, or null; only accessed on the Event Dispatch Thread
+     */
+    private ScheduledFuture<?> scheduledWrite = null;
+
+    /**
+     * State recorded last; only accessed on the Event Dispatch Thread
+     */
+    private BannerState recorded = null;
+
+    /**
+     * Window manager of the tracked banner, or null
+     */
+    private WindowManager windowManager = null;
+
+    /**
+     * Content selected in the tracked banner, or null
+     */
+    private String content = null;
+
+    /**
+     * Number of the last write, increasing with every write; only accessed by the writer
+     */
+    private long sequence = 0;
+
+    /**
+     * Number of distinct states recorded
+     */
+    private volatile long recordCount = 0;
+
+    /**
+     * Number of times the state file has been written
+     */
+    private volatile long writeCount = 0;
+
+    /**
+     * Creates a new BannerStateStore.
+     *
+     * @param file the state file
+     * @param writeDelayMillis the delay in milliseconds between the last of a burst of state changes and its write
+     */
+    public BannerStateStore(Path file, long writeDelayMillis) {
+        this.file = file;
+        this.temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        this.writeDelayMillis = writeDelayMillis;
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "state-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates the store configured by system properties. The state is kept in the file
+     * {@code globalbanner.stateFile}, {@code .globalbanner/state} in the user's home directory
+     * by default, and written once it has not changed for {@code globalbanner.stateWriteMillis}
+     * (500 by default). An empty file name disables persisting.
+     *
+     * @return the store, or null if persisting is disabled
+     */
+    public static BannerStateStore fromSystemProperties() {
+        String file = System.getProperty("globalbanner.stateFile",
+                Paths.get(System.getProperty("user.home"), ".globalbanner", "state").toString());
+        if (file.isEmpty()) {
+            return null;
+        }
+        return new BannerStateStore(Paths.get(file), Long.getLong("globalbanner.stateWriteMillis", DEFAULT_WRITE_DELAY));
+    }
+
+    /**
+     * Reads the state written by an earlier run.
+     *
+     * @return the state, or null if there is none or it is damaged
+     */
+    public BannerState load() {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            System.err.println("Error reading state file: " + e.getMessage());
+            return null;
+        }
+        BannerState state = BannerState.decode(bytes);
+        if (state == null) {
+            System.err.println("Ignoring damaged state file: " + file);
+        }
+        return state;
+    }
+
+    /**
+     * Records the state of a banner whenever its window moves or resizes or its screen changes.
+     * Must be called on the Event Dispatch Thread, once the frame has been set.
+     *
+     * @param windowManager the window manager of the banner
+     */
+    public void track(WindowManager windowManager) {
+        this.windowManager = windowManager;
+        windowManager.getFrame().addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentMoved(ComponentEvent e) {
+                record();
+            }
+
+            @Override
+            public void componentResized(ComponentEvent e) {
+                record();
+            }
+        });
+        windowManager.getScreenManager().addListener(new ScreenManager.Listener() {
+            @Override
+            public void topologyChanged(ScreenTopology topology) {
+                record();
+            }
+
+            @Override
+            public void currentScreenChanged(ScreenInfo screen) {
+                record();
+            }
+        });
+        record();
+    }
+
+    /**
+     * Sets the content selected in the tracked banner and records the state.
+     * Must be called on the Event Dispatch Thread.
+     *
+     * @param content the content, e.g. the file of the playlist entry shown, or null
+     */
+    public void setContent(String content) {
+        this.content = content;
+        record();
+    }
+
+    /**
+     * Snapshots the tracked banner and, if the state has changed, schedules its write after
+     * the write delay, postponing a write scheduled by an earlier change.
+     * Must be called on the Event Dispatch Thread.
+     */
+    public void record() {
+        if (windowManager == null) {
+            return;
+        }
+        BannerState state = BannerState.capture(windowManager, content);
+        if (state == null || state.equals(recorded)) {
+            return;
+        }
+        recorded = state;
+        recordCount++;
+        pending.set(state);
+        if (scheduledWrite != null) {
+            scheduledWrite.cancel(false);
+        }
+        scheduledWrite = writer.schedule(this::writePending, writeDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes the latest recorded state right away and waits until it has been written,
+     * e.g. before the application exits.
+     */
+    public void flush() {
+        try {
+            writer.submit(this::writePending).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Error writing state file: " + e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Writes the latest recorded state and stops the writer thread.
+     */
+    public void close() {
+        flush();
+        writer.shutdown();
+    }
+
+    /**
+     * Writes the latest recorded state, if it has not been written yet.
+     */
+    private void writePending() {
+        BannerState state = pending.getAndSet(null);
+        if (state == null) {
+            return;
+        }
+        try {
+            write(state.encode(++sequence));
+            writeCount++;
+        } catch (IOException e) {
+            System.err.println("Error writing state file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces the state file with the specified bytes, so that after a crash the file
+     * holds either the old or the new bytes.
+     *
+     * @param bytes the encoded state
+     * @throws IOException if the state file cannot be written
+     */
+    private void write(byte[] bytes) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        try (FileChannel channel = FileChannel.open(temporaryFile,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        // The rename only survives a crash once the directory entry is on disk too
+        if (directory != null) {
+            try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+                channel.force(true);
+            } catch (IOException e) {
+                // Directories cannot be opened or synced on every platform, e.g. on Windows
+            }
+        }
+    }
+
+    /**
+     * Gets the state file.
+     *
+     * @return the path of the state file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Gets the number of distinct states recorded.
+     *
+     * @return the record count
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Gets the number of times the state file has been written.
+     *
+     * @return the write count
+     */
+    public long getWriteCount() {
+        return writeCount;
+    }
+}
@@ -0,0 +1,249 @@
+package one.cafebabe.globalbanner;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a content directory and reloads the banner image when an image file in it changes.
+ * Changes are debounced so a file still being written is only decoded once it has
+ * settled, and decoding happens off the Event Dispatch Thread.
+ */
+public class ContentWatcher implements AutoCloseable {
+    /**
+     * Default quiet period after the last change before a file is reloaded, in milliseconds
+     */
+    private static final long DEFAULT_DEBOUNCE_MILLIS = 250;
+
+    /**
+     * Receives reloaded images.
+     */
+    public interface Listener {
+        /**
+         * Called on the Event Dispatch Thread when an image file has been reloaded.
+         *
+         * @param file the changed file
+         * @param content the new image, ready to be shown
+         * @param decodeTime the time spent decoding and preparing the file in nanoseconds
+         * @param changedAt the time of the first change in nanoseconds, as returned by {@link System#nanoTime()}
+         */
+        void contentChanged(Path file, ImageCache.Entry content, long decodeTime, long changedAt);
+    }
+
+    /**
+     * Directory being watched
+     */
+    private final Path directory;
+
+    /**
+     * Quiet period after the last change before a file is reloaded, in milliseconds
+     */
+    private final long debounceMillis;
+
+    /**
+     * Receiver of reloaded images, set when the watcher is started
+     */
+    private volatile Listener listener = null;
+
+    /**
+     * Prepares reloaded images to be shown, on the reloading thread; set when the watcher is started
+     */
+    private volatile ImageCache.Preparer preparer = null;
+
+    /**
+     * Thread debouncing changes and decoding images
+     */
+    private final ScheduledExecutorService reloader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "content-reloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Watch service of the directory, or null until started
+     */
+    private WatchService watchService = null;
+
+    /**
+     * Reload waiting for the quiet period to end, or null
+     */
+    private ScheduledFuture<?> pendingReload = null;
+
+    /**
+     * File changed last, and the time of the first change since the last reload
+     */
+    private Path changedFile = null;
+    private long firstChangeTime = 0;
+
+    /**
+     * Creates a new ContentWatcher.
+     *
+     * @param directory the directory to watch
+     * @param debounceMillis the quiet period after the last change before a file is reloaded
+     */
+    public ContentWatcher(Path directory, long debounceMillis) {
+        this.directory = directory;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Creates the watcher configured by system properties. The directory is set by
+     * {@code globalbanner.contentDir} and the quiet period by {@code globalbanner.reloadDebounceMillis}.
+     *
+     * @return the watcher, or null if no content directory is configured
+     */
+    public static ContentWatcher fromSystemProperties() {
+        String directory = System.getProperty("globalbanner.contentDir");
+        if (directory == null) {
+            return null;
+        }
+        return new ContentWatcher(Paths.get(directory),
+                Long.getLong("globalbanner.reloadDebounceMillis", DEFAULT_DEBOUNCE_MILLIS));
+    }
+
+    /**
+     * Finds the most recently modified image file in the directory.
+     *
+     * @return the file, or null if the directory holds no image
+     */
+    public Path findNewestImage() {
+        Path newest = null;
+        FileTime newestTime = null;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, ContentWatcher::isImageFile)) {
+            for (Path file : files) {
+                FileTime time = Files.getLastModifiedTime(file);
+                if (newestTime == null || time.compareTo(newestTime) > 0) {
+                    newest = file;
+                    newestTime = time;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error listing content directory: " + e.getMessage());
+        }
+        return newest;
+    }
+
+    /**
+     * Starts watching the directory on a daemon thread.
+     *
+     * @param preparer prepares reloaded images to be shown, called on the reloading thread
+     * @param listener the receiver of reloaded images
+     * @throws IOException if the directory cannot be watched
+     */
+    public void start(ImageCache.Preparer preparer, Listener listener) throws IOException {
+        this.preparer = preparer;
+        this.listener = listener;
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        Thread watcher = new Thread(this::watch, "content-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        System.out.println("Watching content directory: " + directory.toAbsolutePath());
+    }
+
+    /**
+     * Waits for changes in the directory until the watcher is closed.
+     */
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.context() instanceof Path name && isImageFile(name)) {
+                        fileChanged(directory.resolve(name));
+                    }
+                }
+                if (!key.reset()) {
+                    System.err.println("Content directory is no longer accessible: " + directory);
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    /**
+     * Schedules a reload once the file has not changed for the quiet period.
+     *
+     * @param file the changed file
+     */
+    private synchronized void fileChanged(Path file) {
+        if (pendingReload == null) {
+            firstChangeTime = System.nanoTime();
+        } else {
+            pendingReload.cancel(false);
+        }
+        changedFile = file;
+        pendingReload = reloader.schedule(this::reload, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Decodes and prepares the changed file and hands it to the listener on the Event Dispatch Thread.
+     */
+    private void reload() {
+        Path file;
+        long changedAt;
+        synchronized (this) {
+            file = changedFile;
+            changedAt = firstChangeTime;
+            pendingReload = null;
+        }
+
+        long decodeStart = System.nanoTime();
+        ImageCache.Entry content;
+        try {
+            content = preparer.prepare(ImageLoader.loadFrames(file));
+        } catch (IOException | RuntimeException e) {
+            // Most likely still being written; the next change schedules another attempt
+            System.err.println("Error reloading " + file.getFileName() + ": " + e.getMessage());
+            return;
+        }
+        long decodeTime = System.nanoTime() - decodeStart;
+
+        SwingUtilities.invokeLater(() -> listener.contentChanged(file, content, decodeTime, changedAt));
+    }
+
+    /**
+     * Checks whether a file name has the extension of a supported image format.
+     *
+     * @param file the file
+     * @return true if the file looks like an image
+     */
+    static boolean isImageFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".png") || name.endsWith(".gif") || name.endsWith(".jpg")
+                || name.endsWith(".jpeg") || name.endsWith(".bmp");
+    }
+
+    /**
+     * Stops watching the directory.
+     */
+    @Override
+    public void close() {
+        reloader.shutdownNow();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                System.err.println("Error closing content watcher: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,862 @@
+package one.cafebabe.globalbanner;
+
+import javax.swing.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Non-blocking control endpoint for changing the banner from other processes, e.g. a scheduler.
+ * Listens on a loopback TCP port or a Unix domain socket and reads one command per line:
+ * <pre>
+ * screen &lt;index or id&gt;   select the screen of the banner
+ * corner left|right         move the banner to a bottom corner
+ * move &lt;x&gt; &lt;y&gt;              place the banner at a desktop location
+ * show | hide               show or hide all banners
+ * image &lt;path&gt;              show another image, decoded off the Event Dispatch Thread
+ * sync                      reply "ok" once all previous commands have been applied
+ * </pre>
+ * Malformed commands are answered with {@code error <message>}; other commands send no reply.
+ * Commands only update the pending state, keeping the latest value of each kind, and the
+ * pending state is handed to the Event Dispatch Thread at most once per frame. Any number
+ * of commands therefore cost at most one event per frame on the EDT, and nothing backs up.
+ */
+public class ControlServer implements Closeable {
+    /**
+     * Longest accepted command line in bytes
+     */
+    private static final int MAX_LINE = 1024;
+
+    /**
+     * Most reply bytes buffered for a client that does not read them
+     */
+    private static final int MAX_REPLY_BYTES = 64 * 1024;
+
+    /**
+     * Reply bytes buffered or owed to outstanding syncs at which a client is no longer read
+     * until it has taken some of them. The rest of the buffer holds the replies to the lines
+     * already read, so no reply is ever dropped.
+     */
+    private static final int HIGH_WATER = MAX_REPLY_BYTES / 2;
+
+    /**
+     * Reply to a sync command
+     */
+    private static final byte[] SYNC_REPLY = "ok\n".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * File type bits of a Unix file mode, and their value for a socket
+     */
+    private static final int S_IFMT = 0170000, S_IFSOCK = 0140000;
+
+    /**
+     * Applies commands to the banners. All methods but {@link #prepareImage} are called on
+     * the Event Dispatch Thread.
+     */
+    public interface Target {
+        /**
+         * Selects the screen of the banner.
+         *
+         * @param screen the index or identifier of the screen
+         */
+        void selectScreen(String screen);
+
+        /**
+         * Moves the banner to a bottom corner.
+         *
+         * @param left true for the bottom left corner, false for the bottom right
+         */
+        void moveToCorner(boolean left);
+
+        /**
+         * Places the banner at a desktop location.
+         *
+         * @param x the X coordinate in the virtual desktop
+         * @param y the Y coordinate in the virtual desktop
+         */
+        void moveTo(int x, int y);
+
+        /**
+         * Shows or hides all banners.
+         *
+         * @param visible true to show the banners
+         */
+        void setBannersVisible(boolean visible);
+
+        /**
+         * Prepares a requested image to be shown, called on the thread that decoded it.
+         *
+         * @param frames the decoded frames of the image
+         * @return the image, ready to be shown
+         * @throws IOException if the still image cannot be decoded
+         */
+        ImageCache.Entry prepareImage(FrameSource frames) throws IOException;
+
+        /**
+         * Shows another image.
+         *
+         * @param file the image file
+         * @param content the image prepared by {@link #prepareImage}
+         */
+        void showImage(Path file, ImageCache.Entry content);
+    }
+
+    /**
+     * Requested position of the banner, either a corner or a desktop location.
+     *
+     * @param corner whether the banner moves to a corner
+     * @param left whether the corner is the bottom left one
+     * @param x the X coordinate of the location
+     * @param y the Y coordinate of the location
+     */
+    private record Position(boolean corner, boolean left, int x, int y) {
+    }
+
+    /**
+     * Requested image, decoded and prepared to be shown.
+     *
+     * @param file the image file
+     * @param content the prepared image
+     */
+    private record Image(Path file, ImageCache.Entry content) {
+    }
+
+    /**
+     * A connected client with its partial input line, unsent replies and outstanding syncs.
+     */
+    private static final class Connection {
+        /**
+         * Bytes read but not parsed yet
+         */
+        final ByteBuffer input = ByteBuffer.allocate(MAX_LINE);
+
+        /**
+         * Replies not sent yet
+         */
+        final ByteBuffer output = ByteBuffer.allocate(MAX_REPLY_BYTES);
+
+        /**
+         * Sequence numbers the client's sync commands wait for, oldest first
+         */
+        final Deque<Long> syncs = new ArrayDeque<>();
+    }
+
+    /**
+     * Channel accepting clients
+     */
+    private final ServerSocketChannel serverChannel;
+
+    /**
+     * Unix domain socket file to delete on close, or null for TCP
+     */
+    private final Path socketFile;
+
+    /**
+     * Selector of the server thread
+     */
+    private final Selector selector;
+
+    /**
+     * Applies the commands on the Event Dispatch Thread
+     */
+    private final Target target;
+
+    /**
+     * Shortest time between two hand-overs to the Event Dispatch Thread, in nanoseconds
+     */
+    private final long frameInterval;
+
+    /**
+     * Single thread decoding requested images, one at a time
+     */
+    private final ExecutorService decoder = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "control-decoder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Guards the pending state and the sequence numbers
+     */
+    private final Object lock = new Object();
+
+    /**
+     * Latest requested screen not applied yet, or null
+     */
+    private String pendingScreen = null;
+
+    /**
+     * Latest requested position not applied yet, or null
+     */
+    private Position pendingPosition = null;
+
+    /**
+     * Latest requested visibility not applied yet, or null
+     */
+    private Boolean pendingVisible = null;
+
+    /**
+     * Latest decoded image not applied yet, or null
+     */
+    private Image pendingImage = null;
+
+    /**
+     * Sequence number of the latest command received
+     */
+    private long receivedSeq = 0;
+
+    /**
+     * Sequence number of the latest image command, so older decodes are dropped
+     */
+    private long latestImageSeq = 0;
+
+    /**
+     * Latest requested image file whose decoding has not started yet, or null
+     */
+    private Path requestedImage = null;
+
+    /**
+     * Whether the decoder has been asked to take the requested image
+     */
+    private boolean decodeScheduled = false;
+
+    /**
+     * Sequence numbers of the image commands still being decoded
+     */
+    private final NavigableSet<Long> decoding = new ConcurrentSkipListSet<>();
+
+    /**
+     * Sequence number up to which all commands have been applied
+     */
+    private volatile long appliedSeq = 0;
+
+    /**
+     * Whether there is pending state or progress to hand over
+     */
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    /**
+     * Whether a hand-over has been posted to the Event Dispatch Thread and has not run yet
+     */
+    private final AtomicBoolean flushPosted = new AtomicBoolean();
+
+    /**
+     * Time of the latest hand-over in nanoseconds; only accessed on the server thread
+     */
+    private long lastFlush = 0;
+
+    /**
+     * Number of commands received
+     */
+    private final AtomicLong commandCount = new AtomicLong();
+
+    /**
+     * Number of hand-overs run on the Event Dispatch Thread
+     */
+    private final AtomicLong flushCount = new AtomicLong();
+
+    /**
+     * Thread serving the clients
+     */
+    private final Thread serverThread;
+
+    /**
+     * Creates a new ControlServer and starts serving clients.
+     *
+     * @param serverChannel the bound channel accepting clients
+     * @param socketFile the Unix domain socket file to delete on close, or null for TCP
+     * @param target applies the commands on the Event Dispatch Thread
+     * @param frameInterval the shortest time between two hand-overs to the EDT, in nanoseconds
+     * @throws IOException if the selector cannot be opened
+     */
+    private ControlServer(ServerSocketChannel serverChannel, Path socketFile, Target target, long frameInterval)
+            throws IOException {
+        this.serverChannel = serverChannel;
+        this.socketFile = socketFile;
+        this.target = target;
+        this.frameInterval = frameInterval;
+        this.selector = Selector.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        serverThread = new Thread(this::run, "control-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+    }
+
+    /**
+     * Opens a control server on a loopback TCP port.
+     *
+     * @param port the port, or 0 for any free port
+     * @param target applies the commands on the Event Dispatch Thread
+     * @param frameInterval the shortest time between two hand-overs to the EDT, in nanoseconds
+     * @return the running server
+     * @throws IOException if the port cannot be bound
+     */
+    public static ControlServer openTcp(int port, Target target, long frameInterval) throws IOException {
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        try {
+            channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            return new ControlServer(channel, null, target, frameInterval);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a control server on a Unix domain socket, replacing a stale socket file.
+     * Anything else at the path is left alone and the socket is not bound.
+     *
+     * @param socketFile the socket file
+     * @param target applies the commands on the Event Dispatch Thread
+     * @param frameInterval the shortest time between two hand-overs to the EDT, in nanoseconds
+     * @return the running server
+     * @throws FileAlreadyExistsException if something other than a socket exists at the path
+     * @throws IOException if the socket cannot be bound
+     */
+    public static ControlServer openUnix(Path socketFile, Target target, long frameInterval) throws IOException {
+        if (Files.exists(socketFile, LinkOption.NOFOLLOW_LINKS)) {
+            if (!isSocket(socketFile)) {
+                throw new FileAlreadyExistsException(socketFile.toString(), null, "not a socket");
+            }
+            Files.delete(socketFile);
+        }
+        ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.bind(UnixDomainSocketAddress.of(socketFile));
+            return new ControlServer(channel, socketFile, target, frameInterval);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks whether a file is a Unix domain socket, without following links.
+     * Where the file mode cannot be read, any file that is neither a regular file,
+     * a directory nor a link is taken for a socket.
+     *
+     * @param file the file
+     * @return true if the file is a socket
+     * @throws IOException if the file attributes cannot be read
+     */
+    private static boolean isSocket(Path file) throws IOException {
+        try {
+            int mode = (Integer) Files.getAttribute(file, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+            return (mode & S_IFMT) == S_IFSOCK;
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            return Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther();
+        }
+    }
+
+    /**
+     * Opens the control server configured by system properties: on the Unix domain socket
+     * {@code globalbanner.controlSocket} if set, or else on the loopback port
+     * {@code globalbanner.controlPort}.
+     *
+     * @param target applies the commands on the Event Dispatch Thread
+     * @param frameInterval the shortest time between two hand-overs to the EDT, in nanoseconds
+     * @return the running server, or null if none is configured
+     * @throws IOException if the server cannot be bound
+     */
+    public static ControlServer fromSystemProperties(Target target, long frameInterval) throws IOException {
+        String socket = System.getProperty("globalbanner.controlSocket");
+        if (socket != null) {
+            return openUnix(Paths.get(socket), target, frameInterval);
+        }
+        Integer port = Integer.getInteger("globalbanner.controlPort");
+        return port != null ? openTcp(port, target, frameInterval) : null;
+    }
+
+    /**
+     * Gets the address clients connect to.
+     *
+     * @return the bound address
+     * @throws IOException if the server has been closed
+     */
+    public SocketAddress getAddress() throws IOException {
+        return serverChannel.getLocalAddress();
+    }
+
+    /**
+     * Serves the clients until the server is closed.
+     */
+    private void run() {
+        try {
+            while (selector.isOpen()) {
+                long timeout = 0;
+                if (dirty.get()) {
+                    long wait = lastFlush + frameInterval - System.nanoTime();
+                    if (wait <= 0) {
+                        postFlush();
+                    } else {
+                        timeout = Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait));
+                    }
+                }
+                selector.select(timeout);
+
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isReadable()) {
+                            read(key, connection);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            write(key, connection);
+                        }
+                    }
+                }
+                selector.selectedKeys().clear();
+                answerSyncs();
+            }
+        } catch (IOException e) {
+            if (selector.isOpen()) {
+                System.err.println("Control server failed: " + e.getMessage());
+            }
+        } catch (RuntimeException e) {
+            // The selector was closed under us
+            if (selector.isOpen()) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Accepts a new client.
+     *
+     * @throws IOException if the client cannot be registered
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel != null) {
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, new Connection());
+        }
+    }
+
+    /**
+     * Reads from a client and handles every complete line.
+     *
+     * @param key the key of the client
+     * @param connection the client
+     */
+    private void read(SelectionKey key, Connection connection) {
+        BannerMetrics metrics = BannerMetrics.get();
+        if (metrics != null) {
+            metrics.recordWakeup();
+        }
+        SocketChannel channel = (SocketChannel) key.channel();
+        ByteBuffer input = connection.input;
+        try {
+            while (true) {
+                int read = channel.read(input);
+                if (read < 0) {
+                    close(key);
+                    return;
+                }
+
+                // Handle all complete lines, then keep the partial one
+                input.flip();
+                int lineStart = 0;
+                for (int i = 0; i < input.limit(); i++) {
+                    if (input.get(i) == '\n') {
+                        int end = i > lineStart && input.get(i - 1) == '\r' ? i - 1 : i;
+                        handle(connection, new String(input.array(), lineStart, end - lineStart, StandardCharsets.UTF_8));
+                        lineStart = i + 1;
+                    }
+                }
+                input.position(lineStart);
+                input.compact();
+
+                if (!input.hasRemaining()) {
+                    reply(connection, "error line too long");
+                    write(key, connection);
+                    close(key);
+                    return;
+                }
+                if (read == 0 || backlog(connection) >= HIGH_WATER) {
+                    // Lines the client sends meanwhile wait in the socket until the replies are taken
+                    break;
+                }
+            }
+            write(key, connection);
+        } catch (IOException e) {
+            close(key);
+        }
+    }
+
+    /**
+     * Parses a command and updates the pending state.
+     *
+     * @param connection the client that sent the command
+     * @param line the command line without the line break
+     */
+    private void handle(Connection connection, String line) {
+        commandCount.incrementAndGet();
+        String command = line.strip();
+        int space = command.indexOf(' ');
+        String name = space < 0 ? command : command.substring(0, space);
+        String argument = space < 0 ? "" : command.substring(space + 1).strip();
+
+        switch (name) {
+            case "" -> {
+                // Blank lines are ignored
+            }
+            case "screen" -> {
+                if (argument.isEmpty()) {
+                    reply(connection, "error missing screen");
+                    return;
+                }
+                synchronized (lock) {
+                    pendingScreen = argument;
+                    receivedSeq++;
+                }
+                dirty.set(true);
+            }
+            case "corner" -> {
+                if (!argument.equals("left") && !argument.equals("right")) {
+                    reply(connection, "error corner must be left or right");
+                    return;
+                }
+                synchronized (lock) {
+                    pendingPosition = new Position(true, argument.equals("left"), 0, 0);
+                    receivedSeq++;
+                }
+                dirty.set(true);
+            }
+            case "move" -> {
+                String[] coordinates = argument.split("\\s+");
+                int x, y;
+                try {
+                    if (coordinates.length != 2) {
+                        throw new NumberFormatException();
+                    }
+                    x = Integer.parseInt(coordinates[0]);
+                    y = Integer.parseInt(coordinates[1]);
+                } catch (NumberFormatException e) {
+                    reply(connection, "error move needs two integer coordinates");
+                    return;
+                }
+                synchronized (lock) {
+                    pendingPosition = new Position(false, false, x, y);
+                    receivedSeq++;
+                }
+                dirty.set(true);
+            }
+            case "show", "hide" -> {
+                synchronized (lock) {
+                    pendingVisible = name.equals("show");
+                    receivedSeq++;
+                }
+                dirty.set(true);
+            }
+            case "image" -> {
+                if (argument.isEmpty()) {
+                    reply(connection, "error missing image path");
+                    return;
+                }
+                Path file = Paths.get(argument);
+                synchronized (lock) {
+                    // An image still waiting for the decoder is replaced rather than decoded
+                    if (requestedImage != null) {
+                        decoding.remove(latestImageSeq);
+                    }
+                    latestImageSeq = ++receivedSeq;
+                    requestedImage = file;
+                    decoding.add(latestImageSeq);
+                    if (!decodeScheduled) {
+                        decodeScheduled = true;
+                        decoder.execute(this::decodeRequested);
+                    }
+                }
+            }
+            case "sync" -> {
+                synchronized (lock) {
+                    connection.syncs.add(receivedSeq);
+                }
+            }
+            default -> reply(connection, "error unknown command: " + name);
+        }
+    }
+
+    /**
+     * Decodes and prepares the latest requested image on the decoder thread, and makes it
+     * pending unless a newer one was requested meanwhile. Images requested while one is
+     * being decoded only leave the latest of them to decode next, so a burst of image
+     * commands costs at most two decodes.
+     */
+    private void decodeRequested() {
+        while (true) {
+            Path file;
+            long seq;
+            synchronized (lock) {
+                if (requestedImage == null) {
+                    decodeScheduled = false;
+                    return;
+                }
+                file = requestedImage;
+                seq = latestImageSeq;
+                requestedImage = null;
+            }
+            try {
+                FrameSource frames = ImageLoader.loadFrames(file);
+                // Preparing builds the variants for scaled screens, which a newer image makes useless
+                if (!isStale(seq)) {
+                    ImageCache.Entry content = target.prepareImage(frames);
+                    synchronized (lock) {
+                        if (seq == latestImageSeq) {
+                            pendingImage = new Image(file, content);
+                        }
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error loading control image " + file + ": " + e.getMessage());
+            } finally {
+                decoding.remove(seq);
+                dirty.set(true);
+                selector.wakeup();
+            }
+        }
+    }
+
+    /**
+     * Checks whether a newer image has been requested than the one being decoded.
+     *
+     * @param seq the sequence number of the image command being decoded
+     * @return true if the image will not be shown
+     */
+    private boolean isStale(long seq) {
+        synchronized (lock) {
+            return seq != latestImageSeq;
+        }
+    }
+
+    /**
+     * Hands the pending state over to the Event Dispatch Thread, unless the previous
+     * hand-over has not run yet, in which case the state stays pending for the next frame.
+     */
+    private void postFlush() {
+        if (flushPosted.compareAndSet(false, true)) {
+            dirty.set(false);
+            lastFlush = System.nanoTime();
+            SwingUtilities.invokeLater(this::flush);
+        }
+    }
+
+    /**
+     * Applies the latest pending state on the Event Dispatch Thread.
+     */
+    private void flush() {
+        String screen;
+        Position position;
+        Boolean visible;
+        Image image;
+        long upTo;
+        synchronized (lock) {
+            screen = pendingScreen;
+            position = pendingPosition;
+            visible = pendingVisible;
+            image = pendingImage;
+            pendingScreen = null;
+            pendingPosition = null;
+            pendingVisible = null;
+            pendingImage = null;
+
+            // Commands after an image still being decoded are not complete yet
+            upTo = decoding.isEmpty() ? receivedSeq : Math.min(receivedSeq, decoding.first() - 1);
+        }
+
+        try {
+            if (screen != null) {
+                target.selectScreen(screen);
+            }
+            if (visible != null) {
+                target.setBannersVisible(visible);
+            }
+            if (image != null) {
+                target.showImage(image.file(), image.content());
+            }
+            if (position != null) {
+                if (position.corner()) {
+                    target.moveToCorner(position.left());
+                } else {
+                    target.moveTo(position.x(), position.y());
+                }
+            }
+        } finally {
+            appliedSeq = Math.max(appliedSeq, upTo);
+            flushCount.incrementAndGet();
+            flushPosted.set(false);
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Answers the sync commands whose previous commands have all been applied.
+     */
+    private void answerSyncs() {
+        long applied = appliedSeq;
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection connection && key.isValid()) {
+                boolean answered = false;
+                synchronized (lock) {
+                    while (!connection.syncs.isEmpty() && connection.syncs.peekFirst() <= applied
+                            && reply(connection, SYNC_REPLY)) {
+                        connection.syncs.removeFirst();
+                        answered = true;
+                    }
+                    if (!connection.syncs.isEmpty()) {
+                        // Make sure a hand-over comes to move the applied sequence forward
+                        dirty.set(true);
+                    }
+                }
+                if (answered) {
+                    write(key, connection);
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues a reply line for a client. Reading stops at {@link #HIGH_WATER}, so there is
+     * always room for the replies to the lines already read.
+     *
+     * @param connection the client
+     * @param reply the reply without the line break
+     */
+    private static void reply(Connection connection, String reply) {
+        if (!reply(connection, (reply + "\n").getBytes(StandardCharsets.UTF_8))) {
+            System.err.println("Control reply buffer full, dropped: " + reply);
+        }
+    }
+
+    /**
+     * Queues a reply line for a client if it fits into the output buffer.
+     *
+     * @param connection the client
+     * @param bytes the reply including the line break
+     * @return true if the reply was queued
+     */
+    private static boolean reply(Connection connection, byte[] bytes) {
+        if (connection.output.remaining() < bytes.length) {
+            return false;
+        }
+        connection.output.put(bytes);
+        return true;
+    }
+
+    /**
+     * Gets the reply bytes a client has not taken yet, counting those owed to its outstanding syncs.
+     *
+     * @param connection the client
+     * @return the number of bytes
+     */
+    private static int backlog(Connection connection) {
+        return connection.output.position() + connection.syncs.size() * SYNC_REPLY.length;
+    }
+
+    /**
+     * Sends as many queued replies as the client accepts, and waits for it to accept more otherwise.
+     * The client is read again once its backlog has dropped below {@link #HIGH_WATER}.
+     *
+     * @param key the key of the client
+     * @param connection the client
+     */
+    private void write(SelectionKey key, Connection connection) {
+        ByteBuffer output = connection.output;
+        try {
+            if (output.position() > 0) {
+                output.flip();
+                ((SocketChannel) key.channel()).write(output);
+                output.compact();
+            }
+            int interest = backlog(connection) < HIGH_WATER ? SelectionKey.OP_READ : 0;
+            key.interestOps(output.position() > 0 ? interest | SelectionKey.OP_WRITE : interest);
+        } catch (IOException e) {
+            close(key);
+        }
+    }
+
+    /**
+     * Disconnects a client.
+     *
+     * @param key the key of the client
+     */
+    private static void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+
+    /**
+     * Gets the number of commands received.
+     *
+     * @return the command count
+     */
+    public long getCommandCount() {
+        return commandCount.get();
+    }
+
+    /**
+     * Gets the number of times pending state was handed over to the Event Dispatch Thread.
+     *
+     * @return the hand-over count
+     */
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    /**
+     * Stops serving, disconnects all clients and deletes the socket file.
+     *
+     * @throws IOException if the socket file cannot be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        selector.close();
+        serverChannel.close();
+        decoder.shutdownNow();
+        try {
+            serverThread.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (socketFile != null) {
+            Files.deleteIfExists(socketFile);
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package one.cafebabe.globalbanner;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.awt.*;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Watchdog that tells what blocked the Event Dispatch Thread when the banner stutters.
+ * A background thread posts a heartbeat to the EDT at a fixed interval. If the heartbeat
+ * has not run within the threshold, the EDT counts as stalled and its stack is sampled
+ * until the heartbeat finally runs. The worst stalls are kept in a bounded ring and can
+ * be dumped through the MBean. While the EDT keeps up, the cost is one posted event per
+ * interval, so the watchdog can stay enabled in production.
+ */
+public class EdtWatchdog implements EdtWatchdogMBean {
+    /**
+     * Name under which the MBean is registered
+     */
+    public static final String OBJECT_NAME = "one.cafebabe.globalbanner:type=EdtWatchdog";
+
+    /**
+     * Largest number of stack samples kept per stall
+     */
+    private static final int MAX_SAMPLES = 200;
+
+    /**
+     * Largest number of distinct stacks shown per stall in a dump
+     */
+    private static final int DUMP_STACKS = 3;
+
+    /**
+     * Largest number of frames shown per stack in a dump
+     */
+    private static final int DUMP_FRAMES = 30;
+
+    /**
+     * Dispatch latency above which the EDT counts as stalled, in nanoseconds
+     */
+    private final long threshold;
+
+    /**
+     * Time between two heartbeats in nanoseconds
+     */
+    private final long heartbeatInterval;
+
+    /**
+     * Time between two stack samples during a stall in nanoseconds
+     */
+    private final long sampleInterval;
+
+    /**
+     * Number of stalls kept
+     */
+    private final int capacity;
+
+    /**
+     * Worst stalls kept, shortest first so it is the one evicted
+     */
+    private final PriorityQueue<Stall> worstStalls = new PriorityQueue<>(Comparator.comparingLong(Stall::getDuration));
+
+    /**
+     * Number of stalls since the watchdog was started or reset
+     */
+    private final AtomicLong stallCount = new AtomicLong();
+
+    /**
+     * The Event Dispatch Thread as seen by the last heartbeat, or when the watchdog was started
+     */
+    private volatile Thread edt = null;
+
+    /**
+     * Thread posting the heartbeats, or null if stopped
+     */
+    private Thread watchdogThread = null;
+
+    /**
+     * A stall of the Event Dispatch Thread with the stacks sampled while it lasted.
+     */
+    public static final class Stall {
+        /**
+         * Wall clock time the stalled heartbeat was posted
+         */
+        private final Instant start;
+
+        /**
+         * Time from posting the heartbeat until it ran, in nanoseconds
+         */
+        private long duration;
+
+        /**
+         * Stacks of the Event Dispatch Thread sampled during the stall
+         */
+        private final List<StackTraceElement[]> samples = new ArrayList<>();
+
+        /**
+         * Creates a new Stall.
+         *
+         * @param start the wall clock time the stalled heartbeat was posted
+         */
+        Stall(Instant start) {
+            this.start = start;
+        }
+
+        /**
+         * Gets the wall clock time the stalled heartbeat was posted.
+         *
+         * @return the start of the stall
+         */
+        public Instant getStart() {
+            return start;
+        }
+
+        /**
+         * Gets the time from posting the heartbeat until it ran.
+         *
+         * @return the duration in nanoseconds
+         */
+        public long getDuration() {
+            return duration;
+        }
+
+        /**
+         * Gets the stacks of the Event Dispatch Thread sampled during the stall.
+         *
+         * @return the samples, oldest first
+         */
+        public List<StackTraceElement[]> getSamples() {
+            return samples;
+        }
+
+        /**
+         * Counts the samples per distinct stack.
+         *
+         * @return the distinct stacks with their sample counts, most frequent first
+         */
+        public List<Map.Entry<List<StackTraceElement>, Integer>> getStackCounts() {
+            Map<List<StackTraceElement>, Integer> counts = new HashMap<>();
+            for (StackTraceElement[] sample : samples) {
+                counts.merge(Arrays.asList(sample), 1, Integer::sum);
+            }
+            List<Map.Entry<List<StackTraceElement>, Integer>> stacks = new ArrayList<>(counts.entrySet());
+            stacks.sort(Map.Entry.<List<StackTraceElement>, Integer>comparingByValue().reversed());
+            return stacks;
+        }
+
+        /**
+         * Gets the most frequently sampled top frame.
+         *
+         * @return the top frame, or null if no stack was sampled
+         */
+        public String getTopFrame() {
+            Map<StackTraceElement, Integer> counts = new HashMap<>();
+            for (StackTraceElement[] sample : samples) {
+                if (sample.length > 0) {
+                    counts.merge(sample[0], 1, Integer::sum);
+                }
+            }
+            return counts.entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .map(entry -> entry.getKey().toString())
+                    .orElse(null);
+        }
+    }
+
+    /**
+     * Creates a new EdtWatchdog. A stall is only caught by a heartbeat posted while it
+     * lasts and is measured from that heartbeat, so heartbeats are posted at least as often
+     * as the threshold, or a stall could end unseen between two of them.
+     *
+     * @param thresholdMillis the dispatch latency above which the EDT counts as stalled
+     * @param heartbeatMillis the time between two heartbeats, at most the threshold
+     * @param sampleMillis the time between two stack samples during a stall
+     * @param capacity the number of worst stalls kept
+     */
+    public EdtWatchdog(long thresholdMillis, long heartbeatMillis, long sampleMillis, int capacity) {
+        this.threshold = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.heartbeatInterval = TimeUnit.MILLISECONDS.toNanos(Math.min(heartbeatMillis, thresholdMillis));
+        this.sampleInterval = TimeUnit.MILLISECONDS.toNanos(sampleMillis);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Creates the watchdog configured by system properties. It is enabled by
+     * {@code globalbanner.edtWatchdog}. The EDT counts as stalled after
+     * {@code globalbanner.edtStallMillis} (100 by default), heartbeats are posted
+     * every {@code globalbanner.edtHeartbeatMillis} (50 by default), stacks are
+     * sampled every {@code globalbanner.edtSampleMillis} (10 by default), and the
+     * {@code globalbanner.edtStallCount} worst stalls (16 by default) are kept.
+     *
+     * @return the watchdog, or null if it is disabled
+     */
+    public static EdtWatchdog fromSystemProperties() {
+        if (!Boolean.getBoolean("globalbanner.edtWatchdog")) {
+            return null;
+        }
+        return new EdtWatchdog(
+                Long.getLong("globalbanner.edtStallMillis", 100),
+                Long.getLong("globalbanner.edtHeartbeatMillis", 50),
+                Long.getLong("globalbanner.edtSampleMillis", 10),
+                Integer.getInteger("globalbanner.edtStallCount", 16));
+    }
+
+    /**
+     * Starts posting heartbeats and registers the MBean. Waits for the EDT to be known,
+     * so a stall right from the first heartbeat is sampled too.
+     */
+    public void start() {
+        if (watchdogThread != null) {
+            return;
+        }
+        if (EventQueue.isDispatchThread()) {
+            edt = Thread.currentThread();
+        } else {
+            try {
+                EventQueue.invokeAndWait(() -> edt = Thread.currentThread());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (InvocationTargetException e) {
+                // Cannot happen, the task throws nothing
+            }
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("Error registering EDT watchdog MBean: " + e.getMessage());
+        }
+        watchdogThread = new Thread(this::run, "edt-watchdog");
+        watchdogThread.setDaemon(true);
+        watchdogThread.start();
+    }
+
+    /**
+     * Stops posting heartbeats and unregisters the MBean.
+     */
+    public void stop() {
+        if (watchdogThread == null) {
+            return;
+        }
+        watchdogThread.interrupt();
+        watchdogThread = null;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            // Was not registered
+        }
+    }
+
+    /**
+     * Posts heartbeats until interrupted, sampling the EDT whenever one is late.
+     */
+    private void run() {
+        Thread watchdog = Thread.currentThread();
+        while (!watchdog.isInterrupted()) {
+            AtomicLong ranAt = new AtomicLong();
+            long posted = System.nanoTime();
+            EventQueue.invokeLater(() -> {
+                edt = Thread.currentThread();
+                ranAt.set(System.nanoTime());
+                LockSupport.unpark(watchdog);
+            });
+
+            long remaining = threshold;
+            while (ranAt.get() == 0 && remaining > 0 && !watchdog.isInterrupted()) {
+                LockSupport.parkNanos(this, remaining);
+                remaining = posted + threshold - System.nanoTime();
+            }
+            if (ranAt.get() == 0 && !watchdog.isInterrupted()) {
+                sampleStall(posted, ranAt, watchdog);
+            }
+
+            try {
+                TimeUnit.NANOSECONDS.sleep(heartbeatInterval);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Samples the stack of the EDT until the late heartbeat runs, then records the stall.
+     *
+     * @param posted the time the heartbeat was posted in nanoseconds
+     * @param ranAt the time the heartbeat ran in nanoseconds, or 0 while it has not
+     * @param watchdog the watchdog thread
+     */
+    private void sampleStall(long posted, AtomicLong ranAt, Thread watchdog) {
+        Stall stall = new Stall(Instant.now().minusNanos(System.nanoTime() - posted));
+        Thread thread = edt;
+        while (ranAt.get() == 0 && !watchdog.isInterrupted()) {
+            if (thread != null && stall.samples.size() < MAX_SAMPLES) {
+                stall.samples.add(thread.getStackTrace());
+            }
+            LockSupport.parkNanos(this, sampleInterval);
+        }
+        if (ranAt.get() == 0) {
+            // Stopped during the stall
+            return;
+        }
+        stall.duration = ranAt.get() - posted;
+        record(stall);
+    }
+
+    /**
+     * Flags a stall and keeps it if it is among the worst.
+     *
+     * @param stall the stall
+     */
+    void record(Stall stall) {
+        stallCount.incrementAndGet();
+        synchronized (worstStalls) {
+            worstStalls.add(stall);
+            if (worstStalls.size() > capacity) {
+                worstStalls.poll();
+            }
+        }
+
+        String topFrame = stall.getTopFrame();
+        System.err.println("EDT stalled for " + TimeUnit.NANOSECONDS.toMillis(stall.getDuration()) + " ms"
+                + (topFrame != null ? " in " + topFrame : ""));
+
+        BannerEvents.EdtStallEvent event = new BannerEvents.EdtStallEvent();
+        if (event.shouldCommit()) {
+            event.stallTime = stall.getDuration();
+            event.samples = stall.getSamples().size();
+            event.topFrame = topFrame;
+            event.commit();
+        }
+    }
+
+    /**
+     * Gets the worst stalls kept.
+     *
+     * @return the stalls, longest first
+     */
+    public List<Stall> getWorstStalls() {
+        List<Stall> stalls;
+        synchronized (worstStalls) {
+            stalls = new ArrayList<>(worstStalls);
+        }
+        stalls.sort(Comparator.comparingLong(Stall::getDuration).reversed());
+        return stalls;
+    }
+
+    @Override
+    public long getThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(threshold);
+    }
+
+    @Override
+    public long getStallCount() {
+        return stallCount.get();
+    }
+
+    @Override
+    public double getWorstStallMillis() {
+        List<Stall> stalls = getWorstStalls();
+        return stalls.isEmpty() ? 0 : stalls.get(0).getDuration() / 1e6;
+    }
+
+    @Override
+    public String dumpStalls() {
+        StringBuilder dump = new StringBuilder();
+        for (Stall stall : getWorstStalls()) {
+            dump.append("Stall of ").append(TimeUnit.NANOSECONDS.toMillis(stall.getDuration()))
+                    .append(" ms at ").append(stall.getStart())
+                    .append(", ").append(stall.getSamples().size()).append(" samples\n");
+            List<Map.Entry<List<StackTraceElement>, Integer>> stacks = stall.getStackCounts();
+            for (Map.Entry<List<StackTraceElement>, Integer> stack : stacks.subList(0, Math.min(DUMP_STACKS, stacks.size()))) {
+                dump.append("  ").append(stack.getValue()).append(" samples:\n");
+                List<StackTraceElement> frames = stack.getKey();
+                for (StackTraceElement frame : frames.subList(0, Math.min(DUMP_FRAMES, frames.size()))) {
+                    dump.append("    at ").append(frame).append('\n');
+                }
+                if (frames.size() > DUMP_FRAMES) {
+                    dump.append("    ...\n");
+                }
+            }
+        }
+        return dump.length() > 0 ? dump.toString() : "No stalls\n";
+    }
+
+    @Override
+    public void reset() {
+        synchronized (worstStalls) {
+            worstStalls.clear();
+        }
+        stallCount.set(0);
+    }
+}
@@ -0,0 +1,34 @@
+package one.cafebabe.globalbanner;
+
+/**
+ * JMX view of the Event Dispatch Thread watchdog.
+ */
+public interface EdtWatchdogMBean {
+    /**
+     * @return the dispatch latency above which the Event Dispatch Thread counts as stalled
+     */
+    long getThresholdMillis();
+
+    /**
+     * @return the number of stalls since the watchdog was started or reset
+     */
+    long getStallCount();
+
+    /**
+     * @return the longest stall kept, or 0 if there was none
+     */
+    double getWorstStallMillis();
+
+    /**
+     * Describes the worst stalls kept, longest first, each with its most frequently
+     * sampled Event Dispatch Thread stacks.
+     *
+     * @return the report
+     */
+    String dumpStalls();
+
+    /**
+     * Discards all stalls.
+     */
+    void reset();
+}
@@ -0,0 +1,129 @@
+package one.cafebabe.globalbanner;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Bounded ring buffer of decoded frames in a device-compatible pixel layout.
+ * The number of slots is derived from a memory budget in bytes; when all slots
+ * are taken, the oldest frame is evicted and its image reused for the new one.
+ * Must be used on the Event Dispatch Thread.
+ */
+public class FrameRing {
+    /**
+     * Frame index held by each slot, or -1 if the slot is empty
+     */
+    private final int[] frameIndexes;
+
+    /**
+     * Image of each slot, kept when the slot is evicted so it can be reused
+     */
+    private final BufferedImage[] images;
+
+    /**
+     * Size of every frame
+     */
+    private final int width, height;
+
+    /**
+     * Slot to be filled next, which holds the oldest frame once the ring is full
+     */
+    private int next = 0;
+
+    /**
+     * Graphics configuration the images are compatible with, or null for a generic layout
+     */
+    private GraphicsConfiguration configuration = null;
+
+    /**
+     * Creates a new FrameRing.
+     *
+     * @param width the width of every frame
+     * @param height the height of every frame
+     * @param frameCount the number of frames of the animation
+     * @param maxBytes the memory budget for decoded frames
+     */
+    public FrameRing(int width, int height, int frameCount, long maxBytes) {
+        long frameBytes = 4L * width * height;
+        int slots = (int) Math.max(1, Math.min(frameCount, maxBytes / Math.max(1, frameBytes)));
+        this.width = width;
+        this.height = height;
+        this.frameIndexes = new int[slots];
+        this.images = new BufferedImage[slots];
+        Arrays.fill(frameIndexes, -1);
+    }
+
+    /**
+     * Gets a cached frame.
+     *
+     * @param frameIndex the index of the frame
+     * @return the frame, or null if it is not cached
+     */
+    public BufferedImage get(int frameIndex) {
+        for (int i = 0; i < frameIndexes.length; i++) {
+            if (frameIndexes[i] == frameIndex) {
+                return images[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Copies a decoded frame into the ring, evicting the oldest frame if the ring is full.
+     *
+     * @param frameIndex the index of the frame
+     * @param frame the decoded frame
+     * @return the cached copy
+     */
+    public BufferedImage put(int frameIndex, BufferedImage frame) {
+        int slot = next;
+        next = (next + 1) % frameIndexes.length;
+
+        BufferedImage image = images[slot];
+        if (image == null) {
+            image = configuration != null
+                    ? configuration.createCompatibleImage(width, height, Transparency.TRANSLUCENT)
+                    : new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+            images[slot] = image;
+        }
+        frameIndexes[slot] = frameIndex;
+
+        Graphics2D g = image.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(frame, 0, 0, null);
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * Makes the ring hold images compatible with the specified configuration,
+     * dropping all frames if it has changed.
+     *
+     * @param gc the graphics configuration frames are drawn to
+     */
+    public void setConfiguration(GraphicsConfiguration gc) {
+        if (gc != configuration) {
+            configuration = gc;
+            clear();
+        }
+    }
+
+    /**
+     * Drops all frames and releases their images.
+     */
+    public void clear() {
+        Arrays.fill(frameIndexes, -1);
+        Arrays.fill(images, null);
+        next = 0;
+    }
+
+    /**
+     * Gets the number of slots.
+     *
+     * @return the maximum number of frames held at once
+     */
+    public int getCapacity() {
+        return frameIndexes.length;
+    }
+}
@@ -0,0 +1,80 @@
+package one.cafebabe.globalbanner;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Source of the frames of a banner image. Frames are decoded on demand, so a
+ * long animation never has to be held on the heap as a whole.
+ * Implementations are not thread-safe.
+ */
+public interface FrameSource {
+    /**
+     * Gets the width of every frame.
+     *
+     * @return the width in pixels
+     */
+    int getWidth();
+
+    /**
+     * Gets the height of every frame.
+     *
+     * @return the height in pixels
+     */
+    int getHeight();
+
+    /**
+     * Gets the number of frames.
+     *
+     * @return the frame count, 1 for a still image
+     */
+    int getFrameCount();
+
+    /**
+     * Gets how long a frame is shown.
+     *
+     * @param index the index of the frame
+     * @return the duration in nanoseconds
+     */
+    long getFrameDuration(int index);
+
+    /**
+     * Gets the region that differs between a frame and the one shown before it.
+     * The frame before the first one is the last one.
+     *
+     * @param index the index of the frame
+     * @return the changed region in frame coordinates
+     */
+    Rectangle getChangedRegion(int index);
+
+    /**
+     * Estimates the heap held by decoded pixels of this source, excluding frames
+     * copied out by callers.
+     *
+     * @return the size in bytes
+     */
+    default long getDecodedBytes() {
+        return 4L * getWidth() * getHeight();
+    }
+
+    /**
+     * Decodes a frame. The returned image may be reused by the next call, so
+     * callers must copy the pixels they want to keep.
+     *
+     * @param index the index of the frame
+     * @return the fully composed frame
+     * @throws IOException if the frame cannot be decoded
+     */
+    BufferedImage decodeFrame(int index) throws IOException;
+
+    /**
+     * Creates a source with a single frame showing a still image.
+     *
+     * @param image the image
+     * @return the frame source
+     */
+    static FrameSource of(BufferedImage image) {
+        return new SpriteSheetFrameSource(image, 1, 0);
+    }
+}
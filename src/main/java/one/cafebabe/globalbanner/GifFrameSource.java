@@ -0,0 +1,257 @@
+package one.cafebabe.globalbanner;
+
+import org.w3c.dom.Node;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frames of an animated GIF, decoded one at a time through the frame API of the
+ * ImageIO reader. GIF frames are deltas drawn over the previous frames, so frames
+ * are composed onto a single canvas in order; going back starts over from the first
+ * frame. Only the encoded file, the canvas and the frame layout are kept in memory.
+ */
+public class GifFrameSource implements FrameSource {
+    /**
+     * Duration of frames that specify none, as browsers do
+     */
+    private static final long DEFAULT_FRAME_DURATION = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * Disposal methods of the graphic control extension
+     */
+    private static final String RESTORE_TO_BACKGROUND = "restoreToBackgroundColor";
+    private static final String RESTORE_TO_PREVIOUS = "restoreToPrevious";
+
+    /**
+     * Reader positioned on the encoded file
+     */
+    private final ImageReader reader;
+
+    /**
+     * Size of the logical screen all frames are drawn onto
+     */
+    private final int width, height;
+
+    /**
+     * Placement of each frame on the logical screen
+     */
+    private final Rectangle[] frameBounds;
+
+    /**
+     * Duration of each frame in nanoseconds
+     */
+    private final long[] frameDurations;
+
+    /**
+     * Disposal method of each frame
+     */
+    private final String[] disposals;
+
+    /**
+     * Canvas holding the frame composed last
+     */
+    private final BufferedImage canvas;
+
+    /**
+     * Copy of the canvas before a frame that restores to previous was drawn
+     */
+    private BufferedImage previous = null;
+
+    /**
+     * Index of the frame on the canvas, or -1 if the canvas is empty
+     */
+    private int canvasIndex = -1;
+
+    /**
+     * Opens an animated GIF and reads the layout of its frames, without decoding any pixels.
+     *
+     * @param data the encoded GIF
+     * @throws IOException if the data is not a readable GIF
+     */
+    public GifFrameSource(byte[] data) throws IOException {
+        ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(data));
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            throw new IOException("Unsupported image format");
+        }
+        reader = readers.next();
+        reader.setInput(input, false, false);
+
+        int frameCount = reader.getNumImages(true);
+        if (frameCount < 1) {
+            throw new IOException("Image has no frames");
+        }
+        frameBounds = new Rectangle[frameCount];
+        frameDurations = new long[frameCount];
+        disposals = new String[frameCount];
+
+        int logicalWidth = 0, logicalHeight = 0;
+        IIOMetadata streamMetadata = reader.getStreamMetadata();
+        if (streamMetadata != null) {
+            Node screen = findChild(streamMetadata.getAsTree("javax_imageio_gif_stream_1.0"), "LogicalScreenDescriptor");
+            logicalWidth = intAttribute(screen, "logicalScreenWidth", 0);
+            logicalHeight = intAttribute(screen, "logicalScreenHeight", 0);
+        }
+
+        for (int i = 0; i < frameCount; i++) {
+            Node tree = reader.getImageMetadata(i).getAsTree("javax_imageio_gif_image_1.0");
+            Node descriptor = findChild(tree, "ImageDescriptor");
+            frameBounds[i] = new Rectangle(
+                    intAttribute(descriptor, "imageLeftPosition", 0),
+                    intAttribute(descriptor, "imageTopPosition", 0),
+                    intAttribute(descriptor, "imageWidth", reader.getWidth(i)),
+                    intAttribute(descriptor, "imageHeight", reader.getHeight(i)));
+
+            Node control = findChild(tree, "GraphicControlExtension");
+            int delay = intAttribute(control, "delayTime", 0);
+            frameDurations[i] = delay > 1 ? TimeUnit.MILLISECONDS.toNanos(delay * 10L) : DEFAULT_FRAME_DURATION;
+            disposals[i] = control != null ? control.getAttributes().getNamedItem("disposalMethod").getNodeValue() : "none";
+
+            logicalWidth = Math.max(logicalWidth, frameBounds[i].x + frameBounds[i].width);
+            logicalHeight = Math.max(logicalHeight, frameBounds[i].y + frameBounds[i].height);
+        }
+
+        width = logicalWidth;
+        height = logicalHeight;
+        canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getFrameCount() {
+        return frameBounds.length;
+    }
+
+    @Override
+    public long getFrameDuration(int index) {
+        return frameDurations[index];
+    }
+
+    @Override
+    public long getDecodedBytes() {
+        // The canvas, and the copy kept for frames restoring to previous
+        return (Arrays.asList(disposals).contains(RESTORE_TO_PREVIOUS) ? 8L : 4L) * width * height;
+    }
+
+    @Override
+    public Rectangle getChangedRegion(int index) {
+        if (index == 0) {
+            // Starting over clears whatever the last frame left behind
+            return new Rectangle(0, 0, width, height);
+        }
+        Rectangle region = new Rectangle(frameBounds[index]);
+        if (!"none".equals(disposals[index - 1]) && !"doNotDispose".equals(disposals[index - 1])) {
+            region.add(frameBounds[index - 1]);
+        }
+        return region;
+    }
+
+    @Override
+    public BufferedImage decodeFrame(int index) throws IOException {
+        if (index < canvasIndex || canvasIndex < 0) {
+            // Frames only compose forwards, so start over from an empty canvas
+            clear(new Rectangle(0, 0, width, height));
+            canvasIndex = -1;
+        }
+        while (canvasIndex < index) {
+            composeFrame(canvasIndex + 1);
+        }
+        return canvas;
+    }
+
+    /**
+     * Disposes the frame on the canvas and draws the next one over it.
+     *
+     * @param index the index of the frame to draw
+     * @throws IOException if the frame cannot be decoded
+     */
+    private void composeFrame(int index) throws IOException {
+        if (canvasIndex >= 0) {
+            String disposal = disposals[canvasIndex];
+            if (RESTORE_TO_BACKGROUND.equals(disposal)) {
+                clear(frameBounds[canvasIndex]);
+            } else if (RESTORE_TO_PREVIOUS.equals(disposal) && previous != null) {
+                Graphics2D g = canvas.createGraphics();
+                g.setComposite(AlphaComposite.Src);
+                g.drawImage(previous, 0, 0, null);
+                g.dispose();
+            }
+        }
+
+        if (RESTORE_TO_PREVIOUS.equals(disposals[index])) {
+            if (previous == null) {
+                previous = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            }
+            Graphics2D g = previous.createGraphics();
+            g.setComposite(AlphaComposite.Src);
+            g.drawImage(canvas, 0, 0, null);
+            g.dispose();
+        }
+
+        BufferedImage frame = reader.read(index);
+        Graphics2D g = canvas.createGraphics();
+        g.drawImage(frame, frameBounds[index].x, frameBounds[index].y, null);
+        g.dispose();
+        canvasIndex = index;
+    }
+
+    /**
+     * Clears a region of the canvas to transparent.
+     *
+     * @param region the region to clear
+     */
+    private void clear(Rectangle region) {
+        Graphics2D g = canvas.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fill(region);
+        g.dispose();
+    }
+
+    /**
+     * Finds a direct child of a metadata node.
+     *
+     * @param parent the parent node
+     * @param name the name of the child
+     * @return the child, or null if there is none
+     */
+    private static Node findChild(Node parent, String name) {
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (name.equals(child.getNodeName())) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads an integer attribute of a metadata node.
+     *
+     * @param node the node, or null
+     * @param name the name of the attribute
+     * @param defaultValue the value if the node or attribute is missing
+     * @return the attribute value
+     */
+    private static int intAttribute(Node node, String name, int defaultValue) {
+        Node attribute = node != null ? node.getAttributes().getNamedItem(name) : null;
+        return attribute != null ? Integer.parseInt(attribute.getNodeValue()) : defaultValue;
+    }
+}
@@ -0,0 +1,255 @@
+package one.cafebabe.globalbanner;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Least-recently-used cache of decoded banner images, bounded by the total bytes
+ * of their pixels rather than by their number. Images are stored ready to show:
+ * still images come with their hit mask and their variants for scaled screens,
+ * so swapping one in costs only a repaint.
+ * May be used from any thread.
+ *
+ * @param <K> the type of the keys identifying images
+ */
+public class ImageCache<K> implements ImageCacheMBean {
+    /**
+     * A decoded image ready to be shown.
+     */
+    public static class Entry {
+        /**
+         * Frames of the image
+         */
+        private final FrameSource frames;
+
+        /**
+         * Mask of the opaque pixels of a still image, or null for animations
+         */
+        private final AlphaMask hitMask;
+
+        /**
+         * Pre-scaled variants of a still image, or null for animations
+         */
+        private final ImagePyramid pyramid;
+
+        /**
+         * Creates a new Entry.
+         *
+         * @param frames the frames of the image
+         * @param hitMask the mask of the opaque pixels of a still image, or null for animations
+         * @param pyramid the pre-scaled variants of a still image, or null for animations
+         */
+        public Entry(FrameSource frames, AlphaMask hitMask, ImagePyramid pyramid) {
+            this.frames = frames;
+            this.hitMask = hitMask;
+            this.pyramid = pyramid;
+        }
+
+        /**
+         * Gets the frames of the image.
+         *
+         * @return the frames
+         */
+        public FrameSource getFrames() {
+            return frames;
+        }
+
+        /**
+         * Gets the mask of the opaque pixels of a still image.
+         *
+         * @return the mask, or null for animations
+         */
+        public AlphaMask getHitMask() {
+            return hitMask;
+        }
+
+        /**
+         * Gets the pre-scaled variants of a still image.
+         *
+         * @return the pyramid, or null for animations
+         */
+        public ImagePyramid getPyramid() {
+            return pyramid;
+        }
+
+        /**
+         * Gets the heap held by the decoded pixels of the image and its pre-scaled variants.
+         *
+         * @return the size in bytes
+         */
+        public long getBytes() {
+            return frames.getDecodedBytes() + (pyramid != null ? pyramid.getScaledBytes() : 0);
+        }
+    }
+
+    /**
+     * A cached image with its size as counted when it was added. Variants for other scales
+     * may be added to the image later, so the same size is taken off when it is removed.
+     *
+     * @param entry the image
+     * @param bytes the size in bytes counted against the budget
+     */
+    private record Cached(Entry entry, long bytes) {
+    }
+
+    /**
+     * Entries in access order, least recently used first
+     */
+    private final LinkedHashMap<K, Cached> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Budget for decoded pixels in bytes
+     */
+    private final long maxBytes;
+
+    /**
+     * Bytes of decoded pixels currently held
+     */
+    private long sizeBytes = 0;
+
+    /**
+     * Statistics of lookups and evictions
+     */
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a new ImageCache.
+     *
+     * @param maxBytes the budget for decoded pixels in bytes
+     */
+    public ImageCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Looks up an image and counts the lookup as a hit or miss.
+     *
+     * @param key the key of the image
+     * @return the image, or null if it is not cached
+     */
+    public synchronized Entry get(K key) {
+        Cached cached = entries.get(key);
+        (cached != null ? hits : misses).incrementAndGet();
+        return cached != null ? cached.entry() : null;
+    }
+
+    /**
+     * Checks whether an image is cached, without counting a lookup or changing its recency.
+     *
+     * @param key the key of the image
+     * @return true if the image is cached
+     */
+    public synchronized boolean contains(K key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * Adds an image, evicting the least recently used images until the cache fits its budget.
+     * An image larger than the whole budget is not cached.
+     *
+     * @param key the key of the image
+     * @param entry the image
+     */
+    public synchronized void put(K key, Entry entry) {
+        long bytes = entry.getBytes();
+        if (bytes > maxBytes) {
+            return;
+        }
+        Cached replaced = entries.put(key, new Cached(entry, bytes));
+        if (replaced != null) {
+            sizeBytes -= replaced.bytes();
+        }
+        sizeBytes += bytes;
+
+        Iterator<Map.Entry<K, Cached>> eldest = entries.entrySet().iterator();
+        while (sizeBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<K, Cached> evicted = eldest.next();
+            if (evicted.getKey().equals(key)) {
+                continue;
+            }
+            sizeBytes -= evicted.getValue().bytes();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Creates a cache entry for an image, computing the hit mask of still images and
+     * scaling them for the scale factors of all screens. Meant to be called on the
+     * thread that decoded the image, so showing it on the Event Dispatch Thread costs
+     * only a repaint.
+     *
+     * @param frames the frames of the image
+     * @param alphaThreshold the minimum alpha value (0-255) for a pixel to react to the mouse
+     * @param topology the screens the image will be shown on
+     * @return the entry
+     * @throws IOException if the still image cannot be decoded
+     */
+    public static Entry prepare(FrameSource frames, int alphaThreshold, ScreenTopology topology) throws IOException {
+        if (frames.getFrameCount() > 1) {
+            return new Entry(frames, null, null);
+        }
+        BufferedImage image = frames.decodeFrame(0);
+        AlphaMask hitMask = new AlphaMask(image, alphaThreshold);
+        // Build the outline now so the window shape is ready when the image is swapped in
+        hitMask.getShape();
+        return new Entry(frames, hitMask, ImagePyramid.build(image, topology));
+    }
+
+    /**
+     * Prepares decoded images on the thread that decoded them, see {@link #prepare}.
+     */
+    @FunctionalInterface
+    public interface Preparer {
+        /**
+         * Creates a cache entry for an image, ready to be shown.
+         *
+         * @param frames the frames of the image
+         * @return the entry
+         * @throws IOException if the still image cannot be decoded
+         */
+        Entry prepare(FrameSource frames) throws IOException;
+    }
+
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    @Override
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+}
@@ -0,0 +1,41 @@
+package one.cafebabe.globalbanner;
+
+/**
+ * JMX view of the decoded image cache of the banner playlist.
+ */
+public interface ImageCacheMBean {
+    /**
+     * @return the number of lookups that found a decoded image
+     */
+    long getHits();
+
+    /**
+     * @return the number of lookups that had to wait for decoding
+     */
+    long getMisses();
+
+    /**
+     * @return the share of lookups that found a decoded image, between 0 and 1
+     */
+    double getHitRate();
+
+    /**
+     * @return the number of images evicted to stay within the budget
+     */
+    long getEvictions();
+
+    /**
+     * @return the number of images in the cache
+     */
+    int getEntryCount();
+
+    /**
+     * @return the bytes of decoded pixels held by the cache
+     */
+    long getSizeBytes();
+
+    /**
+     * @return the budget for decoded pixels in bytes
+     */
+    long getMaxBytes();
+}
@@ -0,0 +1,177 @@
+package one.cafebabe.globalbanner;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads banner images. Decoding can take a while, so callers should
+ * use it off the Event Dispatch Thread.
+ */
+public class ImageLoader {
+    /**
+     * Cache of pre-decoded pixels, or null if disabled
+     */
+    private static final PixelCache PIXEL_CACHE = PixelCache.fromSystemProperties();
+
+    /**
+     * Loads and decodes an image from the classpath.
+     * If the pixel cache is enabled, the pixels are read from the cache when the
+     * resource is unchanged, and written to it after decoding otherwise.
+     *
+     * @param name the resource name of the image
+     * @return the decoded image
+     * @throws IOException if the image cannot be found or decoded
+     */
+    public static BufferedImage loadResource(String name) throws IOException {
+        BannerEvents.ImageLoadEvent event = new BannerEvents.ImageLoadEvent();
+        event.begin();
+
+        BufferedImage image;
+        try (InputStream imageStream = ImageLoader.class.getResourceAsStream(name)) {
+            if (imageStream == null) {
+                throw new IOException("Image not found in resources");
+            }
+            if (PIXEL_CACHE == null) {
+                image = decode(imageStream);
+            } else {
+                image = loadCached(PIXEL_CACHE, name, imageStream.readAllBytes());
+            }
+        }
+
+        if (event.shouldCommit()) {
+            event.name = name;
+            event.width = image.getWidth();
+            event.height = image.getHeight();
+            event.pixelCache = PIXEL_CACHE != null;
+            event.commit();
+        }
+        return image;
+    }
+
+    /**
+     * Loads the frames of a banner image from the classpath.
+     *
+     * @param name the resource name of the image
+     * @return the frames of the image
+     * @throws IOException if the image cannot be found or decoded
+     * @see #loadFrames(String, byte[])
+     */
+    public static FrameSource loadFrames(String name) throws IOException {
+        try (InputStream imageStream = ImageLoader.class.getResourceAsStream(name)) {
+            if (imageStream == null) {
+                throw new IOException("Image not found in resources");
+            }
+            return loadFrames(name, imageStream.readAllBytes());
+        }
+    }
+
+    /**
+     * Loads the frames of a banner image from a file.
+     *
+     * @param file the image file
+     * @return the frames of the image
+     * @throws IOException if the image cannot be read or decoded
+     * @see #loadFrames(String, byte[])
+     */
+    public static FrameSource loadFrames(Path file) throws IOException {
+        return loadFrames(file.toAbsolutePath().toString(), Files.readAllBytes(file));
+    }
+
+    /**
+     * Loads the frames of an encoded banner image.
+     * GIF images are opened as animations whose frames are decoded on demand.
+     * Other images are decoded, through the pixel cache if it is enabled, and cut
+     * into the number of frames set by the system property {@code globalbanner.spriteFrames},
+     * each shown for {@code globalbanner.spriteFrameMillis} milliseconds (100 by default).
+     *
+     * @param name the name of the image
+     * @param data the encoded image
+     * @return the frames of the image
+     * @throws IOException if the image cannot be decoded
+     */
+    static FrameSource loadFrames(String name, byte[] data) throws IOException {
+        BannerEvents.ImageLoadEvent event = new BannerEvents.ImageLoadEvent();
+        event.begin();
+
+        FrameSource frames;
+        if (isGif(data)) {
+            frames = new GifFrameSource(data);
+        } else {
+            BufferedImage image = PIXEL_CACHE != null
+                    ? loadCached(PIXEL_CACHE, name, data)
+                    : decode(new ByteArrayInputStream(data));
+            int spriteFrames = Integer.getInteger("globalbanner.spriteFrames", 1);
+            if (spriteFrames > 1) {
+                long frameDuration = TimeUnit.MILLISECONDS.toNanos(Long.getLong("globalbanner.spriteFrameMillis", 100));
+                frames = new SpriteSheetFrameSource(image, spriteFrames, frameDuration);
+            } else {
+                frames = FrameSource.of(image);
+            }
+        }
+
+        if (event.shouldCommit()) {
+            event.name = name;
+            event.width = frames.getWidth();
+            event.height = frames.getHeight();
+            event.pixelCache = PIXEL_CACHE != null;
+            event.commit();
+        }
+        return frames;
+    }
+
+    /**
+     * Checks whether encoded image data is a GIF.
+     *
+     * @param data the encoded image
+     * @return true if the data starts with a GIF signature
+     */
+    private static boolean isGif(byte[] data) {
+        return data.length >= 6 && data[0] == 'G' && data[1] == 'I' && data[2] == 'F' && data[3] == '8';
+    }
+
+    /**
+     * Loads an image through the pixel cache, falling back to decoding it.
+     *
+     * @param cache the pixel cache
+     * @param name the name of the image
+     * @param data the encoded image
+     * @return the decoded image
+     * @throws IOException if the image cannot be decoded
+     */
+    static BufferedImage loadCached(PixelCache cache, String name, byte[] data) throws IOException {
+        byte[] hash = PixelCache.hash(data);
+        BufferedImage image = cache.read(name, hash);
+        if (image != null) {
+            return image;
+        }
+
+        image = decode(new ByteArrayInputStream(data));
+        try {
+            cache.write(name, hash, image);
+        } catch (IOException e) {
+            System.err.println("Error writing pixel cache: " + e.getMessage());
+        }
+        return image;
+    }
+
+    /**
+     * Decodes an image from a stream.
+     *
+     * @param imageStream the stream to decode
+     * @return the decoded image
+     * @throws IOException if the image cannot be decoded
+     */
+    static BufferedImage decode(InputStream imageStream) throws IOException {
+        BufferedImage image = ImageIO.read(imageStream);
+        if (image == null) {
+            throw new IOException("Unsupported image format");
+        }
+        return image;
+    }
+}
@@ -0,0 +1,212 @@
+package one.cafebabe.globalbanner;
+
+import java.awt.*;
+import java.awt.image.AbstractMultiResolutionImage;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Pre-scaled variants of an image, one per display scale factor.
+ * Screens with different scale factors each get a variant with exactly as many
+ * pixels as the banner covers on them, so drawing it is a plain blit instead of
+ * resampling the source on every paint. Variants are built with high quality
+ * interpolation, either up front in parallel or lazily the first time a scale is
+ * needed. Thread-safe.
+ */
+public class ImagePyramid extends AbstractMultiResolutionImage {
+    /**
+     * Variant at scale 1, as decoded
+     */
+    private final BufferedImage base;
+
+    /**
+     * Variants built so far, by scale
+     */
+    private final Map<Scale, BufferedImage> variants = new ConcurrentHashMap<>();
+
+    /**
+     * Horizontal and vertical scale factor of a variant.
+     *
+     * @param x the horizontal scale factor
+     * @param y the vertical scale factor
+     */
+    private record Scale(double x, double y) {
+    }
+
+    /**
+     * Creates a new ImagePyramid with only the base image. Other variants are built on first use.
+     *
+     * @param base the image at scale 1
+     */
+    public ImagePyramid(BufferedImage base) {
+        this.base = base;
+        variants.put(new Scale(1, 1), base);
+    }
+
+    /**
+     * Creates a pyramid with the variants for the scale factors of all screens,
+     * built in parallel on the common fork-join pool.
+     *
+     * @param base the image at scale 1
+     * @param topology the screens the image will be shown on
+     * @return the pyramid
+     */
+    public static ImagePyramid build(BufferedImage base, ScreenTopology topology) {
+        ImagePyramid pyramid = new ImagePyramid(base);
+        Collection<Scale> scales = new LinkedHashSet<>();
+        for (ScreenInfo screen : topology.getScreens()) {
+            scales.add(new Scale(screen.getScaleX(), screen.getScaleY()));
+        }
+        pyramid.prebuild(scales);
+        return pyramid;
+    }
+
+    /**
+     * Builds the variants for the specified scales in parallel.
+     *
+     * @param scales the scale factors to build
+     */
+    private void prebuild(Collection<Scale> scales) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (Scale scale : scales) {
+            if (!variants.containsKey(scale)) {
+                tasks.add(ForkJoinTask.adapt(() -> getVariant(scale.x(), scale.y())));
+            }
+        }
+        if (tasks.size() == 1) {
+            tasks.get(0).invoke();
+        } else if (!tasks.isEmpty()) {
+            ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        }
+    }
+
+    /**
+     * Gets the variant for the specified scale factors, building it if needed.
+     *
+     * @param scaleX the horizontal scale factor from user space to device pixels
+     * @param scaleY the vertical scale factor from user space to device pixels
+     * @return the variant
+     */
+    public BufferedImage getVariant(double scaleX, double scaleY) {
+        Scale scale = new Scale(scaleX, scaleY);
+        BufferedImage variant = variants.get(scale);
+        if (variant == null) {
+            // Scaled outside the map, so variants for other scales are built concurrently
+            variant = scale(base, variantSize(base.getWidth(), scaleX), variantSize(base.getHeight(), scaleY));
+            BufferedImage existing = variants.putIfAbsent(scale, variant);
+            if (existing != null) {
+                variant = existing;
+            }
+        }
+        return variant;
+    }
+
+    /**
+     * Gets the size of a variant in device pixels.
+     *
+     * @param size the size of the base image
+     * @param scale the scale factor
+     * @return the scaled size, at least one pixel
+     */
+    static int variantSize(int size, double scale) {
+        return Math.max(1, (int) Math.round(size * scale));
+    }
+
+    /**
+     * Scales an image to the specified size. Shrinking by more than half is done
+     * in successive halving steps, so every source pixel contributes to the result.
+     *
+     * @param image the image to scale
+     * @param width the target width
+     * @param height the target height
+     * @return the scaled image, with premultiplied alpha so edges do not fringe
+     */
+    private static BufferedImage scale(BufferedImage image, int width, int height) {
+        BufferedImage current = image;
+        do {
+            int stepWidth = Math.max(width, current.getWidth() / 2);
+            int stepHeight = Math.max(height, current.getHeight() / 2);
+            BufferedImage step = new BufferedImage(stepWidth, stepHeight, BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D g = step.createGraphics();
+            g.setComposite(AlphaComposite.Src);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, stepWidth == width && stepHeight == height
+                    ? RenderingHints.VALUE_INTERPOLATION_BICUBIC
+                    : RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(current, 0, 0, stepWidth, stepHeight, null);
+            g.dispose();
+            current = step;
+        } while (current.getWidth() != width || current.getHeight() != height);
+        return current;
+    }
+
+    /**
+     * Gets the variant best suited for the specified destination size in device pixels.
+     *
+     * @param destImageWidth the width of the destination in device pixels
+     * @param destImageHeight the height of the destination in device pixels
+     * @return the variant
+     */
+    @Override
+    public Image getResolutionVariant(double destImageWidth, double destImageHeight) {
+        return getVariant(destImageWidth / base.getWidth(), destImageHeight / base.getHeight());
+    }
+
+    /**
+     * Gets the variants built so far.
+     *
+     * @return the variants, starting with the base image
+     */
+    @Override
+    public List<Image> getResolutionVariants() {
+        List<Image> result = new ArrayList<>();
+        result.add(base);
+        for (BufferedImage variant : variants.values()) {
+            if (variant != base) {
+                result.add(variant);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the image at scale 1.
+     *
+     * @return the base image
+     */
+    @Override
+    protected Image getBaseImage() {
+        return base;
+    }
+
+    /**
+     * Gets the heap held by the variants built so far, not counting the base image.
+     *
+     * @return the size in bytes
+     */
+    public long getScaledBytes() {
+        long bytes = 0;
+        for (BufferedImage variant : variants.values()) {
+            if (variant != base) {
+                bytes += 4L * variant.getWidth() * variant.getHeight();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Gets the image at scale 1 as decoded.
+     *
+     * @return the base image
+     */
+    public BufferedImage getBase() {
+        return base;
+    }
+}
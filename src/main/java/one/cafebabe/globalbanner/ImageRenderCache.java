@@ -0,0 +1,283 @@
+package one.cafebabe.globalbanner;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches device-compatible copies of an image so painting it is a single blit.
+ * A copy is built the first time the image is drawn to a graphics configuration,
+ * e.g. after the window has moved to another screen. On scaled screens the copy is
+ * made from the variant of the image pyramid matching the screen's scale factor and
+ * drawn in device pixels, so painting never resamples. One cache can be shared by
+ * all banners showing the same image. Must be used on the Event Dispatch Thread.
+ */
+public class ImageRenderCache {
+    /**
+     * Source image as decoded, with its pre-scaled variants
+     */
+    private final ImagePyramid pyramid;
+
+    /**
+     * Whether to keep the cached copy in an accelerated volatile image
+     */
+    private final boolean useVolatileImage;
+
+    /**
+     * Cached copies per graphics configuration, so banners sharing this cache
+     * on different screens do not evict each other's copies
+     */
+    private final Map<GraphicsConfiguration, Copy> copies = new HashMap<>();
+
+    /**
+     * Device-compatible copies of the source image for one graphics configuration.
+     */
+    private static class Copy {
+        /**
+         * Scale factors from user space to device pixels the copy was made for
+         */
+        double scaleX, scaleY;
+
+        /**
+         * Copy of the variant for the scale in the configuration's native pixel layout
+         */
+        BufferedImage compatibleImage;
+
+        /**
+         * Accelerated copy of the source image, only used if enabled
+         */
+        VolatileImage volatileImage;
+    }
+
+    /**
+     * Number of draws served from the cached copy
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * Number of draws that had to (re)build the cached copy
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a new ImageRenderCache for the specified image.
+     * Volatile images are used if the system property
+     * {@code globalbanner.volatileImage} is set to true.
+     *
+     * @param source the image to cache
+     */
+    public ImageRenderCache(BufferedImage source) {
+        this(new ImagePyramid(source));
+    }
+
+    /**
+     * Creates a new ImageRenderCache for the specified image pyramid.
+     * Volatile images are used if the system property
+     * {@code globalbanner.volatileImage} is set to true.
+     *
+     * @param pyramid the image to cache, with its pre-scaled variants
+     */
+    public ImageRenderCache(ImagePyramid pyramid) {
+        this(pyramid, Boolean.getBoolean("globalbanner.volatileImage"));
+    }
+
+    /**
+     * Creates a new ImageRenderCache for the specified image.
+     *
+     * @param source the image to cache
+     * @param useVolatileImage whether to keep the cached copy in a volatile image
+     */
+    public ImageRenderCache(BufferedImage source, boolean useVolatileImage) {
+        this(new ImagePyramid(source), useVolatileImage);
+    }
+
+    /**
+     * Creates a new ImageRenderCache for the specified image pyramid.
+     *
+     * @param pyramid the image to cache, with its pre-scaled variants
+     * @param useVolatileImage whether to keep the cached copy in a volatile image
+     */
+    public ImageRenderCache(ImagePyramid pyramid, boolean useVolatileImage) {
+        this.pyramid = pyramid;
+        this.useVolatileImage = useVolatileImage;
+    }
+
+    /**
+     * Draws the image at the specified location, converting it first if the
+     * graphics configuration or its scale factor has changed.
+     *
+     * @param g the graphics context to draw to
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     */
+    public void draw(Graphics2D g, int x, int y) {
+        GraphicsConfiguration gc = g.getDeviceConfiguration();
+        boolean rebuilt = false;
+
+        // Only axis-aligned transforms can be matched by a pre-scaled variant
+        AffineTransform transform = g.getTransform();
+        int type = transform.getType();
+        boolean scaled = (type & AffineTransform.TYPE_MASK_SCALE) != 0
+                && (type & ~(AffineTransform.TYPE_MASK_SCALE | AffineTransform.TYPE_TRANSLATION)) == 0;
+        double scaleX = scaled ? transform.getScaleX() : 1;
+        double scaleY = scaled ? transform.getScaleY() : 1;
+
+        Copy copy = copies.get(gc);
+        if (copy == null || copy.scaleX != scaleX || copy.scaleY != scaleY) {
+            if (copy != null && copy.volatileImage != null) {
+                copy.volatileImage.flush();
+            }
+            copy = createCopy(gc, scaleX, scaleY);
+            copies.put(gc, copy);
+            rebuilt = true;
+        }
+
+        if (scaled) {
+            // Draw the variant in device pixels, snapped to whole pixels, so it is blitted 1:1.
+            // Volatile images of scaled configurations are scaled themselves, so they are not used here.
+            g.setTransform(AffineTransform.getTranslateInstance(
+                    Math.round(transform.getTranslateX() + x * scaleX),
+                    Math.round(transform.getTranslateY() + y * scaleY)));
+            g.drawImage(copy.compatibleImage, 0, 0, null);
+            g.setTransform(transform);
+        } else if (useVolatileImage) {
+            rebuilt |= drawVolatileImage(g, gc, copy, x, y);
+        } else {
+            g.drawImage(copy.compatibleImage, x, y, null);
+        }
+
+        if (rebuilt) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+    }
+
+    /**
+     * Draws the volatile copy, restoring it as often as the surface gets lost.
+     *
+     * @param g the graphics context to draw to
+     * @param gc the graphics configuration of the destination
+     * @param copy the cached copies for the configuration
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @return true if the volatile copy had to be recreated or restored
+     */
+    private boolean drawVolatileImage(Graphics2D g, GraphicsConfiguration gc, Copy copy, int x, int y) {
+        boolean rebuilt = false;
+        do {
+            VolatileImage volatileImage = copy.volatileImage;
+            int status = volatileImage == null ? VolatileImage.IMAGE_INCOMPATIBLE : volatileImage.validate(gc);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                if (volatileImage != null) {
+                    volatileImage.flush();
+                }
+                volatileImage = gc.createCompatibleVolatileImage(
+                        copy.compatibleImage.getWidth(), copy.compatibleImage.getHeight(), Transparency.TRANSLUCENT);
+                copy.volatileImage = volatileImage;
+            }
+            if (status != VolatileImage.IMAGE_OK) {
+                // Surface is new or its contents were lost, so copy the pixels again
+                Graphics2D vg = volatileImage.createGraphics();
+                vg.setComposite(AlphaComposite.Src);
+                vg.drawImage(copy.compatibleImage, 0, 0, null);
+                vg.dispose();
+                rebuilt = true;
+            }
+            g.drawImage(volatileImage, x, y, null);
+        } while (copy.volatileImage.contentsLost());
+        return rebuilt;
+    }
+
+    /**
+     * Converts the variant for the specified scale to the pixel layout of the specified configuration.
+     *
+     * @param gc the graphics configuration to convert for
+     * @param scaleX the horizontal scale factor from user space to device pixels
+     * @param scaleY the vertical scale factor from user space to device pixels
+     * @return the new copy
+     */
+    private Copy createCopy(GraphicsConfiguration gc, double scaleX, double scaleY) {
+        Copy copy = new Copy();
+        copy.scaleX = scaleX;
+        copy.scaleY = scaleY;
+        BufferedImage variant = pyramid.getVariant(scaleX, scaleY);
+        if (isSameLayout(variant, gc.createCompatibleImage(1, 1, Transparency.TRANSLUCENT))) {
+            // Already converted, e.g. by a prefetching thread, so the variant can be drawn as is
+            copy.compatibleImage = variant;
+            return copy;
+        }
+        copy.compatibleImage = gc.createCompatibleImage(variant.getWidth(), variant.getHeight(), Transparency.TRANSLUCENT);
+
+        Graphics2D cg = copy.compatibleImage.createGraphics();
+        cg.setComposite(AlphaComposite.Src);
+        cg.drawImage(variant, 0, 0, null);
+        cg.dispose();
+        return copy;
+    }
+
+    /**
+     * Checks whether two images store their pixels the same way.
+     *
+     * @param image the image to check
+     * @param compatible an image in the layout of the destination
+     * @return true if the image can be drawn without conversion
+     */
+    private static boolean isSameLayout(BufferedImage image, BufferedImage compatible) {
+        return image.getType() != BufferedImage.TYPE_CUSTOM
+                && image.getType() == compatible.getType()
+                && image.getRaster().getParent() == null;
+    }
+
+    /**
+     * Releases the cached copies. The next draw rebuilds them.
+     */
+    public void invalidate() {
+        for (Copy copy : copies.values()) {
+            if (copy.volatileImage != null) {
+                copy.volatileImage.flush();
+            }
+        }
+        copies.clear();
+    }
+
+    /**
+     * Gets the source image.
+     *
+     * @return the source image
+     */
+    public BufferedImage getSource() {
+        return pyramid.getBase();
+    }
+
+    /**
+     * Gets the source image with its pre-scaled variants.
+     *
+     * @return the image pyramid
+     */
+    public ImagePyramid getPyramid() {
+        return pyramid;
+    }
+
+    /**
+     * Gets the number of draws served from the cached copy.
+     *
+     * @return the hit count
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of draws that had to (re)build the cached copy.
+     *
+     * @return the miss count
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,293 @@
+package one.cafebabe.globalbanner;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Composites the layers of a banner into a cached translucent backbuffer. Layers report
+ * the rectangles they have changed; only those rectangles are rendered again, bottom layer
+ * first, and only they are repainted on the window. Painting the banner otherwise is a
+ * single blit of the backbuffer, which is kept in device pixels and rebuilt when the banner
+ * is resized or drawn at another scale factor. Must be used on the Event Dispatch Thread.
+ */
+public class LayerCompositor {
+    /**
+     * Most dirty rectangles kept apart before they are merged into their bounding box
+     */
+    static final int MAX_DIRTY_RECTANGLES = 8;
+
+    /**
+     * Layers from bottom to top
+     */
+    private final List<BannerLayer> layers = new ArrayList<>();
+
+    /**
+     * Parts of the banner changed since the last composite, in user space, disjoint
+     */
+    private final List<Rectangle> dirtyRectangles = new ArrayList<>();
+
+    /**
+     * Component repainted where layers change, or null
+     */
+    private Component repaintTarget = null;
+
+    /**
+     * Composited layers in device pixels, or null before the first draw
+     */
+    private BufferedImage backbuffer = null;
+
+    /**
+     * Size of the banner in user space the backbuffer was made for
+     */
+    private int width, height;
+
+    /**
+     * Scale factor from user space to device pixels the backbuffer was made for
+     */
+    private double scale;
+
+    /**
+     * Number of device pixels rendered into the backbuffer
+     */
+    private long renderedPixelCount = 0;
+
+    /**
+     * Number of dirty rectangles rendered into the backbuffer
+     */
+    private long compositeCount = 0;
+
+    /**
+     * Adds a layer on top of the others.
+     *
+     * @param layer the layer, which must not belong to another compositor
+     */
+    public void addLayer(BannerLayer layer) {
+        layers.add(layer);
+        layer.setCompositor(this);
+        layer.invalidate();
+    }
+
+    /**
+     * Removes a layer, marking the part of the banner it covered as changed.
+     *
+     * @param layer the layer
+     */
+    public void removeLayer(BannerLayer layer) {
+        if (layers.remove(layer)) {
+            layer.invalidate();
+            layer.setCompositor(null);
+        }
+    }
+
+    /**
+     * Gets the layers.
+     *
+     * @return an unmodifiable list of the layers from bottom to top
+     */
+    public List<BannerLayer> getLayers() {
+        return Collections.unmodifiableList(layers);
+    }
+
+    /**
+     * Sets the component to repaint where layers change.
+     * The layers are expected to be drawn at the origin of the component.
+     *
+     * @param repaintTarget the component
+     */
+    public void setRepaintTarget(Component repaintTarget) {
+        this.repaintTarget = repaintTarget;
+    }
+
+    /**
+     * Marks a part of the banner as changed and repaints it.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param width the width
+     * @param height the height
+     */
+    public void invalidate(int x, int y, int width, int height) {
+        if (markDirty(x, y, width, height) && repaintTarget != null) {
+            repaintTarget.repaint(x, y, width, height);
+        }
+    }
+
+    /**
+     * Marks a part of the banner as changed, to be rendered again with the next draw.
+     * Overlapping rectangles are merged, and if too many are kept apart, all of them.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param width the width
+     * @param height the height
+     * @return true if the part was not marked yet
+     */
+    public boolean markDirty(int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return false;
+        }
+        Rectangle dirty = new Rectangle(x, y, width, height);
+        for (Rectangle rectangle : dirtyRectangles) {
+            if (rectangle.contains(dirty)) {
+                return false;
+            }
+        }
+
+        // Swallow the rectangles the new one overlaps, until it overlaps none
+        boolean merged;
+        do {
+            merged = false;
+            for (int i = dirtyRectangles.size() - 1; i >= 0; i--) {
+                if (dirtyRectangles.get(i).intersects(dirty)) {
+                    dirty.add(dirtyRectangles.remove(i));
+                    merged = true;
+                }
+            }
+        } while (merged);
+        dirtyRectangles.add(dirty);
+
+        if (dirtyRectangles.size() > MAX_DIRTY_RECTANGLES) {
+            Rectangle bounds = new Rectangle(dirtyRectangles.get(0));
+            for (Rectangle rectangle : dirtyRectangles) {
+                bounds.add(rectangle);
+            }
+            dirtyRectangles.clear();
+            dirtyRectangles.add(bounds);
+        }
+        return true;
+    }
+
+    /**
+     * Draws the composited layers, rendering the changed parts into the backbuffer first.
+     * The backbuffer is rebuilt if the size of the banner or the scale factor has changed.
+     *
+     * @param g the graphics context to draw to, with the banner at its origin
+     * @param width the width of the banner
+     * @param height the height of the banner
+     */
+    public void draw(Graphics2D g, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+
+        // Only axis-aligned transforms can be matched by a backbuffer in device pixels
+        AffineTransform transform = g.getTransform();
+        int type = transform.getType();
+        boolean scaled = (type & AffineTransform.TYPE_MASK_SCALE) != 0
+                && (type & ~(AffineTransform.TYPE_MASK_SCALE | AffineTransform.TYPE_TRANSLATION)) == 0
+                && transform.getScaleX() == transform.getScaleY();
+        double drawScale = scaled ? transform.getScaleX() : 1;
+
+        if (backbuffer == null || this.width != width || this.height != height || scale != drawScale) {
+            this.width = width;
+            this.height = height;
+            scale = drawScale;
+            backbuffer = new BufferedImage(ImagePyramid.variantSize(width, scale), ImagePyramid.variantSize(height, scale),
+                    BufferedImage.TYPE_INT_ARGB_PRE);
+            dirtyRectangles.clear();
+            dirtyRectangles.add(new Rectangle(0, 0, width, height));
+        }
+        composite();
+
+        if (scaled) {
+            // Draw the backbuffer in device pixels, snapped to whole pixels, so it is blitted 1:1
+            g.setTransform(AffineTransform.getTranslateInstance(
+                    Math.round(transform.getTranslateX()), Math.round(transform.getTranslateY())));
+            g.drawImage(backbuffer, 0, 0, null);
+            g.setTransform(transform);
+        } else {
+            g.drawImage(backbuffer, 0, 0, null);
+        }
+    }
+
+    /**
+     * Renders the dirty rectangles into the backbuffer, each from the bottom layer up.
+     */
+    private void composite() {
+        if (dirtyRectangles.isEmpty()) {
+            return;
+        }
+        Rectangle banner = new Rectangle(0, 0, width, height);
+        Graphics2D g = backbuffer.createGraphics();
+        try {
+            for (Rectangle dirty : dirtyRectangles) {
+                Rectangle area = dirty.intersection(banner);
+                if (area.isEmpty()) {
+                    continue;
+                }
+
+                // Cover whole device pixels, so no seams show on scaled screens
+                int left = (int) Math.floor(area.x * scale);
+                int top = (int) Math.floor(area.y * scale);
+                int right = Math.min(backbuffer.getWidth(), (int) Math.ceil((area.x + area.width) * scale));
+                int bottom = Math.min(backbuffer.getHeight(), (int) Math.ceil((area.y + area.height) * scale));
+                g.setTransform(new AffineTransform());
+                g.setClip(left, top, right - left, bottom - top);
+                g.setComposite(AlphaComposite.Clear);
+                g.fillRect(left, top, right - left, bottom - top);
+                g.setComposite(AlphaComposite.SrcOver);
+                g.scale(scale, scale);
+
+                for (BannerLayer layer : layers) {
+                    if (layer.isVisible() && layer.intersects(area)) {
+                        Graphics2D layerGraphics = (Graphics2D) g.create();
+                        try {
+                            layer.paint(layerGraphics);
+                        } finally {
+                            layerGraphics.dispose();
+                        }
+                    }
+                }
+                renderedPixelCount += (long) (right - left) * (bottom - top);
+                compositeCount++;
+            }
+        } finally {
+            g.dispose();
+        }
+        dirtyRectangles.clear();
+    }
+
+    /**
+     * Gets the parts of the banner changed since the last draw.
+     *
+     * @return a copy of the dirty rectangles in user space
+     */
+    public List<Rectangle> getDirtyRectangles() {
+        List<Rectangle> copy = new ArrayList<>(dirtyRectangles.size());
+        for (Rectangle rectangle : dirtyRectangles) {
+            copy.add(new Rectangle(rectangle));
+        }
+        return copy;
+    }
+
+    /**
+     * Gets the composited layers as last drawn.
+     *
+     * @return the backbuffer in device pixels, with premultiplied alpha, or null before the first draw
+     */
+    public BufferedImage getBackbuffer() {
+        return backbuffer;
+    }
+
+    /**
+     * Gets the number of device pixels rendered into the backbuffer.
+     *
+     * @return the rendered pixel count
+     */
+    public long getRenderedPixelCount() {
+        return renderedPixelCount;
+    }
+
+    /**
+     * Gets the number of dirty rectangles rendered into the backbuffer.
+     *
+     * @return the composite count
+     */
+    public long getCompositeCount() {
+        return compositeCount;
+    }
+}
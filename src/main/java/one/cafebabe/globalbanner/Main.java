@@ -1,23 +1,55 @@
 package one.cafebabe.globalbanner;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Main class for the Global Banner application.
  * Creates a global floating window displaying an image.
  */
 public class Main {
+    /**
+     * Distance of the clock and the badge from the edges of the banner
+     */
+    private static final int OVERLAY_MARGIN = 8;
+
+    /**
+     * Font of the clock, with digits of equal width
+     */
+    private static final Font CLOCK_FONT = new Font(Font.MONOSPACED, Font.BOLD, 14);
+
+    /**
+     * Color behind the clock, translucent so the banner shows through
+     */
+    private static final Color CLOCK_BACKGROUND = new Color(0, 0, 0, 140);
+
+    /**
+     * Color of the status badge
+     */
+    private static final Color BADGE_COLOR = new Color(200, 40, 40);
+
     /**
      * Main entry point for the application.
      * 
      * @param args command line arguments
      */
     public static void main(String[] args) {
+        StartupMetrics startupMetrics = new StartupMetrics();
         System.out.println("Global Banner Application");
 
         // Set the menu bar to appear in the macOS global menu bar
@@ -25,45 +57,199 @@ public class Main {
         // Set the application name to appear in the macOS menu
         System.setProperty("apple.awt.application.name", "Global Banner");
 
-        SwingUtilities.invokeLater(() -> {
-            try {
-                // Create managers
-                ScreenManager screenManager = new ScreenManager();
-                WindowManager windowManager = new WindowManager(screenManager);
-                UIFactory uiFactory = new UIFactory(screenManager, windowManager);
+        // Optionally watch the EDT from the start, so stalls during startup are caught too
+        EdtWatchdog edtWatchdog = EdtWatchdog.fromSystemProperties();
+        if (edtWatchdog != null) {
+            edtWatchdog.start();
+        }
 
-                // Detect all available screens
-                screenManager.detectAvailableScreens();
+        // The banner image can be replaced at runtime through an optional content directory
+        ContentWatcher contentWatcher = ContentWatcher.fromSystemProperties();
 
-                // Select the appropriate screen
-                screenManager.selectDefaultScreen();
+        // Or rotate through an optional playlist
+        BannerPlaylist playlist;
+        try {
+            playlist = BannerPlaylist.fromSystemProperties();
+        } catch (IOException e) {
+            System.err.println("Error reading playlist: " + e.getMessage());
+            playlist = null;
+        }
+        BannerPlaylist bannerPlaylist = playlist;
 
-                // Create the floating window
-                createGlobalFloatingBanner(windowManager, uiFactory);
+        // Remember where the banner is and what it shows, and restore that from the previous run
+        BannerStateStore stateStore = BannerStateStore.fromSystemProperties();
+        BannerState savedState = stateStore != null ? stateStore.load() : null;
+        if (stateStore != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(stateStore::flush, "state-flush"));
+        }
+        if (savedState != null && bannerPlaylist != null && savedState.getContent() != null) {
+            bannerPlaylist.resumeAt(Paths.get(savedState.getContent()));
+        }
+
+        // Decode the image and detect the screens in parallel, off the EDT
+        ExecutorService startupExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        CompletableFuture<FrameSource> imageFuture = CompletableFuture.supplyAsync(() -> {
+            try {
+                Path contentFile = bannerPlaylist != null ? bannerPlaylist.getCurrentEntry()
+                        : contentWatcher != null ? contentWatcher.findNewestImage() : null;
+                FrameSource image = contentFile != null
+                        ? ImageLoader.loadFrames(contentFile)
+                        : ImageLoader.loadFrames(System.getProperty("globalbanner.image", "/image.png"));
+                startupMetrics.imageDecoded();
+                return image;
             } catch (IOException e) {
-                System.err.println("Error loading image: " + e.getMessage());
+                throw new UncheckedIOException(e);
             }
+        }, startupExecutor);
+        CompletableFuture<List<ScreenInfo>> screensFuture = CompletableFuture.supplyAsync(() -> {
+            List<ScreenInfo> screens = ScreenTopology.probe();
+            startupMetrics.screensDetected();
+            return screens;
+        }, startupExecutor);
+        startupExecutor.shutdown();
+
+        // With a saved state the banner is placed on its saved screen without waiting for the probe,
+        // which then only confirms or corrects the placement; banners on all screens need the probe
+        boolean placeFromState = savedState != null && !Boolean.getBoolean("globalbanner.allScreens");
+        CompletableFuture<List<ScreenInfo>> placementFuture = placeFromState
+                ? CompletableFuture.completedFuture(List.of(savedState.getScreen()))
+                : screensFuture;
+
+        // Scale the image for the screens it is placed on off the EDT, so showing it is a plain blit
+        CompletableFuture<ImageCache.Entry> contentFuture = placementFuture.thenCombineAsync(imageFuture, (screens, image) -> {
+            try {
+                return ImageCache.prepare(image, Integer.getInteger("globalbanner.alphaThreshold", AlphaMask.DEFAULT_THRESHOLD),
+                        new ScreenTopology(0, screens));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        SwingUtilities.invokeLater(() -> {
+            // Create managers
+            ScreenManager screenManager = new ScreenManager();
+            BannerRegistry bannerRegistry = new BannerRegistry(screenManager);
+            WindowManager windowManager = bannerRegistry.createBanner(null);
+            UIFactory uiFactory = new UIFactory(screenManager, windowManager);
+
+            // Create the floating window while the image is being decoded
+            JFrame frame = createGlobalFloatingBanner(uiFactory);
+
+            // Show the banner as soon as both the screens and the pixels are ready
+            placementFuture.thenAcceptBoth(contentFuture, (screens, content) -> SwingUtilities.invokeLater(() -> {
+                if (placeFromState) {
+                    // Place the banner on its saved screen now, and publish the detected screens once probed
+                    screenManager.restoreScreen(savedState.getScreen());
+                    screensFuture.thenAccept(detected -> SwingUtilities.invokeLater(() ->
+                            screenManager.publishDetectedScreens(detected)));
+                } else {
+                    // Publish the detected screens
+                    screenManager.publishDetectedScreens(screens);
+
+                    // Select the saved screen if it is still there, or else the appropriate screen
+                    ScreenTopology topology = screenManager.getTopology();
+                    ScreenInfo savedScreen = savedState != null ? topology.find(savedState.getScreen().getId()) : null;
+                    if (savedScreen != null) {
+                        screenManager.setCurrentScreen(topology.getScreens().indexOf(savedScreen));
+                    } else {
+                        screenManager.selectDefaultScreen();
+                    }
+                }
+
+                // Keep the screen topology up to date when monitors are plugged or reconfigured
+                screenManager.startDisplayWatcher();
+
+                try {
+                    showBanner(frame, content, windowManager, bannerRegistry, uiFactory, startupMetrics, savedState);
+                    if (stateStore != null) {
+                        stateStore.track(windowManager);
+                        if (bannerPlaylist != null) {
+                            stateStore.setContent(bannerPlaylist.getCurrentEntry().toString());
+                        }
+                    }
+
+                    // Optionally put a banner pinned to each of the other screens, e.g. on a video wall
+                    if (Boolean.getBoolean("globalbanner.allScreens")) {
+                        for (ScreenInfo screen : screenManager.getTopology().getScreens()) {
+                            if (screen != screenManager.getCurrentScreenInfo()) {
+                                showBanner(createGlobalFloatingBanner(uiFactory), content,
+                                        bannerRegistry.createBanner(screen.getId()), bannerRegistry, uiFactory, startupMetrics,
+                                        null);
+                            }
+                        }
+                    }
+
+                    // Swap in new images from the content directory without rebuilding the windows
+                    if (contentWatcher != null) {
+                        try {
+                            contentWatcher.start(bannerRegistry::prepare, (file, reloaded, decodeTime, changedAt) -> {
+                                reloadBanner(bannerRegistry, file, reloaded, decodeTime, changedAt);
+                                if (stateStore != null) {
+                                    stateStore.setContent(file.toString());
+                                }
+                            });
+                        } catch (IOException e) {
+                            System.err.println("Error watching content directory: " + e.getMessage());
+                        }
+                    }
+                    if (bannerPlaylist != null) {
+                        bannerPlaylist.start(bannerRegistry::prepare, entry -> {
+                            try {
+                                showContent(bannerRegistry, entry);
+                                if (stateStore != null) {
+                                    stateStore.setContent(bannerPlaylist.getCurrentEntry().toString());
+                                }
+                            } catch (IOException e) {
+                                System.err.println("Error showing playlist entry: " + e.getMessage());
+                            }
+                        });
+                    }
+
+                    // Optionally scroll text messages instead of the image
+                    String tickerText = System.getProperty("globalbanner.tickerText");
+                    if (tickerText != null) {
+                        showTicker(bannerRegistry, List.of(tickerText.split("\\|")));
+                    }
+
+                    // Optionally show a live clock and a status badge on top of the banners
+                    addOverlays(bannerRegistry);
+
+                    // Optionally accept commands from other processes on a local endpoint
+                    int refreshRate = screenManager.getTopology().getMaxRefreshRate();
+                    try {
+                        ControlServer controlServer = ControlServer.fromSystemProperties(
+                                createControlTarget(screenManager, windowManager, bannerRegistry),
+                                TimeUnit.SECONDS.toNanos(1) / (refreshRate > 0 ? refreshRate : 60));
+                        if (controlServer != null) {
+                            System.out.println("Control server listening on " + controlServer.getAddress());
+                        }
+                    } catch (IOException e) {
+                        System.err.println("Error starting control server: " + e.getMessage());
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error loading image: " + e.getMessage());
+                    frame.dispose();
+                }
+            })).exceptionally(e -> {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof UncheckedIOException) {
+                    cause = cause.getCause();
+                }
+                System.err.println("Error loading image: " + cause.getMessage());
+                SwingUtilities.invokeLater(frame::dispose);
+                return null;
+            });
         });
     }
 
     /**
-     * Creates a global floating window that displays an image.
+     * Creates a global floating window that will display an image.
+     * The window stays hidden until {@link #showBanner} adds the image.
      * 
-     * @param windowManager the window manager to use
      * @param uiFactory the UI factory to use
-     * @throws IOException if the image cannot be loaded
+     * @return the created frame
      */
-    private static void createGlobalFloatingBanner(
-            WindowManager windowManager, 
-            UIFactory uiFactory) throws IOException {
-        // Load the image from resources
-        InputStream imageStream = Main.class.getResourceAsStream("/image.png");
-        if (imageStream == null) {
-            throw new IOException("Image not found in resources");
-        }
-
-        BufferedImage image = ImageIO.read(imageStream);
-
+    private static JFrame createGlobalFloatingBanner(UIFactory uiFactory) {
         // Create a JFrame with no decorations
         JFrame frame = new JFrame("Global Banner");
         frame.setUndecorated(true);
@@ -84,10 +270,135 @@ public class Main {
             ((JComponent) contentPane).setOpaque(false);
         }
 
-        // Create a panel to display the image with transparency
-        JPanel panel = getJPanel(image);
+        // Add a key listener to close the application when Escape is pressed
+        frame.addKeyListener(new java.awt.event.KeyAdapter() {
+            @Override
+            public void keyPressed(java.awt.event.KeyEvent e) {
+                if (e.getKeyCode() == java.awt.event.KeyEvent.VK_ESCAPE) {
+                    System.exit(0);
+                }
+            }
+        });
+
+        // Enable window transparency
+        frame.getRootPane().putClientProperty("apple.awt.draggableWindowBackground", false);
+
+        // Set the window to be translucent
+        frame.setOpacity(1.0f);
+
+        return frame;
+    }
+
+    /**
+     * Adds the image to the banner window, positions it and shows it.
+     * 
+     * @param frame the frame created by {@link #createGlobalFloatingBanner}
+     * @param content the image to display, prepared off the Event Dispatch Thread
+     * @param windowManager the window manager of the banner
+     * @param bannerRegistry the registry the banner belongs to
+     * @param uiFactory the UI factory to use
+     * @param startupMetrics the startup metrics to complete on first paint
+     * @param savedState the state to place the banner from, or null to put it in its corner
+     * @throws IOException if the image cannot be decoded
+     */
+    private static void showBanner(
+            JFrame frame,
+            ImageCache.Entry content,
+            WindowManager windowManager,
+            BannerRegistry bannerRegistry,
+            UIFactory uiFactory,
+            StartupMetrics startupMetrics,
+            BannerState savedState) throws IOException {
+        // Create a popup menu for screen selection
+        JPopupMenu popupMenu = uiFactory.createScreenSelectionMenu(frame);
+
+        // Add the banner to the window, and place the window before it is shown, so it does not jump
+        BannerPanel panel = mountBanner(frame, content, windowManager, bannerRegistry, popupMenu, startupMetrics,
+                savedState);
+
+        // Optionally dodge before the mouse gets there, by tracking the pointer around the window
+        // while it can be seen; a hidden, minimized or stranded banner does not sample
+        if (Boolean.getBoolean("globalbanner.proximityDodge")) {
+            ProximitySampler proximitySampler = ProximitySampler.forWindow(frame, windowManager);
+            panel.addSuspendListener(suspended -> {
+                if (suspended) {
+                    proximitySampler.stop();
+                } else {
+                    proximitySampler.start();
+                }
+            });
+            proximitySampler.start();
+        }
+
+        // Restrict the window to the opaque pixels of the banner
+        applyWindowShape(frame, panel);
+
+        frame.setFocusable(true);
+        frame.setVisible(true);
+    }
+
+    /**
+     * Adds a banner to its window and places the window, short of showing it: the panel
+     * displaying the image with its mouse listeners, the window sized to the panel, and
+     * the window on its screen, stacked with the other banners there or where it was left.
+     *
+     * @param frame the banner window, or a component standing in for it when running headless
+     * @param content the image to display, prepared off the Event Dispatch Thread
+     * @param windowManager the window manager of the banner
+     * @param bannerRegistry the registry the banner belongs to
+     * @param popupMenu the screen selection menu shown on right-click
+     * @param startupMetrics the startup metrics to complete on first paint
+     * @param savedState the state to place the banner from, or null to put it in its corner
+     * @return the banner panel
+     * @throws IOException if the image cannot be decoded
+     */
+    static BannerPanel mountBanner(
+            Container frame,
+            ImageCache.Entry content,
+            WindowManager windowManager,
+            BannerRegistry bannerRegistry,
+            JPopupMenu popupMenu,
+            StartupMetrics startupMetrics,
+            BannerState savedState) throws IOException {
+        // Create a panel to display the image with transparency, sharing the converted image with other banners
+        BannerPanel panel = bannerRegistry.createPanel(content);
+        panel.setFirstPaintListener(startupMetrics::firstPaint);
         frame.add(panel);
 
+        // Drag, dodge on hover and show the popup menu on right-click
+        addBannerListeners(frame, panel, windowManager, popupMenu);
+
+        // Size the window to the banner; a component standing in for it has no peer to pack it
+        if (frame instanceof Window window) {
+            window.pack();
+        } else {
+            frame.setSize(frame.getPreferredSize());
+            frame.doLayout();
+        }
+
+        // Set the frame in the window manager
+        windowManager.setFrame(frame);
+
+        // Position the window on its screen, stacked with the other banners there
+        bannerRegistry.layout();
+
+        // Put the window back where it was left
+        if (savedState != null) {
+            windowManager.restore(savedState);
+        }
+        return panel;
+    }
+
+    /**
+     * Adds the mouse listeners of a banner: dragging, dodging on hover and the popup menu.
+     *
+     * @param frame the banner window, or a component standing in for it when running headless
+     * @param panel the banner panel receiving the mouse events
+     * @param windowManager the window manager of the banner
+     * @param popupMenu the screen selection menu shown on right-click
+     */
+    static void addBannerListeners(Component frame, BannerPanel panel, WindowManager windowManager,
+            JPopupMenu popupMenu) {
         // Add a mouse listener to allow dragging the window
         MouseDragListener dragListener = new MouseDragListener(frame, windowManager);
         panel.addMouseListener(dragListener);
@@ -102,9 +413,6 @@ public class Main {
             }
         });
 
-        // Create a popup menu for screen selection
-        JPopupMenu popupMenu = uiFactory.createScreenSelectionMenu(frame);
-
         // Add mouse right-click listener to show the popup menu
         panel.addMouseListener(new java.awt.event.MouseAdapter() {
             @Override
@@ -122,59 +430,269 @@ public class Main {
             }
 
             private void showPopupMenu(java.awt.event.MouseEvent e, JPopupMenu popupMenu) {
-                popupMenu.show(e.getComponent(), e.getX(), e.getY());
-            }
-        });
-
-        // Add a key listener to close the application when Escape is pressed
-        frame.addKeyListener(new java.awt.event.KeyAdapter() {
-            @Override
-            public void keyPressed(java.awt.event.KeyEvent e) {
-                if (e.getKeyCode() == java.awt.event.KeyEvent.VK_ESCAPE) {
-                    System.exit(0);
+                // The banner may have been hidden since the click, and a popup needs a showing invoker
+                if (e.getComponent().isShowing()) {
+                    popupMenu.show(e.getComponent(), e.getX(), e.getY());
                 }
             }
         });
+    }
 
-        // Enable window transparency
-        frame.getRootPane().putClientProperty("apple.awt.draggableWindowBackground", false);
+    /**
+     * Shows an image reloaded from the content directory and reports how long it took.
+     *
+     * @param bannerRegistry the registry of the banners
+     * @param file the file the image was loaded from
+     * @param content the new image, prepared off the Event Dispatch Thread
+     * @param decodeTime the time spent decoding and preparing the image in nanoseconds
+     * @param changedAt the time the file was first changed, in nanoseconds
+     */
+    private static void reloadBanner(
+            BannerRegistry bannerRegistry,
+            Path file,
+            ImageCache.Entry content,
+            long decodeTime,
+            long changedAt) {
+        BannerEvents.ContentReloadEvent event = new BannerEvents.ContentReloadEvent();
+        try {
+            showContent(bannerRegistry, content);
+        } catch (IOException e) {
+            System.err.println("Error reloading " + file.getFileName() + ": " + e.getMessage());
+            return;
+        }
 
-        // Set the window to be translucent
-        frame.setOpacity(1.0f);
+        long latency = System.nanoTime() - changedAt;
+        System.out.println("Reloaded " + file.getFileName() + ": decoded in " + decodeTime / 1_000_000L
+                + " ms, shown " + latency / 1_000_000L + " ms after the change");
+        if (event.shouldCommit()) {
+            event.file = file.toString();
+            event.decodeTime = decodeTime;
+            event.latency = latency;
+            event.commit();
+        }
+    }
 
-        // Position the window in the bottom right corner of the screen with margin
-        frame.pack();
+    /**
+     * Replaces the image of all banners, keeping their windows and positions.
+     * Windows are only resized and re-anchored if the image size has changed.
+     *
+     * @param bannerRegistry the registry of the banners
+     * @param content the new image, prepared off the Event Dispatch Thread
+     * @throws IOException if the image cannot be decoded
+     */
+    private static void showContent(BannerRegistry bannerRegistry, ImageCache.Entry content) throws IOException {
+        List<BannerPanel> panels = bannerRegistry.getPanels();
+        List<Dimension> oldSizes = panels.stream().map(BannerPanel::getPreferredSize).toList();
+        bannerRegistry.setContent(content);
 
-        // Set the frame in the window manager
-        windowManager.setFrame(frame);
+        boolean resized = false;
+        for (int i = 0; i < panels.size(); i++) {
+            BannerPanel panel = panels.get(i);
+            Window window = SwingUtilities.getWindowAncestor(panel);
+            if (!(window instanceof JFrame frame)) {
+                continue;
+            }
+            if (!panel.getPreferredSize().equals(oldSizes.get(i))) {
+                frame.pack();
+                resized = true;
+            }
+            // The opaque pixels may have moved even if the size has not
+            applyWindowShape(frame, panel);
+        }
+        if (resized) {
+            bannerRegistry.layout();
+        }
+    }
 
-        // Position the window on the selected screen
-        windowManager.positionWindowOnCurrentScreen();
+    /**
+     * Replaces the image of all banners with scrolling text. The tickers are
+     * {@code globalbanner.tickerWidth} pixels wide (600 by default), scroll at
+     * {@code globalbanner.tickerSpeed} pixels per second and use a font of
+     * {@code globalbanner.tickerFontSize} points.
+     *
+     * @param bannerRegistry the registry of the banners
+     * @param messages the messages to show one after the other
+     */
+    private static void showTicker(BannerRegistry bannerRegistry, List<String> messages) {
+        Font font = TextTicker.DEFAULT_FONT.deriveFont(
+                (float) Integer.getInteger("globalbanner.tickerFontSize", TextTicker.DEFAULT_FONT.getSize()));
+        bannerRegistry.setTicker(messages, font,
+                Integer.getInteger("globalbanner.tickerWidth", 600),
+                Double.parseDouble(System.getProperty("globalbanner.tickerSpeed", String.valueOf(TextTicker.DEFAULT_SPEED))));
 
-        frame.setFocusable(true);
-        frame.setVisible(true);
+        for (BannerPanel panel : bannerRegistry.getPanels()) {
+            if (SwingUtilities.getWindowAncestor(panel) instanceof JFrame frame) {
+                frame.pack();
+                applyWindowShape(frame, panel);
+            }
+        }
+        bannerRegistry.layout();
     }
 
-    private static JPanel getJPanel(BufferedImage image) {
-        JPanel panel = new JPanel() {
+    /**
+     * Adds the optional layers on top of all banners: a clock in the top left corner,
+     * formatted with the {@link DateTimeFormatter} pattern {@code globalbanner.clock} and
+     * updated at the start of every second while its banner can be seen, and a status badge in the top right corner labeled
+     * {@code globalbanner.badge}. Only the changed digits and the badge are rendered again.
+     *
+     * @param bannerRegistry the registry of the banners
+     */
+    private static void addOverlays(BannerRegistry bannerRegistry) {
+        String clockPattern = System.getProperty("globalbanner.clock");
+        String badge = System.getProperty("globalbanner.badge");
+        DateTimeFormatter clockFormat = null;
+        if (clockPattern != null) {
+            try {
+                clockFormat = DateTimeFormatter.ofPattern(clockPattern);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Invalid clock pattern: " + e.getMessage());
+            }
+        }
+
+        for (BannerPanel panel : bannerRegistry.getPanels()) {
+            if (clockFormat != null) {
+                // Leave room for month and day names longer than the current ones
+                TextLayer clock = new TextLayer(CLOCK_FONT, Color.WHITE, CLOCK_BACKGROUND, OVERLAY_MARGIN, OVERLAY_MARGIN,
+                        TextLayer.fittingWidth(CLOCK_FONT, clockFormat.format(LocalDateTime.now())) + CLOCK_FONT.getSize());
+                panel.addLayer(clock);
+                startClock(panel, clock, clockFormat);
+            }
+            if (badge != null) {
+                // Follows the right edge when a reload, the playlist or the ticker resizes the content
+                BadgeLayer badgeLayer = new BadgeLayer(BadgeLayer.DEFAULT_FONT,
+                        panel.getPreferredSize().width - OVERLAY_MARGIN, OVERLAY_MARGIN);
+                badgeLayer.setRightMargin(OVERLAY_MARGIN);
+                badgeLayer.setStatus(badge, BADGE_COLOR);
+                panel.addLayer(badgeLayer);
+            }
+        }
+    }
+
+    /**
+     * Shows the current time on a clock layer and updates it at the start of every second,
+     * like the proximity sampler only while the banner can be seen. A suspended banner stops
+     * its clock, which catches up as soon as the banner can be seen again.
+     *
+     * @param panel the banner panel showing the clock
+     * @param clock the clock layer
+     * @param format the format of the time
+     */
+    private static void startClock(BannerPanel panel, TextLayer clock, DateTimeFormatter format) {
+        Timer timer = new Timer(0, null);
+        timer.setRepeats(false);
+        Runnable tick = () -> {
+            LocalDateTime now = LocalDateTime.now();
+            clock.setText(format.format(now));
+            if (!panel.isSuspended()) {
+                // Swing timers fire late but never early, so aim just past the next second
+                timer.setInitialDelay((int) TimeUnit.NANOSECONDS.toMillis(TimeUnit.SECONDS.toNanos(1) - now.getNano()) + 1);
+                timer.restart();
+            }
+        };
+        timer.addActionListener(e -> tick.run());
+        panel.addSuspendListener(suspended -> {
+            if (suspended) {
+                timer.stop();
+            } else {
+                tick.run();
+            }
+        });
+        tick.run();
+    }
+
+    /**
+     * Creates the target applying control server commands to the banners.
+     *
+     * @param screenManager the screen manager
+     * @param windowManager the window manager of the primary banner
+     * @param bannerRegistry the registry of the banners
+     * @return the control target
+     */
+    private static ControlServer.Target createControlTarget(
+            ScreenManager screenManager,
+            WindowManager windowManager,
+            BannerRegistry bannerRegistry) {
+        return new ControlServer.Target() {
+            @Override
+            public void selectScreen(String screen) {
+                ScreenTopology topology = screenManager.getTopology();
+                ScreenInfo info = topology.find(screen);
+                if (info != null) {
+                    windowManager.selectScreen(topology.getScreens().indexOf(info));
+                    return;
+                }
+                try {
+                    if (!windowManager.selectScreen(Integer.parseInt(screen))) {
+                        System.err.println("Unknown screen: " + screen);
+                    }
+                } catch (NumberFormatException e) {
+                    System.err.println("Unknown screen: " + screen);
+                }
+            }
+
             @Override
-            protected void paintComponent(Graphics g) {
-                // Don't call super.paintComponent to avoid filling the background
-                if (g instanceof Graphics2D g2d) {
-                    g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER));
+            public void moveToCorner(boolean left) {
+                windowManager.moveToCorner(left);
+            }
+
+            @Override
+            public void moveTo(int x, int y) {
+                windowManager.moveTo(x, y);
+            }
+
+            @Override
+            public void setBannersVisible(boolean visible) {
+                for (WindowManager banner : bannerRegistry.getBanners()) {
+                    if (banner.getFrame() != null) {
+                        banner.getFrame().setVisible(visible);
+                    }
                 }
-                g.drawImage(image, 0, 0, this);
             }
 
             @Override
-            public boolean isOpaque() {
-                return false;
+            public ImageCache.Entry prepareImage(FrameSource frames) throws IOException {
+                return bannerRegistry.prepare(frames);
+            }
+
+            @Override
+            public void showImage(Path file, ImageCache.Entry content) {
+                try {
+                    showContent(bannerRegistry, content);
+                } catch (IOException e) {
+                    System.err.println("Error showing image " + file + ": " + e.getMessage());
+                }
             }
         };
+    }
 
-        panel.setOpaque(false);
-        panel.setBackground(new Color(0, 0, 0, 0));
-        panel.setPreferredSize(new Dimension(image.getWidth(), image.getHeight()));
-        return panel;
+    /**
+     * Shapes the window to the opaque pixels of the banner, keeping the menu bar
+     * if it is laid out inside the window.
+     * 
+     * @param frame the frame to shape
+     * @param panel the banner panel inside the frame
+     */
+    private static void applyWindowShape(JFrame frame, BannerPanel panel) {
+        GraphicsDevice device = frame.getGraphicsConfiguration().getDevice();
+        if (!device.isWindowTranslucencySupported(GraphicsDevice.WindowTranslucency.PERPIXEL_TRANSPARENT)) {
+            return;
+        }
+
+        // The mask is in panel coordinates, the shape in window coordinates
+        Point panelLocation = SwingUtilities.convertPoint(panel, 0, 0, frame);
+        Area shape = new Area(panel.getHitMask().getShape());
+        shape.transform(AffineTransform.getTranslateInstance(panelLocation.x, panelLocation.y));
+
+        JMenuBar menuBar = frame.getJMenuBar();
+        if (menuBar != null && menuBar.getHeight() > 0) {
+            shape.add(new Area(SwingUtilities.convertRectangle(menuBar.getParent(), menuBar.getBounds(), frame)));
+        }
+
+        frame.setShape(shape);
+    }
+
+    static BannerPanel getJPanel(BufferedImage image) {
+        // The panel converts the image once per graphics configuration, so painting is a single blit
+        return new BannerPanel(image);
     }
 }
\ No newline at end of file
@@ -4,47 +4,457 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Helper class to allow dragging the window with the mouse.
+ * The pointer is tracked in screen coordinates and drag events are coalesced,
+ * so the window moves at most once per display frame. Optionally the window
+ * snaps to screen edges and keeps gliding after release.
  */
 public class MouseDragListener extends MouseAdapter {
-    private final JFrame frame;
+    /**
+     * Number of recent pointer samples used to estimate the release velocity
+     */
+    private static final int VELOCITY_SAMPLES = 4;
+
+    /**
+     * Only pointer samples younger than this are used to estimate the release velocity
+     */
+    private static final long VELOCITY_WINDOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * Time constant in seconds of the exponential slow-down after release
+     */
+    private static final double INERTIA_TIME_CONSTANT = 0.15;
+
+    /**
+     * Speed in pixels per second below which the window stops gliding
+     */
+    private static final double INERTIA_MIN_SPEED = 40;
+
+    private final Component frame;
     private final WindowManager windowManager;
-    private Point dragStart = null;
+
+    /**
+     * Clock applying coalesced moves once per frame
+     */
+    private final AnimationClock animationClock;
+
+    /**
+     * Distance in pixels within which the window snaps to screen edges, or 0 to disable snapping
+     */
+    private final int snapDistance;
+
+    /**
+     * Whether the window keeps moving after release
+     */
+    private final boolean inertia;
+
+    /**
+     * Whether the left button is held down on the window
+     */
+    private boolean pressed = false;
+
+    /**
+     * Whether a drag is in progress
+     */
+    private boolean dragging = false;
+
+    /**
+     * Whether the current drag or the glide after it has moved the window
+     */
+    private boolean moved = false;
+
+    /**
+     * Pointer location in screen coordinates when the button was pressed
+     */
+    private int pressX, pressY;
+
+    /**
+     * Offset of the pointer from the window origin when the drag started
+     */
+    private int grabOffsetX, grabOffsetY;
+
+    /**
+     * Window location requested by the latest drag event
+     */
+    private int pendingX, pendingY;
+
+    /**
+     * Whether a requested location has not been applied yet
+     */
+    private boolean movePending = false;
+
+    /**
+     * Ring of recent requested locations and their times, used for the release velocity
+     */
+    private final int[] sampleX = new int[VELOCITY_SAMPLES];
+    private final int[] sampleY = new int[VELOCITY_SAMPLES];
+    private final long[] sampleTime = new long[VELOCITY_SAMPLES];
+    private int sampleCount = 0;
+
+    /**
+     * Position, velocity in pixels per second and last update time of the gliding window
+     */
+    private double glideX, glideY, velocityX, velocityY;
+    private long glideTime;
+    private boolean gliding = false;
+
+    /**
+     * Flight recorder event of the current drag, or null if no drag is in progress
+     */
+    private BannerEvents.DragEvent dragEvent = null;
+
+    /**
+     * Time in nanoseconds at which the current drag started
+     */
+    private long dragStartTime;
+
+    /**
+     * Frame callback applying pending moves and the glide after release
+     */
+    private final AnimationClock.Animation dragAnimation = this::tick;
 
     /**
      * Creates a new MouseDragListener for the specified frame.
-     * 
+     * Edge snapping is enabled by the system property {@code globalbanner.snapDistance}
+     * and gliding after release by {@code globalbanner.dragInertia}.
+     *
      * @param frame the frame to drag
      * @param windowManager the window manager to use
      */
-    public MouseDragListener(JFrame frame, WindowManager windowManager) {
+    public MouseDragListener(Component frame, WindowManager windowManager) {
+        this(frame, windowManager,
+                Integer.getInteger("globalbanner.snapDistance", 0),
+                Boolean.getBoolean("globalbanner.dragInertia"));
+    }
+
+    /**
+     * Creates a new MouseDragListener for the specified frame.
+     *
+     * @param frame the frame to drag
+     * @param windowManager the window manager to use
+     * @param snapDistance the distance in pixels within which the window snaps to screen edges, or 0
+     * @param inertia whether the window keeps moving after release
+     */
+    public MouseDragListener(Component frame, WindowManager windowManager, int snapDistance, boolean inertia) {
         this.frame = frame;
         this.windowManager = windowManager;
+        this.animationClock = windowManager.getAnimationClock();
+        this.snapDistance = snapDistance;
+        this.inertia = inertia;
     }
 
     @Override
     public void mousePressed(MouseEvent e) {
-        dragStart = e.getPoint();
-        // Cancel any ongoing animations when starting a new drag
-        windowManager.stopAnimation();
+        if (!SwingUtilities.isLeftMouseButton(e)) {
+            return;
+        }
+
+        // Catching a gliding window stops it where it is, and it floats there on release
+        if (gliding) {
+            gliding = false;
+            animationClock.stop(dragAnimation);
+        } else {
+            moved = false;
+        }
+
+        pressed = true;
+        pressX = e.getXOnScreen();
+        pressY = e.getYOnScreen();
+        sampleCount = 0;
     }
 
     @Override
     public void mouseReleased(MouseEvent e) {
-        dragStart = null;
+        if (!pressed) {
+            return;
+        }
+        pressed = false;
+        if (!dragging) {
+            // A plain click leaves the window and any movement in progress alone
+            drop();
+            return;
+        }
+        dragging = false;
+
+        // Apply the last requested location right away
+        if (movePending) {
+            applyPendingMove();
+        }
+        commitDragEvent();
+
+        if (inertia && startGlide(animationClock.now())) {
+            animationClock.start(dragAnimation);
+        } else {
+            animationClock.stop(dragAnimation);
+            drop();
+        }
+    }
+
+    /**
+     * Leaves the window floating where the drag or glide ended, so later layouts do not
+     * snap it back. A window the drag did not move, or moved exactly into its corner,
+     * stays anchored.
+     */
+    private void drop() {
+        if (moved && !windowManager.isAtCorner()) {
+            windowManager.floatWhereItIs();
+        }
+        moved = false;
     }
 
     @Override
     public void mouseDragged(MouseEvent e) {
-        if (dragStart != null) {
-            Point currentLocation = frame.getLocation();
-            int newX = currentLocation.x + e.getX() - dragStart.x;
-            int newY = currentLocation.y + e.getY() - dragStart.y;
+        if (!pressed) {
+            return;
+        }
+        if (!dragging) {
+            // Only a drag takes over from a running animation, so a click does not freeze a dodge
+            windowManager.stopAnimation();
+            dragging = true;
+            dragEvent = new BannerEvents.DragEvent();
+            dragEvent.begin();
+            dragStartTime = animationClock.now();
+            grabOffsetX = pressX - frame.getX();
+            grabOffsetY = pressY - frame.getY();
+        }
+
+        // Screen coordinates do not shift while the window moves under the pointer
+        pendingX = e.getXOnScreen() - grabOffsetX;
+        pendingY = e.getYOnScreen() - grabOffsetY;
+        movePending = true;
+        if (dragEvent != null) {
+            dragEvent.dragEvents++;
+        }
+        recordSample(pendingX, pendingY, animationClock.now());
+
+        // During active dragging, moves are applied once per frame
+        animationClock.start(dragAnimation);
+    }
+
+    /**
+     * Applies the pending move or advances the glide.
+     *
+     * @param now the current time in nanoseconds
+     * @return true while a drag or glide is in progress
+     */
+    private boolean tick(long now) {
+        if (movePending) {
+            applyPendingMove();
+        }
+        if (gliding) {
+            if (windowManager.isAnimating()) {
+                // A hover-triggered move takes over from the glide, keeping its momentum
+                windowManager.carryVelocity(velocityX, velocityY);
+                gliding = false;
+            } else {
+                gliding = advanceGlide(now);
+                if (!gliding) {
+                    drop();
+                }
+            }
+        }
+        return dragging || gliding;
+    }
+
+    /**
+     * Moves the window to the latest requested location, snapped to nearby screen edges.
+     */
+    private void applyPendingMove() {
+        movePending = false;
+        if (dragEvent != null) {
+            dragEvent.moves++;
+        }
+        moveFrame(snapX(pendingX, pendingY), snapY(pendingX, pendingY));
+    }
+
+    /**
+     * Commits the flight recorder event of the finished drag.
+     */
+    private void commitDragEvent() {
+        BannerEvents.DragEvent event = dragEvent;
+        dragEvent = null;
+        if (event != null && event.shouldCommit()) {
+            double seconds = (animationClock.now() - dragStartTime) / 1e9;
+            event.moveRate = seconds > 0 ? event.moves / seconds : 0;
+            event.commit();
+        }
+    }
+
+    /**
+     * Moves the frame if the location actually changed.
+     *
+     * @param x the new X coordinate
+     * @param y the new Y coordinate
+     */
+    private void moveFrame(int x, int y) {
+        if (frame.getX() != x || frame.getY() != y) {
+            frame.setLocation(x, y);
+            moved = true;
+        }
+    }
+
+    /**
+     * Records a requested location for the release velocity estimate.
+     *
+     * @param x the requested X coordinate
+     * @param y the requested Y coordinate
+     * @param time the time of the request in nanoseconds
+     */
+    private void recordSample(int x, int y, long time) {
+        int slot = sampleCount % VELOCITY_SAMPLES;
+        sampleX[slot] = x;
+        sampleY[slot] = y;
+        sampleTime[slot] = time;
+        sampleCount++;
+    }
+
+    /**
+     * Starts gliding with the velocity of the last moments of the drag.
+     *
+     * @param now the current time in nanoseconds
+     * @return true if the window is moving fast enough to glide
+     */
+    private boolean startGlide(long now) {
+        if (sampleCount < 2) {
+            return false;
+        }
+
+        int newest = (sampleCount - 1) % VELOCITY_SAMPLES;
+        if (now - sampleTime[newest] > VELOCITY_WINDOW) {
+            // The pointer rested before release
+            return false;
+        }
 
-            // During active dragging, we use immediate movement for responsive feel
-            frame.setLocation(newX, newY);
+        // Use the oldest sample that is still recent enough
+        int oldest = newest;
+        int available = Math.min(sampleCount, VELOCITY_SAMPLES);
+        for (int i = 1; i < available; i++) {
+            int slot = (sampleCount - 1 - i) % VELOCITY_SAMPLES;
+            if (sampleTime[newest] - sampleTime[slot] > VELOCITY_WINDOW) {
+                break;
+            }
+            oldest = slot;
         }
+
+        double seconds = (sampleTime[newest] - sampleTime[oldest]) / 1e9;
+        if (oldest == newest || seconds <= 0) {
+            return false;
+        }
+
+        velocityX = (sampleX[newest] - sampleX[oldest]) / seconds;
+        velocityY = (sampleY[newest] - sampleY[oldest]) / seconds;
+        glideX = frame.getX();
+        glideY = frame.getY();
+        glideTime = now;
+        gliding = Math.hypot(velocityX, velocityY) >= INERTIA_MIN_SPEED;
+        return gliding;
+    }
+
+    /**
+     * Advances the glide with exponential slow-down, stopping at the screen edges.
+     *
+     * @param now the current time in nanoseconds
+     * @return true if the window is still gliding
+     */
+    private boolean advanceGlide(long now) {
+        double seconds = (now - glideTime) / 1e9;
+        glideTime = now;
+
+        // Integrate the exponentially decaying velocity exactly over the elapsed time
+        double decay = Math.exp(-seconds / INERTIA_TIME_CONSTANT);
+        glideX += velocityX * INERTIA_TIME_CONSTANT * (1 - decay);
+        glideY += velocityY * INERTIA_TIME_CONSTANT * (1 - decay);
+        velocityX *= decay;
+        velocityY *= decay;
+
+        int x = (int) Math.round(glideX);
+        int y = (int) Math.round(glideY);
+        ScreenInfo screen = findScreen(x, y);
+        if (screen != null) {
+            // Stop at the edges of the screen the window is on
+            int clampedX = clamp(x, screen.getX(), screen.getX() + screen.getWidth() - frame.getWidth());
+            int clampedY = clamp(y, screen.getY(), screen.getY() + screen.getHeight() - frame.getHeight());
+            if (clampedX != x) {
+                velocityX = 0;
+                glideX = x = clampedX;
+            }
+            if (clampedY != y) {
+                velocityY = 0;
+                glideY = y = clampedY;
+            }
+        }
+
+        boolean stillGliding = Math.hypot(velocityX, velocityY) >= INERTIA_MIN_SPEED;
+        if (stillGliding) {
+            moveFrame(x, y);
+        } else {
+            moveFrame(snapX(x, y), snapY(x, y));
+        }
+        return stillGliding;
+    }
+
+    /**
+     * Snaps the X coordinate of the window to the edges of its screen.
+     *
+     * @param x the requested X coordinate
+     * @param y the requested Y coordinate
+     * @return the snapped X coordinate
+     */
+    private int snapX(int x, int y) {
+        ScreenInfo screen = snapDistance > 0 ? findScreen(x, y) : null;
+        if (screen == null) {
+            return x;
+        }
+        if (Math.abs(x - screen.getX()) <= snapDistance) {
+            return screen.getX();
+        }
+        int right = screen.getX() + screen.getWidth() - frame.getWidth();
+        return Math.abs(x - right) <= snapDistance ? right : x;
+    }
+
+    /**
+     * Snaps the Y coordinate of the window to the edges of its screen.
+     *
+     * @param x the requested X coordinate
+     * @param y the requested Y coordinate
+     * @return the snapped Y coordinate
+     */
+    private int snapY(int x, int y) {
+        ScreenInfo screen = snapDistance > 0 ? findScreen(x, y) : null;
+        if (screen == null) {
+            return y;
+        }
+        if (Math.abs(y - screen.getY()) <= snapDistance) {
+            return screen.getY();
+        }
+        int bottom = screen.getY() + screen.getHeight() - frame.getHeight();
+        return Math.abs(y - bottom) <= snapDistance ? bottom : y;
+    }
+
+    /**
+     * Finds the screen containing the center of the window at the specified location,
+     * using the cached screen topology.
+     *
+     * @param x the X coordinate of the window
+     * @param y the Y coordinate of the window
+     * @return the screen, or null if the center is on no screen
+     */
+    private ScreenInfo findScreen(int x, int y) {
+        return windowManager.getScreenManager().getTopology().findAt(x + frame.getWidth() / 2, y + frame.getHeight() / 2);
+    }
+
+    /**
+     * Clamps a value to a range.
+     *
+     * @param value the value
+     * @param min the lower bound
+     * @param max the upper bound
+     * @return the clamped value
+     */
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,110 @@
+package one.cafebabe.globalbanner;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Offscreen stand-in for a banner window's surface, so rendering can run
+ * without a display, e.g. with {@code java.awt.headless=true} in tests and
+ * benchmarks. Components are painted into a translucent image at a configurable
+ * scale factor, and the time every frame takes to paint is recorded.
+ */
+public class OffscreenSurface {
+    /**
+     * Number of recent frame times kept
+     */
+    private static final int WINDOW = 1024;
+
+    /**
+     * Pixels the components are painted into
+     */
+    private final BufferedImage image;
+
+    /**
+     * Scale factor from user space to surface pixels
+     */
+    private final double scale;
+
+    /**
+     * Time each recent frame took to paint
+     */
+    private final RollingHistogram frameTimes = new RollingHistogram(WINDOW);
+
+    /**
+     * Creates a new OffscreenSurface without scaling.
+     *
+     * @param width the width in pixels
+     * @param height the height in pixels
+     */
+    public OffscreenSurface(int width, int height) {
+        this(width, height, 1.0);
+    }
+
+    /**
+     * Creates a new OffscreenSurface standing in for a screen with the specified scale factor.
+     *
+     * @param width the width in user space
+     * @param height the height in user space
+     * @param scale the scale factor from user space to surface pixels
+     */
+    public OffscreenSurface(int width, int height, double scale) {
+        this.scale = scale;
+        this.image = new BufferedImage(ImagePyramid.variantSize(width, scale), ImagePyramid.variantSize(height, scale),
+                BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+
+    /**
+     * Clears the surface and paints a component into it, sizing the component to its
+     * preferred size first if it has not been laid out.
+     *
+     * @param component the component to paint
+     * @return the surface image
+     */
+    public BufferedImage render(Component component) {
+        if (component.getWidth() <= 0 || component.getHeight() <= 0) {
+            component.setSize(component.getPreferredSize());
+            component.validate();
+        }
+
+        long start = System.nanoTime();
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.Clear);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.setComposite(AlphaComposite.SrcOver);
+            g.scale(scale, scale);
+            component.paint(g);
+        } finally {
+            g.dispose();
+        }
+        frameTimes.record(System.nanoTime() - start);
+        return image;
+    }
+
+    /**
+     * Gets the surface image as last rendered.
+     *
+     * @return the image, with premultiplied alpha
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Gets the scale factor from user space to surface pixels.
+     *
+     * @return the scale factor
+     */
+    public double getScale() {
+        return scale;
+    }
+
+    /**
+     * Gets the time recent frames took to paint.
+     *
+     * @return the frame time histogram
+     */
+    public RollingHistogram getFrameTimes() {
+        return frameTimes;
+    }
+}
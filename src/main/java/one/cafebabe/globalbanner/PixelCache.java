@@ -0,0 +1,275 @@
+package one.cafebabe.globalbanner;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * Cache of pre-decoded images stored as raw ARGB pixels.
+ * Entries are keyed by a SHA-256 hash of the encoded source, so a changed source
+ * simply misses the cache. Reading an entry maps the file and copies the pixels
+ * straight into the int array backing the image, without decoding.
+ */
+public class PixelCache {
+    /**
+     * Marker at the start of every cache file ("GBPX")
+     */
+    private static final int MAGIC = 0x47425058;
+
+    /**
+     * Version of the file layout
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Size in bytes of the hash of the encoded source
+     */
+    private static final int HASH_SIZE = 32;
+
+    /**
+     * Size of the header: magic, version, byte order, width, height, then the 32-byte hash
+     */
+    private static final int HEADER_SIZE = 5 * Integer.BYTES + HASH_SIZE;
+
+    /**
+     * Bytes of the hash of the source name used as the file name prefix of its entries
+     */
+    private static final int PREFIX_HASH_SIZE = 8;
+
+    /**
+     * File name suffix of cache entries
+     */
+    private static final String SUFFIX = ".argb";
+
+    /**
+     * Directory holding the cache files
+     */
+    private final Path directory;
+
+    /**
+     * Creates a new PixelCache storing its files in the specified directory.
+     *
+     * @param directory the cache directory, created on first write
+     */
+    public PixelCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Gets the cache configured by system properties. The cache is enabled by
+     * {@code globalbanner.pixelCache} and stored in {@code globalbanner.pixelCacheDir},
+     * which defaults to {@code ~/.cache/global-banner}.
+     *
+     * @return the configured cache, or null if it is disabled
+     */
+    public static PixelCache fromSystemProperties() {
+        if (!Boolean.getBoolean("globalbanner.pixelCache")) {
+            return null;
+        }
+        String directory = System.getProperty("globalbanner.pixelCacheDir");
+        return new PixelCache(directory != null
+                ? Paths.get(directory)
+                : Paths.get(System.getProperty("user.home"), ".cache", "global-banner"));
+    }
+
+    /**
+     * Computes the cache key of an encoded image.
+     *
+     * @param data the encoded image
+     * @return the SHA-256 hash of the data
+     */
+    public static byte[] hash(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Reads the cached pixels of an image.
+     *
+     * @param name the name of the source image
+     * @param hash the hash of the encoded source
+     * @return the image, or null if there is no valid entry
+     */
+    public BufferedImage read(String name, byte[] hash) {
+        Path file = entryFile(name, hash);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                return null;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            ByteOrder order = buffer.getInt() == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            byte[] storedHash = new byte[HASH_SIZE];
+            buffer.get(storedHash);
+            if (width <= 0 || height <= 0 || !Arrays.equals(storedHash, hash)
+                    || size != HEADER_SIZE + 4L * width * height) {
+                return null;
+            }
+
+            // Copy the mapped pixels straight into the array backing the image
+            int[] pixels = new int[width * height];
+            IntBuffer source = buffer.position(HEADER_SIZE).slice().order(order).asIntBuffer();
+            source.get(pixels);
+            return createImage(pixels, width, height);
+        } catch (IOException e) {
+            System.err.println("Error reading pixel cache: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the pixels of an image to the cache, replacing older entries of the same source.
+     * The entry is written to a temporary file first and moved into place atomically.
+     *
+     * @param name the name of the source image
+     * @param hash the hash of the encoded source
+     * @param image the decoded image
+     * @throws IOException if the entry cannot be written
+     */
+    public void write(String name, byte[] hash, BufferedImage image) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+        Files.createDirectories(directory);
+        Path file = entryFile(name, hash);
+        Path temp = Files.createTempFile(directory, prefix(name), ".tmp");
+        try {
+            // Written through a heap buffer, so no mapping keeps the file open when it is moved
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 4 * pixels.length);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN ? 0 : 1);
+            buffer.putInt(width);
+            buffer.putInt(height);
+            buffer.put(hash);
+            buffer.slice().order(ByteOrder.nativeOrder()).asIntBuffer().put(pixels);
+            buffer.rewind();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        removeStaleEntries(name, file);
+    }
+
+    /**
+     * Deletes the entries of a source other than the current one.
+     *
+     * @param name the name of the source image
+     * @param current the current entry
+     * @throws IOException if the directory cannot be listed
+     */
+    private void removeStaleEntries(String name, Path current) throws IOException {
+        String prefix = prefix(name);
+        int length = prefix.length() + 2 * HASH_SIZE + SUFFIX.length();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, prefix + "*" + SUFFIX)) {
+            for (Path entry : entries) {
+                // Only entries of exactly this source, i.e. its prefix followed by a content hash
+                String fileName = entry.getFileName().toString();
+                if (fileName.length() == length && isHex(fileName, prefix.length(), length - SUFFIX.length())
+                        && !entry.equals(current)) {
+                    Files.deleteIfExists(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates an ARGB image backed directly by the specified pixel array.
+     *
+     * @param pixels the pixels in row-major order
+     * @param width the width of the image
+     * @param height the height of the image
+     * @return the image
+     */
+    static BufferedImage createImage(int[] pixels, int width, int height) {
+        DirectColorModel colorModel = (DirectColorModel) ColorModel.getRGBdefault();
+        SinglePixelPackedSampleModel sampleModel = new SinglePixelPackedSampleModel(
+                DataBufferInt.TYPE_INT, width, height, colorModel.getMasks());
+        WritableRaster raster = Raster.createWritableRaster(sampleModel, new DataBufferInt(pixels, pixels.length), null);
+        return new BufferedImage(colorModel, raster, false, null);
+    }
+
+    /**
+     * Gets the file of a cache entry.
+     *
+     * @param name the name of the source image
+     * @param hash the hash of the encoded source
+     * @return the entry file
+     */
+    private Path entryFile(String name, byte[] hash) {
+        return directory.resolve(prefix(name) + HexFormat.of().formatHex(hash) + SUFFIX);
+    }
+
+    /**
+     * Gets the file name prefix shared by all entries of a source: a hash of the full
+     * name of the source, so distinct sources never share a prefix and all prefixes
+     * have the same length.
+     *
+     * @param name the name of the source image
+     * @return the prefix
+     */
+    private static String prefix(String name) {
+        byte[] nameHash = hash(name.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(nameHash, 0, PREFIX_HASH_SIZE) + "-";
+    }
+
+    /**
+     * Checks whether a range of a file name consists of lowercase hexadecimal digits.
+     *
+     * @param fileName the file name
+     * @param start the index of the first character
+     * @param end the index after the last character
+     * @return true if all characters in the range are hexadecimal digits
+     */
+    private static boolean isHex(String fileName, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = fileName.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,272 @@
+package one.cafebabe.globalbanner;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Tracks the mouse pointer around a banner and dodges before the pointer reaches it.
+ * The pointer is sampled on a background thread at a rate that adapts to how soon
+ * it could reach the banner: rarely while it is far away, every few milliseconds
+ * once it closes in. Its path is extrapolated from the last two samples, and the
+ * dodge starts when that path hits the banner within the lead time, so the window
+ * is already moving when the pointer arrives.
+ */
+public class ProximitySampler {
+    /**
+     * Share of one CPU core the sampler may use, checked by the proximity benchmark
+     */
+    public static final double CPU_BUDGET = 0.005;
+
+    /**
+     * Shortest time between two samples
+     */
+    static final long MIN_INTERVAL = TimeUnit.MILLISECONDS.toNanos(8);
+
+    /**
+     * Longest time between two samples
+     */
+    static final long MAX_INTERVAL = TimeUnit.MILLISECONDS.toNanos(500);
+
+    /**
+     * Fastest plausible pointer movement in pixels per second
+     */
+    private static final double MAX_POINTER_SPEED = 5000;
+
+    /**
+     * Source of the pointer location in desktop coordinates, returning null if unknown
+     */
+    private final Supplier<Point> pointer;
+
+    /**
+     * Starts the dodge; called on the sampler thread
+     */
+    private final Runnable dodge;
+
+    /**
+     * Source of the current time in nanoseconds
+     */
+    private final LongSupplier timeSource;
+
+    /**
+     * How long before the predicted contact the dodge starts, in nanoseconds
+     */
+    private final long leadTime;
+
+    /**
+     * Bounds of the banner in desktop coordinates, or null while unknown
+     */
+    private volatile Rectangle target = null;
+
+    /**
+     * Thread taking the samples, or null if stopped
+     */
+    private volatile ScheduledExecutorService sampler = null;
+
+    /**
+     * Location and distance of the previous sample; only accessed on the sampler thread
+     */
+    private double lastX, lastY, lastDistance;
+
+    /**
+     * Time of the previous sample, or 0 if the next sample has nothing to compare with
+     */
+    private long lastTime = 0;
+
+    /**
+     * Time between the previous sample and this one in nanoseconds
+     */
+    private long lastDelay = MIN_INTERVAL;
+
+    /**
+     * Time before which no new dodge is started
+     */
+    private long cooldownUntil = 0;
+
+    /**
+     * Number of samples taken
+     */
+    private volatile long sampleCount = 0;
+
+    /**
+     * Creates a new ProximitySampler.
+     *
+     * @param pointer the source of the pointer location in desktop coordinates, returning null if unknown
+     * @param dodge starts the dodge; called on the sampler thread
+     * @param timeSource the source of the current time in nanoseconds
+     * @param leadTime how long before the predicted contact the dodge starts, in nanoseconds
+     */
+    public ProximitySampler(Supplier<Point> pointer, Runnable dodge, LongSupplier timeSource, long leadTime) {
+        this.pointer = pointer;
+        this.dodge = dodge;
+        this.timeSource = timeSource;
+        this.leadTime = leadTime;
+    }
+
+    /**
+     * Creates a sampler that moves a banner window to the opposite corner before the pointer
+     * reaches it. The lead time is read from the system property
+     * {@code globalbanner.proximityLeadMillis} and defaults to the duration of the dodge animation.
+     *
+     * @param frame the banner window
+     * @param windowManager the window manager moving the window
+     * @return the sampler, not started yet
+     */
+    public static ProximitySampler forWindow(Component frame, WindowManager windowManager) {
+        long leadTime = TimeUnit.MILLISECONDS.toNanos(Long.getLong("globalbanner.proximityLeadMillis",
+                TimeUnit.NANOSECONDS.toMillis(WindowManager.ANIMATION_DURATION)));
+        ProximitySampler proximitySampler = new ProximitySampler(
+                () -> {
+                    PointerInfo info = MouseInfo.getPointerInfo();
+                    return info != null ? info.getLocation() : null;
+                },
+                () -> SwingUtilities.invokeLater(() -> {
+                    if (!windowManager.isAnimating()) {
+                        windowManager.moveWindowToOppositeCorner();
+                    }
+                }),
+                System::nanoTime,
+                leadTime);
+
+        // The bounds are read on the sampler thread, so keep a snapshot of them
+        proximitySampler.setTarget(frame.getBounds());
+        frame.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentMoved(ComponentEvent e) {
+                proximitySampler.setTarget(frame.getBounds());
+            }
+
+            @Override
+            public void componentResized(ComponentEvent e) {
+                proximitySampler.setTarget(frame.getBounds());
+            }
+        });
+        return proximitySampler;
+    }
+
+    /**
+     * Sets the bounds of the banner. May be called from any thread.
+     *
+     * @param bounds the bounds in desktop coordinates, or null while unknown
+     */
+    public void setTarget(Rectangle bounds) {
+        target = bounds != null ? new Rectangle(bounds) : null;
+    }
+
+    /**
+     * Starts sampling the pointer on a background thread.
+     */
+    public void start() {
+        if (sampler != null) {
+            return;
+        }
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "proximity-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.execute(this::run);
+    }
+
+    /**
+     * Stops sampling the pointer.
+     */
+    public void stop() {
+        if (sampler != null) {
+            sampler.shutdownNow();
+            sampler = null;
+        }
+    }
+
+    /**
+     * Takes a sample and schedules the next one.
+     */
+    private void run() {
+        BannerMetrics metrics = BannerMetrics.get();
+        if (metrics != null) {
+            metrics.recordWakeup();
+        }
+        long delay;
+        try {
+            delay = sample();
+        } catch (RuntimeException e) {
+            System.err.println("Error sampling pointer: " + e.getMessage());
+            delay = MAX_INTERVAL;
+        }
+        ScheduledExecutorService executor = sampler;
+        if (executor != null && !executor.isShutdown()) {
+            executor.schedule(this::run, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Samples the pointer, starts the dodge if the pointer is about to reach the banner,
+     * and works out when the next sample is due.
+     *
+     * @return the time until the next sample in nanoseconds
+     */
+    long sample() {
+        sampleCount++;
+        Rectangle bounds = target;
+        Point location = pointer.get();
+        long now = timeSource.getAsLong();
+        if (bounds == null || location == null) {
+            lastTime = 0;
+            return MAX_INTERVAL;
+        }
+
+        // Distance from the pointer to the nearest edge of the banner
+        double dx = Math.max(0, Math.max(bounds.x - location.x, location.x - (bounds.x + bounds.width)));
+        double dy = Math.max(0, Math.max(bounds.y - location.y, location.y - (bounds.y + bounds.height)));
+        double distance = Math.sqrt(dx * dx + dy * dy);
+
+        double timeToContact = Double.POSITIVE_INFINITY;
+        if (lastTime != 0 && now > lastTime && distance > 0) {
+            double seconds = (now - lastTime) / 1e9;
+            double closingSpeed = (lastDistance - distance) / seconds;
+            if (closingSpeed > 0) {
+                timeToContact = distance / closingSpeed * 1e9;
+
+                // Extrapolate the path over the lead time and dodge if it hits the banner
+                double leadSeconds = leadTime / 1e9;
+                double aheadX = location.x + (location.x - lastX) / seconds * leadSeconds;
+                double aheadY = location.y + (location.y - lastY) / seconds * leadSeconds;
+                if (now >= cooldownUntil && bounds.intersectsLine(location.x, location.y, aheadX, aheadY)) {
+                    cooldownUntil = now + leadTime;
+                    dodge.run();
+                }
+            }
+        }
+        boolean resting = lastTime != 0 && location.x == lastX && location.y == lastY;
+        lastX = location.x;
+        lastY = location.y;
+        lastDistance = distance;
+        lastTime = now;
+
+        // Sample again before the pointer could get within the lead time of the banner,
+        // and twice as often as the current approach needs
+        double delay = distance / MAX_POINTER_SPEED * 1e9 - leadTime;
+        delay = Math.min(delay, (timeToContact - leadTime) / 2);
+        if (resting) {
+            // A resting pointer needs time to pick up speed, so back off while it stays put
+            delay = Math.max(delay, 2.0 * lastDelay);
+        }
+        lastDelay = Math.max(MIN_INTERVAL, Math.min(MAX_INTERVAL, (long) delay));
+        return lastDelay;
+    }
+
+    /**
+     * Gets the number of samples taken.
+     *
+     * @return the sample count
+     */
+    public long getSampleCount() {
+        return sampleCount;
+    }
+}
@@ -0,0 +1,166 @@
+package one.cafebabe.globalbanner;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Histogram of the most recent durations. Once the window is full, every new
+ * sample replaces the oldest one, so the histogram always describes recent behavior.
+ * Samples may be recorded and read from any thread.
+ */
+public class RollingHistogram {
+    /**
+     * Upper bounds in nanoseconds of all buckets but the last, which is unbounded
+     */
+    private static final long[] BUCKET_BOUNDS = {
+            TimeUnit.MICROSECONDS.toNanos(250),
+            TimeUnit.MICROSECONDS.toNanos(500),
+            TimeUnit.MILLISECONDS.toNanos(1),
+            TimeUnit.MILLISECONDS.toNanos(2),
+            TimeUnit.MILLISECONDS.toNanos(4),
+            TimeUnit.MILLISECONDS.toNanos(8),
+            TimeUnit.MILLISECONDS.toNanos(17),
+            TimeUnit.MILLISECONDS.toNanos(33),
+            TimeUnit.MILLISECONDS.toNanos(50),
+            TimeUnit.MILLISECONDS.toNanos(100),
+            TimeUnit.MILLISECONDS.toNanos(250),
+            TimeUnit.MILLISECONDS.toNanos(500),
+            TimeUnit.SECONDS.toNanos(1)
+    };
+
+    /**
+     * Ring of the samples in the window
+     */
+    private final long[] samples;
+
+    /**
+     * Number of samples in each bucket
+     */
+    private final long[] bucketCounts = new long[BUCKET_BOUNDS.length + 1];
+
+    /**
+     * Number of samples recorded since the last reset
+     */
+    private long count = 0;
+
+    /**
+     * Sum of the samples in the window
+     */
+    private long sum = 0;
+
+    /**
+     * Creates a new RollingHistogram.
+     *
+     * @param window the number of recent samples to keep
+     */
+    public RollingHistogram(int window) {
+        this.samples = new long[window];
+    }
+
+    /**
+     * Records a sample, evicting the oldest one if the window is full.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public synchronized void record(long nanos) {
+        int slot = (int) (count % samples.length);
+        if (count >= samples.length) {
+            sum -= samples[slot];
+            bucketCounts[bucketOf(samples[slot])]--;
+        }
+        samples[slot] = nanos;
+        sum += nanos;
+        bucketCounts[bucketOf(nanos)]++;
+        count++;
+    }
+
+    /**
+     * Gets the number of samples in the window.
+     *
+     * @return the number of samples
+     */
+    public synchronized int size() {
+        return (int) Math.min(count, samples.length);
+    }
+
+    /**
+     * Gets the number of samples recorded since the last reset, including evicted ones.
+     *
+     * @return the total number of samples
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the mean of the samples in the window.
+     *
+     * @return the mean in nanoseconds, or 0 if there are no samples
+     */
+    public synchronized double getMean() {
+        int size = size();
+        return size == 0 ? 0 : (double) sum / size;
+    }
+
+    /**
+     * Gets a percentile of the samples in the window.
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the sample at the percentile in nanoseconds, or 0 if there are no samples
+     */
+    public long getPercentile(double percentile) {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(samples, size());
+        }
+        if (sorted.length == 0) {
+            return 0;
+        }
+        // Sorting a copy keeps the recording path cheap; percentiles are only read occasionally
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * Gets the number of samples in the window per bucket.
+     *
+     * @return the counts, matching {@link #getBucketBounds()} plus one unbounded bucket
+     */
+    public synchronized long[] getBucketCounts() {
+        return bucketCounts.clone();
+    }
+
+    /**
+     * Gets the upper bounds of the buckets.
+     *
+     * @return the bounds in nanoseconds of all buckets but the last
+     */
+    public static long[] getBucketBounds() {
+        return BUCKET_BOUNDS.clone();
+    }
+
+    /**
+     * Discards all samples.
+     */
+    public synchronized void reset() {
+        Arrays.fill(bucketCounts, 0);
+        count = 0;
+        sum = 0;
+    }
+
+    /**
+     * Finds the bucket of a sample.
+     *
+     * @param nanos the duration in nanoseconds
+     * @return the index of the bucket
+     */
+    private static int bucketOf(long nanos) {
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            if (nanos <= BUCKET_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS.length;
+    }
+}
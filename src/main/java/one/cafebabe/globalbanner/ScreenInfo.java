@@ -0,0 +1,214 @@
+package one.cafebabe.globalbanner;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.util.Objects;
+
+/**
+ * Immutable description of a single screen, captured when the screen topology
+ * was last probed so it can be read from any thread without native calls.
+ */
+public final class ScreenInfo {
+    /**
+     * Index of the screen in the topology
+     */
+    private final int index;
+
+    /**
+     * Identifier of the screen device
+     */
+    private final String id;
+
+    /**
+     * The screen device, or null for screens that do not belong to the local graphics environment
+     */
+    private final GraphicsDevice device;
+
+    /**
+     * Bounds of the screen in virtual desktop coordinates
+     */
+    private final int x, y, width, height;
+
+    /**
+     * Insets of the screen reserved by task bars and docks
+     */
+    private final int insetTop, insetLeft, insetBottom, insetRight;
+
+    /**
+     * Scale factors from user space to device pixels
+     */
+    private final double scaleX, scaleY;
+
+    /**
+     * Display mode of the screen
+     */
+    private final DisplayMode displayMode;
+
+    /**
+     * Creates a new ScreenInfo.
+     *
+     * @param index the index of the screen in the topology
+     * @param id the identifier of the screen device
+     * @param device the screen device, may be null
+     * @param bounds the bounds of the screen
+     * @param insets the insets of the screen
+     * @param scaleX the horizontal scale factor
+     * @param scaleY the vertical scale factor
+     * @param displayMode the display mode of the screen
+     */
+    public ScreenInfo(int index, String id, GraphicsDevice device, Rectangle bounds, Insets insets,
+                      double scaleX, double scaleY, DisplayMode displayMode) {
+        this.index = index;
+        this.id = id;
+        this.device = device;
+        this.x = bounds.x;
+        this.y = bounds.y;
+        this.width = bounds.width;
+        this.height = bounds.height;
+        this.insetTop = insets.top;
+        this.insetLeft = insets.left;
+        this.insetBottom = insets.bottom;
+        this.insetRight = insets.right;
+        this.scaleX = scaleX;
+        this.scaleY = scaleY;
+        this.displayMode = displayMode;
+    }
+
+    /**
+     * Probes the specified screen device. This queries the native windowing system.
+     *
+     * @param index the index of the screen in the topology
+     * @param device the screen device to probe
+     * @return the description of the screen
+     */
+    public static ScreenInfo probe(int index, GraphicsDevice device) {
+        GraphicsConfiguration gc = device.getDefaultConfiguration();
+        AffineTransform transform = gc.getDefaultTransform();
+        return new ScreenInfo(index, device.getIDstring(), device, gc.getBounds(),
+                Toolkit.getDefaultToolkit().getScreenInsets(gc),
+                transform.getScaleX(), transform.getScaleY(), device.getDisplayMode());
+    }
+
+    /**
+     * Checks whether this screen has the same identity and geometry as another one.
+     *
+     * @param other the screen to compare with
+     * @return true if both screens have the same layout
+     */
+    public boolean hasSameLayout(ScreenInfo other) {
+        return index == other.index && id.equals(other.id)
+                && x == other.x && y == other.y && width == other.width && height == other.height
+                && insetTop == other.insetTop && insetLeft == other.insetLeft
+                && insetBottom == other.insetBottom && insetRight == other.insetRight
+                && scaleX == other.scaleX && scaleY == other.scaleY
+                && Objects.equals(displayMode, other.displayMode);
+    }
+
+    /**
+     * Gets the index of the screen in the topology.
+     *
+     * @return the index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets the identifier of the screen device.
+     *
+     * @return the identifier
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the screen device.
+     *
+     * @return the screen device, or null if the screen is not backed by one
+     */
+    public GraphicsDevice getDevice() {
+        return device;
+    }
+
+    /**
+     * Gets the X coordinate of the screen in virtual desktop coordinates.
+     *
+     * @return the X coordinate
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Gets the Y coordinate of the screen in virtual desktop coordinates.
+     *
+     * @return the Y coordinate
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Gets the width of the screen.
+     *
+     * @return the width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the height of the screen.
+     *
+     * @return the height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets a copy of the bounds of the screen.
+     *
+     * @return the bounds
+     */
+    public Rectangle getBounds() {
+        return new Rectangle(x, y, width, height);
+    }
+
+    /**
+     * Gets a copy of the insets of the screen.
+     *
+     * @return the insets
+     */
+    public Insets getInsets() {
+        return new Insets(insetTop, insetLeft, insetBottom, insetRight);
+    }
+
+    /**
+     * Gets the horizontal scale factor from user space to device pixels.
+     *
+     * @return the horizontal scale factor
+     */
+    public double getScaleX() {
+        return scaleX;
+    }
+
+    /**
+     * Gets the vertical scale factor from user space to device pixels.
+     *
+     * @return the vertical scale factor
+     */
+    public double getScaleY() {
+        return scaleY;
+    }
+
+    /**
+     * Gets the display mode of the screen.
+     *
+     * @return the display mode
+     */
+    public DisplayMode getDisplayMode() {
+        return displayMode;
+    }
+}
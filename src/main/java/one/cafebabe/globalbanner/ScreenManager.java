@@ -1,38 +1,279 @@
 package one.cafebabe.globalbanner;
 
+import javax.swing.*;
 import java.awt.*;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Manages screen detection and selection for the Global Banner application.
+ * Screen properties are kept in an immutable {@link ScreenTopology} snapshot that
+ * can be read from any thread and is only replaced when the displays change.
  */
 public class ScreenManager {
     /**
-     * List of all available screens
+     * Default interval in milliseconds between checks for display changes
      */
-    private final List<GraphicsDevice> availableScreens = new ArrayList<>();
+    private static final long DEFAULT_DISPLAY_POLL_INTERVAL = 2000;
+
+    /**
+     * Listener notified on the Event Dispatch Thread when the screens change.
+     */
+    public interface Listener {
+        /**
+         * Called after a new screen topology has been published.
+         *
+         * @param topology the new topology
+         */
+        void topologyChanged(ScreenTopology topology);
+
+        /**
+         * Called after another screen has been selected.
+         *
+         * @param screen the newly selected screen
+         */
+        default void currentScreenChanged(ScreenInfo screen) {
+        }
+    }
+
+    /**
+     * Current snapshot of all available screens
+     */
+    private volatile ScreenTopology topology = ScreenTopology.EMPTY;
 
     /**
      * Currently selected screen
      */
     private GraphicsDevice currentScreen = null;
 
+    /**
+     * Snapshot of the currently selected screen
+     */
+    private volatile ScreenInfo currentScreenInfo = null;
+
+    /**
+     * Whether the topology only holds a screen restored from an earlier run, to be
+     * replaced by the next published topology
+     */
+    private volatile boolean provisional = false;
+
+    /**
+     * Listeners notified when the screens change
+     */
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Background thread probing the screens, created on first use
+     */
+    private ScheduledExecutorService displayWatcher = null;
+
+    /**
+     * Periodic check for display changes, if started
+     */
+    private ScheduledFuture<?> displayPoll = null;
+
+    /**
+     * Whether a probe requested with {@link #requestRefresh()} has not run yet
+     */
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+
+    /**
+     * Number of times the screens have been probed for changes
+     */
+    private final AtomicLong probeCount = new AtomicLong();
+
     /**
      * Detects all available screens in the system.
      */
     public void detectAvailableScreens() {
-        availableScreens.clear();
+        publishDetectedScreens(ScreenTopology.probe());
+    }
+
+    /**
+     * Publishes screens detected off the Event Dispatch Thread with {@link ScreenTopology#probe()}.
+     *
+     * @param screens the detected screens
+     */
+    public void publishDetectedScreens(List<ScreenInfo> screens) {
+        publishTopology(screens);
+
+        for (ScreenInfo screen : topology.getScreens()) {
+            System.out.println("Detected screen: " + screen.getId());
+        }
+
+        System.out.println("Total screens detected: " + topology.size());
+    }
+
+    /**
+     * Probes the screens again and publishes a new topology if anything has changed.
+     * May be called from any thread; the new topology is published on the Event Dispatch Thread.
+     * The probe is a native query, so prefer {@link #requestRefresh()} on the Event Dispatch Thread.
+     */
+    public void refreshTopology() {
+        probeCount.incrementAndGet();
+        List<ScreenInfo> screens = ScreenTopology.probe();
+        if (screens.isEmpty() || (!provisional && topology.hasSameLayout(screens))) {
+            // No screens at all, e.g. headless, leaves the last known screens in place
+            return;
+        }
+
+        if (SwingUtilities.isEventDispatchThread()) {
+            publishTopology(screens);
+        } else {
+            SwingUtilities.invokeLater(() -> publishTopology(screens));
+        }
+    }
+
+    /**
+     * Publishes the specified screens as a new topology, unless they match the current one.
+     * The selected screen is carried over, or the default screen is selected if it is gone.
+     *
+     * @param screens the screens to publish
+     * @return true if a new topology was published
+     */
+    boolean publishTopology(List<ScreenInfo> screens) {
+        ScreenTopology current = topology;
+        if (current.getVersion() > 0 && !provisional && current.hasSameLayout(screens)) {
+            return false;
+        }
 
-        GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
-        GraphicsDevice[] screens = ge.getScreenDevices();
+        topology = new ScreenTopology(current.getVersion() + 1, screens);
+        provisional = false;
 
-        for (GraphicsDevice screen : screens) {
-            availableScreens.add(screen);
-            System.out.println("Detected screen: " + screen.getIDstring());
+        if (currentScreenInfo != null) {
+            ScreenInfo selected = topology.find(currentScreenInfo.getId());
+            if (selected != null) {
+                currentScreenInfo = selected;
+                currentScreen = selected.getDevice();
+            } else {
+                System.out.println("Selected screen disconnected: " + currentScreenInfo.getId());
+                selectDefaultScreen();
+            }
         }
 
-        System.out.println("Total screens detected: " + availableScreens.size());
+        for (Listener listener : listeners) {
+            listener.topologyChanged(topology);
+        }
+        return true;
+    }
+
+    /**
+     * Publishes a screen remembered from an earlier run as the only screen and selects it,
+     * so a banner can be placed before the screens have been probed. The next published
+     * topology replaces it, carrying the selection over if the screen is still there and
+     * selecting the default screen otherwise.
+     *
+     * @param screen the remembered screen, without its device
+     */
+    public void restoreScreen(ScreenInfo screen) {
+        topology = new ScreenTopology(topology.getVersion() + 1, List.of(screen));
+        provisional = true;
+        currentScreenInfo = screen;
+        currentScreen = null;
+        System.out.println("Restored screen: " + screen.getId());
+
+        for (Listener listener : listeners) {
+            listener.topologyChanged(topology);
+        }
+        fireCurrentScreenChanged();
+    }
+
+    /**
+     * Checks whether the topology only holds a screen restored from an earlier run.
+     *
+     * @return true until the probed screens have been published
+     */
+    public boolean isProvisional() {
+        return provisional;
+    }
+
+    /**
+     * Probes the screens again on the display watcher thread, e.g. when a screen menu opens
+     * or a window moved to another device, and publishes a new topology on the Event Dispatch
+     * Thread if anything has changed. Requests made while a probe is pending share it.
+     * May be called from any thread.
+     */
+    public void requestRefresh() {
+        if (refreshQueued.compareAndSet(false, true)) {
+            watcherThread().execute(() -> {
+                refreshQueued.set(false);
+                refreshTopology();
+            });
+        }
+    }
+
+    /**
+     * Starts checking for display changes such as hot-plugged monitors or resolution changes.
+     * The check interval is read from the system property {@code globalbanner.displayPollMillis};
+     * a value of zero or less disables the check.
+     */
+    public void startDisplayWatcher() {
+        startDisplayWatcher(Long.getLong("globalbanner.displayPollMillis", DEFAULT_DISPLAY_POLL_INTERVAL));
+    }
+
+    /**
+     * Starts checking for display changes at the specified interval. The screens are probed
+     * on a background thread, which only wakes the Event Dispatch Thread when they have
+     * changed, so a banner at rest neither ticks nor paints.
+     *
+     * @param interval the interval in milliseconds, or zero or less to disable the check
+     */
+    synchronized void startDisplayWatcher(long interval) {
+        if (interval <= 0 || displayPoll != null) {
+            return;
+        }
+
+        displayPoll = watcherThread().scheduleWithFixedDelay(() -> {
+            BannerMetrics metrics = BannerMetrics.get();
+            if (metrics != null) {
+                metrics.recordWakeup();
+            }
+            refreshTopology();
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets the background thread probing the screens, starting it if needed.
+     *
+     * @return the display watcher executor
+     */
+    private synchronized ScheduledExecutorService watcherThread() {
+        if (displayWatcher == null) {
+            displayWatcher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "display-watcher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return displayWatcher;
+    }
+
+    /**
+     * Gets the number of times the screens have been probed for changes, by the display
+     * watcher or on notice.
+     *
+     * @return the probe count
+     */
+    public long getProbeCount() {
+        return probeCount.get();
+    }
+
+    /**
+     * Stops checking for display changes.
+     */
+    public synchronized void stopDisplayWatcher() {
+        if (displayWatcher != null) {
+            displayWatcher.shutdownNow();
+            displayWatcher = null;
+            displayPoll = null;
+            refreshQueued.set(false);
+        }
     }
 
     /**
@@ -41,47 +282,107 @@ public class ScreenManager {
      * If multiple screens are available, it selects the second screen.
      */
     public void selectDefaultScreen() {
-        if (availableScreens.isEmpty()) {
+        ScreenTopology screens = topology;
+        if (screens.size() == 0) {
             System.err.println("No screens detected. Using default screen.");
             currentScreen = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice();
-        } else if (availableScreens.size() == 1) {
+            currentScreenInfo = ScreenInfo.probe(0, currentScreen);
+        } else if (screens.size() == 1) {
             System.out.println("Only one screen available. Using it.");
-            currentScreen = availableScreens.getFirst();
+            currentScreenInfo = screens.get(0);
+            currentScreen = currentScreenInfo.getDevice();
         } else {
             System.out.println("Multiple screens available. Using the second screen.");
-            currentScreen = availableScreens.get(1); // Use the second screen (index 1)
+            currentScreenInfo = screens.get(1); // Use the second screen (index 1)
+            currentScreen = currentScreenInfo.getDevice();
         }
 
-        System.out.println("Selected screen: " + currentScreen.getIDstring());
+        System.out.println("Selected screen: " + currentScreenInfo.getId());
+        fireCurrentScreenChanged();
     }
 
     /**
      * Gets the currently selected screen.
-     * 
+     *
      * @return the currently selected screen
      */
     public GraphicsDevice getCurrentScreen() {
         return currentScreen;
     }
 
+    /**
+     * Gets the snapshot of the currently selected screen.
+     *
+     * @return the currently selected screen, or null if none is selected
+     */
+    public ScreenInfo getCurrentScreenInfo() {
+        return currentScreenInfo;
+    }
+
     /**
      * Sets the current screen to the specified screen.
-     * 
+     *
      * @param screenIndex the index of the screen to select
      */
     public void setCurrentScreen(int screenIndex) {
-        if (screenIndex >= 0 && screenIndex < availableScreens.size()) {
-            currentScreen = availableScreens.get(screenIndex);
-            System.out.println("Switched to screen: " + currentScreen.getIDstring());
+        ScreenTopology screens = topology;
+        if (screenIndex >= 0 && screenIndex < screens.size()) {
+            BannerEvents.ScreenSwitchEvent event = new BannerEvents.ScreenSwitchEvent();
+            event.begin();
+            event.fromScreen = currentScreenInfo != null ? currentScreenInfo.getId() : null;
+
+            currentScreenInfo = screens.get(screenIndex);
+            currentScreen = currentScreenInfo.getDevice();
+            System.out.println("Switched to screen: " + currentScreenInfo.getId());
+            fireCurrentScreenChanged();
+
+            event.toScreen = currentScreenInfo.getId();
+            event.commit();
+        }
+    }
+
+    /**
+     * Notifies all listeners that another screen has been selected.
+     */
+    private void fireCurrentScreenChanged() {
+        for (Listener listener : listeners) {
+            listener.currentScreenChanged(currentScreenInfo);
         }
     }
 
     /**
      * Gets the list of all available screens.
-     * 
+     *
      * @return the list of available screens
      */
     public List<GraphicsDevice> getAvailableScreens() {
-        return availableScreens;
+        return topology.getScreens().stream().map(ScreenInfo::getDevice).toList();
+    }
+
+    /**
+     * Gets the current snapshot of all available screens.
+     *
+     * @return the current screen topology
+     */
+    public ScreenTopology getTopology() {
+        return topology;
+    }
+
+    /**
+     * Adds a listener notified when the screens change.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with {@link #addListener(Listener)}.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
     }
-}
\ No newline at end of file
+}
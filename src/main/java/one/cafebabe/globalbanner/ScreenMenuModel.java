@@ -0,0 +1,231 @@
+package one.cafebabe.globalbanner;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Observable model of the screen selection menus, keyed by screen.
+ * Labels are computed once per topology change, so switching screens only
+ * flips the selection of two entries.
+ * All methods must be called on the Event Dispatch Thread.
+ */
+public class ScreenMenuModel {
+    /**
+     * A single screen in the menu.
+     */
+    public static final class Entry {
+        /**
+         * Identifier of the screen device
+         */
+        private final String id;
+
+        /**
+         * Index of the screen in the topology
+         */
+        private final int index;
+
+        /**
+         * Label shown when the screen is not selected
+         */
+        private final String label;
+
+        /**
+         * Label shown when the screen is selected
+         */
+        private final String selectedLabel;
+
+        /**
+         * Creates a new Entry for the specified screen.
+         *
+         * @param screen the screen to describe
+         */
+        Entry(ScreenInfo screen) {
+            DisplayMode displayMode = screen.getDisplayMode();
+            this.id = screen.getId();
+            this.index = screen.getIndex();
+            this.label = "Screen " + (index + 1) + " (" + displayMode.getWidth() + " x " + displayMode.getHeight() + ")";
+            // Add asterisk to indicate currently selected screen
+            this.selectedLabel = label + " *";
+        }
+
+        /**
+         * Gets the identifier of the screen device.
+         *
+         * @return the identifier
+         */
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * Gets the index of the screen in the topology.
+         *
+         * @return the index
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Gets the label for the specified selection state.
+         *
+         * @param selected whether the screen is selected
+         * @return the label
+         */
+        public String getLabel(boolean selected) {
+            return selected ? selectedLabel : label;
+        }
+    }
+
+    /**
+     * Listener notified when the menu model changes.
+     */
+    public interface Listener {
+        /**
+         * Called when screens were added, removed or reconfigured.
+         *
+         * @param entries the new entries, in menu order
+         */
+        void entriesChanged(List<Entry> entries);
+
+        /**
+         * Called when another screen was selected.
+         *
+         * @param previous the previously selected entry, or null
+         * @param selected the newly selected entry, or null
+         */
+        void selectionChanged(Entry previous, Entry selected);
+    }
+
+    /**
+     * Screen manager providing the screens and the selection
+     */
+    private final ScreenManager screenManager;
+
+    /**
+     * Entries in menu order
+     */
+    private List<Entry> entries = List.of();
+
+    /**
+     * Currently selected entry
+     */
+    private Entry selected = null;
+
+    /**
+     * Listeners notified when the model changes
+     */
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates a new ScreenMenuModel following the specified screen manager.
+     *
+     * @param screenManager the screen manager to follow
+     */
+    public ScreenMenuModel(ScreenManager screenManager) {
+        this.screenManager = screenManager;
+
+        screenManager.addListener(new ScreenManager.Listener() {
+            @Override
+            public void topologyChanged(ScreenTopology topology) {
+                updateEntries(topology);
+            }
+
+            @Override
+            public void currentScreenChanged(ScreenInfo screen) {
+                updateSelection(screen);
+            }
+        });
+        updateEntries(screenManager.getTopology());
+    }
+
+    /**
+     * Rebuilds the entries from the specified topology.
+     *
+     * @param topology the screen topology
+     */
+    private void updateEntries(ScreenTopology topology) {
+        List<Entry> newEntries = new ArrayList<>(topology.size());
+        for (ScreenInfo screen : topology.getScreens()) {
+            newEntries.add(new Entry(screen));
+        }
+        entries = List.copyOf(newEntries);
+        selected = null;
+
+        for (Listener listener : listeners) {
+            listener.entriesChanged(entries);
+        }
+        updateSelection(screenManager.getCurrentScreenInfo());
+    }
+
+    /**
+     * Selects the entry of the specified screen.
+     *
+     * @param screen the selected screen, may be null
+     */
+    private void updateSelection(ScreenInfo screen) {
+        Entry entry = screen == null ? null : find(screen.getId());
+        if (entry == selected) {
+            return;
+        }
+
+        Entry previous = selected;
+        selected = entry;
+        for (Listener listener : listeners) {
+            listener.selectionChanged(previous, selected);
+        }
+    }
+
+    /**
+     * Finds the entry of the specified screen.
+     *
+     * @param id the identifier of the screen device
+     * @return the entry, or null if there is none
+     */
+    public Entry find(String id) {
+        for (Entry entry : entries) {
+            if (entry.getId().equals(id)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the entries in menu order.
+     *
+     * @return an unmodifiable list of entries
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Gets the currently selected entry.
+     *
+     * @return the selected entry, or null
+     */
+    public Entry getSelected() {
+        return selected;
+    }
+
+    /**
+     * Adds a listener notified when the model changes.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with {@link #addListener(Listener)}.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+}
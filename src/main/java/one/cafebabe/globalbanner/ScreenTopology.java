@@ -0,0 +1,156 @@
+package one.cafebabe.globalbanner;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable, versioned snapshot of all screens.
+ * A new snapshot is published whenever the display configuration changes.
+ */
+public final class ScreenTopology {
+    /**
+     * Topology before any screen has been detected
+     */
+    public static final ScreenTopology EMPTY = new ScreenTopology(0, List.of());
+
+    /**
+     * Version of the snapshot, incremented on every change
+     */
+    private final long version;
+
+    /**
+     * Screens in the order reported by the graphics environment
+     */
+    private final List<ScreenInfo> screens;
+
+    /**
+     * Creates a new ScreenTopology.
+     *
+     * @param version the version of the snapshot
+     * @param screens the screens in this snapshot
+     */
+    public ScreenTopology(long version, List<ScreenInfo> screens) {
+        this.version = version;
+        this.screens = List.copyOf(screens);
+    }
+
+    /**
+     * Probes all screens of the local graphics environment.
+     * This queries the native windowing system and may be called from any thread.
+     *
+     * @return the screens, or an empty list if there is no display
+     */
+    public static List<ScreenInfo> probe() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return List.of();
+        }
+
+        GraphicsDevice[] devices = GraphicsEnvironment.getLocalGraphicsEnvironment().getScreenDevices();
+        List<ScreenInfo> screens = new ArrayList<>(devices.length);
+        for (int i = 0; i < devices.length; i++) {
+            screens.add(ScreenInfo.probe(i, devices[i]));
+        }
+        return screens;
+    }
+
+    /**
+     * Checks whether the specified screens have the same layout as this snapshot.
+     *
+     * @param other the screens to compare with
+     * @return true if nothing has changed
+     */
+    public boolean hasSameLayout(List<ScreenInfo> other) {
+        if (screens.size() != other.size()) {
+            return false;
+        }
+        for (int i = 0; i < screens.size(); i++) {
+            if (!screens.get(i).hasSameLayout(other.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the highest refresh rate of all screens.
+     *
+     * @return the refresh rate in Hz, or {@link DisplayMode#REFRESH_RATE_UNKNOWN} if no screen reports one
+     */
+    public int getMaxRefreshRate() {
+        int refreshRate = DisplayMode.REFRESH_RATE_UNKNOWN;
+        for (ScreenInfo screen : screens) {
+            refreshRate = Math.max(refreshRate, screen.getDisplayMode().getRefreshRate());
+        }
+        return refreshRate;
+    }
+
+    /**
+     * Finds the screen with the specified identifier.
+     *
+     * @param id the identifier of the screen device
+     * @return the screen, or null if it is not part of this snapshot
+     */
+    public ScreenInfo find(String id) {
+        for (ScreenInfo screen : screens) {
+            if (screen.getId().equals(id)) {
+                return screen;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the screen containing the specified point.
+     *
+     * @param x the X coordinate in the virtual desktop
+     * @param y the Y coordinate in the virtual desktop
+     * @return the screen, or null if the point is on no screen
+     */
+    public ScreenInfo findAt(int x, int y) {
+        for (ScreenInfo screen : screens) {
+            if (x >= screen.getX() && x < screen.getX() + screen.getWidth()
+                    && y >= screen.getY() && y < screen.getY() + screen.getHeight()) {
+                return screen;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the version of this snapshot.
+     *
+     * @return the version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets all screens of this snapshot.
+     *
+     * @return an unmodifiable list of screens
+     */
+    public List<ScreenInfo> getScreens() {
+        return screens;
+    }
+
+    /**
+     * Gets the screen at the specified index.
+     *
+     * @param index the index of the screen
+     * @return the screen
+     */
+    public ScreenInfo get(int index) {
+        return screens.get(index);
+    }
+
+    /**
+     * Gets the number of screens in this snapshot.
+     *
+     * @return the number of screens
+     */
+    public int size() {
+        return screens.size();
+    }
+}
@@ -0,0 +1,187 @@
+package one.cafebabe.globalbanner;
+
+/**
+ * Moves a point towards a target like a critically damped spring, the fastest
+ * motion that arrives without overshooting. The target can change at any time and
+ * the motion keeps its velocity, so a retargeted window curves smoothly towards the
+ * new target instead of stopping and starting again. Each step is evaluated in closed
+ * form, so the path does not depend on the frame rate, and without allocating.
+ * Once close enough and slow enough, the point settles exactly on the integer target.
+ */
+public class SpringMotion {
+    /**
+     * Distance in pixels from the target within which the point may settle
+     */
+    static final double SETTLE_DISTANCE = 0.5;
+
+    /**
+     * Speed in pixels per second below which the point may settle
+     */
+    static final double SETTLE_SPEED = 20;
+
+    /**
+     * Angular frequency of the spring in radians per second; higher is faster
+     */
+    private final double frequency;
+
+    /**
+     * Current position
+     */
+    private double x, y;
+
+    /**
+     * Current velocity in pixels per second
+     */
+    private double velocityX, velocityY;
+
+    /**
+     * Position the point moves towards
+     */
+    private int targetX, targetY;
+
+    /**
+     * Whether the point rests on the target
+     */
+    private boolean settled = true;
+
+    /**
+     * Creates a new SpringMotion resting at the origin.
+     *
+     * @param frequency the angular frequency of the spring in radians per second
+     */
+    public SpringMotion(double frequency) {
+        this.frequency = frequency;
+    }
+
+    /**
+     * Puts the point to rest at a position, which becomes its target.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     */
+    public void reset(int x, int y) {
+        this.x = targetX = x;
+        this.y = targetY = y;
+        velocityX = velocityY = 0;
+        settled = true;
+    }
+
+    /**
+     * Sets the position the point moves towards, keeping its current velocity.
+     *
+     * @param x the X coordinate of the target
+     * @param y the Y coordinate of the target
+     */
+    public void setTarget(int x, int y) {
+        targetX = x;
+        targetY = y;
+        settled = this.x == x && this.y == y && velocityX == 0 && velocityY == 0;
+    }
+
+    /**
+     * Adds momentum to the point, e.g. from a movement the spring takes over.
+     *
+     * @param velocityX the horizontal velocity to add, in pixels per second
+     * @param velocityY the vertical velocity to add, in pixels per second
+     */
+    public void addVelocity(double velocityX, double velocityY) {
+        this.velocityX += velocityX;
+        this.velocityY += velocityY;
+        settled = settled && velocityX == 0 && velocityY == 0;
+    }
+
+    /**
+     * Advances the motion by the elapsed time.
+     *
+     * @param elapsed the elapsed time in nanoseconds
+     * @return true if the point is still moving
+     */
+    public boolean advance(long elapsed) {
+        if (settled || elapsed <= 0) {
+            return !settled;
+        }
+
+        // Exact solution of the critically damped spring: d(t) = (d + (v + w d) t) e^(-w t)
+        double t = elapsed / 1e9;
+        double decay = Math.exp(-frequency * t);
+
+        double dx = x - targetX;
+        double impulseX = velocityX + frequency * dx;
+        x = targetX + (dx + impulseX * t) * decay;
+        velocityX = (velocityX - frequency * impulseX * t) * decay;
+
+        double dy = y - targetY;
+        double impulseY = velocityY + frequency * dy;
+        y = targetY + (dy + impulseY * t) * decay;
+        velocityY = (velocityY - frequency * impulseY * t) * decay;
+
+        if (Math.abs(x - targetX) < SETTLE_DISTANCE && Math.abs(y - targetY) < SETTLE_DISTANCE
+                && Math.abs(velocityX) < SETTLE_SPEED && Math.abs(velocityY) < SETTLE_SPEED) {
+            reset(targetX, targetY);
+        }
+        return !settled;
+    }
+
+    /**
+     * Gets the X coordinate of the point rounded to whole pixels.
+     *
+     * @return the X coordinate, exactly the target once settled
+     */
+    public int getX() {
+        return (int) Math.round(x);
+    }
+
+    /**
+     * Gets the Y coordinate of the point rounded to whole pixels.
+     *
+     * @return the Y coordinate, exactly the target once settled
+     */
+    public int getY() {
+        return (int) Math.round(y);
+    }
+
+    /**
+     * Gets the horizontal velocity of the point.
+     *
+     * @return the velocity in pixels per second
+     */
+    public double getVelocityX() {
+        return velocityX;
+    }
+
+    /**
+     * Gets the vertical velocity of the point.
+     *
+     * @return the velocity in pixels per second
+     */
+    public double getVelocityY() {
+        return velocityY;
+    }
+
+    /**
+     * Gets the X coordinate of the target.
+     *
+     * @return the X coordinate
+     */
+    public int getTargetX() {
+        return targetX;
+    }
+
+    /**
+     * Gets the Y coordinate of the target.
+     *
+     * @return the Y coordinate
+     */
+    public int getTargetY() {
+        return targetY;
+    }
+
+    /**
+     * Checks whether the point rests on its target.
+     *
+     * @return true if the point has settled
+     */
+    public boolean isSettled() {
+        return settled;
+    }
+}
@@ -0,0 +1,128 @@
+package one.cafebabe.globalbanner;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Frames cut from a horizontal sprite sheet strip of equally wide frames.
+ * Frames are views into the sheet, so decoding one costs no copy.
+ */
+public class SpriteSheetFrameSource implements FrameSource {
+    /**
+     * The sheet holding all frames side by side
+     */
+    private final BufferedImage sheet;
+
+    /**
+     * Number of frames in the sheet
+     */
+    private final int frameCount;
+
+    /**
+     * Width of a single frame
+     */
+    private final int frameWidth;
+
+    /**
+     * How long each frame is shown, in nanoseconds
+     */
+    private final long frameDuration;
+
+    /**
+     * Regions changed by each frame, computed on first use
+     */
+    private final Rectangle[] changedRegions;
+
+    /**
+     * Creates a new SpriteSheetFrameSource.
+     *
+     * @param sheet the sheet holding all frames side by side
+     * @param frameCount the number of frames in the sheet
+     * @param frameDuration how long each frame is shown, in nanoseconds
+     */
+    public SpriteSheetFrameSource(BufferedImage sheet, int frameCount, long frameDuration) {
+        if (frameCount < 1 || sheet.getWidth() % frameCount != 0) {
+            throw new IllegalArgumentException("Sheet width " + sheet.getWidth()
+                    + " is not a multiple of " + frameCount + " frames");
+        }
+        this.sheet = sheet;
+        this.frameCount = frameCount;
+        this.frameWidth = sheet.getWidth() / frameCount;
+        this.frameDuration = frameDuration;
+        this.changedRegions = new Rectangle[frameCount];
+    }
+
+    @Override
+    public int getWidth() {
+        return frameWidth;
+    }
+
+    @Override
+    public int getHeight() {
+        return sheet.getHeight();
+    }
+
+    @Override
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    @Override
+    public long getFrameDuration(int index) {
+        return frameDuration;
+    }
+
+    @Override
+    public long getDecodedBytes() {
+        return 4L * sheet.getWidth() * sheet.getHeight();
+    }
+
+    @Override
+    public Rectangle getChangedRegion(int index) {
+        if (changedRegions[index] == null) {
+            changedRegions[index] = diff((index + frameCount - 1) % frameCount, index);
+        }
+        return new Rectangle(changedRegions[index]);
+    }
+
+    @Override
+    public BufferedImage decodeFrame(int index) {
+        return frameCount == 1 ? sheet : sheet.getSubimage(index * frameWidth, 0, frameWidth, sheet.getHeight());
+    }
+
+    /**
+     * Computes the bounding box of the pixels that differ between two frames.
+     *
+     * @param from the index of the earlier frame
+     * @param to the index of the later frame
+     * @return the bounding box, empty if the frames are identical
+     */
+    private Rectangle diff(int from, int to) {
+        int height = sheet.getHeight();
+        int[] fromRow = new int[frameWidth];
+        int[] toRow = new int[frameWidth];
+        int minX = frameWidth, minY = height, maxX = -1, maxY = -1;
+        for (int y = 0; y < height; y++) {
+            sheet.getRGB(from * frameWidth, y, frameWidth, 1, fromRow, 0, frameWidth);
+            sheet.getRGB(to * frameWidth, y, frameWidth, 1, toRow, 0, frameWidth);
+            for (int x = 0; x < frameWidth; x++) {
+                if (fromRow[x] != toRow[x]) {
+                    minX = Math.min(minX, x);
+                    maxX = Math.max(maxX, x);
+                    minY = Math.min(minY, y);
+                    maxY = y;
+                }
+            }
+        }
+        return maxX < 0 ? new Rectangle() : new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+    }
+
+    /**
+     * Gets the sheet holding all frames.
+     *
+     * @return the sheet
+     */
+    public BufferedImage getSheet() {
+        return sheet;
+    }
+}
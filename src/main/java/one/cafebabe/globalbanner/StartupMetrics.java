@@ -0,0 +1,95 @@
+package one.cafebabe.globalbanner;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Records the milestones of application startup and reports how long each took,
+ * measured from JVM start.
+ * Milestones may be recorded from any thread.
+ */
+public class StartupMetrics {
+    /**
+     * Time in nanoseconds at which main was entered
+     */
+    private final long mainStarted;
+
+    /**
+     * Times in nanoseconds at which the milestones were reached, or 0
+     */
+    private volatile long screensDetected, imageDecoded, firstPaint;
+
+    /**
+     * Creates a new StartupMetrics, marking the entry into main.
+     */
+    public StartupMetrics() {
+        this.mainStarted = System.nanoTime();
+    }
+
+    /**
+     * Marks that all screens have been detected.
+     */
+    public void screensDetected() {
+        screensDetected = System.nanoTime();
+    }
+
+    /**
+     * Marks that the banner image has been decoded.
+     */
+    public void imageDecoded() {
+        imageDecoded = System.nanoTime();
+    }
+
+    /**
+     * Marks that the banner has been painted for the first time and prints the report.
+     * Only the first call has an effect.
+     */
+    public void firstPaint() {
+        if (firstPaint != 0) {
+            return;
+        }
+        firstPaint = System.nanoTime();
+        System.out.println(getReport());
+    }
+
+    /**
+     * Builds a report of the milestones reached so far.
+     * Queried at report time so management classes are not loaded during startup.
+     *
+     * @return the report
+     */
+    public String getReport() {
+        long now = System.nanoTime();
+        long jvmStarted = now - ManagementFactory.getRuntimeMXBean().getUptime() * 1_000_000L;
+
+        StringBuilder report = new StringBuilder("Startup: JVM start");
+        appendMilestone(report, "main", jvmStarted, mainStarted);
+        appendMilestone(report, "screens detected", jvmStarted, screensDetected);
+        appendMilestone(report, "image decoded", jvmStarted, imageDecoded);
+        appendMilestone(report, "first paint", jvmStarted, firstPaint);
+        return report.toString();
+    }
+
+    /**
+     * Appends a milestone to the report if it has been reached.
+     *
+     * @param report the report to append to
+     * @param name the name of the milestone
+     * @param jvmStarted the time in nanoseconds at which the JVM started
+     * @param reached the time in nanoseconds at which the milestone was reached, or 0
+     */
+    private static void appendMilestone(StringBuilder report, String name, long jvmStarted, long reached) {
+        if (reached != 0) {
+            report.append(" -> ").append(name).append(' ')
+                    .append((reached - jvmStarted) / 1_000_000L).append(" ms");
+        }
+    }
+
+    /**
+     * Gets the time from entering main to the first paint.
+     *
+     * @return the time in nanoseconds, or -1 if the banner has not been painted yet
+     */
+    public long getTimeToFirstPaint() {
+        return firstPaint == 0 ? -1 : firstPaint - mainStarted;
+    }
+}
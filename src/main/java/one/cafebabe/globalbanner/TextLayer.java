@@ -0,0 +1,169 @@
+package one.cafebabe.globalbanner;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineMetrics;
+
+/**
+ * A line of live text on top of the banner, e.g. a clock or a counter. When the text
+ * changes, only the span of characters that differ is rendered again, so a clock ticking
+ * from one second to the next touches a single digit instead of the whole banner.
+ * The text is left-aligned and cut off at the width of the layer.
+ */
+public class TextLayer extends BannerLayer {
+    /**
+     * Space around the text in pixels
+     */
+    private static final int PADDING = 4;
+
+    /**
+     * Render context text is measured and drawn with. Fractional metrics keep glyph positions
+     * proportional at every scale factor, so spans measured in user space match the pixels.
+     */
+    private static final FontRenderContext FRC = new FontRenderContext(null, true, true);
+
+    /**
+     * Font of the text
+     */
+    private final Font font;
+
+    /**
+     * Color of the text
+     */
+    private final Color foreground;
+
+    /**
+     * Color behind the text, or null for none
+     */
+    private final Color background;
+
+    /**
+     * Baseline of the text from the top of the layer
+     */
+    private final int baseline;
+
+    /**
+     * Pixels glyphs may reach beyond their advance, e.g. the overhang of italic letters
+     */
+    private final int overhang;
+
+    /**
+     * Text shown
+     */
+    private String text = "";
+
+    /**
+     * Creates a new TextLayer without text, as tall as the font.
+     *
+     * @param font the font of the text
+     * @param foreground the color of the text
+     * @param background the color behind the text, or null for none
+     * @param x the X coordinate of the layer in the banner
+     * @param y the Y coordinate of the layer in the banner
+     * @param width the width of the layer
+     */
+    public TextLayer(Font font, Color foreground, Color background, int x, int y, int width) {
+        super(x, y, width, heightOf(font));
+        this.font = font;
+        this.foreground = foreground;
+        this.background = background;
+        LineMetrics metrics = font.getLineMetrics("Xg", FRC);
+        this.baseline = PADDING + (int) Math.ceil(metrics.getAscent());
+        this.overhang = Math.max(1, font.getSize() / 8);
+    }
+
+    /**
+     * Computes the height of a layer fitted to a font.
+     *
+     * @param font the font
+     * @return the height in pixels
+     */
+    private static int heightOf(Font font) {
+        LineMetrics metrics = font.getLineMetrics("Xg", FRC);
+        return (int) Math.ceil(metrics.getAscent()) + (int) Math.ceil(metrics.getDescent()) + 2 * PADDING;
+    }
+
+    /**
+     * Computes the width of a layer fitting a text.
+     *
+     * @param font the font of the text
+     * @param text the text
+     * @return the width in pixels
+     */
+    public static int fittingWidth(Font font, String text) {
+        return (int) Math.ceil(font.getStringBounds(text, FRC).getWidth()) + 2 * PADDING;
+    }
+
+    /**
+     * Changes the text, marking only the span of characters that differ as changed.
+     *
+     * @param text the new text
+     */
+    public void setText(String text) {
+        String oldText = this.text;
+        if (oldText.equals(text)) {
+            return;
+        }
+        this.text = text;
+
+        // Characters before the first difference keep their pixels
+        int common = Math.min(oldText.length(), text.length());
+        int prefix = 0;
+        while (prefix < common && oldText.charAt(prefix) == text.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < common - prefix
+                && oldText.charAt(oldText.length() - 1 - suffix) == text.charAt(text.length() - 1 - suffix)) {
+            suffix++;
+        }
+
+        // Characters after the last difference keep their pixels only if they have not moved
+        int oldEnd = advance(oldText, oldText.length() - suffix);
+        int newEnd = advance(text, text.length() - suffix);
+        int end = oldEnd == newEnd ? oldEnd : Math.max(advance(oldText, oldText.length()), advance(text, text.length()));
+        int start = advance(text, prefix);
+
+        Rectangle bounds = getBounds();
+        int left = Math.max(bounds.x, bounds.x + PADDING + start - overhang);
+        int right = Math.min(bounds.x + bounds.width, bounds.x + PADDING + end + overhang);
+        if (right > left) {
+            invalidate(left, bounds.y, right - left, bounds.height);
+        }
+    }
+
+    /**
+     * Measures the advance of the first characters of a text.
+     *
+     * @param text the text
+     * @param length the number of characters
+     * @return the advance in pixels, rounded up
+     */
+    private int advance(String text, int length) {
+        return length == 0 ? 0 : (int) Math.ceil(font.getStringBounds(text, 0, length, FRC).getWidth());
+    }
+
+    @Override
+    protected void paint(Graphics2D g) {
+        Rectangle bounds = getBounds();
+        g.clipRect(bounds.x, bounds.y, bounds.width, bounds.height);
+        if (background != null) {
+            g.setColor(background);
+            g.fillRect(bounds.x, bounds.y, bounds.width, bounds.height);
+        }
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        g.setFont(font);
+        g.setColor(foreground);
+        g.drawString(text, bounds.x + PADDING, bounds.y + baseline);
+    }
+
+    /**
+     * Gets the text shown.
+     *
+     * @return the text
+     */
+    public String getText() {
+        return text;
+    }
+}
@@ -0,0 +1,526 @@
+package one.cafebabe.globalbanner;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.LineMetrics;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scrolls text messages through the banner on an animation clock, e.g. alerts or build status.
+ * The messages are laid out once into a looping tape of glyphs, and every distinct glyph is
+ * rasterized once into a glyph cache. The visible part of the tape is kept in a backbuffer:
+ * scrolling shifts the backbuffer and only draws the glyphs in the newly exposed strip, so a
+ * frame costs the same however long the messages are. The tape is laid out again only when
+ * the banner is drawn at another scale factor. Must be used on the Event Dispatch Thread.
+ */
+public class TextTicker implements AnimationClock.Animation {
+    /**
+     * Default font of the messages
+     */
+    public static final Font DEFAULT_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 24);
+
+    /**
+     * Default scroll speed in pixels per second
+     */
+    public static final double DEFAULT_SPEED = 120;
+
+    /**
+     * Color of the text
+     */
+    private static final Color FOREGROUND = Color.WHITE;
+
+    /**
+     * Color behind the text, translucent so the desktop shows through
+     */
+    private static final Color BACKGROUND = new Color(0, 0, 0, 170);
+
+    /**
+     * Space above and below the text in pixels
+     */
+    private static final int PADDING = 6;
+
+    /**
+     * Space between two messages, in multiples of the font size
+     */
+    private static final float GAP = 2;
+
+    /**
+     * Messages shown one after the other, looping
+     */
+    private final List<String> messages;
+
+    /**
+     * Font of the messages
+     */
+    private final Font font;
+
+    /**
+     * Width of the ticker in user space
+     */
+    private final int width;
+
+    /**
+     * Height of the ticker in user space, fitted to the font
+     */
+    private final int height;
+
+    /**
+     * Scroll speed in pixels per second
+     */
+    private final double speed;
+
+    /**
+     * Clock driving the scrolling
+     */
+    private final AnimationClock animationClock;
+
+    /**
+     * Component repainted when the text moves, or null
+     */
+    private Component repaintTarget = null;
+
+    /**
+     * Tape laid out at the scale of the backbuffer, or null before the first draw
+     */
+    private Tape tape = null;
+
+    /**
+     * Visible part of the tape in device pixels, or null before the first draw
+     */
+    private BufferedImage backbuffer = null;
+
+    /**
+     * Tape position of the first backbuffer column in device pixels, always within the tape
+     */
+    private int bufferOffset = 0;
+
+    /**
+     * Scrolled distance in user space, within the tape
+     */
+    private double offset = 0;
+
+    /**
+     * Time of the previous tick in nanoseconds, or 0 if the next tick starts scrolling
+     */
+    private long lastTick = 0;
+
+    /**
+     * Number of times the tape has been laid out
+     */
+    private long layoutCount = 0;
+
+    /**
+     * Number of glyphs drawn into the backbuffer
+     */
+    private long glyphDrawCount = 0;
+
+    /**
+     * Messages laid out into glyphs at one scale factor, in device pixels.
+     */
+    private static final class Tape {
+        /**
+         * Scale factor from user space to device pixels
+         */
+        final double scale;
+
+        /**
+         * Pen position of each visible glyph on the tape, ascending
+         */
+        final int[] positions;
+
+        /**
+         * Rasterized glyph at each position
+         */
+        final Glyph[] glyphs;
+
+        /**
+         * Length of the tape before it repeats
+         */
+        final int length;
+
+        /**
+         * Baseline of the text from the top of the ticker
+         */
+        final int baseline;
+
+        /**
+         * Farthest any glyph reaches left of its pen position
+         */
+        final int maxLeft;
+
+        /**
+         * Farthest any glyph reaches right of its pen position
+         */
+        final int maxRight;
+
+        /**
+         * Lays out the messages.
+         *
+         * @param messages the messages
+         * @param font the font in user space
+         * @param scale the scale factor from user space to device pixels
+         */
+        Tape(List<String> messages, Font font, double scale) {
+            this.scale = scale;
+            Font scaledFont = font.deriveFont((float) (font.getSize2D() * scale));
+            FontRenderContext frc = new FontRenderContext(null, true, false);
+            LineMetrics metrics = scaledFont.getLineMetrics("Xg", frc);
+            this.baseline = (int) Math.round(PADDING * scale + metrics.getAscent());
+            int gap = Math.round(scaledFont.getSize2D() * GAP);
+
+            // Each distinct glyph is rasterized once, however often it occurs
+            Map<Integer, Glyph> glyphCache = new HashMap<>();
+            List<Glyph> glyphList = new ArrayList<>();
+            int[] positionList = new int[16];
+            int pen = 0;
+            for (String message : messages) {
+                char[] chars = message.toCharArray();
+                GlyphVector vector = scaledFont.layoutGlyphVector(frc, chars, 0, chars.length, Font.LAYOUT_LEFT_TO_RIGHT);
+                for (int i = 0; i < vector.getNumGlyphs(); i++) {
+                    Glyph glyph = glyphCache.computeIfAbsent(vector.getGlyphCode(i), code -> Glyph.rasterize(scaledFont, frc, code));
+                    if (glyph != null) {
+                        if (glyphList.size() == positionList.length) {
+                            positionList = Arrays.copyOf(positionList, 2 * positionList.length);
+                        }
+                        positionList[glyphList.size()] = pen + (int) Math.round(vector.getGlyphPosition(i).getX());
+                        glyphList.add(glyph);
+                    }
+                }
+                pen += (int) Math.round(vector.getGlyphPosition(vector.getNumGlyphs()).getX()) + gap;
+            }
+            this.length = Math.max(1, pen);
+            this.glyphs = glyphList.toArray(new Glyph[0]);
+            this.positions = Arrays.copyOf(positionList, glyphs.length);
+
+            int left = 0;
+            int right = 0;
+            for (Glyph glyph : glyphCache.values()) {
+                if (glyph != null) {
+                    left = Math.max(left, -glyph.left);
+                    right = Math.max(right, glyph.left + glyph.image.getWidth());
+                }
+            }
+            this.maxLeft = left;
+            this.maxRight = right;
+        }
+
+        /**
+         * Finds the first glyph whose pen position is at or after a tape position.
+         *
+         * @param position the tape position
+         * @return the index of the glyph, or the number of glyphs if there is none
+         */
+        int indexAt(int position) {
+            int index = Arrays.binarySearch(positions, position);
+            if (index < 0) {
+                return -index - 1;
+            }
+            // Several glyphs may share a position, e.g. combining marks
+            while (index > 0 && positions[index - 1] == position) {
+                index--;
+            }
+            return index;
+        }
+    }
+
+    /**
+     * A glyph rasterized in the text color, with its offset from the pen position on the baseline.
+     */
+    private static final class Glyph {
+        /**
+         * Pixels of the glyph
+         */
+        final BufferedImage image;
+
+        /**
+         * Offset of the image from the pen position
+         */
+        final int left;
+
+        /**
+         * Offset of the image from the baseline
+         */
+        final int top;
+
+        /**
+         * Creates a new Glyph.
+         *
+         * @param image the pixels of the glyph
+         * @param left the offset of the image from the pen position
+         * @param top the offset of the image from the baseline
+         */
+        Glyph(BufferedImage image, int left, int top) {
+            this.image = image;
+            this.left = left;
+            this.top = top;
+        }
+
+        /**
+         * Rasterizes a glyph.
+         *
+         * @param font the font
+         * @param frc the render context the glyph was laid out with
+         * @param code the glyph code
+         * @return the glyph, or null if it has no pixels, e.g. a space
+         */
+        static Glyph rasterize(Font font, FontRenderContext frc, int code) {
+            GlyphVector vector = font.createGlyphVector(frc, new int[]{code});
+            Rectangle bounds = vector.getPixelBounds(frc, 0, 0);
+            if (bounds.isEmpty()) {
+                return null;
+            }
+            BufferedImage image = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D g = image.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+                g.setColor(FOREGROUND);
+                g.drawGlyphVector(vector, -bounds.x, -bounds.y);
+            } finally {
+                g.dispose();
+            }
+            return new Glyph(image, bounds.x, bounds.y);
+        }
+    }
+
+    /**
+     * Creates a new TextTicker with the default font and speed.
+     *
+     * @param messages the messages to show one after the other
+     * @param width the width of the ticker
+     * @param animationClock the clock driving the scrolling
+     */
+    public TextTicker(List<String> messages, int width, AnimationClock animationClock) {
+        this(messages, DEFAULT_FONT, width, DEFAULT_SPEED, animationClock);
+    }
+
+    /**
+     * Creates a new TextTicker.
+     *
+     * @param messages the messages to show one after the other
+     * @param font the font of the messages
+     * @param width the width of the ticker
+     * @param speed the scroll speed in pixels per second
+     * @param animationClock the clock driving the scrolling
+     */
+    public TextTicker(List<String> messages, Font font, int width, double speed, AnimationClock animationClock) {
+        this.messages = List.copyOf(messages);
+        this.font = font;
+        this.width = width;
+        this.speed = speed;
+        this.animationClock = animationClock;
+        LineMetrics metrics = font.getLineMetrics("Xg", new FontRenderContext(null, true, false));
+        this.height = (int) Math.ceil(metrics.getAscent() + metrics.getDescent()) + 2 * PADDING;
+    }
+
+    /**
+     * Sets the component to repaint when the text moves.
+     * The ticker is expected to be drawn at the origin of the component.
+     *
+     * @param repaintTarget the component
+     */
+    public void setRepaintTarget(Component repaintTarget) {
+        this.repaintTarget = repaintTarget;
+    }
+
+    /**
+     * Starts scrolling from the current position.
+     */
+    public void start() {
+        if (!animationClock.isAnimating(this)) {
+            lastTick = 0;
+            animationClock.start(this);
+        }
+    }
+
+    /**
+     * Stops scrolling at the current position.
+     */
+    public void stop() {
+        animationClock.stop(this);
+    }
+
+    /**
+     * Checks whether the ticker is scrolling.
+     *
+     * @return true if scrolling is running
+     */
+    public boolean isPlaying() {
+        return animationClock.isAnimating(this);
+    }
+
+    @Override
+    public boolean tick(long now) {
+        if (lastTick != 0 && now > lastTick) {
+            offset += speed * (now - lastTick) / 1e9;
+            if (tape != null) {
+                offset %= tape.length / tape.scale;
+                scrollTo((int) (offset * tape.scale));
+            }
+        }
+        lastTick = now;
+        return true;
+    }
+
+    /**
+     * Shifts the backbuffer to a tape position and draws only the newly exposed strip.
+     *
+     * @param position the tape position of the first column in device pixels
+     */
+    private void scrollTo(int position) {
+        int distance = Math.floorMod(position - bufferOffset, tape.length);
+        if (distance == 0) {
+            return;
+        }
+        int bufferWidth = backbuffer.getWidth();
+        Graphics2D g = backbuffer.createGraphics();
+        try {
+            if (distance >= bufferWidth) {
+                bufferOffset = position;
+                renderStrip(g, 0, bufferWidth);
+            } else {
+                // Copy the pixels as they are, rather than compositing them over the old ones
+                g.setComposite(AlphaComposite.Src);
+                g.copyArea(distance, 0, bufferWidth - distance, backbuffer.getHeight(), -distance, 0);
+                bufferOffset = (bufferOffset + distance) % tape.length;
+                renderStrip(g, bufferWidth - distance, bufferWidth);
+            }
+        } finally {
+            g.dispose();
+        }
+        if (repaintTarget != null) {
+            repaintTarget.repaint(0, 0, width, height);
+        }
+    }
+
+    /**
+     * Clears a strip of the backbuffer and draws the glyphs reaching into it.
+     *
+     * @param g the graphics context of the backbuffer
+     * @param fromColumn the first column of the strip
+     * @param toColumn the column after the strip
+     */
+    private void renderStrip(Graphics2D g, int fromColumn, int toColumn) {
+        g.setClip(fromColumn, 0, toColumn - fromColumn, backbuffer.getHeight());
+        g.setComposite(AlphaComposite.Src);
+        g.setColor(BACKGROUND);
+        g.fillRect(fromColumn, 0, toColumn - fromColumn, backbuffer.getHeight());
+        g.setComposite(AlphaComposite.SrcOver);
+
+        // The strip may cover the end of one repetition of the tape and the start of the next
+        int from = bufferOffset + fromColumn - tape.maxRight;
+        int to = bufferOffset + toColumn + tape.maxLeft;
+        for (int repetition = Math.floorDiv(from, tape.length) * tape.length; repetition < to; repetition += tape.length) {
+            for (int i = tape.indexAt(from - repetition); i < tape.glyphs.length && tape.positions[i] < to - repetition; i++) {
+                Glyph glyph = tape.glyphs[i];
+                g.drawImage(glyph.image, repetition + tape.positions[i] - bufferOffset + glyph.left,
+                        tape.baseline + glyph.top, null);
+                glyphDrawCount++;
+            }
+        }
+        g.setClip(null);
+    }
+
+    /**
+     * Draws the visible part of the messages, laying them out first if the scale factor has changed.
+     *
+     * @param g the graphics context to draw to
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     */
+    public void draw(Graphics2D g, int x, int y) {
+        // Only axis-aligned transforms can be matched by a backbuffer in device pixels
+        AffineTransform transform = g.getTransform();
+        int type = transform.getType();
+        boolean scaled = (type & AffineTransform.TYPE_MASK_SCALE) != 0
+                && (type & ~(AffineTransform.TYPE_MASK_SCALE | AffineTransform.TYPE_TRANSLATION)) == 0
+                && transform.getScaleX() == transform.getScaleY();
+        double scale = scaled ? transform.getScaleX() : 1;
+
+        if (tape == null || tape.scale != scale) {
+            layOut(scale);
+        }
+
+        if (scaled) {
+            // Draw the backbuffer in device pixels, snapped to whole pixels, so it is blitted 1:1
+            g.setTransform(AffineTransform.getTranslateInstance(
+                    Math.round(transform.getTranslateX() + x * scale),
+                    Math.round(transform.getTranslateY() + y * scale)));
+            g.drawImage(backbuffer, 0, 0, null);
+            g.setTransform(transform);
+        } else {
+            g.drawImage(backbuffer, x, y, null);
+        }
+    }
+
+    /**
+     * Lays out the tape at a scale factor and fills the backbuffer.
+     *
+     * @param scale the scale factor from user space to device pixels
+     */
+    private void layOut(double scale) {
+        tape = new Tape(messages, font, scale);
+        layoutCount++;
+        offset %= tape.length / scale;
+        bufferOffset = (int) (offset * scale);
+        backbuffer = new BufferedImage(ImagePyramid.variantSize(width, scale), ImagePyramid.variantSize(height, scale),
+                BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = backbuffer.createGraphics();
+        try {
+            renderStrip(g, 0, backbuffer.getWidth());
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Gets the messages shown.
+     *
+     * @return an unmodifiable list of messages
+     */
+    public List<String> getMessages() {
+        return messages;
+    }
+
+    /**
+     * Gets the width of the ticker.
+     *
+     * @return the width in user space
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the height of the ticker, fitted to the font.
+     *
+     * @return the height in user space
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the number of times the messages have been laid out.
+     *
+     * @return the layout count
+     */
+    public long getLayoutCount() {
+        return layoutCount;
+    }
+
+    /**
+     * Gets the number of glyphs drawn into the backbuffer.
+     *
+     * @return the glyph draw count
+     */
+    public long getGlyphDrawCount() {
+        return glyphDrawCount;
+    }
+}
@@ -1,7 +1,11 @@
 package one.cafebabe.globalbanner;
 
 import javax.swing.*;
-import java.awt.*;
+import javax.swing.event.MenuEvent;
+import javax.swing.event.MenuListener;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Factory class for creating UI components for the Global Banner application.
@@ -10,6 +14,11 @@ public class UIFactory {
     private final ScreenManager screenManager;
     private final WindowManager windowManager;
 
+    /**
+     * Model shared by all screen selection menus
+     */
+    private final ScreenMenuModel screenMenuModel;
+
     /**
      * Creates a new UIFactory with the specified screen manager and window manager.
      * 
@@ -19,12 +28,14 @@ public class UIFactory {
     public UIFactory(ScreenManager screenManager, WindowManager windowManager) {
         this.screenManager = screenManager;
         this.windowManager = windowManager;
+        this.screenMenuModel = new ScreenMenuModel(screenManager);
     }
 
     /**
      * Creates a menu bar with a File menu containing screen selection options.
+     * The screen items stay bound to the screen menu model, so they never need to be rebuilt.
      * 
-     * @param frame the JFrame to update when screen selection changes
+     * @param frame the JFrame the menu bar is created for
      * @return the created menu bar
      */
     public JMenuBar createMenuBar(JFrame frame) {
@@ -39,31 +50,7 @@ public class UIFactory {
         fileMenu.add(screenMenu);
 
         // Add menu items for each available screen
-        for (int i = 0; i < screenManager.getAvailableScreens().size(); i++) {
-            GraphicsDevice screen = screenManager.getAvailableScreens().get(i);
-            DisplayMode displayMode = screen.getDisplayMode();
-            String screenName = "Screen " + (i + 1) + " (" + displayMode.getWidth() + " x " + displayMode.getHeight() + ")";
-
-            // Add asterisk to indicate currently selected screen
-            if (screen.equals(screenManager.getCurrentScreen())) {
-                screenName += " *";
-            }
-
-            JMenuItem menuItem = new JMenuItem(screenName);
-            final int screenIndex = i;
-
-            menuItem.addActionListener(e -> {
-                screenManager.setCurrentScreen(screenIndex);
-                windowManager.positionWindowOnCurrentScreen();
-                // Update menus to reflect the new screen selection
-                if (frame != null) {
-                    frame.setJMenuBar(createMenuBar(frame));
-                    frame.revalidate();
-                }
-            });
-
-            screenMenu.add(menuItem);
-        }
+        bindScreenMenu(screenMenu);
 
         // Add exit option
         fileMenu.addSeparator();
@@ -77,7 +64,7 @@ public class UIFactory {
     /**
      * Creates a popup menu for screen selection.
      * 
-     * @param frame the JFrame to update when screen selection changes
+     * @param frame the JFrame the popup menu is created for
      * @return the created popup menu
      */
     public JPopupMenu createScreenSelectionMenu(JFrame frame) {
@@ -87,32 +74,135 @@ public class UIFactory {
         menu.add(screenMenu);
 
         // Add menu items for each available screen
-        for (int i = 0; i < screenManager.getAvailableScreens().size(); i++) {
-            GraphicsDevice screen = screenManager.getAvailableScreens().get(i);
-            DisplayMode displayMode = screen.getDisplayMode();
-            String screenName = "Screen " + (i + 1) + " (" + displayMode.getWidth() + " x " + displayMode.getHeight() + ")";
-
-            // Add asterisk to indicate currently selected screen
-            if (screen.equals(screenManager.getCurrentScreen())) {
-                screenName += " *";
+        bindScreenMenu(screenMenu);
+
+        return menu;
+    }
+
+    /**
+     * Gets the model shared by all screen selection menus.
+     *
+     * @return the screen menu model
+     */
+    public ScreenMenuModel getScreenMenuModel() {
+        return screenMenuModel;
+    }
+
+    /**
+     * Binds the items of the specified menu to the screen menu model.
+     *
+     * @param screenMenu the menu to fill with one item per screen
+     */
+    private void bindScreenMenu(JMenu screenMenu) {
+        // Check for hot-plugged screens off the EDT; the binding updates the items of the open menu
+        screenMenu.addMenuListener(new MenuListener() {
+            @Override
+            public void menuSelected(MenuEvent e) {
+                screenManager.requestRefresh();
             }
 
-            JMenuItem menuItem = new JMenuItem(screenName);
-            final int screenIndex = i;
+            @Override
+            public void menuDeselected(MenuEvent e) {
+            }
+
+            @Override
+            public void menuCanceled(MenuEvent e) {
+            }
+        });
 
-            menuItem.addActionListener(e -> {
-                screenManager.setCurrentScreen(screenIndex);
-                windowManager.positionWindowOnCurrentScreen();
-                // Update menus to reflect the new screen selection
-                if (frame != null) {
-                    frame.setJMenuBar(createMenuBar(frame));
-                    frame.revalidate();
+        ScreenMenuBinding binding = new ScreenMenuBinding(screenMenu);
+        binding.entriesChanged(screenMenuModel.getEntries());
+        binding.selectionChanged(null, screenMenuModel.getSelected());
+        screenMenuModel.addListener(binding);
+    }
+
+    /**
+     * Keeps the items of one screen menu in sync with the screen menu model.
+     * Items are keyed by screen, so a screen switch only relabels two items and
+     * a hot-plug only adds or removes the items of the affected screens.
+     */
+    private class ScreenMenuBinding implements ScreenMenuModel.Listener {
+        /**
+         * The menu holding the screen items
+         */
+        private final JMenu screenMenu;
+
+        /**
+         * Menu items by screen identifier
+         */
+        private final Map<String, JMenuItem> items = new HashMap<>();
+
+        /**
+         * Creates a new ScreenMenuBinding for the specified menu.
+         *
+         * @param screenMenu the menu holding the screen items
+         */
+        ScreenMenuBinding(JMenu screenMenu) {
+            this.screenMenu = screenMenu;
+        }
+
+        @Override
+        public void entriesChanged(List<ScreenMenuModel.Entry> entries) {
+            // Remove items of screens that are gone
+            items.entrySet().removeIf(item -> {
+                if (screenMenuModel.find(item.getKey()) == null) {
+                    screenMenu.remove(item.getValue());
+                    return true;
                 }
+                return false;
             });
 
-            screenMenu.add(menuItem);
+            for (int i = 0; i < entries.size(); i++) {
+                ScreenMenuModel.Entry entry = entries.get(i);
+                JMenuItem menuItem = items.get(entry.getId());
+                if (menuItem == null) {
+                    menuItem = new JMenuItem();
+                    final String screenId = entry.getId();
+                    menuItem.addActionListener(e -> selectScreen(screenId));
+                    items.put(screenId, menuItem);
+                }
+
+                // Keep the items in topology order
+                if (i >= screenMenu.getItemCount() || screenMenu.getItem(i) != menuItem) {
+                    screenMenu.remove(menuItem);
+                    screenMenu.insert(menuItem, i);
+                }
+                setLabel(menuItem, entry.getLabel(entry == screenMenuModel.getSelected()));
+            }
         }
 
-        return menu;
+        @Override
+        public void selectionChanged(ScreenMenuModel.Entry previous, ScreenMenuModel.Entry selected) {
+            if (previous != null && items.containsKey(previous.getId())) {
+                setLabel(items.get(previous.getId()), previous.getLabel(false));
+            }
+            if (selected != null && items.containsKey(selected.getId())) {
+                setLabel(items.get(selected.getId()), selected.getLabel(true));
+            }
+        }
+
+        /**
+         * Updates the label of a menu item if it has changed.
+         *
+         * @param menuItem the menu item
+         * @param label the new label
+         */
+        private void setLabel(JMenuItem menuItem, String label) {
+            if (!label.equals(menuItem.getText())) {
+                menuItem.setText(label);
+            }
+        }
+    }
+
+    /**
+     * Moves the banner to the specified screen.
+     *
+     * @param screenId the identifier of the screen to select
+     */
+    private void selectScreen(String screenId) {
+        ScreenMenuModel.Entry entry = screenMenuModel.find(screenId);
+        if (entry != null) {
+            windowManager.selectScreen(entry.getIndex());
+        }
     }
 }
@@ -1,7 +1,8 @@
 package one.cafebabe.globalbanner;
 
-import javax.swing.*;
 import java.awt.*;
+import java.beans.PropertyChangeListener;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Manages window positioning and animation for the Global Banner application.
@@ -10,7 +11,19 @@ public class WindowManager {
     /**
      * Margin in pixels to keep from screen edges
      */
-    private static final int MARGIN = 50;
+    static final int MARGIN = 50;
+
+    /**
+     * Time in nanoseconds a window movement across a full HD screen takes to settle
+     */
+    static final long ANIMATION_DURATION = TimeUnit.MILLISECONDS.toNanos(150);
+
+    /**
+     * Angular frequency of the spring moving the window, in radians per second. A critically
+     * damped spring covers all but 1/10000 of the distance within 12 / frequency seconds, so
+     * a move across a full HD screen is within half a pixel and settles after the duration.
+     */
+    static final double SPRING_FREQUENCY = 12 / (ANIMATION_DURATION / 1e9);
 
     /**
      * Flag to track if the window is currently at the bottom left corner
@@ -18,54 +31,311 @@ public class WindowManager {
     private boolean isAtBottomLeft = false;
 
     /**
-     * Timer for window movement animation
+     * Clock driving the window movement animation
      */
-    private Timer animationTimer = null;
+    private final AnimationClock animationClock;
 
     /**
-     * The main application frame
+     * Window movement animation, reused for every move
      */
-    private JFrame frame;
+    private final AnimationClock.Animation windowAnimation = this::tickWindowAnimation;
+
+    /**
+     * Spring moving the window, retargeted by every move
+     */
+    private final SpringMotion motion = new SpringMotion(SPRING_FREQUENCY);
+
+    /**
+     * Time in nanoseconds the window movement was last advanced to
+     */
+    private long lastAnimationTick;
+
+    /**
+     * Number of window movements started from rest
+     */
+    private long moveCount = 0;
+
+    /**
+     * Number of times a running window movement was given a new target
+     */
+    private long retargetCount = 0;
+
+    /**
+     * Flight recorder event of the current window movement, or null if none is running
+     */
+    private BannerEvents.AnimationEvent animationEvent = null;
+
+    /**
+     * Dropped frame count of the clock when the current window movement started
+     */
+    private long animationStartDroppedFrames;
+
+    /**
+     * The main application frame, or a component standing in for it when running headless
+     */
+    private Component frame;
 
     /**
      * The screen manager to use for screen-related operations
      */
     private final ScreenManager screenManager;
 
+    /**
+     * Screen the window was last anchored to, used to detect display changes
+     */
+    private ScreenInfo anchoredScreen = null;
+
+    /**
+     * Identifier of the screen this window is pinned to, or null to follow the selected screen
+     */
+    private String pinnedScreenId = null;
+
+    /**
+     * Whether the window stays on whichever screen it has been placed on
+     */
+    private boolean floating = false;
+
+    /**
+     * Distance in pixels between the window and its corner, on top of the margin,
+     * used to stack several banners in the same corner
+     */
+    private int cornerOffsetX = 0, cornerOffsetY = 0;
+
+    /**
+     * Listener following display changes, removed by {@link #dispose()}
+     */
+    private final ScreenManager.Listener screenListener;
+
+    /**
+     * Listener checking the screens when the frame moves to another device
+     */
+    private final PropertyChangeListener deviceListener;
+
     /**
      * Creates a new WindowManager with the specified screen manager.
      * 
      * @param screenManager the screen manager to use
      */
     public WindowManager(ScreenManager screenManager) {
+        this(screenManager, AnimationClock.getShared());
+    }
+
+    /**
+     * Creates a new WindowManager with the specified screen manager and animation clock.
+     * 
+     * @param screenManager the screen manager to use
+     * @param animationClock the clock driving window animations
+     */
+    public WindowManager(ScreenManager screenManager, AnimationClock animationClock) {
         this.screenManager = screenManager;
+        this.animationClock = animationClock;
+
+        // Follow the refresh rate, and re-anchor the window when its screen is unplugged or changes resolution
+        screenListener = topology -> {
+            animationClock.setRefreshRate(topology.getMaxRefreshRate());
+            screenTopologyChanged();
+        };
+        screenManager.addListener(screenListener);
+        deviceListener = e -> screenManager.requestRefresh();
+    }
+
+    /**
+     * Pins the window to the specified screen instead of the selected one.
+     * If the screen is disconnected, the window falls back to the selected screen.
+     *
+     * @param screenId the identifier of the screen, or null to follow the selected screen
+     */
+    public void setPinnedScreen(String screenId) {
+        this.pinnedScreenId = screenId;
+    }
+
+    /**
+     * Gets the identifier of the screen the window is pinned to.
+     *
+     * @return the identifier, or null if the window follows the selected screen
+     */
+    public String getPinnedScreen() {
+        return pinnedScreenId;
+    }
+
+    /**
+     * Sets whether the window stays on whichever screen it has been placed on,
+     * instead of the selected screen.
+     *
+     * @param floating true to let the window float freely
+     */
+    public void setFloating(boolean floating) {
+        this.floating = floating;
+    }
+
+    /**
+     * Checks whether the window stays on whichever screen it has been placed on.
+     *
+     * @return true if the window floats freely
+     */
+    public boolean isFloating() {
+        return floating;
+    }
+
+    /**
+     * Sets the distance between the window and its corner, on top of the margin.
+     * Takes effect the next time the window is positioned.
+     *
+     * @param offsetX the horizontal distance in pixels, away from the side edge
+     * @param offsetY the vertical distance in pixels, up from the bottom edge
+     */
+    public void setCornerOffset(int offsetX, int offsetY) {
+        this.cornerOffsetX = offsetX;
+        this.cornerOffsetY = offsetY;
+    }
+
+    /**
+     * Gets the screen the window belongs to: the pinned screen, the screen under
+     * a floating window, or else the selected screen.
+     *
+     * @return the screen, or null if no screen is known
+     */
+    public ScreenInfo getScreen() {
+        if (pinnedScreenId != null) {
+            ScreenInfo screen = screenManager.getTopology().find(pinnedScreenId);
+            if (screen != null) {
+                return screen;
+            }
+        } else if (floating && frame != null) {
+            ScreenInfo screen = screenManager.getTopology().findAt(
+                    frame.getX() + frame.getWidth() / 2, frame.getY() + frame.getHeight() / 2);
+            if (screen != null) {
+                return screen;
+            }
+        }
+        return screenManager.getCurrentScreenInfo();
+    }
+
+    /**
+     * Gets the frame managed by this window manager.
+     *
+     * @return the frame, or null if none has been set
+     */
+    public Component getFrame() {
+        return frame;
     }
 
     /**
      * Sets the frame to be managed by this window manager.
      * 
-     * @param frame the frame to manage
+     * @param frame the frame to manage, or null to manage none
      */
-    public void setFrame(JFrame frame) {
+    public void setFrame(Component frame) {
+        if (this.frame != null) {
+            this.frame.removePropertyChangeListener("graphicsConfiguration", deviceListener);
+        }
         this.frame = frame;
+
+        // A window moved to another device may see a display change before the watcher does
+        if (frame != null) {
+            frame.addPropertyChangeListener("graphicsConfiguration", deviceListener);
+        }
     }
 
     /**
-     * Positions the window on the currently selected screen.
+     * Positions the window on its screen, which is the currently selected screen
+     * unless the window is pinned or floating.
      */
     public void positionWindowOnCurrentScreen() {
-        if (frame != null && screenManager.getCurrentScreen() != null) {
-            // Get the bounds of the selected screen
-            Rectangle screenBounds = screenManager.getCurrentScreen().getDefaultConfiguration().getBounds();
-
+        ScreenInfo screen = getScreen();
+        if (frame != null && screen != null) {
             // Calculate position (bottom right with margin)
-            int x = screenBounds.x + screenBounds.width - frame.getWidth() - MARGIN;
-            int y = screenBounds.y + screenBounds.height - frame.getHeight() - MARGIN;
+            int x = cornerX(screen, false);
+            int y = cornerY(screen);
 
             // Set window location (initially at bottom right, isAtBottomLeft is false by default)
             frame.setLocation(x, y);
             isAtBottomLeft = false;
+            anchoredScreen = screen;
+        }
+    }
+
+    /**
+     * Selects a screen and moves the window to its corner there. Picking a screen is an
+     * explicit choice, so a window that has been dragged away from its corner is anchored
+     * again instead of staying on the screen it was dropped on.
+     *
+     * @param screenIndex the index of the screen to select
+     * @return true if the screen exists and has been selected
+     */
+    public boolean selectScreen(int screenIndex) {
+        if (screenIndex < 0 || screenIndex >= screenManager.getTopology().size()) {
+            return false;
+        }
+        // Anchored before the switch, so the layout following it stacks this window as well
+        floating = false;
+        screenManager.setCurrentScreen(screenIndex);
+        positionWindowOnCurrentScreen();
+        return true;
+    }
+
+    /**
+     * Re-anchors the window to its current corner if the screen it was anchored to
+     * has been disconnected or its bounds have changed.
+     */
+    private void screenTopologyChanged() {
+        ScreenInfo screen = getScreen();
+        if (frame == null || screen == null) {
+            return;
         }
+        if (anchoredScreen == null) {
+            // A floating window that was never anchored only moves if its screen is gone
+            if (floating && screenManager.getTopology().findAt(
+                    frame.getX() + frame.getWidth() / 2, frame.getY() + frame.getHeight() / 2) == null) {
+                positionWindowOnCurrentScreen();
+            }
+            return;
+        }
+        if (screen.getId().equals(anchoredScreen.getId())
+                && screen.getBounds().equals(anchoredScreen.getBounds())) {
+            return;
+        }
+
+        System.out.println("Display configuration changed. Re-anchoring to screen: " + screen.getId());
+        anchorToCorner();
+    }
+
+    /**
+     * Places the window as it was left in an earlier run. A window that floated is put back
+     * exactly where it was left and floats there, so laying out the banners does not snap it
+     * back. Any other window is anchored to its saved corner, where the corner is for its
+     * current size, even if it was caught mid-animation. A floating window left on a screen
+     * that is gone is anchored to its corner as well.
+     *
+     * @param state the state of the banner in the earlier run
+     */
+    public void restore(BannerState state) {
+        if (frame == null) {
+            return;
+        }
+        isAtBottomLeft = state.isAtBottomLeft();
+        Rectangle bounds = state.getWindowBounds();
+        if (state.isFloating()
+                && screenManager.getTopology().findAt(bounds.x + frame.getWidth() / 2, bounds.y + frame.getHeight() / 2) != null) {
+            moveTo(bounds.x, bounds.y);
+        } else {
+            floating = false;
+            anchorToCorner();
+        }
+    }
+
+    /**
+     * Moves the window straight to the corner of its screen it is currently in,
+     * stopping any ongoing animation.
+     */
+    public void anchorToCorner() {
+        ScreenInfo screen = getScreen();
+        if (frame == null || screen == null) {
+            return;
+        }
+        stopAnimation();
+        frame.setLocation(cornerX(screen, isAtBottomLeft), cornerY(screen));
+        anchoredScreen = screen;
     }
 
     /**
@@ -73,109 +343,269 @@ public class WindowManager {
      * based on its current position.
      */
     public void moveWindowToOppositeCorner() {
-        if (screenManager.getCurrentScreen() == null || frame == null) {
+        // Get the cached bounds of the window's screen
+        ScreenInfo screen = getScreen();
+        if (screen == null || frame == null) {
             return;
         }
 
-        // Get the bounds of the selected screen
-        Rectangle screenBounds = screenManager.getCurrentScreen().getDefaultConfiguration().getBounds();
-
         // Calculate new position based on current state
         int targetX;
         if (isAtBottomLeft) {
             // Move to bottom right
-            targetX = screenBounds.x + screenBounds.width - frame.getWidth() - MARGIN;
+            targetX = cornerX(screen, false);
             isAtBottomLeft = false;
         } else {
             // Move to bottom left
-            targetX = screenBounds.x + MARGIN;
+            targetX = cornerX(screen, true);
             isAtBottomLeft = true;
         }
 
         // Y position is always at the bottom with margin
-        int targetY = screenBounds.y + screenBounds.height - frame.getHeight() - MARGIN;
+        int targetY = cornerY(screen);
+        anchoredScreen = screen;
 
-        // Get current position
-        Point currentLocation = frame.getLocation();
+        // Animate the window movement from the current position and velocity
+        animateWindowMovement(targetX, targetY);
+    }
 
-        // Animate the window movement
-        animateWindowMovement(currentLocation.x, currentLocation.y, targetX, targetY);
+    /**
+     * Moves the window to a bottom corner of its screen, animated from its current position.
+     * A floating window is anchored again.
+     *
+     * @param left true for the bottom left corner, false for the bottom right
+     */
+    public void moveToCorner(boolean left) {
+        floating = false;
+        ScreenInfo screen = getScreen();
+        if (screen == null || frame == null) {
+            return;
+        }
+        isAtBottomLeft = left;
+        anchoredScreen = screen;
+        animateWindowMovement(cornerX(screen, left), cornerY(screen));
     }
 
     /**
-     * Animates the window movement from current position to target position.
-     * The animation takes 0.5 seconds with easing (acceleration and deceleration).
-     * 
-     * @param startX starting X coordinate
-     * @param startY starting Y coordinate
+     * Places the window at the specified location, stopping any ongoing animation.
+     * The window floats there until it is moved to a corner again.
+     *
+     * @param x the X coordinate in the virtual desktop
+     * @param y the Y coordinate in the virtual desktop
+     */
+    public void moveTo(int x, int y) {
+        if (frame == null) {
+            return;
+        }
+        stopAnimation();
+        floating = true;
+        anchoredScreen = null;
+        frame.setLocation(x, y);
+    }
+
+    /**
+     * Lets the window float where it is now, e.g. where it has been dropped after a drag,
+     * so laying out the banners or switching screens does not snap it back to its corner.
+     * Unlike {@link #moveTo(int, int)}, a running animation is left alone.
+     */
+    public void floatWhereItIs() {
+        floating = true;
+        anchoredScreen = null;
+    }
+
+    /**
+     * Gets the X coordinate of the window in a bottom corner of a screen.
+     *
+     * @param screen the screen
+     * @param left true for the bottom left corner, false for the bottom right
+     * @return the X coordinate
+     */
+    private int cornerX(ScreenInfo screen, boolean left) {
+        return left
+                ? screen.getX() + MARGIN + cornerOffsetX
+                : screen.getX() + screen.getWidth() - frame.getWidth() - MARGIN - cornerOffsetX;
+    }
+
+    /**
+     * Gets the Y coordinate of the window in a bottom corner of a screen.
+     *
+     * @param screen the screen
+     * @return the Y coordinate
+     */
+    private int cornerY(ScreenInfo screen) {
+        return screen.getY() + screen.getHeight() - frame.getHeight() - MARGIN - cornerOffsetY;
+    }
+
+    /**
+     * Moves the window towards the target position on a critically damped spring.
+     * A window at rest starts from its current position; a moving window is retargeted
+     * and keeps its velocity, so rapid moves curve smoothly instead of restarting.
+     * The spring is advanced by the elapsed time, so a busy EDT drops frames
+     * instead of slowing the animation down.
+     *
      * @param endX ending X coordinate
      * @param endY ending Y coordinate
      */
-    private void animateWindowMovement(int startX, int startY, int endX, int endY) {
-        // Stop any existing animation
-        if (animationTimer != null && animationTimer.isRunning()) {
-            animationTimer.stop();
+    private void animateWindowMovement(int endX, int endY) {
+        if (!isAnimating()) {
+            motion.reset(frame.getX(), frame.getY());
+            lastAnimationTick = animationClock.now();
+            moveCount++;
+        } else {
+            retargetCount++;
+        }
+        motion.setTarget(endX, endY);
+
+        // A retargeted animation keeps recording into the event of the original movement
+        if (animationEvent == null) {
+            animationEvent = new BannerEvents.AnimationEvent();
+            animationEvent.begin();
+            animationStartDroppedFrames = animationClock.getDroppedFrames();
+        }
+
+        animationClock.start(windowAnimation);
+    }
+
+    /**
+     * Hands the velocity of a movement the animation took over, e.g. a glide after a drag,
+     * to the running window movement.
+     *
+     * @param velocityX the horizontal velocity in pixels per second
+     * @param velocityY the vertical velocity in pixels per second
+     */
+    public void carryVelocity(double velocityX, double velocityY) {
+        if (isAnimating()) {
+            motion.addVelocity(velocityX, velocityY);
         }
+    }
 
-        // Animation duration in milliseconds (0.5 seconds)
-        final int DURATION = 150;
+    /**
+     * Advances the window movement animation to the specified time.
+     * 
+     * @param now the current time in nanoseconds
+     * @return true if the animation is still running
+     */
+    private boolean tickWindowAnimation(long now) {
+        boolean moving = motion.advance(now - lastAnimationTick);
+        lastAnimationTick = now;
 
-        // Animation update interval in milliseconds (smoother with smaller values)
-        final int INTERVAL = 3; // ~60fps
+        // Update window position only if it actually changed
+        int x = motion.getX();
+        int y = motion.getY();
+        if (frame.getX() != x || frame.getY() != y) {
+            frame.setLocation(x, y);
+        }
 
-        // Total number of steps in the animation
-        final int STEPS = DURATION / INTERVAL;
+        if (animationEvent != null) {
+            animationEvent.frames++;
+        }
 
-        // Current step counter
-        final int[] currentStep = {0};
+        // Stop once settled; the last frame lands exactly on the target
+        if (moving) {
+            return true;
+        }
+        commitAnimationEvent(true);
+        return false;
+    }
 
-        // Create new animation timer
-        animationTimer = new Timer(INTERVAL, e -> {
-            // Calculate progress (0.0 to 1.0)
-            double progress = (double) currentStep[0] / STEPS;
+    /**
+     * Stops any ongoing animation.
+     */
+    public void stopAnimation() {
+        animationClock.stop(windowAnimation);
+        commitAnimationEvent(false);
+    }
 
-            // Apply easing function (ease in-out)
-            double easedProgress = easeInOutQuad(progress);
+    /**
+     * Commits the flight recorder event of the current window movement.
+     *
+     * @param completed whether the window reached its target
+     */
+    private void commitAnimationEvent(boolean completed) {
+        BannerEvents.AnimationEvent event = animationEvent;
+        animationEvent = null;
+        if (event != null && event.shouldCommit()) {
+            event.droppedFrames = animationClock.getDroppedFrames() - animationStartDroppedFrames;
+            event.completed = completed;
+            event.commit();
+        }
+    }
 
-            // Calculate current position
-            int x = startX + (int) (easedProgress * (endX - startX));
-            int y = startY + (int) (easedProgress * (endY - startY));
+    /**
+     * Stops the animation and stops following display changes.
+     * The window manager must not be used afterwards.
+     */
+    public void dispose() {
+        stopAnimation();
+        screenManager.removeListener(screenListener);
+        if (frame != null) {
+            frame.removePropertyChangeListener("graphicsConfiguration", deviceListener);
+        }
+    }
 
-            // Update window position
-            frame.setLocation(x, y);
+    /**
+     * Checks whether the window is in the bottom left corner rather than the bottom right,
+     * or is headed there.
+     *
+     * @return true for the bottom left corner
+     */
+    public boolean isAtBottomLeft() {
+        return isAtBottomLeft;
+    }
 
-            // Increment step counter
-            currentStep[0]++;
+    /**
+     * Checks whether the window is exactly in its corner, rather than where it was dragged or placed.
+     *
+     * @return true if the window is in its corner
+     */
+    public boolean isAtCorner() {
+        ScreenInfo screen = getScreen();
+        return frame != null && screen != null && !floating
+                && frame.getX() == cornerX(screen, isAtBottomLeft) && frame.getY() == cornerY(screen);
+    }
 
-            // Stop timer when animation is complete
-            if (currentStep[0] > STEPS) {
-                // Ensure final position is exact
-                frame.setLocation(endX, endY);
-                animationTimer.stop();
-            }
-        });
+    /**
+     * Checks whether the window is currently being animated.
+     * 
+     * @return true if a window movement is in progress
+     */
+    public boolean isAnimating() {
+        return animationClock.isAnimating(windowAnimation);
+    }
+
+    /**
+     * Gets the number of window movements started from rest.
+     *
+     * @return the move count
+     */
+    public long getMoveCount() {
+        return moveCount;
+    }
 
-        // Start the animation
-        animationTimer.start();
+    /**
+     * Gets the number of times a running window movement was given a new target.
+     *
+     * @return the retarget count
+     */
+    public long getRetargetCount() {
+        return retargetCount;
     }
 
     /**
-     * Easing function for smooth acceleration and deceleration.
-     * This is a quadratic ease-in-out function.
+     * Gets the clock driving window animations.
      * 
-     * @param t progress value between 0.0 and 1.0
-     * @return eased value between 0.0 and 1.0
+     * @return the animation clock
      */
-    private double easeInOutQuad(double t) {
-        return t < 0.5 ? 2 * t * t : 1 - Math.pow(-2 * t + 2, 2) / 2;
+    public AnimationClock getAnimationClock() {
+        return animationClock;
     }
 
     /**
-     * Stops any ongoing animation.
+     * Gets the screen manager used for screen-related operations.
+     * 
+     * @return the screen manager
      */
-    public void stopAnimation() {
-        if (animationTimer != null && animationTimer.isRunning()) {
-            animationTimer.stop();
-        }
+    public ScreenManager getScreenManager() {
+        return screenManager;
     }
 }
\ No newline at end of file
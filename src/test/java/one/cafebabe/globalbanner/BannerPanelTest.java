@@ -0,0 +1,157 @@
+package one.cafebabe.globalbanner;
+
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static one.cafebabe.globalbanner.TestSupport.onEdt;
+import static one.cafebabe.globalbanner.TestSupport.screenManager;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the idle behavior of the BannerPanel class. Runs headless,
+ * with a plain component standing in for the banner window.
+ */
+public class BannerPanelTest {
+    /**
+     * How long a resting banner is watched
+     */
+    private static final long IDLE_WINDOW_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * How long a dodge may take to settle
+     */
+    private static final long SETTLE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    /**
+     * Interval in milliseconds the display watcher checks the screens at while the banner rests
+     */
+    private static final long DISPLAY_POLL_MILLIS = 500;
+
+    /**
+     * Once a dodge has settled, a banner at rest neither ticks the clock nor paints, while the
+     * display watcher keeps checking the screens off the Event Dispatch Thread. Headless Swing
+     * paints nothing, so a repaint manager paints the stand-in window into an offscreen surface,
+     * as a showing window would be painted.
+     */
+    @Test
+    public void testRestingBannerHasNoTicksAndNoPaints() throws Exception {
+        AnimationClock clock = new AnimationClock(60);
+        BannerPanel[] panel = new BannerPanel[1];
+        ScreenManager[] screens = new ScreenManager[1];
+        RepaintManager repaintManager = RepaintManager.currentManager(null);
+        try {
+            SwingUtilities.invokeAndWait(() -> {
+                ScreenManager screenManager = screenManager(1);
+                screenManager.startDisplayWatcher(DISPLAY_POLL_MILLIS);
+                screens[0] = screenManager;
+
+                BannerRegistry registry = new BannerRegistry(screenManager, clock);
+                WindowManager banner = registry.createBanner(null);
+                JPanel frame = new JPanel(new BorderLayout());
+                panel[0] = registry.createPanel(new BufferedImage(200, 100, BufferedImage.TYPE_INT_ARGB));
+                frame.add(panel[0]);
+                frame.setSize(200, 100);
+                frame.doLayout();
+                banner.setFrame(frame);
+                registry.layout();
+                RepaintManager.setCurrentManager(new OffscreenRepaintManager(frame));
+
+                // A repaint reaches the panel, so the paint count below can tell
+                panel[0].repaint();
+                banner.moveWindowToOppositeCorner();
+            });
+
+            // The dodge is driven by the real timer until it settles
+            long deadline = System.currentTimeMillis() + SETTLE_TIMEOUT_MILLIS;
+            while (onEdt(clock::isRunning)) {
+                assertTrue(System.currentTimeMillis() < deadline, "Dodge did not settle");
+                Thread.sleep(50);
+            }
+            long ticks = onEdt(clock::getTickCount);
+            long paints = onEdt(panel[0]::getPaintCount);
+            long probes = screens[0].getProbeCount();
+            long version = onEdt(() -> screens[0].getTopology().getVersion());
+            assertTrue(ticks > 0, "Dodge was not animated");
+            assertTrue(paints > 0, "Panel was never painted");
+
+            Thread.sleep(IDLE_WINDOW_MILLIS);
+
+            assertEquals(ticks, (long) onEdt(clock::getTickCount), "Clock ticked while at rest");
+            assertEquals(paints, (long) onEdt(panel[0]::getPaintCount), "Panel painted while at rest");
+            assertTrue(screens[0].getProbeCount() > probes, "Display watcher stopped checking the screens");
+            assertEquals(version, (long) onEdt(() -> screens[0].getTopology().getVersion()), "Unchanged screens were published");
+            assertFalse(onEdt(clock::isRunning));
+        } finally {
+            SwingUtilities.invokeAndWait(() -> RepaintManager.setCurrentManager(repaintManager));
+            if (screens[0] != null) {
+                screens[0].stopDisplayWatcher();
+            }
+        }
+    }
+
+    /**
+     * A panel on no screen stops its animation and drops repaints until it can be seen again,
+     * and tells its listener about both changes.
+     */
+    @Test
+    public void testOffScreenPanelIsSuspended() {
+        long[] now = {0};
+        AnimationClock clock = AnimationClock.createManual(() -> now[0]);
+        BufferedImage sheet = new BufferedImage(40, 10, BufferedImage.TYPE_INT_ARGB);
+        AnimatedImage animation = new AnimatedImage(
+                new SpriteSheetFrameSource(sheet, 2, TimeUnit.MILLISECONDS.toNanos(100)), clock);
+        BannerPanel panel = new BannerPanel(animation);
+        List<Boolean> suspensions = new ArrayList<>();
+        panel.addSuspendListener(suspensions::add);
+        animation.start();
+        assertTrue(clock.isRunning());
+
+        panel.setOffScreen(true);
+
+        assertTrue(panel.isSuspended());
+        assertFalse(animation.isPlaying());
+        assertFalse(clock.isRunning());
+
+        panel.setOffScreen(false);
+
+        assertFalse(panel.isSuspended());
+        assertEquals(List.of(true, false), suspensions);
+    }
+
+    /**
+     * Repaint manager painting the whole stand-in window into an offscreen surface whenever
+     * a component in it asks for a repaint, once per batch of requests.
+     */
+    private static class OffscreenRepaintManager extends RepaintManager {
+        private final JComponent root;
+        private final OffscreenSurface surface;
+        private final AtomicBoolean paintPosted = new AtomicBoolean();
+
+        /**
+         * Creates a new OffscreenRepaintManager.
+         *
+         * @param root the component standing in for the window
+         */
+        OffscreenRepaintManager(JComponent root) {
+            this.root = root;
+            this.surface = new OffscreenSurface(root.getWidth(), root.getHeight());
+        }
+
+        @Override
+        public void addDirtyRegion(JComponent c, int x, int y, int w, int h) {
+            if (SwingUtilities.isDescendingFrom(c, root) && paintPosted.compareAndSet(false, true)) {
+                SwingUtilities.invokeLater(() -> {
+                    paintPosted.set(false);
+                    surface.render(root);
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package one.cafebabe.globalbanner;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static one.cafebabe.globalbanner.TestSupport.FRAME_BUDGET;
+import static one.cafebabe.globalbanner.TestSupport.FRAME_INTERVAL;
+import static one.cafebabe.globalbanner.TestSupport.cpuTime;
+import static one.cafebabe.globalbanner.TestSupport.screenManager;
+import static one.cafebabe.globalbanner.TestSupport.screens;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the BannerRegistry class. Runs headless, with plain
+ * components standing in for the banner windows and a manual clock.
+ */
+public class BannerRegistryTest {
+    /**
+     * Number of banners driven at once
+     */
+    private static final int BANNER_COUNT = 120;
+
+    private ScreenManager screenManager;
+    private long now;
+    private AnimationClock clock;
+
+    @BeforeEach
+    public void setUp() {
+        screenManager = screenManager(4);
+        now = 0;
+        clock = AnimationClock.createManual(() -> now);
+    }
+
+    /**
+     * More than a hundred banners dodging at once are all moved by one clock, ticked once per frame,
+     * and arrive in their corners without overlapping.
+     */
+    @Test
+    public void testHundredBannersMoveOnOneClock() {
+        BannerRegistry registry = new BannerRegistry(screenManager, clock);
+        List<WindowManager> banners = new ArrayList<>();
+        for (int i = 0; i < BANNER_COUNT; i++) {
+            banners.add(addBanner(registry, "Display" + (i % 4)));
+        }
+        registry.layout();
+        List<Point> before = new ArrayList<>();
+        for (WindowManager banner : banners) {
+            before.add(banner.getFrame().getLocation());
+        }
+
+        long ticksBefore = clock.getTickCount();
+        int frames = dodgeAll(banners);
+        assertEquals(frames, clock.getTickCount() - ticksBefore);
+        assertFalse(clock.isRunning());
+
+        // Every banner moved to the bottom left corner area of its screen
+        for (int i = 0; i < banners.size(); i++) {
+            WindowManager banner = banners.get(i);
+            ScreenInfo screen = banner.getScreen();
+            Rectangle bounds = banner.getFrame().getBounds();
+            assertFalse(before.get(i).equals(bounds.getLocation()), "Banner did not move");
+            assertTrue(screen.getBounds().contains(bounds), "Banner left its screen: " + bounds);
+            assertTrue(bounds.x < screen.getX() + screen.getWidth() / 2, "Banner did not reach its corner: " + bounds);
+        }
+        assertNoOverlap(banners);
+    }
+
+    /**
+     * More than a hundred banners dodging at once tick within the frame budget. The CPU time of the
+     * frames is checked, so a busy host does not fail the test; the BannerRegistryBenchmark checks
+     * the same budget under JMH.
+     */
+    @Test
+    public void testHundredBannersTickWithinFrameBudget() {
+        BannerRegistry registry = new BannerRegistry(screenManager, clock);
+        List<WindowManager> banners = new ArrayList<>();
+        for (int i = 0; i < BANNER_COUNT; i++) {
+            banners.add(addBanner(registry, "Display" + (i % 4)));
+        }
+        registry.layout();
+
+        // Warm up, then measure the way back
+        dodgeAll(banners);
+        long start = cpuTime();
+        int frames = dodgeAll(banners);
+        long frameTime = (cpuTime() - start) / frames;
+
+        assertTrue(frameTime < FRAME_BUDGET, "A frame took " + frameTime / 1000 + " us of CPU time");
+    }
+
+    /**
+     * The number of clock wakeups does not depend on the number of banners moving:
+     * one banner or many, a dodge takes one wakeup per frame of the animation duration.
+     */
+    @Test
+    public void testWakeupsDoNotGrowWithBannerCount() {
+        BannerRegistry single = new BannerRegistry(screenManager, clock);
+        int singleFrames = dodgeAll(List.of(addBanner(single, "Display0")));
+
+        BannerRegistry many = new BannerRegistry(screenManager, clock);
+        List<WindowManager> banners = new ArrayList<>();
+        for (int i = 0; i < BANNER_COUNT; i++) {
+            banners.add(addBanner(many, "Display" + (i % 4)));
+        }
+        many.layout();
+        long ticksBefore = clock.getTickCount();
+        int manyFrames = dodgeAll(banners);
+
+        long durationFrames = WindowManager.ANIMATION_DURATION / FRAME_INTERVAL + 1;
+        assertTrue(singleFrames <= durationFrames, "One banner took " + singleFrames + " frames");
+        assertTrue(manyFrames <= durationFrames, BANNER_COUNT + " banners took " + manyFrames + " frames");
+        assertEquals(manyFrames, clock.getTickCount() - ticksBefore);
+        assertFalse(clock.isRunning());
+    }
+
+    /**
+     * Banners on the same screen are stacked instead of overlapping.
+     */
+    @Test
+    public void testBannersOnOneScreenAreStacked() {
+        BannerRegistry registry = new BannerRegistry(screenManager, clock);
+        List<WindowManager> banners = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            banners.add(addBanner(registry, "Display2"));
+        }
+        registry.layout();
+
+        ScreenInfo screen = screenManager.getTopology().find("Display2");
+        for (WindowManager banner : banners) {
+            assertTrue(screen.getBounds().contains(banner.getFrame().getBounds()));
+        }
+        assertNoOverlap(banners);
+    }
+
+    /**
+     * Banners pinned to a disconnected screen move to the selected screen.
+     */
+    @Test
+    public void testPinnedBannersFallBackWhenScreenDisconnected() {
+        BannerRegistry registry = new BannerRegistry(screenManager, clock);
+        List<WindowManager> banners = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            banners.add(addBanner(registry, "Display" + (i % 4)));
+        }
+        registry.layout();
+
+        screenManager.publishTopology(screens(3));
+
+        ScreenInfo selected = screenManager.getCurrentScreenInfo();
+        for (WindowManager banner : banners) {
+            Rectangle bounds = banner.getFrame().getBounds();
+            ScreenInfo screen = "Display3".equals(banner.getPinnedScreen())
+                    ? selected
+                    : screenManager.getTopology().find(banner.getPinnedScreen());
+            assertTrue(screen.getBounds().contains(bounds), "Banner not on " + screen.getId() + ": " + bounds);
+        }
+        assertNoOverlap(banners);
+    }
+
+    /**
+     * Floating banners are neither stacked nor moved by layouts.
+     */
+    @Test
+    public void testFloatingBannerStaysWherePlaced() {
+        BannerRegistry registry = new BannerRegistry(screenManager, clock);
+        WindowManager floating = registry.createFloatingBanner();
+        JPanel frame = new JPanel();
+        frame.setBounds(2500, 300, 200, 100);
+        floating.setFrame(frame);
+        addBanner(registry, "Display1");
+
+        registry.layout();
+
+        assertEquals(new Point(2500, 300), frame.getLocation());
+        assertEquals("Display1", floating.getScreen().getId());
+    }
+
+    /**
+     * A click leaves a banner anchored, a drag leaves it floating where it was dropped,
+     * and selecting a screen anchors a dropped banner again in the corner of that screen.
+     */
+    @Test
+    public void testSelectingScreenMovesDroppedBanner() {
+        BannerRegistry registry = new BannerRegistry(screenManager, clock);
+        WindowManager banner = addBanner(registry, null);
+        registry.layout();
+        Component frame = banner.getFrame();
+        MouseDragListener dragListener = new MouseDragListener(frame, banner, 0, false);
+
+        drag(dragListener, frame, 0, 0);
+        assertFalse(banner.isFloating());
+
+        drag(dragListener, frame, -300, -200);
+        assertTrue(banner.isFloating());
+
+        assertTrue(banner.selectScreen(0));
+        assertFalse(banner.isFloating());
+        assertEquals("Display0", banner.getScreen().getId());
+        assertTrue(banner.isAtCorner());
+        assertTrue(screenManager.getTopology().find("Display0").getBounds().contains(frame.getBounds()));
+    }
+
+    /**
+     * Clicking a banner in the middle of a dodge neither stops the dodge nor leaves the banner floating.
+     */
+    @Test
+    public void testClickDoesNotFreezeDodge() {
+        BannerRegistry registry = new BannerRegistry(screenManager, clock);
+        WindowManager banner = addBanner(registry, null);
+        registry.layout();
+        Component frame = banner.getFrame();
+        MouseDragListener dragListener = new MouseDragListener(frame, banner, 0, false);
+
+        banner.moveWindowToOppositeCorner();
+        now += FRAME_INTERVAL;
+        clock.tick(now);
+        int x = frame.getX() + 10;
+        int y = frame.getY() + 10;
+        dragListener.mousePressed(new MouseEvent(frame, MouseEvent.MOUSE_PRESSED, 0, 0, 10, 10, x, y, 1, false,
+                MouseEvent.BUTTON1));
+        dragListener.mouseReleased(new MouseEvent(frame, MouseEvent.MOUSE_RELEASED, 0, 0, 10, 10, x, y, 1, false,
+                MouseEvent.BUTTON1));
+
+        assertTrue(banner.isAnimating());
+        while (clock.isRunning()) {
+            now += FRAME_INTERVAL;
+            clock.tick(now);
+        }
+        assertFalse(banner.isFloating());
+        assertTrue(banner.isAtCorner());
+        assertTrue(banner.isAtBottomLeft());
+    }
+
+    /**
+     * Panels showing the same image share its render cache and hit mask.
+     */
+    @Test
+    public void testPanelsShareImageCaches() {
+        BannerRegistry registry = new BannerRegistry(screenManager, clock);
+        BufferedImage image = new BufferedImage(40, 20, BufferedImage.TYPE_INT_ARGB);
+        BannerPanel first = registry.createPanel(image);
+        BannerPanel second = registry.createPanel(image);
+        BannerPanel other = registry.createPanel(new BufferedImage(40, 20, BufferedImage.TYPE_INT_ARGB));
+
+        assertSame(first.getRenderCache(), second.getRenderCache());
+        assertSame(first.getHitMask(), second.getHitMask());
+        assertNotSame(first.getRenderCache(), other.getRenderCache());
+    }
+
+    /**
+     * An image prepared on a decoding thread comes with its variants for scaled screens,
+     * and swapping it in uses them as they are instead of scaling on the Event Dispatch Thread.
+     */
+    @Test
+    public void testPreparedContentIsScaledBeforeTheSwap() throws Exception {
+        List<ScreenInfo> screens = new ArrayList<>(screens(1));
+        screens.add(new ScreenInfo(1, "Display1", null, new Rectangle(1920, 0, 2560, 1440),
+                new Insets(0, 0, 0, 0), 1.5, 1.5, new DisplayMode(2560, 1440, 32, 60)));
+        screenManager.publishTopology(screens);
+        BannerRegistry registry = new BannerRegistry(screenManager, clock);
+        BannerPanel panel = registry.createPanel(new BufferedImage(40, 20, BufferedImage.TYPE_INT_ARGB));
+
+        FrameSource frames = FrameSource.of(new BufferedImage(200, 100, BufferedImage.TYPE_INT_ARGB));
+        ImageCache.Entry content = CompletableFuture.supplyAsync(() -> {
+            try {
+                return registry.prepare(frames);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).get();
+        assertEquals(300L * 150 * 4, content.getPyramid().getScaledBytes());
+        assertNotNull(content.getHitMask());
+
+        registry.setContent(content);
+
+        assertSame(content.getPyramid(), panel.getRenderCache().getPyramid());
+        assertSame(content.getHitMask(), panel.getHitMask());
+    }
+
+    /**
+     * Replacing the window moves the display change listener over instead of adding another,
+     * and a banner can be left without a window.
+     */
+    @Test
+    public void testSetFrameMovesDeviceListener() {
+        BannerRegistry registry = new BannerRegistry(screenManager, clock);
+        WindowManager banner = addBanner(registry, null);
+        Component first = banner.getFrame();
+        banner.setFrame(first);
+        assertEquals(1, first.getPropertyChangeListeners("graphicsConfiguration").length);
+
+        JPanel second = new JPanel();
+        banner.setFrame(second);
+        assertEquals(0, first.getPropertyChangeListeners("graphicsConfiguration").length);
+        assertEquals(1, second.getPropertyChangeListeners("graphicsConfiguration").length);
+
+        banner.setFrame(null);
+        assertNull(banner.getFrame());
+        assertEquals(0, second.getPropertyChangeListeners("graphicsConfiguration").length);
+    }
+
+    /**
+     * Adds a banner with a 200 x 100 component standing in for its window.
+     *
+     * @param registry the registry to add the banner to
+     * @param screenId the screen to pin the banner to
+     * @return the window manager of the banner
+     */
+    private static WindowManager addBanner(BannerRegistry registry, String screenId) {
+        WindowManager banner = registry.createBanner(screenId);
+        JPanel frame = new JPanel();
+        frame.setSize(200, 100);
+        banner.setFrame(frame);
+        return banner;
+    }
+
+    /**
+     * Drags a window by a distance and releases it, ticking the clock once in between.
+     *
+     * @param dragListener the drag listener of the window
+     * @param frame the component standing in for the window
+     * @param dx the horizontal distance in pixels
+     * @param dy the vertical distance in pixels
+     */
+    private void drag(MouseDragListener dragListener, Component frame, int dx, int dy) {
+        int x = frame.getX() + 10;
+        int y = frame.getY() + 10;
+        dragListener.mousePressed(new MouseEvent(frame, MouseEvent.MOUSE_PRESSED, 0, 0, 10, 10, x, y, 1, false,
+                MouseEvent.BUTTON1));
+        dragListener.mouseDragged(new MouseEvent(frame, MouseEvent.MOUSE_DRAGGED, 0, InputEvent.BUTTON1_DOWN_MASK,
+                10, 10, x + dx, y + dy, 1, false, MouseEvent.BUTTON1));
+        now += FRAME_INTERVAL;
+        clock.tick(now);
+        dragListener.mouseReleased(new MouseEvent(frame, MouseEvent.MOUSE_RELEASED, 0, 0, 10, 10, x + dx, y + dy, 1,
+                false, MouseEvent.BUTTON1));
+    }
+
+    /**
+     * Moves all banners to their opposite corner and ticks the clock until they arrive.
+     *
+     * @param banners the banners to move
+     * @return the number of frames the move took
+     */
+    private int dodgeAll(List<WindowManager> banners) {
+        for (WindowManager banner : banners) {
+            banner.moveWindowToOppositeCorner();
+        }
+
+        int frames = 0;
+        while (clock.isRunning()) {
+            now += FRAME_INTERVAL;
+            clock.tick(now);
+            frames++;
+        }
+        return frames;
+    }
+
+    /**
+     * Asserts that no two banners overlap.
+     *
+     * @param banners the banners to check
+     */
+    private static void assertNoOverlap(List<WindowManager> banners) {
+        for (int i = 0; i < banners.size(); i++) {
+            for (int j = i + 1; j < banners.size(); j++) {
+                Rectangle a = banners.get(i).getFrame().getBounds();
+                Rectangle b = banners.get(j).getFrame().getBounds();
+                assertFalse(a.intersects(b), "Banners overlap: " + a + " and " + b);
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package one.cafebabe.globalbanner;
+
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.awt.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static one.cafebabe.globalbanner.TestSupport.onEdt;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the BannerState and BannerStateStore classes. Runs headless, with
+ * a plain component standing in for the banner window and state files in a temporary directory.
+ */
+public class BannerStateTest {
+    /**
+     * Left screen as probed
+     */
+    private static final ScreenInfo LEFT = new ScreenInfo(0, "Display0", null, new Rectangle(0, 0, 1920, 1080),
+            new Insets(0, 0, 0, 0), 1.0, 1.0, new DisplayMode(1920, 1080, 32, 60));
+
+    /**
+     * Right screen as probed, where the banner was left
+     */
+    private static final ScreenInfo RIGHT = new ScreenInfo(1, "Display1", null, new Rectangle(1920, 0, 2560, 1440),
+            new Insets(0, 0, 40, 0), 1.5, 1.5, new DisplayMode(2560, 1440, 32, 144));
+
+    /**
+     * A state survives encoding, and so does a content path with non-ASCII characters.
+     */
+    @Test
+    public void testEncodeDecode() {
+        BannerState state = new BannerState(RIGHT, new Rectangle(2100, 300, 400, 100), true, true, false,
+                "/srv/banners/Ünïcode banner.png");
+
+        byte[] bytes = state.encode(42);
+        assertEquals(BannerState.SIZE, bytes.length);
+        BannerState decoded = BannerState.decode(bytes);
+
+        assertEquals(state, decoded);
+        assertTrue(decoded.getScreen().hasSameLayout(RIGHT));
+        assertNull(decoded.getScreen().getDevice());
+        assertEquals("/srv/banners/Ünïcode banner.png", decoded.getContent());
+    }
+
+    /**
+     * Content too long for its field is left out rather than cut off.
+     */
+    @Test
+    public void testContentTooLongIsLeftOut() {
+        BannerState state = new BannerState(LEFT, new Rectangle(0, 0, 10, 10), false, false, true, "x".repeat(1000));
+
+        BannerState decoded = BannerState.decode(state.encode(1));
+
+        assertNotNull(decoded);
+        assertNull(decoded.getContent());
+    }
+
+    /**
+     * A damaged, truncated or foreign record is rejected.
+     */
+    @Test
+    public void testDamagedStateIsRejected() {
+        byte[] bytes = new BannerState(LEFT, new Rectangle(50, 930, 400, 100), false, false, true, null).encode(1);
+
+        for (int offset : new int[]{0, 20, 100, 200, BannerState.SIZE - 1}) {
+            byte[] damaged = bytes.clone();
+            damaged[offset] ^= 0x10;
+            assertNull(BannerState.decode(damaged), "Damage at " + offset + " not detected");
+        }
+        assertNull(BannerState.decode(Arrays.copyOf(bytes, 300)));
+        assertNull(BannerState.decode(new byte[BannerState.SIZE]));
+    }
+
+    /**
+     * A burst of state changes is written once, atomically, leaving no temporary file behind,
+     * and a torn temporary file from a crash does not affect loading.
+     */
+    @Test
+    public void testWritesAreCoalescedAndAtomic() throws Exception {
+        Path directory = Files.createTempDirectory("globalbanner");
+        Path file = directory.resolve("state");
+        BannerStateStore store = new BannerStateStore(file, 10_000);
+        Harness harness = new Harness();
+
+        SwingUtilities.invokeAndWait(() -> {
+            harness.screenManager.publishTopology(List.of(LEFT, RIGHT));
+            harness.screenManager.selectDefaultScreen();
+            harness.windowManager.positionWindowOnCurrentScreen();
+            store.track(harness.windowManager);
+        });
+
+        // A drag across the screen, one move per event
+        for (int i = 0; i < 100; i++) {
+            int x = 2000 + i * 5;
+            SwingUtilities.invokeAndWait(() -> harness.frame.setLocation(x, 400));
+        }
+        SwingUtilities.invokeAndWait(() -> store.setContent("/srv/banners/b.png"));
+        store.flush();
+
+        assertEquals(1, store.getWriteCount());
+        assertTrue(onEdt(store::getRecordCount) > 90, "Only " + store.getRecordCount() + " states recorded");
+        assertEquals(BannerState.SIZE, Files.size(file));
+        assertFalse(Files.exists(directory.resolve("state.tmp")));
+
+        // A crash while writing the next state leaves a torn temporary file
+        Files.write(directory.resolve("state.tmp"), new byte[17]);
+        BannerState loaded = store.load();
+        assertEquals(new Rectangle(2495, 400, 400, 100), loaded.getWindowBounds());
+        assertFalse(loaded.isAtCorner());
+        assertEquals("Display1", loaded.getScreen().getId());
+        assertEquals("/srv/banners/b.png", loaded.getContent());
+
+        // Nothing changed since, so nothing more is written
+        store.flush();
+        assertEquals(1, store.getWriteCount());
+        store.close();
+    }
+
+    /**
+     * A write waits until the state has stopped changing for the write delay, so a slow drag
+     * longer than the delay is still written once, when it ends.
+     */
+    @Test
+    public void testWriteWaitsForTheLastChange() throws Exception {
+        Path directory = Files.createTempDirectory("globalbanner");
+        BannerStateStore store = new BannerStateStore(directory.resolve("state"), 1000);
+        Harness harness = new Harness();
+        SwingUtilities.invokeAndWait(() -> {
+            harness.screenManager.publishTopology(List.of(LEFT, RIGHT));
+            harness.screenManager.selectDefaultScreen();
+            harness.windowManager.positionWindowOnCurrentScreen();
+            store.track(harness.windowManager);
+        });
+
+        for (int i = 0; i < 15; i++) {
+            int x = 2000 + i * 5;
+            SwingUtilities.invokeAndWait(() -> harness.frame.setLocation(x, 400));
+            Thread.sleep(100);
+        }
+        assertEquals(0, store.getWriteCount(), "Written before the drag ended");
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (store.getWriteCount() == 0) {
+            assertTrue(System.currentTimeMillis() < deadline, "Not written after the drag ended");
+            Thread.sleep(50);
+        }
+        assertEquals(new Point(2070, 400), store.load().getWindowBounds().getLocation());
+        store.close();
+        assertEquals(1, store.getWriteCount());
+    }
+
+    /**
+     * A banner restored before the screens are probed is placed where it was left, and stays
+     * there when the probe confirms the screen.
+     */
+    @Test
+    public void testRestoreBeforeProbeDoesNotJump() throws Exception {
+        for (boolean atCorner : new boolean[]{true, false}) {
+            Harness saved = new Harness();
+            BannerState state = onEdt(() -> {
+                saved.screenManager.publishTopology(List.of(LEFT, RIGHT));
+                saved.screenManager.selectDefaultScreen();
+                saved.windowManager.positionWindowOnCurrentScreen();
+                if (!atCorner) {
+                    saved.windowManager.moveTo(2600, 500);
+                }
+                return BannerState.capture(saved.windowManager, null);
+            });
+            assertEquals(atCorner, state.isAtCorner());
+            Rectangle expected = state.getWindowBounds();
+
+            Harness restored = new Harness();
+            List<Point> locations = new ArrayList<>();
+            onEdt(() -> {
+                restored.screenManager.restoreScreen(BannerState.decode(state.encode(1)).getScreen());
+                restored.registry.layout();
+                restored.windowManager.restore(state);
+                locations.add(restored.frame.getLocation());
+
+                // The probe confirms the screen
+                restored.screenManager.publishDetectedScreens(List.of(LEFT, RIGHT));
+                locations.add(restored.frame.getLocation());
+                return null;
+            });
+
+            assertEquals(expected.getLocation(), locations.get(0), "Restored away from where it was left");
+            assertEquals(expected.getLocation(), locations.get(1), "Jumped when the probe confirmed the screen");
+            assertEquals(!atCorner, onEdt(restored.windowManager::isFloating));
+            assertFalse(onEdt(restored.screenManager::isProvisional));
+            assertEquals("Display1", onEdt(() -> restored.screenManager.getCurrentScreenInfo().getId()));
+        }
+    }
+
+    /**
+     * A banner restored in its corner moves to the corner of the screen as probed if it has changed.
+     */
+    @Test
+    public void testProbeCorrectsRestoredPlacement() throws Exception {
+        BannerState state = new BannerState(RIGHT, new Rectangle(1970, 1290, 400, 100), true, false, true, null);
+        Harness restored = new Harness();
+
+        Point corrected = onEdt(() -> {
+            restored.screenManager.restoreScreen(state.getScreen());
+            restored.registry.layout();
+            restored.windowManager.restore(state);
+            assertEquals(new Point(1970, 1290), restored.frame.getLocation());
+
+            // The right screen has been switched to a lower resolution since
+            ScreenInfo lower = new ScreenInfo(1, "Display1", null, new Rectangle(1920, 0, 1920, 1080),
+                    new Insets(0, 0, 0, 0), 1.0, 1.0, new DisplayMode(1920, 1080, 32, 60));
+            restored.screenManager.publishDetectedScreens(List.of(LEFT, lower));
+            return restored.frame.getLocation();
+        });
+
+        assertEquals(new Point(1920 + WindowManager.MARGIN, 1080 - 100 - WindowManager.MARGIN), corrected);
+    }
+
+    /**
+     * A banner saved away from its corner without floating, e.g. in the middle of a dodge,
+     * is restored to the corner it was saved in rather than where it happened to be.
+     */
+    @Test
+    public void testRestoreAnchorsBannerThatDidNotFloat() throws Exception {
+        BannerState state = new BannerState(RIGHT, new Rectangle(2600, 500, 400, 100), true, false, false, null);
+        Harness restored = new Harness();
+
+        onEdt(() -> {
+            restored.screenManager.restoreScreen(state.getScreen());
+            restored.registry.layout();
+            restored.windowManager.restore(state);
+            return null;
+        });
+
+        assertEquals(new Point(1970, 1290), onEdt(restored.frame::getLocation));
+        assertFalse(onEdt(restored.windowManager::isFloating));
+    }
+
+    /**
+     * A banner with a plain component standing in for its window.
+     */
+    private static final class Harness {
+        /**
+         * Screen manager of the banner
+         */
+        final ScreenManager screenManager = new ScreenManager();
+
+        /**
+         * Registry laying out the banner
+         */
+        final BannerRegistry registry = new BannerRegistry(screenManager, AnimationClock.createManual(() -> 0));
+
+        /**
+         * Window manager of the banner
+         */
+        final WindowManager windowManager = registry.createBanner(null);
+
+        /**
+         * Component standing in for the banner window
+         */
+        final JPanel frame = new JPanel();
+
+        /**
+         * Creates a banner of 400 by 100 pixels.
+         */
+        Harness() {
+            frame.setSize(400, 100);
+            windowManager.setFrame(frame);
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package one.cafebabe.globalbanner;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static one.cafebabe.globalbanner.TestSupport.FRAME_INTERVAL;
+import static one.cafebabe.globalbanner.TestSupport.onEdt;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the ControlServer class. Drives the server through a local client
+ * and records what reaches the Event Dispatch Thread.
+ */
+public class ControlServerTest {
+    /**
+     * Number of commands in the burst
+     */
+    private static final int BURST = 20_000;
+
+    /**
+     * Target recording the applied commands; only accessed on the EDT but for the count of prepared images.
+     */
+    private static class RecordingTarget implements ControlServer.Target {
+        /**
+         * Applied commands, one line each
+         */
+        final List<String> applied = new ArrayList<>();
+
+        /**
+         * Frames of the latest applied image, or null
+         */
+        FrameSource image = null;
+
+        /**
+         * Number of images prepared on the decoder thread
+         */
+        final AtomicInteger prepared = new AtomicInteger();
+
+        @Override
+        public void selectScreen(String screen) {
+            applied.add("screen " + screen);
+        }
+
+        @Override
+        public void moveToCorner(boolean left) {
+            applied.add("corner " + (left ? "left" : "right"));
+        }
+
+        @Override
+        public void moveTo(int x, int y) {
+            applied.add("move " + x + " " + y);
+        }
+
+        @Override
+        public void setBannersVisible(boolean visible) {
+            applied.add(visible ? "show" : "hide");
+        }
+
+        @Override
+        public ImageCache.Entry prepareImage(FrameSource frames) {
+            prepared.incrementAndGet();
+            return new ImageCache.Entry(frames, null, null);
+        }
+
+        @Override
+        public void showImage(Path file, ImageCache.Entry content) {
+            applied.add("image " + file.getFileName());
+            image = content.getFrames();
+        }
+    }
+
+    /**
+     * A burst of commands collapses into a few hand-overs, and the latest state wins.
+     */
+    @Test
+    public void testCoalescesBurstIntoLatestState() throws Exception {
+        RecordingTarget target = new RecordingTarget();
+        try (ControlServer server = ControlServer.openTcp(0, target, FRAME_INTERVAL);
+             SocketChannel client = SocketChannel.open(server.getAddress())) {
+            StringBuilder commands = new StringBuilder();
+            for (int i = 0; i < BURST; i++) {
+                commands.append("move ").append(i).append(' ').append(-i).append('\n');
+            }
+            commands.append("sync\n");
+
+            long start = System.nanoTime();
+            send(client, commands.toString());
+            assertEquals("ok", readLine(client));
+            long elapsed = System.nanoTime() - start;
+
+            List<String> applied = onEdt(() -> new ArrayList<>(target.applied));
+            assertEquals("move " + (BURST - 1) + " " + -(BURST - 1), applied.get(applied.size() - 1));
+            assertTrue(applied.size() < BURST / 100, applied.size() + " commands reached the EDT");
+            assertEquals(BURST + 1, server.getCommandCount());
+            assertTrue(elapsed < TimeUnit.SECONDS.toNanos(5),
+                    "Burst took " + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms");
+        }
+    }
+
+    /**
+     * Each kind of command keeps its own latest value, so no command is lost to another kind.
+     */
+    @Test
+    public void testKeepsLatestCommandOfEachKind() throws Exception {
+        RecordingTarget target = new RecordingTarget();
+        try (ControlServer server = ControlServer.openTcp(0, target, FRAME_INTERVAL);
+             SocketChannel client = SocketChannel.open(server.getAddress())) {
+            send(client, "screen 1\nhide\ncorner left\nscreen Display0\nshow\nsync\n");
+            assertEquals("ok", readLine(client));
+
+            List<String> applied = onEdt(() -> new ArrayList<>(target.applied));
+            assertTrue(applied.contains("corner left"), applied.toString());
+            assertEquals("screen Display0", last(applied, "screen"));
+            assertTrue(applied.lastIndexOf("show") > applied.lastIndexOf("hide"), applied.toString());
+        }
+    }
+
+    /**
+     * Malformed commands are answered with errors and do not stop the client's later commands.
+     */
+    @Test
+    public void testRejectsMalformedCommands() throws Exception {
+        RecordingTarget target = new RecordingTarget();
+        try (ControlServer server = ControlServer.openTcp(0, target, FRAME_INTERVAL);
+             SocketChannel client = SocketChannel.open(server.getAddress())) {
+            send(client, "jump 1\nmove x 2\ncorner up\ncorner right\nsync\n");
+
+            assertEquals("error unknown command: jump", readLine(client));
+            assertTrue(readLine(client).startsWith("error move"));
+            assertTrue(readLine(client).startsWith("error corner"));
+            assertEquals("ok", readLine(client));
+            assertEquals(List.of("corner right"), onEdt(() -> new ArrayList<>(target.applied)));
+        }
+    }
+
+    /**
+     * Images are decoded in the background, and a sync waits until the image is shown.
+     */
+    @Test
+    public void testSyncWaitsForDecodedImage() throws Exception {
+        Path file = Files.createTempFile("control", ".png");
+        try {
+            ImageIO.write(new BufferedImage(48, 24, BufferedImage.TYPE_INT_ARGB), "png", file.toFile());
+            RecordingTarget target = new RecordingTarget();
+            try (ControlServer server = ControlServer.openTcp(0, target, FRAME_INTERVAL);
+                 SocketChannel client = SocketChannel.open(server.getAddress())) {
+                send(client, "image " + file + "\nsync\n");
+                assertEquals("ok", readLine(client));
+
+                FrameSource image = onEdt(() -> target.image);
+                assertNotNull(image);
+                assertEquals(48, image.getWidth());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * A burst of image commands is decoded one at a time, skipping all but the latest
+     * image requested while another is being decoded.
+     */
+    @Test
+    public void testCoalescesImageBurstBeforeDecoding() throws Exception {
+        Path first = Files.createTempFile("control", ".png");
+        Path last = Files.createTempFile("control", ".png");
+        try {
+            ImageIO.write(new BufferedImage(48, 24, BufferedImage.TYPE_INT_ARGB), "png", first.toFile());
+            ImageIO.write(new BufferedImage(64, 32, BufferedImage.TYPE_INT_ARGB), "png", last.toFile());
+            RecordingTarget target = new RecordingTarget();
+            try (ControlServer server = ControlServer.openTcp(0, target, FRAME_INTERVAL);
+                 SocketChannel client = SocketChannel.open(server.getAddress())) {
+                StringBuilder commands = new StringBuilder();
+                for (int i = 0; i < 1000; i++) {
+                    commands.append("image ").append(first).append('\n');
+                }
+                commands.append("image ").append(last).append("\nsync\n");
+                send(client, commands.toString());
+                assertEquals("ok", readLine(client));
+
+                assertEquals(64, onEdt(() -> target.image).getWidth());
+                assertTrue(target.prepared.get() < 10, target.prepared.get() + " images prepared");
+            }
+        } finally {
+            Files.deleteIfExists(first);
+            Files.deleteIfExists(last);
+        }
+    }
+
+    /**
+     * A client that pipelines far more commands than fit into the reply buffer before reading
+     * gets every reply, because the server stops reading it until it catches up.
+     */
+    @Test
+    public void testSlowReaderGetsEveryReply() throws Exception {
+        RecordingTarget target = new RecordingTarget();
+        try (ControlServer server = ControlServer.openTcp(0, target, FRAME_INTERVAL);
+             SocketChannel client = SocketChannel.open(server.getAddress())) {
+            int count = BURST * 5;
+            StringBuilder commands = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                commands.append(i % 100 == 99 ? "sync\n" : "jump\n");
+            }
+            Thread sender = new Thread(() -> {
+                try {
+                    send(client, commands.toString());
+                } catch (IOException e) {
+                    // Reported by the missing replies
+                }
+            });
+            sender.start();
+
+            // Let the replies pile up far beyond the reply buffer before reading any
+            Thread.sleep(200);
+            List<String> replies = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                    () -> readLines(client, count));
+            sender.join();
+
+            // Errors are answered at once, syncs once the commands before them are applied
+            long syncs = replies.stream().filter("ok"::equals).count();
+            long errors = replies.stream().filter("error unknown command: jump"::equals).count();
+            assertEquals(count / 100, syncs);
+            assertEquals(count - count / 100, errors);
+        }
+    }
+
+    /**
+     * The server also listens on a Unix domain socket and removes it on close.
+     */
+    @Test
+    public void testUnixDomainSocket() throws Exception {
+        Path socketFile = Files.createTempDirectory("control").resolve("banner.sock");
+        RecordingTarget target = new RecordingTarget();
+        try (ControlServer server = ControlServer.openUnix(socketFile, target, FRAME_INTERVAL);
+             SocketChannel client = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            client.connect(server.getAddress());
+            send(client, "move 10 20\nsync\n");
+            assertEquals("ok", readLine(client));
+            assertEquals(List.of("move 10 20"), onEdt(() -> new ArrayList<>(target.applied)));
+        }
+        assertFalse(Files.exists(socketFile));
+        Files.delete(socketFile.getParent());
+    }
+
+    /**
+     * A socket left behind by an earlier run is replaced, but any other file at the path is kept.
+     */
+    @Test
+    public void testUnixDomainSocketOnlyReplacesSockets() throws Exception {
+        Path directory = Files.createTempDirectory("control");
+        Path socketFile = directory.resolve("banner.sock");
+        Path regularFile = Files.writeString(directory.resolve("banner.txt"), "keep");
+        RecordingTarget target = new RecordingTarget();
+        try {
+            try (ServerSocketChannel stale = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+                stale.bind(UnixDomainSocketAddress.of(socketFile));
+            }
+            assertTrue(Files.exists(socketFile));
+            ControlServer.openUnix(socketFile, target, FRAME_INTERVAL).close();
+
+            assertThrows(FileAlreadyExistsException.class,
+                    () -> ControlServer.openUnix(regularFile, target, FRAME_INTERVAL));
+            assertEquals("keep", Files.readString(regularFile));
+        } finally {
+            Files.deleteIfExists(socketFile);
+            Files.delete(regularFile);
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Sends commands to the server.
+     *
+     * @param client the client channel
+     * @param commands the command lines
+     */
+    private static void send(SocketChannel client, String commands) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(commands.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            client.write(buffer);
+        }
+    }
+
+    /**
+     * Reads one reply line from the server.
+     *
+     * @param client the client channel
+     * @return the reply without the line break
+     */
+    private static String readLine(SocketChannel client) throws IOException {
+        StringBuilder line = new StringBuilder();
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        while (true) {
+            buffer.clear();
+            if (client.read(buffer) < 0) {
+                fail("Connection closed after " + line);
+            }
+            char c = (char) buffer.get(0);
+            if (c == '\n') {
+                return line.toString();
+            }
+            line.append(c);
+        }
+    }
+
+    /**
+     * Reads reply lines from the server in bulk.
+     *
+     * @param client the client channel
+     * @param count the number of lines to read
+     * @return the replies without the line breaks
+     */
+    private static List<String> readLines(SocketChannel client, int count) throws IOException {
+        List<String> lines = new ArrayList<>(count);
+        StringBuilder line = new StringBuilder();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        while (lines.size() < count) {
+            buffer.clear();
+            if (client.read(buffer) < 0) {
+                fail("Connection closed after " + lines.size() + " replies");
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                char c = (char) buffer.get();
+                if (c == '\n') {
+                    lines.add(line.toString());
+                    line.setLength(0);
+                } else {
+                    line.append(c);
+                }
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Finds the last applied command of a kind.
+     *
+     * @param applied the applied commands
+     * @param kind the command name
+     * @return the last command of that kind, or null
+     */
+    private static String last(List<String> applied, String kind) {
+        String last = null;
+        for (String command : applied) {
+            if (command.startsWith(kind + " ")) {
+                last = command;
+            }
+        }
+        return last;
+    }
+}
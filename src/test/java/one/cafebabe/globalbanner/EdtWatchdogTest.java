@@ -0,0 +1,68 @@
+package one.cafebabe.globalbanner;
+
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the EdtWatchdog class, with the real Event Dispatch Thread.
+ */
+public class EdtWatchdogTest {
+    /**
+     * Dispatch latency above which the EDT counts as stalled, in milliseconds
+     */
+    private static final long THRESHOLD_MILLIS = 50;
+
+    /**
+     * How long the EDT is blocked, in milliseconds
+     */
+    private static final long BLOCK_MILLIS = 400;
+
+    /**
+     * A blocked EDT is recorded as a stall of about the time it was blocked, with stacks
+     * sampled in the blocking task, even though the heartbeat interval asked for is longer
+     * than the threshold.
+     */
+    @Test
+    public void testBlockedEdtIsRecordedWithSamples() throws Exception {
+        EdtWatchdog watchdog = new EdtWatchdog(THRESHOLD_MILLIS, 1000, 5, 4);
+        watchdog.start();
+        try {
+            // Let the watchdog get going, so the block starts between two heartbeats
+            Thread.sleep(2 * THRESHOLD_MILLIS);
+            SwingUtilities.invokeAndWait(EdtWatchdogTest::blockEdt);
+
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+            while (watchdog.getStallCount() == 0) {
+                assertTrue(System.currentTimeMillis() < deadline, "Stall was not recorded");
+                Thread.sleep(10);
+            }
+        } finally {
+            watchdog.stop();
+        }
+
+        EdtWatchdog.Stall stall = watchdog.getWorstStalls().get(0);
+        assertTrue(stall.getDuration() >= TimeUnit.MILLISECONDS.toNanos(BLOCK_MILLIS - 2 * THRESHOLD_MILLIS),
+                "Stall understated: " + TimeUnit.NANOSECONDS.toMillis(stall.getDuration()) + " ms");
+        assertFalse(stall.getSamples().isEmpty(), "No stacks were sampled");
+        assertTrue(stall.getStackCounts().get(0).getKey().stream()
+                .anyMatch(frame -> frame.getMethodName().equals("blockEdt")), watchdog.dumpStalls());
+    }
+
+    /**
+     * Blocks the calling thread, standing in for slow work on the Event Dispatch Thread.
+     */
+    private static void blockEdt() {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(BLOCK_MILLIS);
+        while (System.nanoTime() < end) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
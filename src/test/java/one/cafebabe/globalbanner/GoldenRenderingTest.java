@@ -0,0 +1,238 @@
+package one.cafebabe.globalbanner;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static one.cafebabe.globalbanner.TestSupport.FRAME_BUDGET;
+import static one.cafebabe.globalbanner.TestSupport.FRAME_INTERVAL;
+import static one.cafebabe.globalbanner.TestSupport.cpuTime;
+import static one.cafebabe.globalbanner.TestSupport.screenManager;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Renders the banner and its dodge animation headless, against an offscreen surface
+ * and a manual clock, and compares the results with golden images and paths in
+ * {@code src/test/resources/golden}. Run {@code ./gradlew test -PupdateGolden}
+ * to record new golden files after an intended change. Wall-clock frame times are written
+ * to {@code build/reports/frame-times} for reference; the CPU time of a frame is checked
+ * against the frame budget.
+ */
+public class GoldenRenderingTest {
+    /**
+     * Largest difference of a color channel that still counts as a match
+     */
+    private static final int CHANNEL_TOLERANCE = 3;
+
+    /**
+     * Share of pixels that may differ by more than the tolerance, e.g. along antialiased edges
+     */
+    private static final double MISMATCH_TOLERANCE = 0.001;
+
+    /**
+     * Directory the golden files are recorded to
+     */
+    private static final Path GOLDEN_DIR = Paths.get("src", "test", "resources", "golden");
+
+    /**
+     * Directory frame time reports and mismatching renders are written to
+     */
+    private static final Path REPORT_DIR = Paths.get("build", "reports", "frame-times");
+
+    /**
+     * The banner image renders exactly as recorded.
+     */
+    @Test
+    public void testBannerPanelMatchesGolden() throws IOException {
+        BannerPanel panel = Main.getJPanel(ImageLoader.loadResource("/image.png"));
+        Dimension size = panel.getPreferredSize();
+        OffscreenSurface surface = new OffscreenSurface(size.width, size.height);
+
+        assertMatchesGolden("banner-1x", surface.render(panel));
+    }
+
+    /**
+     * On a screen scaled by two, the banner is drawn from its pre-scaled variant as recorded.
+     */
+    @Test
+    public void testScaledBannerPanelMatchesGolden() throws IOException {
+        BannerPanel panel = Main.getJPanel(createShapes());
+        Dimension size = panel.getPreferredSize();
+        OffscreenSurface surface = new OffscreenSurface(size.width, size.height, 2.0);
+
+        BufferedImage rendered = surface.render(panel);
+
+        assertEquals(2 * size.width, rendered.getWidth());
+        assertMatchesGolden("shapes-2x", rendered);
+    }
+
+    /**
+     * The dodge follows the recorded path frame by frame, and its frames tick and paint within
+     * the frame budget. The CPU time of the frames is checked, so a busy host does not fail the
+     * test; the DodgeFrameBenchmark checks the same budget under JMH.
+     */
+    @Test
+    public void testDodgeTrajectoryMatchesGolden() throws IOException {
+        long[] now = {0};
+        AnimationClock clock = AnimationClock.createManual(() -> now[0]);
+        ScreenManager screenManager = screenManager(1);
+
+        BannerPanel panel = Main.getJPanel(ImageLoader.loadResource("/image.png"));
+        JPanel frame = new JPanel(new BorderLayout());
+        frame.add(panel);
+        frame.setSize(panel.getPreferredSize());
+        // Without a window, validate() would not lay the panel out
+        frame.doLayout();
+        WindowManager windowManager = new WindowManager(screenManager, clock);
+        windowManager.setFrame(frame);
+        windowManager.positionWindowOnCurrentScreen();
+        OffscreenSurface surface = new OffscreenSurface(frame.getWidth(), frame.getHeight());
+        RollingHistogram frameTimes = new RollingHistogram(1024);
+
+        // The first paint converts the image for the surface, which startup does before showing the banner
+        surface.render(frame);
+        assertTrue(panel.getPaintCount() > 0, "Panel was not painted");
+
+        // Two dodges, there and back again, one frame at a time
+        StringBuilder path = new StringBuilder();
+        int frames = 0;
+        long cpuStart = cpuTime();
+        for (int dodge = 0; dodge < 2; dodge++) {
+            windowManager.moveWindowToOppositeCorner();
+            while (clock.isRunning()) {
+                now[0] += FRAME_INTERVAL;
+                long start = System.nanoTime();
+                clock.tick(now[0]);
+                surface.render(frame);
+                frameTimes.record(System.nanoTime() - start);
+                path.append(TimeUnit.NANOSECONDS.toMillis(now[0])).append(',')
+                        .append(frame.getX()).append(',').append(frame.getY()).append('\n');
+                frames++;
+            }
+        }
+        long frameTime = (cpuTime() - cpuStart) / frames;
+
+        writeFrameTimes("dodge", frameTimes);
+        assertMatchesGolden("dodge", path.toString());
+        assertTrue(frameTime < FRAME_BUDGET, "A frame took " + frameTime / 1000 + " us of CPU time");
+    }
+
+    /**
+     * Creates a small image with translucent shapes.
+     *
+     * @return the image
+     */
+    private static BufferedImage createShapes() {
+        BufferedImage image = new BufferedImage(64, 32, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(new Color(220, 40, 40));
+        g.fillOval(2, 2, 28, 28);
+        g.setPaint(new GradientPaint(32, 0, new Color(40, 80, 220, 255), 64, 0, new Color(40, 80, 220, 0)));
+        g.fillRect(32, 4, 30, 24);
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * Asserts that a rendered image matches its golden image, within the tolerances.
+     * The render is written next to the reports if it does not match.
+     *
+     * @param name the name of the golden image
+     * @param actual the rendered image
+     */
+    private static void assertMatchesGolden(String name, BufferedImage actual) throws IOException {
+        if (Boolean.getBoolean("globalbanner.updateGolden")) {
+            Files.createDirectories(GOLDEN_DIR);
+            ImageIO.write(actual, "png", GOLDEN_DIR.resolve(name + ".png").toFile());
+            return;
+        }
+
+        BufferedImage expected;
+        try (InputStream stream = GoldenRenderingTest.class.getResourceAsStream("/golden/" + name + ".png")) {
+            assertNotNull(stream, "No golden image " + name);
+            expected = ImageIO.read(stream);
+        }
+        assertEquals(expected.getWidth(), actual.getWidth(), "Width of " + name);
+        assertEquals(expected.getHeight(), actual.getHeight(), "Height of " + name);
+
+        int mismatches = 0;
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                if (!matches(expected.getRGB(x, y), actual.getRGB(x, y))) {
+                    mismatches++;
+                }
+            }
+        }
+        double share = (double) mismatches / (expected.getWidth() * expected.getHeight());
+        if (share > MISMATCH_TOLERANCE) {
+            Files.createDirectories(REPORT_DIR);
+            ImageIO.write(actual, "png", REPORT_DIR.resolve(name + "-actual.png").toFile());
+            fail(mismatches + " pixels of " + name + " differ from the golden image");
+        }
+    }
+
+    /**
+     * Asserts that a recorded path matches its golden path exactly.
+     *
+     * @param name the name of the golden path
+     * @param actual the recorded path, one {@code millis,x,y} line per frame
+     */
+    private static void assertMatchesGolden(String name, String actual) throws IOException {
+        if (Boolean.getBoolean("globalbanner.updateGolden")) {
+            Files.createDirectories(GOLDEN_DIR);
+            Files.writeString(GOLDEN_DIR.resolve(name + ".csv"), actual);
+            return;
+        }
+
+        try (InputStream stream = GoldenRenderingTest.class.getResourceAsStream("/golden/" + name + ".csv")) {
+            assertNotNull(stream, "No golden path " + name);
+            assertEquals(new String(stream.readAllBytes(), StandardCharsets.UTF_8), actual, "Path of " + name);
+        }
+    }
+
+    /**
+     * Checks whether two colors match within the channel tolerance.
+     *
+     * @param expected the expected ARGB color
+     * @param actual the actual ARGB color
+     * @return true if no channel differs by more than the tolerance
+     */
+    private static boolean matches(int expected, int actual) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            if (Math.abs(((expected >>> shift) & 0xff) - ((actual >>> shift) & 0xff)) > CHANNEL_TOLERANCE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the frame time histogram of a run as CSV, one bucket per line.
+     *
+     * @param name the name of the run
+     * @param frameTimes the frame times
+     */
+    private static void writeFrameTimes(String name, RollingHistogram frameTimes) throws IOException {
+        long[] bounds = RollingHistogram.getBucketBounds();
+        long[] counts = frameTimes.getBucketCounts();
+        List<String> lines = new ArrayList<>();
+        lines.add("upper_bound_us,frames");
+        for (int i = 0; i < counts.length; i++) {
+            lines.add((i < bounds.length ? String.valueOf(bounds[i] / 1000) : "inf") + "," + counts[i]);
+        }
+        Files.createDirectories(REPORT_DIR);
+        Files.write(REPORT_DIR.resolve(name + ".csv"), lines);
+    }
+}
@@ -0,0 +1,49 @@
+package one.cafebabe.globalbanner;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the ImageCache class.
+ */
+public class ImageCacheTest {
+    /**
+     * An image that gained a variant for another scale after it was cached is taken off
+     * the budget by the size it was added with, so the cache size stays exact.
+     */
+    @Test
+    public void testEvictingImageWithLazyVariantKeepsSize() {
+        ImageCache.Entry first = createEntry();
+        ImageCache.Entry second = createEntry();
+        long bytes = first.getBytes();
+        ImageCache<String> cache = new ImageCache<>(bytes * 3 / 2);
+
+        cache.put("first", first);
+        first.getPyramid().getVariant(2, 2);
+        assertTrue(first.getBytes() > bytes, "No variant was added");
+
+        cache.put("second", second);
+        assertFalse(cache.contains("first"));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(bytes, cache.getSizeBytes());
+
+        // Replacing an image takes off its size as added, too
+        second.getPyramid().getVariant(2, 2);
+        cache.put("second", createEntry());
+        assertEquals(bytes, cache.getSizeBytes());
+    }
+
+    /**
+     * Creates a cache entry for a 100 x 50 still image with no variants yet.
+     *
+     * @return the entry
+     */
+    private static ImageCache.Entry createEntry() {
+        BufferedImage image = new BufferedImage(100, 50, BufferedImage.TYPE_INT_ARGB);
+        return new ImageCache.Entry(FrameSource.of(image), new AlphaMask(image, AlphaMask.DEFAULT_THRESHOLD),
+                ImagePyramid.build(image, ScreenTopology.EMPTY));
+    }
+}
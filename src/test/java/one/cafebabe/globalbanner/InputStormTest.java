@@ -0,0 +1,445 @@
+package one.cafebabe.globalbanner;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+
+import static one.cafebabe.globalbanner.TestSupport.FRAME_INTERVAL;
+import static one.cafebabe.globalbanner.TestSupport.onEdt;
+import static one.cafebabe.globalbanner.TestSupport.screenManager;
+import static one.cafebabe.globalbanner.TestSupport.silenceStandardOutput;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress suite flooding the real banner listeners with synthetic mouse input, as
+ * touch screens and remote desktop clients do. Events are posted to the Event Dispatch
+ * Thread at a fixed high rate while a clock ticks once per frame, headless, with a
+ * plain component standing in for the banner window. Each storm reports the events
+ * handled per second, the deepest backlog on the EDT, the window movements started,
+ * and the CPU time and bytes the EDT spent per event to {@code build/reports/input-storm.csv}.
+ * It fails if the CPU time, the bytes or the window movements regress past their thresholds;
+ * the rate and the backlog depend on how busy the machine is, so they are only reported.
+ */
+public class InputStormTest {
+    /**
+     * Rate at which events are posted, in events per second
+     */
+    private static final int EVENT_RATE = 20_000;
+
+    /**
+     * Number of events per storm
+     */
+    private static final int EVENT_COUNT = 20_000;
+
+    /**
+     * Number of events of each storm run before measuring, so the listeners are compiled
+     */
+    private static final int WARMUP_COUNT = 5_000;
+
+    /**
+     * Most CPU time the EDT may spend per event in nanoseconds, so it keeps up with 10,000 events per second
+     */
+    private static final long MAX_CPU_PER_EVENT = TimeUnit.SECONDS.toNanos(1) / 10_000;
+
+    /**
+     * Most bytes the EDT may allocate per event
+     */
+    private static final long MAX_BYTES_PER_EVENT = 2048;
+
+    /**
+     * File the results of all storms are appended to
+     */
+    private static final Path REPORT = Paths.get("build", "reports", "input-storm.csv");
+
+    /**
+     * A banner built from the real listeners, with the measurements of the storm it is under.
+     */
+    private static final class Storm {
+        /**
+         * Clock ticked by the storm once per frame
+         */
+        final AnimationClock clock = AnimationClock.createManual(System::nanoTime);
+
+        /**
+         * Screen manager with two side-by-side screens
+         */
+        ScreenManager screenManager;
+
+        /**
+         * Window manager of the banner
+         */
+        WindowManager windowManager;
+
+        /**
+         * Component standing in for the banner window, counting its moves
+         */
+        JPanel frame;
+
+        /**
+         * Banner panel receiving the events
+         */
+        BannerPanel panel;
+
+        /**
+         * Screen selection menu of the banner
+         */
+        JPopupMenu popupMenu;
+
+        /**
+         * Number of times the window was moved
+         */
+        long frameMoves = 0;
+
+        /**
+         * Number of clock ticks
+         */
+        long ticks = 0;
+
+        /**
+         * Number of events posted and handled
+         */
+        final AtomicLong posted = new AtomicLong(), handled = new AtomicLong();
+
+        /**
+         * Deepest backlog of posted events not handled yet
+         */
+        long maxQueueDepth = 0;
+
+        /**
+         * Events handled per second
+         */
+        double eventsPerSecond;
+
+        /**
+         * CPU time the EDT spent per event in nanoseconds
+         */
+        double cpuPerEvent;
+
+        /**
+         * Bytes allocated on the EDT per event
+         */
+        double bytesPerEvent;
+
+        /**
+         * Builds the banner on the Event Dispatch Thread.
+         */
+        Storm() throws Exception {
+            SwingUtilities.invokeAndWait(() -> {
+                screenManager = screenManager(2);
+
+                BannerRegistry registry = new BannerRegistry(screenManager, clock);
+                windowManager = registry.createBanner(null);
+                panel = registry.createPanel(createImage());
+                frame = new JPanel(new BorderLayout()) {
+                    @Override
+                    public void setLocation(int x, int y) {
+                        frameMoves++;
+                        super.setLocation(x, y);
+                    }
+                };
+                frame.add(panel);
+                frame.setSize(panel.getPreferredSize());
+                frame.validate();
+                windowManager.setFrame(frame);
+                registry.layout();
+
+                popupMenu = new UIFactory(screenManager, windowManager).createScreenSelectionMenu(null);
+                Main.addBannerListeners(frame, panel, windowManager, popupMenu);
+            });
+        }
+
+        /**
+         * Posts the events of the storm at the event rate, ticking the clock once per frame,
+         * and waits until the EDT has handled all of them.
+         *
+         * @param events creates the action handling the event with the specified index
+         */
+        void run(IntFunction<Runnable> events) throws Exception {
+            run(events, EVENT_COUNT);
+        }
+
+        /**
+         * Posts a number of events of the storm at the event rate, ticking the clock once
+         * per frame, and waits until the EDT has handled all of them.
+         *
+         * @param events creates the action handling the event with the specified index
+         * @param count the number of events
+         */
+        void run(IntFunction<Runnable> events, int count) throws Exception {
+            // The screen manager reports every screen switch of the popup spam
+            PrintStream out = silenceStandardOutput();
+            try {
+                post(events, count);
+            } finally {
+                System.setOut(out);
+            }
+        }
+
+        /**
+         * Posts the events of {@link #run(IntFunction, int)} and measures how they are handled.
+         *
+         * @param events creates the action handling the event with the specified index
+         * @param count the number of events
+         */
+        private void post(IntFunction<Runnable> events, int count) throws Exception {
+            long edtId = onEdt(() -> Thread.currentThread().threadId());
+            com.sun.management.ThreadMXBean threads =
+                    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long allocatedBefore = threads.getThreadAllocatedBytes(edtId);
+            long cpuBefore = threads.getThreadCpuTime(edtId);
+
+            long start = System.nanoTime();
+            long nextTick = start + FRAME_INTERVAL;
+            for (int i = 0; i < count; i++) {
+                Runnable event = events.apply(i);
+                posted.incrementAndGet();
+                SwingUtilities.invokeLater(() -> {
+                    event.run();
+                    handled.incrementAndGet();
+                });
+                maxQueueDepth = Math.max(maxQueueDepth, posted.get() - handled.get());
+
+                // Keep to the event rate, and tick the clock whenever a frame is due
+                long due = start + (long) (i + 1) * TimeUnit.SECONDS.toNanos(1) / EVENT_RATE;
+                while (System.nanoTime() < due) {
+                    LockSupport.parkNanos(due - System.nanoTime());
+                }
+                if (System.nanoTime() >= nextTick) {
+                    nextTick += FRAME_INTERVAL;
+                    SwingUtilities.invokeLater(this::tick);
+                }
+            }
+            SwingUtilities.invokeAndWait(() -> { });
+            long elapsed = System.nanoTime() - start;
+
+            eventsPerSecond = handled.get() / (elapsed / 1e9);
+            cpuPerEvent = (double) (threads.getThreadCpuTime(edtId) - cpuBefore) / count;
+            bytesPerEvent = (double) (threads.getThreadAllocatedBytes(edtId) - allocatedBefore) / count;
+        }
+
+        /**
+         * Ticks the clock; runs on the Event Dispatch Thread.
+         */
+        void tick() {
+            ticks++;
+            clock.tick(System.nanoTime());
+        }
+
+        /**
+         * Ticks the clock until all animations have settled.
+         */
+        void settle() throws Exception {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (onEdt(clock::isRunning)) {
+                assertTrue(System.nanoTime() < deadline, "Animations did not settle");
+                Thread.sleep(TimeUnit.NANOSECONDS.toMillis(FRAME_INTERVAL));
+                SwingUtilities.invokeAndWait(this::tick);
+            }
+        }
+
+        /**
+         * Creates a mouse event on the banner panel.
+         *
+         * @param id the event type
+         * @param x the X coordinate on the screen
+         * @param y the Y coordinate on the screen
+         * @param button the button, or {@link MouseEvent#NOBUTTON}
+         * @param popupTrigger whether the event triggers the popup menu
+         * @return the event
+         */
+        MouseEvent mouseEvent(int id, int x, int y, int button, boolean popupTrigger) {
+            int modifiers = button == MouseEvent.BUTTON1 && id == MouseEvent.MOUSE_DRAGGED ? InputEvent.BUTTON1_DOWN_MASK : 0;
+            return new MouseEvent(panel, id, System.currentTimeMillis(), modifiers,
+                    x - frame.getX(), y - frame.getY(), x, y, 1, popupTrigger, button);
+        }
+
+        /**
+         * Checks the measurements against the thresholds and appends them to the report.
+         *
+         * @param scenario the name of the storm
+         */
+        void report(String scenario) throws IOException {
+            String line = String.format(Locale.ROOT, "%s,%d,%.0f,%d,%d,%d,%.0f,%.0f%n", scenario, handled.get(),
+                    eventsPerSecond, maxQueueDepth, windowManager.getMoveCount(), windowManager.getRetargetCount(),
+                    cpuPerEvent, bytesPerEvent);
+            System.out.print("Input storm " + line);
+            Files.createDirectories(REPORT.getParent());
+            if (!Files.exists(REPORT)) {
+                Files.writeString(REPORT, "scenario,events,events_per_second,max_queue_depth,moves,retargets,cpu_ns_per_event,bytes_per_event\n");
+            }
+            Files.writeString(REPORT, line, StandardOpenOption.APPEND);
+
+            assertEquals(EVENT_COUNT, handled.get());
+            assertTrue(cpuPerEvent <= MAX_CPU_PER_EVENT, scenario + " took " + cpuPerEvent + " ns of CPU/event");
+            assertTrue(bytesPerEvent <= MAX_BYTES_PER_EVENT, scenario + " allocated " + bytesPerEvent + " bytes/event");
+        }
+    }
+
+    /**
+     * Runs a short storm of each kind on a banner of its own, so the measured storms
+     * do not count class loading and compilation as regressions.
+     */
+    @BeforeAll
+    public static void warmUp() throws Exception {
+        Storm hover = new Storm();
+        hover.run(hoverFlapping(hover), WARMUP_COUNT);
+        Storm drag = new Storm();
+        drag.run(longDrag(drag, drag.frame.getX() + 10, drag.frame.getY() + 10), WARMUP_COUNT);
+        Storm popup = new Storm();
+        popup.run(popupSpam(popup), WARMUP_COUNT);
+    }
+
+    /**
+     * The pointer flaps in and out of the banner: every hover retargets the running
+     * movement instead of starting a new one, and the window ends exactly in a corner.
+     */
+    @Test
+    public void testHoverFlapping() throws Exception {
+        Storm storm = new Storm();
+        storm.run(hoverFlapping(storm));
+        storm.settle();
+        storm.report("hover-flapping");
+
+        assertTrue(storm.windowManager.getMoveCount() <= 5, storm.windowManager.getMoveCount() + " movements started");
+        assertEquals(EVENT_COUNT / 2, storm.windowManager.getMoveCount() + storm.windowManager.getRetargetCount());
+        Rectangle screen = storm.screenManager.getCurrentScreenInfo().getBounds();
+        int frameX = onEdt(storm.frame::getX);
+        assertTrue(frameX == screen.x + WindowManager.MARGIN
+                        || frameX == screen.x + screen.width - WindowManager.MARGIN - storm.frame.getWidth(),
+                "Window settled at " + frameX);
+    }
+
+    /**
+     * A long drag moves the window at most once per frame and ends where the pointer let go.
+     */
+    @Test
+    public void testLongDrag() throws Exception {
+        Storm storm = new Storm();
+        int startX = storm.frame.getX() + 10;
+        int startY = storm.frame.getY() + 10;
+        long movesBefore = storm.frameMoves;
+        storm.run(longDrag(storm, startX, startY));
+        storm.settle();
+        storm.report("long-drag");
+
+        assertEquals(startX - (EVENT_COUNT - 1) / 20 - 10, (int) onEdt(storm.frame::getX));
+        assertEquals(startY - (EVENT_COUNT - 1) / 40 - 10, (int) onEdt(storm.frame::getY));
+        long moves = storm.frameMoves - movesBefore;
+        assertTrue(moves <= storm.ticks + 1, moves + " moves in " + storm.ticks + " frames");
+        assertEquals(0, storm.windowManager.getMoveCount());
+    }
+
+    /**
+     * Right-clicks are spammed while screens are picked from the popup menu now and then:
+     * the banner follows every pick and ends on the screen picked last. Headless, the stand-in
+     * window never shows, so the right-clicks only run the listener up to its showing check
+     * and the popup is never shown or hidden; this storm measures the popup trigger handling
+     * and the screen picks, not the popup's own show and hide, which need a display.
+     */
+    @Test
+    public void testPopupSpam() throws Exception {
+        Storm storm = new Storm();
+        long movesBefore = storm.frameMoves;
+        storm.run(popupSpam(storm));
+        storm.settle();
+        storm.report("popup-spam");
+
+        // Every pick places the banner twice, by the layout following the switch and by the pick
+        // itself, and the right-clicks neither place nor animate it
+        assertEquals(2 * EVENT_COUNT / 100, storm.frameMoves - movesBefore);
+        assertEquals(0, storm.windowManager.getMoveCount() + storm.windowManager.getRetargetCount());
+
+        // The banner starts on the second screen, and the last pick, event 19999, selects the first
+        assertEquals("Display0", onEdt(() -> storm.screenManager.getCurrentScreenInfo().getId()));
+        assertTrue(onEdt(storm.frame::getX) < 1920, "Banner did not follow the screen");
+    }
+
+    /**
+     * Creates a storm of alternating enter and exit events over the banner.
+     *
+     * @param storm the storm
+     * @return the events
+     */
+    private static IntFunction<Runnable> hoverFlapping(Storm storm) {
+        int x = storm.frame.getX() + 10;
+        int y = storm.frame.getY() + 10;
+        return i -> {
+            MouseEvent event = storm.mouseEvent(i % 2 == 0 ? MouseEvent.MOUSE_ENTERED : MouseEvent.MOUSE_EXITED,
+                    x, y, MouseEvent.NOBUTTON, false);
+            return () -> storm.panel.dispatchEvent(event);
+        };
+    }
+
+    /**
+     * Creates a storm of one drag, pressing at the start and releasing with the last event,
+     * moving one pixel left every 20 events and one pixel up every 40.
+     *
+     * @param storm the storm
+     * @param startX the X coordinate on the screen where the drag starts
+     * @param startY the Y coordinate on the screen where the drag starts
+     * @return the events
+     */
+    private static IntFunction<Runnable> longDrag(Storm storm, int startX, int startY) {
+        return i -> {
+            int x = startX - i / 20;
+            int y = startY - i / 40;
+            MouseEvent event = i == 0 ? storm.mouseEvent(MouseEvent.MOUSE_PRESSED, x, y, MouseEvent.BUTTON1, false)
+                    : i == EVENT_COUNT - 1 ? storm.mouseEvent(MouseEvent.MOUSE_RELEASED, x, y, MouseEvent.BUTTON1, false)
+                    : storm.mouseEvent(MouseEvent.MOUSE_DRAGGED, x, y, MouseEvent.BUTTON1, false);
+            return () -> storm.panel.dispatchEvent(event);
+        };
+    }
+
+    /**
+     * Creates a storm of right-clicks, picking the other screen from the popup menu every 100 events.
+     * The picks click the menu items directly, as the popup cannot be shown headless.
+     *
+     * @param storm the storm
+     * @return the events
+     */
+    private static IntFunction<Runnable> popupSpam(Storm storm) {
+        JMenu screenMenu = (JMenu) storm.popupMenu.getComponent(0);
+        int x = storm.frame.getX() + 10;
+        int y = storm.frame.getY() + 10;
+        return i -> {
+            if (i % 100 == 99) {
+                JMenuItem item = screenMenu.getItem((i / 100 + 1) % 2);
+                return () -> item.doClick(0);
+            }
+            MouseEvent event = storm.mouseEvent(i % 2 == 0 ? MouseEvent.MOUSE_PRESSED : MouseEvent.MOUSE_RELEASED,
+                    x, y, MouseEvent.BUTTON3, true);
+            return () -> storm.panel.dispatchEvent(event);
+        };
+    }
+
+    /**
+     * Creates an opaque banner image.
+     *
+     * @return the image
+     */
+    private static BufferedImage createImage() {
+        BufferedImage image = new BufferedImage(200, 100, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.ORANGE);
+        g.fillRect(0, 0, 200, 100);
+        g.dispose();
+        return image;
+    }
+}
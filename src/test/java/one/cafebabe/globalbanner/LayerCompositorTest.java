@@ -0,0 +1,238 @@
+package one.cafebabe.globalbanner;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the LayerCompositor class and the layers of a banner. Runs headless,
+ * painting banner panels into offscreen surfaces.
+ */
+public class LayerCompositorTest {
+    /**
+     * Width of the banners
+     */
+    private static final int WIDTH = 400;
+
+    /**
+     * Height of the banners
+     */
+    private static final int HEIGHT = 100;
+
+    /**
+     * Font of the clocks, with digits of equal width
+     */
+    private static final Font CLOCK_FONT = new Font(Font.MONOSPACED, Font.BOLD, 14);
+
+    /**
+     * A banner image with a live clock and a status badge on top.
+     */
+    private static final class LayeredBanner {
+        /**
+         * Panel showing the banner
+         */
+        final BannerPanel panel = new BannerPanel(createImage());
+
+        /**
+         * Clock in the top left corner
+         */
+        final TextLayer clock = new TextLayer(CLOCK_FONT, Color.WHITE, new Color(0, 0, 0, 140), 8, 8, 120);
+
+        /**
+         * Badge in the top right corner
+         */
+        final BadgeLayer badge = new BadgeLayer(BadgeLayer.DEFAULT_FONT, WIDTH - 8, 8);
+
+        /**
+         * Surface the banner is painted into
+         */
+        final OffscreenSurface surface;
+
+        /**
+         * Creates a banner painted at a scale factor.
+         *
+         * @param clockText the time shown by the clock
+         * @param badgeLabel the label of the badge
+         * @param scale the scale factor of the surface
+         */
+        LayeredBanner(String clockText, String badgeLabel, double scale) {
+            panel.addLayer(clock);
+            panel.addLayer(badge);
+            clock.setText(clockText);
+            badge.setStatus(badgeLabel, Color.RED);
+            surface = new OffscreenSurface(WIDTH, HEIGHT, scale);
+        }
+
+        /**
+         * Paints the banner.
+         *
+         * @return the surface image
+         */
+        BufferedImage render() {
+            return surface.render(panel);
+        }
+    }
+
+    /**
+     * A clock ticking to the next second renders a few hundred pixels, not the banner.
+     */
+    @Test
+    public void testClockTickRendersFewPixels() {
+        LayeredBanner banner = new LayeredBanner("12:00:00", "LIVE", 1.0);
+        banner.render();
+        LayerCompositor compositor = banner.panel.getCompositor();
+        long renderedBefore = compositor.getRenderedPixelCount();
+        assertEquals((long) WIDTH * HEIGHT, renderedBefore);
+
+        banner.clock.setText("12:00:01");
+        assertEquals(1, compositor.getDirtyRectangles().size());
+        assertTrue(banner.clock.getBounds().contains(compositor.getDirtyRectangles().get(0)));
+        banner.render();
+
+        long rendered = compositor.getRenderedPixelCount() - renderedBefore;
+        assertTrue(rendered > 0 && rendered < 500, rendered + " pixels rendered for a clock tick");
+        assertTrue(compositor.getDirtyRectangles().isEmpty());
+    }
+
+    /**
+     * Painting without changes blits the backbuffer and renders nothing.
+     */
+    @Test
+    public void testUnchangedBannerRendersNothing() {
+        LayeredBanner banner = new LayeredBanner("12:00:00", "LIVE", 1.0);
+        BufferedImage first = copy(banner.render());
+        long rendered = banner.panel.getCompositor().getRenderedPixelCount();
+
+        BufferedImage second = banner.render();
+
+        assertEquals(rendered, banner.panel.getCompositor().getRenderedPixelCount());
+        assertSameImage(first, second);
+    }
+
+    /**
+     * Rendering only the changed parts shows exactly what compositing from scratch shows,
+     * including on a screen with a fractional scale factor.
+     */
+    @Test
+    public void testIncrementalRenderMatchesFreshRender() {
+        for (double scale : new double[]{1.0, 1.5}) {
+            LayeredBanner incremental = new LayeredBanner("12:00:00", "LIVE", scale);
+            incremental.render();
+            for (int second = 1; second <= 61; second++) {
+                incremental.clock.setText(String.format("12:%02d:%02d", second / 60, second % 60));
+                if (second == 30) {
+                    incremental.badge.setStatus("BUILD FAILED", Color.RED);
+                }
+                incremental.render();
+            }
+
+            LayeredBanner fresh = new LayeredBanner("12:01:01", "BUILD FAILED", scale);
+            assertSameImage(fresh.render(), incremental.render());
+        }
+    }
+
+    /**
+     * A badge kept at a margin from the right edge follows the content when it gets wider.
+     */
+    @Test
+    public void testBadgeFollowsResizedContent() {
+        LayeredBanner banner = new LayeredBanner("12:00:00", "LIVE", 1.0);
+        banner.badge.setRightMargin(8);
+        int badgeWidth = banner.badge.getBounds().width;
+
+        banner.panel.setTicker(new TextTicker(List.of("Now showing"), WIDTH * 2, AnimationClock.createManual(() -> 0)));
+        assertEquals(WIDTH * 2 - 8, (int) banner.badge.getBounds().getMaxX());
+        assertEquals(badgeWidth, banner.badge.getBounds().width);
+        assertEquals(8, banner.badge.getBounds().y);
+    }
+
+    /**
+     * Changing the badge renders the badge as it was and as it is, and hiding it restores the image.
+     */
+    @Test
+    public void testBadgeChangeRendersOnlyTheBadge() {
+        LayeredBanner banner = new LayeredBanner("12:00:00", "LIVE", 1.0);
+        BufferedImage withBadge = copy(banner.render());
+        Rectangle oldBounds = banner.badge.getBounds();
+
+        banner.badge.setStatus("BUILD FAILED", Color.RED);
+        Rectangle changed = oldBounds.union(banner.badge.getBounds());
+        for (Rectangle dirty : banner.panel.getCompositor().getDirtyRectangles()) {
+            assertTrue(changed.contains(dirty), dirty + " outside of the badge");
+        }
+        banner.render();
+
+        banner.badge.setStatus("LIVE", Color.RED);
+        assertSameImage(withBadge, banner.render());
+
+        banner.badge.setStatus("", Color.RED);
+        LayeredBanner withoutBadge = new LayeredBanner("12:00:00", "", 1.0);
+        assertSameImage(withoutBadge.render(), banner.render());
+    }
+
+    /**
+     * Many scattered changes are merged into one rectangle rather than rendered one by one.
+     */
+    @Test
+    public void testScatteredChangesAreMerged() {
+        LayerCompositor compositor = new LayerCompositor();
+        for (int i = 0; i < LayerCompositor.MAX_DIRTY_RECTANGLES; i++) {
+            assertTrue(compositor.markDirty(i * 20, 0, 10, 10));
+        }
+        assertEquals(LayerCompositor.MAX_DIRTY_RECTANGLES, compositor.getDirtyRectangles().size());
+        assertFalse(compositor.markDirty(2, 2, 5, 5));
+
+        compositor.markDirty(0, 50, 10, 10);
+        assertEquals(1, compositor.getDirtyRectangles().size());
+        assertEquals(new Rectangle(0, 0, 150, 60), compositor.getDirtyRectangles().get(0));
+    }
+
+    /**
+     * Creates a banner image with an opaque gradient, so the layers are composited over varying pixels.
+     *
+     * @return the image
+     */
+    private static BufferedImage createImage() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setPaint(new GradientPaint(0, 0, new Color(30, 60, 200), WIDTH, HEIGHT, new Color(240, 200, 40)));
+            g.fillRect(0, 0, WIDTH, HEIGHT);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Copies an image, so it survives the surface being painted again.
+     *
+     * @param image the image
+     * @return the copy
+     */
+    private static BufferedImage copy(BufferedImage image) {
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+        copy.setData(image.getData());
+        return copy;
+    }
+
+    /**
+     * Asserts that two images have the same pixels.
+     *
+     * @param expected the expected image
+     * @param actual the actual image
+     */
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "Pixel at " + x + "," + y);
+            }
+        }
+    }
+}
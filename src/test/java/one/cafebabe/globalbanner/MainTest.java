@@ -2,16 +2,51 @@ package one.cafebabe.globalbanner;
 
 import org.junit.jupiter.api.Test;
 
+import javax.swing.*;
+import java.awt.*;
+import java.io.IOException;
+
+import static one.cafebabe.globalbanner.TestSupport.screenManager;
+import static org.junit.jupiter.api.Assertions.*;
+
 /**
- * Test class for the Main class.
+ * Test class for the Main class. The banner window needs a display, so the startup
+ * path is driven headless up to the first paint, with a plain component standing in
+ * for the window and an offscreen surface for its screen.
  */
 public class MainTest {
-    
+
     /**
-     * A simple test to verify the test setup.
+     * The bundled image is decoded, prepared for the screens, mounted in its window by the
+     * startup code, placed in the corner of the selected screen and painted, which completes
+     * the startup milestones.
      */
     @Test
-    public void testMainClassExists() {
-        Main.main(new String[0]);
+    public void testBundledBannerStartsUpHeadless() throws IOException {
+        StartupMetrics startupMetrics = new StartupMetrics();
+        FrameSource image = ImageLoader.loadFrames("/image.png");
+        startupMetrics.imageDecoded();
+        ScreenManager screenManager = screenManager(2);
+        startupMetrics.screensDetected();
+        ImageCache.Entry content = ImageCache.prepare(image, AlphaMask.DEFAULT_THRESHOLD, screenManager.getTopology());
+
+        BannerRegistry registry = new BannerRegistry(screenManager, AnimationClock.createManual(() -> 0));
+        WindowManager windowManager = registry.createBanner(null);
+        JPopupMenu popupMenu = new UIFactory(screenManager, windowManager).createScreenSelectionMenu(null);
+        JPanel frame = new JPanel(new BorderLayout());
+        BannerPanel panel = Main.mountBanner(frame, content, windowManager, registry, popupMenu, startupMetrics, null);
+
+        assertSame(frame, windowManager.getFrame());
+        assertEquals(panel.getPreferredSize(), frame.getSize());
+        assertEquals(frame.getSize(), panel.getSize());
+        assertTrue(panel.getMouseListeners().length > 0, "Mouse listeners were not added");
+        assertEquals("Display1", windowManager.getScreen().getId());
+        assertTrue(windowManager.isAtCorner());
+        assertEquals(-1, startupMetrics.getTimeToFirstPaint());
+
+        new OffscreenSurface(frame.getWidth(), frame.getHeight()).render(frame);
+
+        assertTrue(startupMetrics.getTimeToFirstPaint() >= 0, "Banner was not painted");
+        assertTrue(startupMetrics.getReport().contains("first paint"), startupMetrics.getReport());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package one.cafebabe.globalbanner;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the PixelCache class, with the cache in a temporary directory.
+ */
+public class PixelCacheTest {
+    /**
+     * Sources whose names differ only in punctuation or by a suffix keep their own entries,
+     * and replacing the content of one of them removes only its older entry.
+     */
+    @Test
+    public void testSourcesDoNotEvictEachOther() throws Exception {
+        PixelCache cache = new PixelCache(Files.createTempDirectory("globalbanner"));
+        String[] names = {"/srv/banners/image.png", "/srv/banners/image.png-2", "/srv/banners/image_png", "/srv/banners/image png"};
+        byte[][] hashes = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            hashes[i] = PixelCache.hash(new byte[]{(byte) i});
+            cache.write(names[i], hashes[i], createImage(i));
+        }
+
+        byte[] newHash = PixelCache.hash(new byte[]{42});
+        cache.write(names[0], newHash, createImage(42));
+
+        assertNull(cache.read(names[0], hashes[0]));
+        assertEquals(42, cache.read(names[0], newHash).getRGB(0, 0) & 0xff);
+        for (int i = 1; i < names.length; i++) {
+            BufferedImage image = cache.read(names[i], hashes[i]);
+            assertNotNull(image, names[i] + " was evicted");
+            assertEquals(i, image.getRGB(0, 0) & 0xff);
+        }
+    }
+
+    /**
+     * Creates a small opaque image whose blue channel holds a value.
+     *
+     * @param value the value
+     * @return the image
+     */
+    private static BufferedImage createImage(int value) {
+        BufferedImage image = new BufferedImage(4, 2, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 2; y++) {
+            for (int x = 0; x < 4; x++) {
+                image.setRGB(x, y, 0xff000000 | value);
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,145 @@
+package one.cafebabe.globalbanner;
+
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.awt.*;
+import java.lang.management.ManagementFactory;
+
+import static one.cafebabe.globalbanner.TestSupport.FRAME_INTERVAL;
+import static one.cafebabe.globalbanner.TestSupport.screenManager;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the SpringMotion class and the window movements it drives,
+ * run against a virtual clock.
+ */
+public class SpringMotionTest {
+    /**
+     * A move settles exactly on its integer target, within the animation duration.
+     */
+    @Test
+    public void testSettlesExactlyOnTarget() {
+        SpringMotion spring = new SpringMotion(WindowManager.SPRING_FREQUENCY);
+        spring.reset(1770, 980);
+        spring.setTarget(50, 977);
+
+        long elapsed = 0;
+        while (spring.advance(FRAME_INTERVAL)) {
+            elapsed += FRAME_INTERVAL;
+            assertTrue(elapsed <= WindowManager.ANIMATION_DURATION, "Not settled after " + elapsed + " ns");
+            assertTrue(spring.getX() >= 50, "Overshot to " + spring.getX());
+        }
+        assertEquals(50, spring.getX());
+        assertEquals(977, spring.getY());
+        assertEquals(0.0, spring.getVelocityX());
+        assertTrue(spring.isSettled());
+    }
+
+    /**
+     * The path does not depend on how the elapsed time is split into frames.
+     */
+    @Test
+    public void testPathIsIndependentOfFrameRate() {
+        SpringMotion coarse = new SpringMotion(WindowManager.SPRING_FREQUENCY);
+        SpringMotion fine = new SpringMotion(WindowManager.SPRING_FREQUENCY);
+        coarse.reset(0, 0);
+        fine.reset(0, 0);
+        coarse.setTarget(1000, 200);
+        fine.setTarget(1000, 200);
+
+        coarse.advance(6 * FRAME_INTERVAL);
+        for (int i = 0; i < 6; i++) {
+            fine.advance(FRAME_INTERVAL);
+        }
+
+        assertEquals(coarse.getX(), fine.getX());
+        assertEquals(coarse.getY(), fine.getY());
+        assertEquals(coarse.getVelocityX(), fine.getVelocityX(), 1e-6);
+    }
+
+    /**
+     * Retargeting keeps the velocity, so the point keeps moving the way it went.
+     */
+    @Test
+    public void testRetargetKeepsVelocity() {
+        SpringMotion spring = new SpringMotion(WindowManager.SPRING_FREQUENCY);
+        spring.reset(0, 0);
+        spring.setTarget(1500, 0);
+        spring.advance(2 * FRAME_INTERVAL);
+        double velocity = spring.getVelocityX();
+        int x = spring.getX();
+        assertTrue(velocity > 0);
+
+        spring.setTarget(0, 0);
+        assertEquals(velocity, spring.getVelocityX());
+        spring.advance(FRAME_INTERVAL / 4);
+        assertTrue(spring.getX() > x, "Stopped at " + spring.getX() + " instead of coasting past " + x);
+    }
+
+    /**
+     * Advancing the spring allocates nothing.
+     */
+    @Test
+    public void testAdvanceDoesNotAllocate() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemorySupported()) {
+            return;
+        }
+        SpringMotion spring = new SpringMotion(WindowManager.SPRING_FREQUENCY);
+        spring.reset(0, 0);
+        long threadId = Thread.currentThread().threadId();
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            if (!spring.advance(FRAME_INTERVAL)) {
+                spring.setTarget((i & 1) == 0 ? 1500 : 0, i & 255);
+            }
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(allocated < 1024, allocated + " bytes allocated");
+    }
+
+    /**
+     * Hovering again mid-flight turns the window around smoothly: it never stalls
+     * and settles exactly in the corner it was sent to last.
+     */
+    @Test
+    public void testRapidHoversMoveWindowSmoothly() {
+        long[] now = {0};
+        AnimationClock clock = AnimationClock.createManual(() -> now[0]);
+        ScreenManager screenManager = screenManager(1);
+        WindowManager windowManager = new WindowManager(screenManager, clock);
+        JPanel frame = new JPanel();
+        frame.setSize(400, 100);
+        windowManager.setFrame(frame);
+        windowManager.positionWindowOnCurrentScreen();
+        int rightX = frame.getX();
+
+        // Hover three times, a few frames apart, then let the window settle
+        int previousX = frame.getX();
+        int previousStep = 0;
+        for (int frameIndex = 0; clock.isRunning() || frameIndex < 12; frameIndex++) {
+            if (frameIndex == 0 || frameIndex == 4 || frameIndex == 8) {
+                windowManager.moveWindowToOppositeCorner();
+            }
+            now[0] += FRAME_INTERVAL;
+            clock.tick(now[0]);
+            assertTrue(frameIndex < 60, "Window did not settle");
+
+            int step = frame.getX() - previousX;
+            if (frameIndex > 0 && frameIndex < 12 && previousStep != 0) {
+                // Momentum carries over: the window never stops dead and restarts from rest
+                assertNotEquals(0, step, "Window stalled in frame " + frameIndex);
+            }
+            previousX = frame.getX();
+            previousStep = step;
+        }
+
+        // Three hovers end in the left corner
+        assertEquals(WindowManager.MARGIN, frame.getX());
+        assertNotEquals(rightX, frame.getX());
+        assertFalse(windowManager.isAnimating());
+    }
+}
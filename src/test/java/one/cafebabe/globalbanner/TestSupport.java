@@ -0,0 +1,95 @@
+package one.cafebabe.globalbanner;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Fixtures shared by the tests, which all run headless.
+ */
+final class TestSupport {
+    /**
+     * Time between two frames at 60 Hz
+     */
+    static final long FRAME_INTERVAL = TimeUnit.SECONDS.toNanos(1) / 60;
+
+    /**
+     * CPU time a frame may take at 60 Hz, leaving the rest of the frame to the system
+     */
+    static final long FRAME_BUDGET = TimeUnit.MILLISECONDS.toNanos(8);
+
+    private TestSupport() {
+    }
+
+    /**
+     * Creates full HD screens placed side by side, named {@code Display0} and up.
+     *
+     * @param count the number of screens
+     * @return the screens
+     */
+    static List<ScreenInfo> screens(int count) {
+        List<ScreenInfo> screens = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            screens.add(new ScreenInfo(i, "Display" + i, null, new Rectangle(i * 1920, 0, 1920, 1080),
+                    new Insets(0, 0, 0, 0), 1.0, 1.0, new DisplayMode(1920, 1080, 32, 60)));
+        }
+        return screens;
+    }
+
+    /**
+     * Creates a screen manager with full HD screens placed side by side and the default screen selected.
+     *
+     * @param count the number of screens
+     * @return the screen manager
+     */
+    static ScreenManager screenManager(int count) {
+        ScreenManager screenManager = new ScreenManager();
+        screenManager.publishTopology(screens(count));
+        screenManager.selectDefaultScreen();
+        return screenManager;
+    }
+
+    /**
+     * Gets the CPU time the current thread has used. Unlike wall-clock time, it does not grow
+     * while the thread waits for a busy host, so budgets checked against it do not fail on
+     * loaded machines.
+     *
+     * @return the CPU time in nanoseconds
+     */
+    static long cpuTime() {
+        return ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+    }
+
+    /**
+     * Runs a query on the Event Dispatch Thread and waits for its result.
+     *
+     * @param query the query
+     * @param <T> the type of the result
+     * @return the result
+     */
+    static <T> T onEdt(Supplier<T> query) throws Exception {
+        Object[] result = new Object[1];
+        SwingUtilities.invokeAndWait(() -> result[0] = query.get());
+        @SuppressWarnings("unchecked")
+        T value = (T) result[0];
+        return value;
+    }
+
+    /**
+     * Discards everything printed to standard output until it is restored, e.g. the line
+     * the screen manager prints for every screen switch during an input storm.
+     *
+     * @return the standard output to restore with {@link System#setOut(PrintStream)}
+     */
+    static PrintStream silenceStandardOutput() {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return out;
+    }
+}
@@ -0,0 +1,147 @@
+package one.cafebabe.globalbanner;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the TextTicker class. Runs headless, drawing into offscreen images
+ * and ticking the ticker directly instead of through a clock.
+ */
+public class TextTickerTest {
+    /**
+     * Width of the tickers
+     */
+    private static final int WIDTH = 300;
+
+    /**
+     * Scroll speed, one pixel per frame
+     */
+    private static final double SPEED = 100;
+
+    /**
+     * Time between two frames, so every frame scrolls by exactly one pixel
+     */
+    private static final long FRAME_INTERVAL = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * Message long enough to wrap around the ticker several times
+     */
+    private static final String MESSAGE = "Build #1234 passed - all 56 tests green - deploying to staging";
+
+    /**
+     * Scrolling by shifting the backbuffer shows exactly what drawing the same position from scratch shows.
+     */
+    @Test
+    public void testScrolledBufferMatchesFreshRender() {
+        TextTicker scrolled = createTicker(MESSAGE);
+        BufferedImage scrolledImage = draw(scrolled);
+        long now = 1;
+        scrolled.tick(now);
+        for (int frame = 0; frame < 700; frame++) {
+            now += FRAME_INTERVAL;
+            scrolled.tick(now);
+            scrolledImage = draw(scrolled);
+        }
+
+        // The fresh ticker jumps there in one step, which redraws the whole backbuffer
+        TextTicker fresh = createTicker(MESSAGE);
+        draw(fresh);
+        fresh.tick(1);
+        fresh.tick(now);
+        BufferedImage freshImage = draw(fresh);
+
+        for (int y = 0; y < freshImage.getHeight(); y++) {
+            for (int x = 0; x < freshImage.getWidth(); x++) {
+                assertEquals(freshImage.getRGB(x, y), scrolledImage.getRGB(x, y), "Pixel at " + x + "," + y);
+            }
+        }
+    }
+
+    /**
+     * A frame draws as many glyphs however long the message is, and the message is laid out once.
+     */
+    @Test
+    public void testFrameCostIndependentOfMessageLength() {
+        TextTicker shortTicker = createTicker(MESSAGE);
+        TextTicker longTicker = createTicker(MESSAGE.repeat(200));
+
+        long shortGlyphs = glyphsDrawnWhileScrolling(shortTicker, 100);
+        long longGlyphs = glyphsDrawnWhileScrolling(longTicker, 100);
+
+        assertTrue(longGlyphs <= shortGlyphs + 20, longGlyphs + " glyphs drawn for the long message, "
+                + shortGlyphs + " for the short one");
+        assertEquals(1, shortTicker.getLayoutCount());
+        assertEquals(1, longTicker.getLayoutCount());
+    }
+
+    /**
+     * On a screen with another scale factor, the messages are laid out again in its device pixels.
+     */
+    @Test
+    public void testLaysOutAgainForAnotherScale() {
+        TextTicker ticker = createTicker(MESSAGE);
+        draw(ticker);
+        draw(ticker);
+        assertEquals(1, ticker.getLayoutCount());
+
+        BufferedImage surface = new BufferedImage(2 * WIDTH, 2 * ticker.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = surface.createGraphics();
+        g.scale(2, 2);
+        ticker.draw(g, 0, 0);
+        g.dispose();
+
+        assertEquals(2, ticker.getLayoutCount());
+        assertNotEquals(0, surface.getRGB(2 * WIDTH - 1, 0) >>> 24, "Ticker does not fill the scaled surface");
+    }
+
+    /**
+     * Creates a ticker showing one message.
+     *
+     * @param message the message
+     * @return the ticker, not drawn yet
+     */
+    private static TextTicker createTicker(String message) {
+        return new TextTicker(List.of(message), TextTicker.DEFAULT_FONT, WIDTH, SPEED,
+                AnimationClock.createManual(() -> 0));
+    }
+
+    /**
+     * Draws a ticker into a new image of its size.
+     *
+     * @param ticker the ticker
+     * @return the image
+     */
+    private static BufferedImage draw(TextTicker ticker) {
+        BufferedImage surface = new BufferedImage(ticker.getWidth(), ticker.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = surface.createGraphics();
+        ticker.draw(g, 0, 0);
+        g.dispose();
+        return surface;
+    }
+
+    /**
+     * Scrolls a ticker frame by frame and counts the glyphs drawn after the first draw.
+     *
+     * @param ticker the ticker
+     * @param frames the number of frames
+     * @return the number of glyphs drawn while scrolling
+     */
+    private static long glyphsDrawnWhileScrolling(TextTicker ticker, int frames) {
+        draw(ticker);
+        long before = ticker.getGlyphDrawCount();
+        long now = 1;
+        ticker.tick(now);
+        for (int frame = 0; frame < frames; frame++) {
+            now += FRAME_INTERVAL;
+            ticker.tick(now);
+            draw(ticker);
+        }
+        return ticker.getGlyphDrawCount() - before;
+    }
+}